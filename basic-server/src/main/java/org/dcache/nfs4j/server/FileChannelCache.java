@@ -0,0 +1,305 @@
+package org.dcache.nfs4j.server;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileSystemException;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.concurrent.GuardedBy;
+
+import org.dcache.nfs.status.AccessException;
+import org.dcache.nfs.vfs.Inode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A bounded cache of open {@link FileChannel}s keyed by {@link Inode}.
+ * <p>
+ * Channels are kept open while the file is open by an NFSv4 client (see {@link #open(Inode, Path)} and
+ * {@link #close(Inode)}) and, for stateless access (NFSv3), until they are idle for longer than the idle timeout.
+ * Each channel is reference counted, thus an evicted channel is closed only after the last in-flight I/O on it has
+ * completed.
+ * <p>
+ * The idle channels are kept in order they became idle, thus the expired and the least recently used ones are found
+ * in constant time. If the cache is full of channels in use, new channels are not cached, but closed after use.
+ */
+class FileChannelCache implements AutoCloseable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(FileChannelCache.class);
+
+    @GuardedBy("this")
+    private final Map<Inode, CachedChannel> channels = new HashMap<>();
+
+    /**
+     * The cached channels not in use, the least recently used first.
+     */
+    @GuardedBy("this")
+    private final LinkedHashMap<Inode, CachedChannel> idle = new LinkedHashMap<>();
+
+    private final int maxSize;
+    private final long idleTimeoutNanos;
+
+    /**
+     * @param maxSize maximal number of cached channels.
+     * @param idleTimeout time after which a channel not opened by a client is closed.
+     * @param unit time unit of {@code idleTimeout}.
+     */
+    FileChannelCache(int maxSize, long idleTimeout, TimeUnit unit) {
+        this.maxSize = maxSize;
+        this.idleTimeoutNanos = unit.toNanos(idleTimeout);
+    }
+
+    /**
+     * Get an open channel for the given inode. The returned channel must be released with
+     * {@link CachedChannel#close()} after use.
+     *
+     * @param inode the inode of the file.
+     * @param path the path of the file, used if the channel is not cached yet.
+     * @return cached channel.
+     * @throws IOException if file can't be opened.
+     */
+    CachedChannel acquire(Inode inode, Path path) throws IOException {
+        synchronized (this) {
+            expireIdle(System.nanoTime());
+            CachedChannel cached = channels.get(inode);
+            if (cached != null) {
+                retain(cached);
+                return cached;
+            }
+        }
+
+        CachedChannel opened = openChannel(inode, path);
+        synchronized (this) {
+            CachedChannel cached = channels.get(inode);
+            if (cached != null) {
+                // opened concurrently
+                opened.closeChannel();
+                retain(cached);
+                return cached;
+            }
+
+            opened.refs = 1;
+            if (channels.size() < maxSize || evictEldestIdle()) {
+                channels.put(inode, opened);
+            } else {
+                // all cached channels are in use, close this one after use
+                opened.evicted = true;
+            }
+            return opened;
+        }
+    }
+
+    /**
+     * Open the channel of the given inode and pin it in the cache until matching {@link #close(Inode)}. If the
+     * cache is full of pinned channels, the channel is not cached and each I/O opens the file.
+     *
+     * @param inode the inode of the file.
+     * @param path the path of the file, used if the channel is not cached yet.
+     * @throws IOException if file can't be opened.
+     */
+    void open(Inode inode, Path path) throws IOException {
+        try (CachedChannel cached = acquire(inode, path)) {
+            synchronized (this) {
+                if (!cached.evicted) {
+                    cached.opens++;
+                }
+            }
+        }
+    }
+
+    /**
+     * Release the pin acquired with {@link #open(Inode, Path)}. If the file is not open anymore, the channel is
+     * evicted.
+     *
+     * @param inode the inode of the file.
+     */
+    synchronized void close(Inode inode) {
+        CachedChannel cached = channels.get(inode);
+        if (cached != null && cached.opens > 0 && --cached.opens == 0) {
+            evict(cached);
+        }
+    }
+
+    /**
+     * Drop the cached channel of the given inode, e.g. when the file is removed.
+     *
+     * @param inode the inode of the file.
+     */
+    synchronized void invalidate(Inode inode) {
+        CachedChannel cached = channels.get(inode);
+        if (cached != null) {
+            evict(cached);
+        }
+    }
+
+    /**
+     * Number of the cached channels.
+     */
+    synchronized int size() {
+        return channels.size();
+    }
+
+    @Override
+    public synchronized void close() {
+        new ArrayList<>(channels.values()).forEach(this::evict);
+    }
+
+    private CachedChannel openChannel(Inode inode, Path path) throws IOException {
+        try {
+            return new CachedChannel(inode, FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE),
+                    true);
+        } catch (NoSuchFileException e) {
+            throw e;
+        } catch (FileSystemException e) {
+            // read-only file, file system or busy executable (EACCES, EROFS, ETXTBSY). The channel is shared
+            // by readers and writers, thus writes must be rejected
+            return new CachedChannel(inode, FileChannel.open(path, StandardOpenOption.READ), false);
+        }
+    }
+
+    @GuardedBy("this")
+    private void retain(CachedChannel cached) {
+        if (cached.isIdle()) {
+            idle.remove(cached.inode);
+        }
+        cached.refs++;
+    }
+
+    @GuardedBy("this")
+    private void release(CachedChannel cached) {
+        cached.refs--;
+        if (!cached.isIdle()) {
+            return;
+        }
+        if (cached.evicted) {
+            cached.closeChannel();
+        } else {
+            cached.idleSince = System.nanoTime();
+            idle.put(cached.inode, cached);
+        }
+    }
+
+    @GuardedBy("this")
+    private void evict(CachedChannel cached) {
+        channels.remove(cached.inode);
+        idle.remove(cached.inode);
+        cached.evicted = true;
+        if (cached.refs == 0) {
+            cached.closeChannel();
+        }
+    }
+
+    /**
+     * Close channels, which are idle for too long.
+     */
+    @GuardedBy("this")
+    private void expireIdle(long now) {
+        Iterator<CachedChannel> it = idle.values().iterator();
+        while (it.hasNext()) {
+            CachedChannel cached = it.next();
+            if (now - cached.idleSince < idleTimeoutNanos) {
+                break;
+            }
+            it.remove();
+            evict(cached);
+        }
+    }
+
+    /**
+     * Close the least recently used idle channel.
+     *
+     * @return false if there is no idle channel.
+     */
+    @GuardedBy("this")
+    private boolean evictEldestIdle() {
+        Iterator<CachedChannel> it = idle.values().iterator();
+        if (!it.hasNext()) {
+            return false;
+        }
+        CachedChannel cached = it.next();
+        it.remove();
+        evict(cached);
+        return true;
+    }
+
+    /**
+     * A reference counted file channel. The counters are guarded by the cache.
+     */
+    class CachedChannel implements AutoCloseable {
+
+        private final Inode inode;
+        private final FileChannel channel;
+
+        /**
+         * Whether the channel is opened for writing.
+         */
+        private final boolean writable;
+
+        /**
+         * Number of in-flight operations using the channel.
+         */
+        private int refs;
+
+        /**
+         * Number of client opens of the file.
+         */
+        private int opens;
+
+        private boolean evicted;
+
+        private long idleSince;
+
+        private CachedChannel(Inode inode, FileChannel channel, boolean writable) {
+            this.inode = inode;
+            this.channel = channel;
+            this.writable = writable;
+        }
+
+        FileChannel channel() {
+            return channel;
+        }
+
+        /**
+         * Get the channel for writing.
+         *
+         * @return the file channel.
+         * @throws AccessException if the file could be opened only for reading.
+         */
+        FileChannel writableChannel() throws AccessException {
+            if (!writable) {
+                throw new AccessException("File is not writable");
+            }
+            return channel;
+        }
+
+        private boolean isIdle() {
+            return refs == 0 && opens == 0;
+        }
+
+        /**
+         * Release the channel acquired with {@link FileChannelCache#acquire(Inode, Path)}.
+         */
+        @Override
+        public void close() {
+            synchronized (FileChannelCache.this) {
+                release(this);
+            }
+        }
+
+        private void closeChannel() {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                LOG.warn("Failed to close file channel: {}", e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,272 @@
+package org.dcache.nfs4j.server;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.concurrent.GuardedBy;
+
+import org.dcache.nfs.vfs.Inode;
+import org.dcache.oncrpc4j.util.Opaque;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * An append-only on-disk index of file handles to paths relative to the exported root. The index is used to resolve
+ * handles which are not known to the file system yet, e.g. handles issued before the server restart, without
+ * scanning the exported tree.
+ * <p>
+ * Each record is a line with hex encoded file handle and base64 encoded path. Later records override the earlier
+ * ones. The records are loaded when the index is opened, thus only new or changed mappings are appended. The appended
+ * records are buffered and written in batches, and the file is compacted once it contains too many overridden
+ * records. As a path might be modified outside of the server, the resolved path must be verified by the caller.
+ */
+class HandleIndex implements Closeable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(HandleIndex.class);
+
+    private static final HexFormat HEX = HexFormat.of();
+
+    /**
+     * Size of buffered records in bytes above which they are written by the updating thread.
+     */
+    private static final int FLUSH_THRESHOLD = 64 * 1024;
+
+    /**
+     * Time in milliseconds after which buffered records are written.
+     */
+    private static final long FLUSH_INTERVAL = 1000;
+
+    /**
+     * Minimal number of records in the file before compaction is considered.
+     */
+    private static final int MIN_COMPACT_RECORDS = 1024;
+
+    private final Path file;
+
+    /**
+     * Guards the file channel. Acquired before the index lock, if both are needed.
+     */
+    private final Object writeLock = new Object();
+
+    @GuardedBy("writeLock")
+    private FileChannel channel;
+
+    @GuardedBy("this")
+    private final Map<Inode, String> entries;
+
+    /**
+     * Records not written to the file yet.
+     */
+    @GuardedBy("this")
+    private StringBuilder pending = new StringBuilder();
+
+    /**
+     * Number of records in the file, including the pending ones.
+     */
+    @GuardedBy("this")
+    private int records;
+
+    private final ScheduledExecutorService flusher;
+
+    /**
+     * @param file the file to store the index in, created if doesn't exist.
+     * @throws IOException if the file can't be opened.
+     */
+    HandleIndex(Path file) throws IOException {
+        this.file = file;
+        this.entries = new HashMap<>();
+        this.channel = open(file);
+        load();
+        if (records >= MIN_COMPACT_RECORDS && records > 2 * entries.size()) {
+            compact();
+        }
+
+        flusher = Executors.newSingleThreadScheduledExecutor(
+                new ThreadFactoryBuilder()
+                        .setNameFormat("handle index flusher")
+                        .setDaemon(true)
+                        .build());
+        flusher.scheduleWithFixedDelay(this::flushIgnoreFailures, FLUSH_INTERVAL, FLUSH_INTERVAL,
+                TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Record the path of a file handle.
+     *
+     * @param inode the file handle.
+     * @param path the path relative to the exported root.
+     */
+    void put(Inode inode, String path) {
+        synchronized (this) {
+            if (path.equals(entries.put(inode, path))) {
+                return;
+            }
+            pending.append(toRecord(inode, path));
+            records++;
+            if (pending.length() < FLUSH_THRESHOLD) {
+                return;
+            }
+        }
+        flushIgnoreFailures();
+    }
+
+    /**
+     * Get the path of a file handle.
+     *
+     * @param inode the file handle.
+     * @return the path relative to the exported root, or null if the handle is unknown.
+     */
+    synchronized String get(Inode inode) {
+        return entries.get(inode);
+    }
+
+    /**
+     * Write the buffered records and release the file.
+     */
+    @Override
+    public void close() throws IOException {
+        flusher.shutdown();
+        synchronized (writeLock) {
+            try {
+                flush();
+            } finally {
+                channel.close();
+            }
+        }
+    }
+
+    private void flushIgnoreFailures() {
+        try {
+            synchronized (writeLock) {
+                flush();
+            }
+        } catch (IOException e) {
+            LOG.warn("Failed to update handle index {}: {}", file, e.getMessage());
+        }
+    }
+
+    @GuardedBy("writeLock")
+    private void flush() throws IOException {
+        String batch;
+        boolean needCompaction;
+        synchronized (this) {
+            if (pending.length() == 0) {
+                return;
+            }
+            batch = pending.toString();
+            pending = new StringBuilder();
+            needCompaction = records >= MIN_COMPACT_RECORDS && records > 2 * entries.size();
+        }
+
+        if (needCompaction) {
+            // the compacted file includes the batch
+            compact();
+            return;
+        }
+
+        try {
+            write(channel, batch);
+            channel.force(false);
+        } catch (IOException e) {
+            // keep the records for the next attempt, a partially written batch is overridden by the repeated one
+            synchronized (this) {
+                pending.insert(0, batch);
+            }
+            throw e;
+        }
+    }
+
+    private void load() throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.US_ASCII)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                int separator = line.indexOf(' ');
+                if (separator < 0) {
+                    // incomplete record
+                    continue;
+                }
+                try {
+                    Inode inode = Inode.forFileIdKey(Opaque.forImmutableBytes(HEX.parseHex(line, 0, separator)));
+                    String path = new String(Base64.getDecoder().decode(line.substring(separator + 1)),
+                            StandardCharsets.UTF_8);
+                    entries.put(inode, path);
+                    records++;
+                } catch (IllegalArgumentException e) {
+                    // incomplete record
+                }
+            }
+        }
+
+        // terminate a record truncated by a crash, thus it isn't merged with the next one
+        try (SeekableByteChannel in = Files.newByteChannel(file)) {
+            if (in.size() > 0) {
+                ByteBuffer last = ByteBuffer.allocate(1);
+                in.position(in.size() - 1).read(last);
+                if (last.get(0) != '\n') {
+                    pending.append('\n');
+                }
+            }
+        }
+    }
+
+    @GuardedBy("writeLock")
+    private void compact() throws IOException {
+        StringBuilder sb = new StringBuilder();
+        synchronized (this) {
+            entries.forEach((inode, path) -> sb.append(toRecord(inode, path)));
+            records = entries.size();
+            pending = new StringBuilder();
+        }
+
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel out = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            write(out, sb);
+            out.force(false);
+        }
+        channel.close();
+        try {
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            channel = open(file);
+        }
+    }
+
+    /**
+     * Write the records, handling short writes.
+     */
+    private static void write(FileChannel out, CharSequence records) throws IOException {
+        ByteBuffer bb = ByteBuffer.wrap(records.toString().getBytes(StandardCharsets.US_ASCII));
+        while (bb.hasRemaining()) {
+            out.write(bb);
+        }
+    }
+
+    private static FileChannel open(Path file) throws IOException {
+        return FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+    }
+
+    private static String toRecord(Inode inode, String path) {
+        return HEX.formatHex(inode.getFileIdKey().toBytes()) + ' '
+                + Base64.getEncoder().encodeToString(path.getBytes(StandardCharsets.UTF_8)) + '\n';
+    }
+}
@@ -2,8 +2,10 @@ package org.dcache.nfs4j.server;
 
 import static java.nio.file.LinkOption.NOFOLLOW_LINKS;
 
+import java.io.Closeable;
 import java.io.IOException;
 import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
 import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
@@ -11,14 +13,11 @@ import java.nio.file.DirectoryNotEmptyException;
 import java.nio.file.FileAlreadyExistsException;
 import java.nio.file.FileStore;
 import java.nio.file.FileSystems;
-import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
-import java.nio.file.SimpleFileVisitor;
 import java.nio.file.StandardCopyOption;
 import java.nio.file.StandardOpenOption;
-import java.nio.file.attribute.BasicFileAttributeView;
-import java.nio.file.attribute.BasicFileAttributes;
 import java.nio.file.attribute.DosFileAttributeView;
 import java.nio.file.attribute.DosFileAttributes;
 import java.nio.file.attribute.FileTime;
@@ -27,9 +26,20 @@ import java.nio.file.attribute.PosixFileAttributeView;
 import java.nio.file.attribute.UserPrincipal;
 import java.nio.file.attribute.UserPrincipalLookupService;
 import java.security.Principal;
-import java.util.ArrayList;
+import java.time.Instant;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import javax.security.auth.Subject;
 
@@ -39,12 +49,14 @@ import org.dcache.nfs.FsExport;
 import org.dcache.nfs.status.ExistException;
 import org.dcache.nfs.status.InvalException;
 import org.dcache.nfs.status.IsDirException;
+import org.dcache.nfs.status.NfsIoException;
 import org.dcache.nfs.status.NoEntException;
 import org.dcache.nfs.status.NotEmptyException;
 import org.dcache.nfs.status.NotSuppException;
 import org.dcache.nfs.status.PermException;
 import org.dcache.nfs.status.ServerFaultException;
 import org.dcache.nfs.status.StaleException;
+import org.dcache.nfs.util.BufferPool;
 import org.dcache.nfs.v4.NfsIdMapping;
 import org.dcache.nfs.v4.SimpleIdMap;
 import org.dcache.nfs.v4.xdr.nfsace4;
@@ -53,20 +65,25 @@ import org.dcache.nfs.vfs.DirectoryEntry;
 import org.dcache.nfs.vfs.DirectoryStream;
 import org.dcache.nfs.vfs.FsStat;
 import org.dcache.nfs.vfs.Inode;
+import org.dcache.nfs.vfs.OpenHandle;
 import org.dcache.nfs.vfs.Stat;
 import org.dcache.nfs.vfs.Stat.Type;
 import org.dcache.nfs.vfs.VirtualFileSystem;
+import org.dcache.nfs4j.server.FileChannelCache.CachedChannel;
 import org.dcache.oncrpc4j.util.Opaque;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.primitives.Longs;
 import com.sun.security.auth.UnixNumericGroupPrincipal;
 import com.sun.security.auth.UnixNumericUserPrincipal;
 
 /**
  *
  */
-public class LocalFileSystem implements VirtualFileSystem {
+public class LocalFileSystem implements VirtualFileSystem, Closeable {
 
     private static final Logger LOG = LoggerFactory.getLogger(LocalFileSystem.class);
 
@@ -74,11 +91,60 @@ public class LocalFileSystem implements VirtualFileSystem {
     private final FileStore _store;
     private final NonBlockingHashMap<Inode, Path> inodeToPath = new NonBlockingHashMap<>();
     private final NonBlockingHashMap<Path, Inode> pathToInode = new NonBlockingHashMap<>();
+
+    /**
+     * Additional names (hard links) of files, which primary name is kept in {@link #inodeToPath}. The sets are only
+     * accessed within the atomic operations of the map.
+     */
+    private final ConcurrentHashMap<Inode, Set<Path>> inodeToAliases = new ConcurrentHashMap<>();
     private final Inode rootInode;
+
+    /**
+     * Index of handles to paths, used to resolve the handles unknown to this instance, or null.
+     */
+    private final HandleIndex _handleIndex;
     private final NfsIdMapping _idMapper = new SimpleIdMap();
     private final UserPrincipalLookupService _lookupService =
             FileSystems.getDefault().getUserPrincipalLookupService();
 
+    /**
+     * Names of recently listed directories, keyed by directory and its verifier.
+     */
+    private final Cache<DirectorySnapshotKey, List<Path>> _directorySnapshots = CacheBuilder.newBuilder()
+            .maximumWeight(MAX_SNAPSHOT_ENTRIES)
+            .weigher((DirectorySnapshotKey k, List<Path> v) -> v.size())
+            .expireAfterAccess(DIRECTORY_SNAPSHOT_TIMEOUT, TimeUnit.SECONDS)
+            .build();
+    private final FileChannelCache _channelCache =
+            new FileChannelCache(MAX_CACHED_CHANNELS, CHANNEL_IDLE_TIMEOUT, TimeUnit.SECONDS);
+
+    /**
+     * Number of open file channels above which idle channels are closed.
+     */
+    private static final int MAX_CACHED_CHANNELS = 1024;
+
+    /**
+     * Time in seconds after which a channel of a file not opened by an NFSv4 client is closed.
+     */
+    private static final long CHANNEL_IDLE_TIMEOUT = 60;
+
+    /**
+     * Total number of directory entries kept in the snapshots of listed directories.
+     */
+    private static final long MAX_SNAPSHOT_ENTRIES = 1_000_000;
+
+    /**
+     * Time in seconds after which an unused directory snapshot is dropped.
+     */
+    private static final long DIRECTORY_SNAPSHOT_TIMEOUT = 60;
+
+    /**
+     * Attributes of unix view needed to build {@link Stat}. Owner and group names are not requested, as resolving
+     * them is expensive.
+     */
+    private static final String UNIX_STAT_ATTRIBUTES =
+            "unix:size,lastAccessTime,lastModifiedTime,creationTime,ctime,uid,gid,mode,nlink";
+
     private final static boolean IS_UNIX;
     static {
         IS_UNIX = !System.getProperty("os.name").startsWith("Win");
@@ -91,21 +157,79 @@ public class LocalFileSystem implements VirtualFileSystem {
     private Path resolveInode(Inode inodeNumber) throws ChimeraNFSException {
         Path path = inodeToPath.get(inodeNumber);
         if (path == null) {
-            throw new StaleException("inode #" + inodeNumber);
+            path = resolveIndexedInode(inodeNumber);
+            if (path == null) {
+                throw new StaleException("inode #" + inodeNumber);
+            }
         }
         return path;
     }
 
-    private Inode resolvePath(Path path) throws NoEntException {
+    /**
+     * Resolve a handle, which is not known to this instance, e.g. issued before restart, with help of the handle
+     * index.
+     *
+     * @return the path of the file or null, if handle can't be resolved.
+     */
+    private Path resolveIndexedInode(Inode inodeNumber) {
+        if (_handleIndex == null) {
+            return null;
+        }
+
+        String relativePath = _handleIndex.get(inodeNumber);
+        if (relativePath == null) {
+            return null;
+        }
+
+        Path path = _root.resolve(relativePath);
+        try {
+            if (!inodeNumber.equals(fileIdOf(path))) {
+                // the file was removed or replaced
+                return null;
+            }
+        } catch (IOException e) {
+            return null;
+        }
+
+        Path knownPath = inodeToPath.putIfAbsent(inodeNumber, path);
+        if (knownPath != null) {
+            return knownPath;
+        }
+        pathToInode.put(path, inodeNumber);
+        return path;
+    }
+
+    private Inode resolvePath(Path path) throws IOException {
         Inode inodeNumber = pathToInode.get(path);
         if (inodeNumber == null) {
-            if (!Files.exists(path)) {
+            inodeNumber = map(path, false);
+        }
+        return inodeNumber;
+    }
+
+    /**
+     * Get the handle of a file. On unix, the handle is derived from the device and inode number of the file, thus
+     * it stays valid over the server restarts.
+     */
+    private static Inode fileIdOf(Path path) throws IOException {
+        if (!IS_UNIX) {
+            if (!Files.exists(path, NOFOLLOW_LINKS)) {
                 throw new NoEntException("path " + path);
             }
-            inodeNumber = newInode();
-            map(inodeNumber, path);
+            return newInode();
         }
-        return inodeNumber;
+
+        Map<String, Object> attributes;
+        try {
+            attributes = Files.readAttributes(path, "unix:dev,ino", NOFOLLOW_LINKS);
+        } catch (NoSuchFileException e) {
+            throw new NoEntException("path " + path);
+        }
+
+        ByteBuffer bb = ByteBuffer.allocate(16);
+        bb.putLong((Long) attributes.get("dev"));
+        bb.putLong((Long) attributes.get("ino"));
+        return Inode.forFileIdKey(Opaque.forImmutableBytes(bb.array()));
     }
 
     private static Inode newInode() {
@@ -120,52 +244,100 @@ public class LocalFileSystem implements VirtualFileSystem {
     }
 
     /**
-     * Map an inode number to a path.
+     * Map a path to the handle of the file it points to.
      *
-     * @param inodeNumber the inode number
      * @param path the path
-     * @param force if true, overwrite any existing mapping
+     * @param force if true, resolve the handle to this path even if the file is known by another name (hard link)
+     * @return the handle of the file
      */
-    private void map(Inode inodeNumber, Path path, boolean force) {
-        if (inodeToPath.putIfAbsent(inodeNumber, path) != null) {
-            throw new IllegalStateException();
+    private Inode map(Path path, boolean force) throws IOException {
+        Inode inodeNumber = fileIdOf(path);
+        Inode replaced = pathToInode.put(path, inodeNumber);
+        if (replaced != null && !replaced.equals(inodeNumber)) {
+            forget(replaced, path);
         }
 
-        if (force) {
-            pathToInode.put(path, inodeNumber);
-        } else {
-            Inode otherInodeNumber = pathToInode.putIfAbsent(path, inodeNumber);
-            if (otherInodeNumber != null) {
-                // try rollback
-                if (inodeToPath.remove(inodeNumber) != path) {
-                    throw new IllegalStateException("cant map, rollback failed");
-                }
-                throw new IllegalStateException("path " + path + " already mapped to " + otherInodeNumber);
-            }
+        Path knownPath = force ? inodeToPath.put(inodeNumber, path) : inodeToPath.putIfAbsent(inodeNumber, path);
+        if (knownPath != null && !knownPath.equals(path)) {
+            // the file is known by another name, which stays valid
+            addAlias(inodeNumber, force ? knownPath : path);
+        }
+        if (_handleIndex != null && (force || knownPath == null)) {
+            _handleIndex.put(inodeNumber, _root.relativize(path).toString());
         }
+        return inodeNumber;
     }
 
-    private void map(Inode inodeNumber, Path path) {
-        map(inodeNumber, path, false);
+    private void unmap(Inode inodeNumber, Path path) {
+        pathToInode.remove(path, inodeNumber);
+        forget(inodeNumber, path);
     }
 
-    private void unmap(Inode inodeNumber, Path path) {
-        Path removedPath = inodeToPath.remove(inodeNumber);
-        if (!path.equals(removedPath)) {
-            throw new IllegalStateException();
+    private void remap(Inode inodeNumber, Path oldPath, Path newPath) {
+        pathToInode.remove(oldPath, inodeNumber);
+        Inode replaced = pathToInode.put(newPath, inodeNumber);
+        if (replaced != null && !replaced.equals(inodeNumber)) {
+            forget(replaced, newPath);
+        }
+        removeAlias(inodeNumber, oldPath);
+        Path knownPath = inodeToPath.put(inodeNumber, newPath);
+        if (knownPath != null && !knownPath.equals(oldPath) && !knownPath.equals(newPath)) {
+            // an alias was renamed, the primary name stays valid
+            addAlias(inodeNumber, knownPath);
         }
-        if (pathToInode.remove(path) != inodeNumber) {
-            throw new IllegalStateException();
+        if (_handleIndex != null) {
+            _handleIndex.put(inodeNumber, _root.relativize(newPath).toString());
         }
     }
 
-    private void remap(Inode inodeNumber, Path oldPath, Path newPath) {
-        // TODO - attempt rollback?
-        unmap(inodeNumber, oldPath);
-        map(inodeNumber, newPath, true);
+    /**
+     * Drop a name of a file. If it was the primary name, one of the remaining hard links takes over, and the handle
+     * index is updated to point to it.
+     */
+    private void forget(Inode inodeNumber, Path path) {
+        removeAlias(inodeNumber, path);
+        if (!inodeToPath.remove(inodeNumber, path)) {
+            return;
+        }
+
+        Path[] alias = new Path[1];
+        inodeToAliases.computeIfPresent(inodeNumber, (i, aliases) -> {
+            Iterator<Path> it = aliases.iterator();
+            alias[0] = it.next();
+            it.remove();
+            return aliases.isEmpty() ? null : aliases;
+        });
+        if (alias[0] != null && inodeToPath.putIfAbsent(inodeNumber, alias[0]) == null && _handleIndex != null) {
+            _handleIndex.put(inodeNumber, _root.relativize(alias[0]).toString());
+        }
+    }
+
+    private void addAlias(Inode inodeNumber, Path path) {
+        inodeToAliases.compute(inodeNumber, (i, aliases) -> {
+            Set<Path> s = aliases == null ? new HashSet<>() : aliases;
+            s.add(path);
+            return s;
+        });
+    }
+
+    private void removeAlias(Inode inodeNumber, Path path) {
+        inodeToAliases.computeIfPresent(inodeNumber, (i, aliases) -> {
+            aliases.remove(path);
+            return aliases.isEmpty() ? null : aliases;
+        });
     }
 
     public LocalFileSystem(Path root, Iterable<FsExport> exportIterable) throws IOException {
+        this(root, exportIterable, null);
+    }
+
+    /**
+     * @param root the root of the file system.
+     * @param exportIterable the exports, which directories are created if don't exist.
+     * @param handleIndex the file to store handle index in, used to resolve handles after restart, or null.
+     * @throws IOException
+     */
+    public LocalFileSystem(Path root, Iterable<FsExport> exportIterable, Path handleIndex) throws IOException {
         _root = root;
         assert (Files.exists(_root));
         _store = Files.getFileStore(_root);
@@ -180,33 +352,21 @@ public class LocalFileSystem implements VirtualFileSystem {
         UUID rootUUID = UUID.nameUUIDFromBytes(("LocalFileSystem:".concat(root.toString()))
                 .getBytes(StandardCharsets.UTF_8));
         this.rootInode = toFh(rootUUID);
-        map(rootInode, _root);
-
-        // map existing structure (if any)
-        Files.walkFileTree(_root, new SimpleFileVisitor<Path>() {
-            @Override
-            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
-                FileVisitResult superRes = super.preVisitDirectory(dir, attrs);
-                if (superRes != FileVisitResult.CONTINUE) {
-                    return superRes;
-                }
-                if (dir.equals(_root)) {
-                    return FileVisitResult.CONTINUE;
-                }
-                map(newInode(), dir);
-                return FileVisitResult.CONTINUE;
-            }
+        inodeToPath.put(rootInode, _root);
+        pathToInode.put(_root, rootInode);
 
-            @Override
-            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
-                FileVisitResult superRes = super.visitFile(file, attrs);
-                if (superRes != FileVisitResult.CONTINUE) {
-                    return superRes;
-                }
-                map(newInode(), file);
-                return FileVisitResult.CONTINUE;
-            }
-        });
+        _handleIndex = handleIndex == null ? null : new HandleIndex(handleIndex);
+    }
+
+    /**
+     * Close the cached file channels and the handle index.
+     */
+    @Override
+    public void close() throws IOException {
+        _channelCache.close();
+        if (_handleIndex != null) {
+            _handleIndex.close();
+        }
     }
 
     @Override
@@ -218,8 +378,7 @@ public class LocalFileSystem implements VirtualFileSystem {
         } catch (FileAlreadyExistsException e) {
             throw new ExistException("path " + newPath);
         }
-        Inode newInodeNumber = newInode();
-        map(newInodeNumber, newPath);
+        Inode newInodeNumber = map(newPath, true);
         setOwnershipAndMode(newPath, subject, mode);
         return newInodeNumber;
     }
@@ -273,37 +432,91 @@ public class LocalFileSystem implements VirtualFileSystem {
             throw new ServerFaultException("Failed to create: " + e.getMessage(), e);
         }
 
-        Inode newInodeNumber = newInode();
-        map(newInodeNumber, targetPath);
+        Inode newInodeNumber = map(targetPath, false);
         return newInodeNumber;
     }
 
     @Override
     public DirectoryStream list(Inode inode, Opaque cookieVerifier, long l) throws IOException {
+        return listDirectory(inode, l, true);
+    }
+
+    @Override
+    public DirectoryStream list(Inode inode, Opaque cookieVerifier, long l, EnumSet<Stat.StatAttribute> attributes)
+            throws IOException {
+        return listDirectory(inode, l, !attributes.isEmpty());
+    }
+
+    /**
+     * List directory lazily, thus only entries consumed by the caller are resolved. As the cookies are positions in
+     * the directory, the listing is identified by the directory verifier, which changes when the directory does. The
+     * names are read once per verifier, thus the subsequent pages of a listing resume from the snapshot.
+     */
+    private DirectoryStream listDirectory(Inode inode, long l, boolean withStat) throws IOException {
         Path path = resolveInode(inode);
-        final List<DirectoryEntry> list = new ArrayList<>();
-        try (java.nio.file.DirectoryStream<Path> ds = Files.newDirectoryStream(path)) {
-            int cookie = 2; // first allowed cookie
-            for (Path p : ds) {
-                cookie++;
-                if (cookie > l) {
-                    Inode ino;
-                    try {
-                        ino = resolvePath(p);
-                    } catch (NoEntException e) {
-                        // File was briefly available, but deleted before we could allocate an inode
-                        continue;
-                    }
-                    list.add(new DirectoryEntry(p.getFileName().toString(), ino, statPath(p, ino), cookie));
-                }
+        Opaque verifier = directoryVerifier(path);
+        return new DirectoryStream(verifier, c -> {
+            List<Path> snapshot = directorySnapshot(path, verifier);
+            long first = Math.max(c, 2); // first allowed cookie is 3
+            if (first - 2 >= snapshot.size()) {
+                return Stream.empty();
+            }
+            AtomicLong cookie = new AtomicLong(first);
+            return snapshot.subList((int) (first - 2), snapshot.size()).stream()
+                    .map(p -> toDirectoryEntry(p, cookie.incrementAndGet(), withStat))
+                    .filter(Objects::nonNull);
+        }).tail(l);
+    }
+
+    private List<Path> directorySnapshot(Path path, Opaque verifier) throws IOException {
+        DirectorySnapshotKey key = new DirectorySnapshotKey(path, verifier);
+        List<Path> snapshot = _directorySnapshots.getIfPresent(key);
+        if (snapshot == null) {
+            try (Stream<Path> s = Files.list(path)) {
+                snapshot = s.collect(Collectors.toUnmodifiableList());
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            _directorySnapshots.put(key, snapshot);
+        }
+        return snapshot;
+    }
+
+    private record DirectorySnapshotKey(Path path, Opaque verifier) {
+    }
+
+    private DirectoryEntry toDirectoryEntry(Path p, long cookie, boolean withStat) {
+        try {
+            Inode ino;
+            try {
+                ino = resolvePath(p);
+            } catch (NoEntException e) {
+                // File was briefly available, but deleted before we could allocate an inode
+                return null;
             }
+
+            String name = p.getFileName().toString();
+            if (!withStat) {
+                return new DirectoryEntry(name, ino, cookie);
+            }
+            return new DirectoryEntry(name, ino, statPath(p, ino), cookie);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
         }
-        return new DirectoryStream(list);
     }
 
     @Override
     public Opaque directoryVerifier(Inode inode) throws IOException {
-        return DirectoryStream.ZERO_VERIFIER;
+        return directoryVerifier(resolveInode(inode));
+    }
+
+    /**
+     * Get the verifier of the directory, which is derived from its modification time.
+     */
+    private static Opaque directoryVerifier(Path path) throws IOException {
+        FileTime mtime = Files.getLastModifiedTime(path, NOFOLLOW_LINKS);
+        Instant t = mtime.toInstant();
+        return Opaque.forImmutableBytes(Longs.toByteArray(t.getEpochSecond() * 1_000_000_000L + t.getNano()));
     }
 
     @Override
@@ -315,8 +528,7 @@ public class LocalFileSystem implements VirtualFileSystem {
         } catch (FileAlreadyExistsException e) {
             throw new ExistException("path " + newPath);
         }
-        Inode newInodeNumber = newInode();
-        map(newInodeNumber, newPath);
+        Inode newInodeNumber = map(newPath, true);
         setOwnershipAndMode(newPath, subject, mode);
         return newInodeNumber;
     }
@@ -399,8 +611,56 @@ public class LocalFileSystem implements VirtualFileSystem {
     public int read(Inode inode, byte[] data, long offset, int count) throws IOException {
         Path path = resolveInode(inode);
         ByteBuffer destBuffer = ByteBuffer.wrap(data, 0, count);
-        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
-            return channel.read(destBuffer, offset);
+        try (CachedChannel cached = _channelCache.acquire(inode, path)) {
+            return cached.channel().read(destBuffer, offset);
+        }
+    }
+
+    @Override
+    public int read(Inode inode, ByteBuffer data, long offset) throws IOException {
+        Path path = resolveInode(inode);
+        try (CachedChannel cached = _channelCache.acquire(inode, path)) {
+            return cached.channel().read(data, offset);
+        }
+    }
+
+    @Override
+    public boolean supportsDirectBuffers() {
+        return true;
+    }
+
+    /**
+     * Read into a pooled buffer. As NIO doesn't expose SEEK_DATA/SEEK_HOLE, READ_PLUS uses the default
+     * {@link VirtualFileSystem#readPlus}, which returns the data read here as a single data segment, and the layout
+     * matches the default {@link VirtualFileSystem#seek}.
+     */
+    @Override
+    public Opaque read(OpenHandle oh, Inode inode, long offset, int toRead, Runnable eofReached) throws IOException {
+        Path path = resolveInode(inode);
+        if (Files.isDirectory(path, NOFOLLOW_LINKS)) {
+            throw new IsDirException();
+        }
+
+        try (CachedChannel cached = _channelCache.acquire(inode, path)) {
+            FileChannel channel = cached.channel();
+            // the channel's size is cheaper than a full stat, and allows to allocate no more than can be read
+            long size = channel.size();
+            int len = (int) Math.max(0L, Math.min(toRead, size - offset));
+            if (len == 0) {
+                eofReached.run();
+                return Opaque.EMPTY_OPAQUE;
+            }
+
+            ByteBuffer buf = BufferPool.getDefault().acquireForReply(len);
+            while (buf.hasRemaining() && channel.read(buf, offset + buf.position()) >= 0) {
+                // read until buffer is full or EOF
+            }
+
+            int numRead = buf.position();
+            if (offset + numRead >= size) {
+                eofReached.run();
+            }
+            return Opaque.forOwnedByteBuffer(buf, 0, numRead);
         }
     }
 
@@ -421,6 +681,7 @@ public class LocalFileSystem implements VirtualFileSystem {
             throw new NotEmptyException("dir " + targetPath + " is note empty", e);
         }
         unmap(targetInodeNumber, targetPath);
+        _channelCache.invalidate(targetInodeNumber);
     }
 
     @Override
@@ -446,8 +707,7 @@ public class LocalFileSystem implements VirtualFileSystem {
 
         setOwnershipAndMode(link, subject, mode);
 
-        Inode newInodeNumber = newInode();
-        map(newInodeNumber, link);
+        Inode newInodeNumber = map(link, true);
         return newInodeNumber;
     }
 
@@ -455,10 +715,11 @@ public class LocalFileSystem implements VirtualFileSystem {
     public WriteResult write(Inode inode, byte[] data, long offset, int count, StabilityLevel stabilityLevel)
             throws IOException {
         Path path = resolveInode(inode);
-        ByteBuffer srcBuffer = ByteBuffer.wrap(data);
-        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+        ByteBuffer srcBuffer = ByteBuffer.wrap(data, 0, count);
+        try (CachedChannel cached = _channelCache.acquire(inode, path)) {
+            FileChannel channel = cached.writableChannel();
             int bytesWritten = channel.write(srcBuffer, offset);
-            return new WriteResult(StabilityLevel.FILE_SYNC, bytesWritten);
+            return new WriteResult(sync(channel, stabilityLevel), bytesWritten);
         }
     }
 
@@ -466,43 +727,120 @@ public class LocalFileSystem implements VirtualFileSystem {
     public WriteResult write(Inode inode, Opaque srcBuffer, long offset, StabilityLevel stabilityLevel)
             throws IOException {
         Path path = resolveInode(inode);
-        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+        try (CachedChannel cached = _channelCache.acquire(inode, path)) {
+            FileChannel channel = cached.writableChannel();
             int bytesWritten = channel.write(srcBuffer.asByteBuffer(), offset);
-            return new WriteResult(StabilityLevel.FILE_SYNC, bytesWritten);
+            return new WriteResult(sync(channel, stabilityLevel), bytesWritten);
         }
     }
 
+    @Override
+    public void cloneRange(Inode src, long srcOff, Inode dst, long dstOff, long len) throws IOException {
+        Path srcPath = resolveInode(src);
+        Path dstPath = resolveInode(dst);
+        try (FileChannel srcChannel = FileChannel.open(srcPath, StandardOpenOption.READ);
+                FileChannel dstChannel = FileChannel.open(dstPath, StandardOpenOption.WRITE)) {
+
+            long end = len == 0 ? srcChannel.size() : Math.min(rangeEnd(srcOff, len), srcChannel.size());
+            long pos = srcOff;
+
+            // NIO has no reflink; transferTo between files uses copy_file_range where available, which some
+            // copy-on-write filesystems implement by sharing the extents. In general the data is copied, thus,
+            // sharing of the blocks is not guaranteed.
+            dstChannel.position(dstOff);
+            while (pos < end) {
+                long n = srcChannel.transferTo(pos, end - pos, dstChannel);
+                if (n <= 0) {
+                    throw new NfsIoException("Failed to clone range: transfer stopped at offset " + pos);
+                }
+                pos += n;
+            }
+        }
+    }
+
+    /**
+     * Get the end of the byte range starting at {@code offset}. A range which extends beyond {@link Long#MAX_VALUE}
+     * (including the NFS4_UINT64_MAX "up to the end" length) is capped.
+     */
+    private static long rangeEnd(long offset, long length) {
+        long end = offset + length;
+        return length < 0 || end < offset ? Long.MAX_VALUE : end;
+    }
+
     @Override
     public void commit(Inode inode, long l, int i) throws IOException {
-        throw new UnsupportedOperationException("Not supported yet.");
+        Path path = resolveInode(inode);
+        try (CachedChannel cached = _channelCache.acquire(inode, path)) {
+            cached.channel().force(true);
+        }
     }
 
-    private Stat statPath(Path p, Inode inodeNumber) throws IOException {
+    /**
+     * Flush written data to the stable storage as requested by the client.
+     *
+     * @return the stability level actually achieved.
+     */
+    private static StabilityLevel sync(FileChannel channel, StabilityLevel stabilityLevel) throws IOException {
+        switch (stabilityLevel) {
+            case UNSTABLE:
+                break;
+            case DATA_SYNC:
+                channel.force(false);
+                break;
+            default:
+                channel.force(true);
+        }
+        return stabilityLevel;
+    }
 
-        Class<? extends BasicFileAttributeView> attributeClass =
-                IS_UNIX ? PosixFileAttributeView.class : DosFileAttributeView.class;
+    @Override
+    public void open(OpenHandle oh, Inode inode, int accessMode, int denyMode, boolean alreadyOpen)
+            throws IOException {
+        if (!alreadyOpen) {
+            // open-close tracking sees the inodes as used by the clients, thus strip export information
+            Inode innerInode = Inode.innerInode(inode);
+            Path path = resolveInode(innerInode);
+            if (Files.isRegularFile(path, NOFOLLOW_LINKS)) {
+                _channelCache.open(innerInode, path);
+            }
+        }
+    }
 
-        BasicFileAttributes attrs = Files.getFileAttributeView(p, attributeClass, NOFOLLOW_LINKS).readAttributes();
+    @Override
+    public void close(OpenHandle oh, Inode inode, int remainingOpens) {
+        _channelCache.close(Inode.innerInode(inode));
+    }
 
-        Stat stat = new Stat();
+    private Stat statPath(Path p, Inode inodeNumber) throws IOException {
 
-        stat.setATime(attrs.lastAccessTime().toMillis());
-        stat.setBTime(attrs.creationTime().toMillis());
-        stat.setMTime(attrs.lastModifiedTime().toMillis());
+        Stat stat = new Stat();
+        long size;
 
         if (IS_UNIX) {
-            stat.setGid((Integer) Files.getAttribute(p, "unix:gid", NOFOLLOW_LINKS));
-            stat.setUid((Integer) Files.getAttribute(p, "unix:uid", NOFOLLOW_LINKS));
-            stat.setMode((Integer) Files.getAttribute(p, "unix:mode", NOFOLLOW_LINKS));
-            stat.setNlink((Integer) Files.getAttribute(p, "unix:nlink", NOFOLLOW_LINKS));
-            stat.setCTime(((FileTime) Files.getAttribute(p, "unix:ctime", NOFOLLOW_LINKS)).toMillis());
+            // fetch all attributes with a single lstat
+            Map<String, Object> attrs = Files.readAttributes(p, UNIX_STAT_ATTRIBUTES, NOFOLLOW_LINKS);
+
+            stat.setATime(((FileTime) attrs.get("lastAccessTime")).toMillis());
+            stat.setBTime(((FileTime) attrs.get("creationTime")).toMillis());
+            stat.setMTime(((FileTime) attrs.get("lastModifiedTime")).toMillis());
+            stat.setCTime(((FileTime) attrs.get("ctime")).toMillis());
+            stat.setGid((Integer) attrs.get("gid"));
+            stat.setUid((Integer) attrs.get("uid"));
+            stat.setMode((Integer) attrs.get("mode"));
+            stat.setNlink((Integer) attrs.get("nlink"));
+            size = (Long) attrs.get("size");
         } else {
-            DosFileAttributes dosAttrs = (DosFileAttributes) attrs;
+            DosFileAttributes dosAttrs = Files.getFileAttributeView(p, DosFileAttributeView.class, NOFOLLOW_LINKS)
+                    .readAttributes();
+            stat.setATime(dosAttrs.lastAccessTime().toMillis());
+            stat.setBTime(dosAttrs.creationTime().toMillis());
+            stat.setMTime(dosAttrs.lastModifiedTime().toMillis());
             stat.setGid(0);
             stat.setUid(0);
             int type = dosAttrs.isSymbolicLink() ? Stat.S_IFLNK : dosAttrs.isDirectory() ? Stat.S_IFDIR : Stat.S_IFREG;
             stat.setMode(type | (dosAttrs.isReadOnly() ? 0400 : 0600));
             stat.setNlink(1);
+            size = dosAttrs.size();
         }
 
         stat.setDev(17);
@@ -511,7 +849,7 @@ public class LocalFileSystem implements VirtualFileSystem {
             stat.setIno(ino);
         }
         stat.setRdev(17);
-        stat.setSize(attrs.size());
+        stat.setSize(size);
         stat.setGeneration(Math.max(stat.getCTime(), stat.getMTime()));
 
         return stat;
@@ -521,13 +859,14 @@ public class LocalFileSystem implements VirtualFileSystem {
      * Return a 64-bit inode value for the given {@link Inode}, or {@code null} if no such number is available. Not
      * returning a number is permissible per NFSv4, but not for NFSv3.
      * <p>
-     * By default, the number is derived from the first 8 bytes of the Inode's fileId.
+     * By default, the number is derived from the last 8 bytes of the Inode's fileId, which is the inode number of
+     * the file on unix.
      *
      * @param inode The inode
      * @return The 64-bit inode, or {@code null} for "not available".
      */
     protected Long longInoForInode(Inode inode) {
-        return inode.getFileIdKey().longAt(0);
+        return inode.getFileIdKey().longAt(8);
     }
 
     @Override
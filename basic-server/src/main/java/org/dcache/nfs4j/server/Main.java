@@ -22,6 +22,9 @@ public class Main implements Callable<Void> {
     private int rpcPort = 2049;
     @CommandLine.Option(names = "-with-portmap", description = "start embedded portmap")
     private boolean withPortmap;
+    @CommandLine.Option(names = "-handle-index", description = "file to keep file handles valid over restarts",
+            paramLabel = "<file>")
+    private Path handleIndex;
 
     public static void main(String[] args) throws Exception {
         int rc = new CommandLine(new Main()).execute(args);
@@ -39,7 +42,8 @@ public class Main implements Callable<Void> {
             new OncRpcEmbeddedPortmap();
         }
 
-        try (SimpleNfsServer ignored = new SimpleNfsServer(nfsVers, rpcPort, root, exportFile, null)) {
+        try (SimpleNfsServer ignored = new SimpleNfsServer(nfsVers, rpcPort, root, exportFile, null,
+                handleIndex)) {
             System.out.println("Press Ctrl-C to stop the server...");
             Thread.currentThread().join();
         }
@@ -6,6 +6,9 @@ import java.io.InputStreamReader;
 import java.io.UncheckedIOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 import org.dcache.nfs.ExportFile;
@@ -15,23 +18,42 @@ import org.dcache.nfs.v3.xdr.mount_prot;
 import org.dcache.nfs.v3.xdr.nfs3_prot;
 import org.dcache.nfs.v4.MDSOperationExecutor;
 import org.dcache.nfs.v4.NFSServerV41;
+import org.dcache.nfs.v4.NFSv4StateHandler;
+import org.dcache.nfs.v4.OperationStatistics;
+import org.dcache.nfs.v4.SlotController;
 import org.dcache.nfs.v4.xdr.nfs4_prot;
-import org.dcache.nfs.vfs.VirtualFileSystem;
 import org.dcache.oncrpc4j.rpc.OncRpcProgram;
 import org.dcache.oncrpc4j.rpc.OncRpcSvc;
 import org.dcache.oncrpc4j.rpc.OncRpcSvcBuilder;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
 public class SimpleNfsServer implements Closeable {
+
+    /**
+     * Number of threads processing the requests.
+     */
+    private static final int WORKER_THREADS = SlotController.DEFAULT_MAX_REQUEST_BACKLOG;
+
     private final OncRpcSvc nfsSvc;
     private final Path root;
     private final int port;
     private final String name;
+    private final LocalFileSystem vfs;
+    private final ThreadPoolExecutor requestExecutor;
 
     public SimpleNfsServer(Path root) {
         this(0, 2049, root, null, null);
     }
 
     public SimpleNfsServer(int nfsVers, int port, Path root, ExportFile exportFile, String name) {
+        this(nfsVers, port, root, exportFile, name, null);
+    }
+
+    /**
+     * @param handleIndex the file to store handle index in, to keep the handles valid over restarts, or null.
+     */
+    public SimpleNfsServer(int nfsVers, int port, Path root, ExportFile exportFile, String name, Path handleIndex) {
         try {
             NfsServerV3 nfs3 = null;
             NFSServerV41 nfs4 = null;
@@ -55,20 +77,32 @@ public class SimpleNfsServer implements Closeable {
             }
             this.name = name;
 
-            VirtualFileSystem vfs = new LocalFileSystem(this.root, exportFile.exports().collect(Collectors.toList()));
+            vfs = new LocalFileSystem(this.root, exportFile.exports().collect(Collectors.toList()),
+                    handleIndex);
+
+            // the queue length of the workers tells the slot controller whether the server is overloaded
+            requestExecutor = new ThreadPoolExecutor(WORKER_THREADS, WORKER_THREADS, 0L, TimeUnit.MILLISECONDS,
+                    new LinkedBlockingQueue<>(),
+                    new ThreadFactoryBuilder().setNameFormat(this.name + "-worker-%d").setDaemon(true).build());
 
             nfsSvc = new OncRpcSvcBuilder()
                     .withPort(this.port)
                     .withTCP()
                     .withAutoPublish()
                     .withWorkerThreadIoStrategy()
+                    .withWorkerThreadExecutionService(requestExecutor)
                     .withServiceName(this.name)
                     .build();
 
             if (startNfsV4) {
+                MDSOperationExecutor operationExecutor = new MDSOperationExecutor();
+                operationExecutor.setMetricsListener(new OperationStatistics(this.name));
+                NFSv4StateHandler stateHandler = new NFSv4StateHandler(vfs);
+                stateHandler.getSlotController().setRequestBacklog(() -> requestExecutor.getQueue().size());
                 nfs4 = new NFSServerV41.Builder()
                         .withVfs(vfs)
-                        .withOperationExecutor(new MDSOperationExecutor())
+                        .withStateHandler(stateHandler)
+                        .withOperationExecutor(operationExecutor)
                         .withExportTable(exportFile)
                         .build();
             }
@@ -97,7 +131,12 @@ public class SimpleNfsServer implements Closeable {
 
     @Override
     public void close() throws IOException {
-        nfsSvc.stop();
+        try {
+            nfsSvc.stop();
+        } finally {
+            requestExecutor.shutdown();
+            vfs.close();
+        }
     }
 
     public Path getRoot() {
@@ -0,0 +1,124 @@
+package org.dcache.nfs4j.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.dcache.nfs.vfs.Inode;
+import org.dcache.nfs4j.server.FileChannelCache.CachedChannel;
+import org.dcache.oncrpc4j.util.Opaque;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class FileChannelCacheTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private FileChannelCache cache;
+
+    @After
+    public void tearDown() {
+        cache.close();
+    }
+
+    @Test
+    public void testChannelReused() throws IOException {
+        cache = new FileChannelCache(2, 1, TimeUnit.HOURS);
+        Path path = newFile("a");
+
+        CachedChannel first;
+        try (CachedChannel c = cache.acquire(inode(1), path)) {
+            first = c;
+        }
+        try (CachedChannel c = cache.acquire(inode(1), path)) {
+            assertSame(first, c);
+            assertTrue(c.channel().isOpen());
+        }
+    }
+
+    @Test
+    public void testLeastRecentlyUsedEvicted() throws IOException {
+        cache = new FileChannelCache(2, 1, TimeUnit.HOURS);
+        CachedChannel a = acquireAndRelease(1, newFile("a"));
+        CachedChannel b = acquireAndRelease(2, newFile("b"));
+        acquireAndRelease(1, newFile("a"));
+
+        acquireAndRelease(3, newFile("c"));
+
+        assertEquals(2, cache.size());
+        assertTrue(a.channel().isOpen());
+        assertFalse(b.channel().isOpen());
+    }
+
+    @Test
+    public void testChannelInUseNotClosed() throws IOException {
+        cache = new FileChannelCache(1, 1, TimeUnit.HOURS);
+        try (CachedChannel a = cache.acquire(inode(1), newFile("a"))) {
+            acquireAndRelease(2, newFile("b"));
+            assertTrue(a.channel().isOpen());
+        }
+    }
+
+    @Test
+    public void testUncachedWhenFullOfPinned() throws IOException {
+        cache = new FileChannelCache(1, 1, TimeUnit.HOURS);
+        cache.open(inode(1), newFile("a"));
+
+        CachedChannel b = acquireAndRelease(2, newFile("b"));
+
+        assertEquals(1, cache.size());
+        assertFalse(b.channel().isOpen());
+        assertNotSame(b, acquireAndRelease(2, newFile("b")));
+    }
+
+    @Test
+    public void testPinnedChannelClosedOnClose() throws IOException {
+        cache = new FileChannelCache(2, 1, TimeUnit.HOURS);
+        Path path = newFile("a");
+        cache.open(inode(1), path);
+        CachedChannel a = acquireAndRelease(1, path);
+        assertTrue(a.channel().isOpen());
+
+        cache.close(inode(1));
+
+        assertFalse(a.channel().isOpen());
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testIdleChannelExpired() throws IOException {
+        cache = new FileChannelCache(2, 0, TimeUnit.SECONDS);
+        CachedChannel a = acquireAndRelease(1, newFile("a"));
+
+        acquireAndRelease(2, newFile("b"));
+
+        assertFalse(a.channel().isOpen());
+    }
+
+    private CachedChannel acquireAndRelease(int id, Path path) throws IOException {
+        try (CachedChannel c = cache.acquire(inode(id), path)) {
+            return c;
+        }
+    }
+
+    private Path newFile(String name) throws IOException {
+        Path path = folder.getRoot().toPath().resolve(name);
+        if (!path.toFile().exists()) {
+            folder.newFile(name);
+        }
+        return path;
+    }
+
+    private static Inode inode(int id) {
+        return Inode.forFileIdKey(Opaque.forImmutableBytes(new byte[] {(byte) id}));
+    }
+}
@@ -0,0 +1,148 @@
+package org.dcache.nfs4j.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+import javax.security.auth.Subject;
+
+import org.dcache.nfs.status.StaleException;
+import org.dcache.nfs.util.UnixSubjects;
+import org.dcache.nfs.vfs.DataSegment;
+import org.dcache.nfs.vfs.DirectoryEntry;
+import org.dcache.nfs.vfs.DirectoryStream;
+import org.dcache.nfs.vfs.Inode;
+import org.dcache.nfs.vfs.Stat;
+import org.dcache.nfs.vfs.VirtualFileSystem.SeekType;
+import org.dcache.nfs.vfs.VirtualFileSystem.StabilityLevel;
+import org.dcache.oncrpc4j.util.Opaque;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class LocalFileSystemTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final Subject subject = UnixSubjects.toSubject(0, 0);
+
+    private Path root;
+    private Path index;
+    private LocalFileSystem fs;
+
+    @Before
+    public void setUp() throws IOException {
+        root = folder.newFolder("root").toPath();
+        index = folder.getRoot().toPath().resolve("handles");
+        fs = new LocalFileSystem(root, List.of(), index);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        fs.close();
+    }
+
+    @Test
+    public void testHandleValidAfterRemovingOriginalName() throws IOException {
+        Inode dir = fs.getRootInode();
+        Inode file = fs.create(dir, Stat.Type.REGULAR, "original", subject, 0644);
+        fs.write(file, new byte[] {1, 2, 3}, 0, 3, StabilityLevel.UNSTABLE);
+
+        fs.link(dir, file, "link", subject);
+        fs.remove(dir, "original");
+
+        assertEquals(3, fs.getattr(file).getSize());
+        assertEquals(file, fs.lookup(dir, "link"));
+    }
+
+    @Test
+    public void testHandleValidAfterRemovingLinkName() throws IOException {
+        Inode dir = fs.getRootInode();
+        Inode file = fs.create(dir, Stat.Type.REGULAR, "original", subject, 0644);
+
+        fs.link(dir, file, "link", subject);
+        fs.remove(dir, "link");
+
+        assertEquals(0, fs.getattr(file).getSize());
+    }
+
+    @Test
+    public void testHandleResolvedByRemainingNameAfterRestart() throws IOException {
+        Inode dir = fs.getRootInode();
+        Inode file = fs.create(dir, Stat.Type.REGULAR, "original", subject, 0644);
+        fs.link(dir, file, "link", subject);
+        fs.remove(dir, "original");
+        fs.close();
+
+        fs = new LocalFileSystem(root, List.of(), index);
+        assertEquals(0, fs.getattr(file).getSize());
+    }
+
+    @Test(expected = StaleException.class)
+    public void testHandleStaleAfterRemovingAllNames() throws IOException {
+        Inode dir = fs.getRootInode();
+        Inode file = fs.create(dir, Stat.Type.REGULAR, "original", subject, 0644);
+        fs.link(dir, file, "link", subject);
+        fs.remove(dir, "original");
+        fs.remove(dir, "link");
+
+        fs.getattr(file);
+    }
+
+    @Test
+    public void testListingResumesFromCookie() throws IOException {
+        Inode dir = fs.getRootInode();
+        for (int i = 0; i < 10; i++) {
+            fs.create(dir, Stat.Type.REGULAR, "file" + i, subject, 0644);
+        }
+
+        List<DirectoryEntry> firstPage = new ArrayList<>();
+        Opaque verifier;
+        try (DirectoryStream stream = fs.list(dir, null, 0L)) {
+            verifier = stream.getVerifier();
+            Iterator<DirectoryEntry> it = stream.iterator();
+            for (int i = 0; i < 4; i++) {
+                firstPage.add(it.next());
+            }
+        }
+
+        Set<String> names = new HashSet<>();
+        firstPage.forEach(e -> names.add(e.getName()));
+        long lastCookie = firstPage.get(3).getCookie();
+        try (DirectoryStream stream = fs.list(dir, verifier, lastCookie)) {
+            assertEquals(verifier, stream.getVerifier());
+            for (DirectoryEntry e : stream) {
+                assertTrue(e.getCookie() > lastCookie);
+                assertTrue(names.add(e.getName()));
+            }
+        }
+        assertEquals(10, names.size());
+    }
+
+    @Test
+    public void testReadPlusLayoutMatchesSeek() throws IOException {
+        Inode dir = fs.getRootInode();
+        Inode file = fs.create(dir, Stat.Type.REGULAR, "zeros", subject, 0644);
+        fs.write(file, new byte[8192], 0, 8192, StabilityLevel.UNSTABLE);
+
+        List<DataSegment> segments = fs.readPlus(null, file, 0, 8192, () -> {
+        });
+
+        assertEquals(1, segments.size());
+        assertFalse(segments.get(0).isHole());
+        assertEquals(8192, segments.get(0).getLength());
+        assertEquals(0, fs.seek(null, file, 0, SeekType.DATA));
+        assertEquals(8192, fs.seek(null, file, 0, SeekType.HOLE));
+    }
+}
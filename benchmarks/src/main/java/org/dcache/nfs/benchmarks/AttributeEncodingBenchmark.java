@@ -0,0 +1,210 @@
+package org.dcache.nfs.benchmarks;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.dcache.nfs.v4.CompoundBuilder;
+import org.dcache.nfs.v4.CompoundContext;
+import org.dcache.nfs.v4.CompoundContextBuilder;
+import org.dcache.nfs.v4.MDSOperationExecutor;
+import org.dcache.nfs.v4.NfsIdMapping;
+import org.dcache.nfs.v4.SimpleIdMap;
+import org.dcache.nfs.v4.xdr.nfs4_prot;
+import org.dcache.nfs.v4.xdr.nfs_argop4;
+import org.dcache.nfs.v4.xdr.nfs_resop4;
+import org.dcache.nfs.v4.xdr.verifier4;
+import org.dcache.nfs.vfs.DirectoryEntry;
+import org.dcache.nfs.vfs.DirectoryStream;
+import org.dcache.nfs.vfs.ForwardingFileSystem;
+import org.dcache.nfs.vfs.FsStat;
+import org.dcache.nfs.vfs.Inode;
+import org.dcache.nfs.vfs.Stat;
+import org.dcache.nfs.vfs.VirtualFileSystem;
+import org.dcache.oncrpc4j.rpc.RpcAuthTypeUnix;
+import org.dcache.oncrpc4j.rpc.RpcCall;
+import org.dcache.oncrpc4j.rpc.RpcTransport;
+import org.dcache.oncrpc4j.util.Opaque;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.google.common.primitives.Ints;
+
+/**
+ * Measures the number of directory entries per second encoded by READDIR when a client requests the attributes
+ * needed for {@code ls -l}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Fork(1)
+public class AttributeEncodingBenchmark {
+
+    private static final int ENTRIES = 256;
+
+    private static final int[] LS_LONG_ATTRIBUTES = {
+            nfs4_prot.FATTR4_TYPE,
+            nfs4_prot.FATTR4_CHANGE,
+            nfs4_prot.FATTR4_SIZE,
+            nfs4_prot.FATTR4_FSID,
+            nfs4_prot.FATTR4_FILEID,
+            nfs4_prot.FATTR4_MODE,
+            nfs4_prot.FATTR4_NUMLINKS,
+            nfs4_prot.FATTR4_OWNER,
+            nfs4_prot.FATTR4_OWNER_GROUP,
+            nfs4_prot.FATTR4_RAWDEV,
+            nfs4_prot.FATTR4_SPACE_USED,
+            nfs4_prot.FATTR4_TIME_ACCESS,
+            nfs4_prot.FATTR4_TIME_METADATA,
+            nfs4_prot.FATTR4_TIME_MODIFY,
+            nfs4_prot.FATTR4_MOUNTED_ON_FILEID
+    };
+
+    @State(Scope.Benchmark)
+    public static class DirectoryHolder {
+
+        private final MDSOperationExecutor executor = new MDSOperationExecutor();
+        private CompoundContext context;
+        private nfs_argop4 readdir;
+
+        @Setup
+        public void setUp() throws Exception {
+
+            Inode dir = toInode(0);
+            List<DirectoryEntry> entries = new ArrayList<>();
+            for (int i = 1; i <= ENTRIES; i++) {
+                entries.add(new DirectoryEntry("file-" + i, toInode(i), stat(Stat.S_IFREG | 0644, i), i + 2));
+            }
+
+            VirtualFileSystem fs = new DirectoryFileSystem(stat(Stat.S_IFDIR | 0755, 1),
+                    new DirectoryStream(entries));
+
+            RpcTransport transport = mock(RpcTransport.class);
+            when(transport.getLocalSocketAddress()).thenReturn(new InetSocketAddress(2049));
+            when(transport.getRemoteSocketAddress()).thenReturn(new InetSocketAddress(1023));
+
+            RpcCall call = mock(RpcCall.class);
+            when(call.getCredential()).thenReturn(new RpcAuthTypeUnix(1, 1, new int[] {1}, 1, "localhost"));
+            when(call.getTransport()).thenReturn(transport);
+
+            context = new CompoundContextBuilder()
+                    .withFs(fs)
+                    .withCall(call)
+                    .build();
+            context.currentInode(dir);
+
+            readdir = new CompoundBuilder()
+                    .withReaddir(0, verifier4.valueOf(0), 1024 * 1024, 1024 * 1024, LS_LONG_ATTRIBUTES)
+                    .build().argarray[0];
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ENTRIES)
+    public nfs_resop4 readdirLsLong(DirectoryHolder holder) throws Exception {
+        return holder.executor.execute(holder.context, holder.readdir);
+    }
+
+    private static Inode toInode(int id) {
+        return Inode.forFileIdKey(Opaque.forImmutableBytes(Ints.toByteArray(id)));
+    }
+
+    private static Stat stat(int mode, long ino) {
+        long now = System.currentTimeMillis();
+        Stat stat = new Stat();
+        stat.setMode(mode);
+        stat.setMTime(now);
+        stat.setATime(now);
+        stat.setCTime(now);
+        stat.setGeneration(1);
+        stat.setNlink(1);
+        stat.setUid(1);
+        stat.setGid(1);
+        stat.setDev(1);
+        stat.setIno(ino);
+        stat.setSize(4096);
+        return stat;
+    }
+
+    /**
+     * A file system with a single directory.
+     */
+    private static class DirectoryFileSystem extends ForwardingFileSystem {
+
+        private final VirtualFileSystem delegate = mock(VirtualFileSystem.class);
+        private final NfsIdMapping idMapping = new SimpleIdMap();
+        private final Stat dirStat;
+        private final DirectoryStream directoryStream;
+
+        DirectoryFileSystem(Stat dirStat, DirectoryStream directoryStream) {
+            this.dirStat = dirStat;
+            this.directoryStream = directoryStream;
+        }
+
+        @Override
+        protected VirtualFileSystem delegate() {
+            return delegate;
+        }
+
+        @Override
+        public Stat getattr(Inode inode) {
+            return dirStat;
+        }
+
+        @Override
+        public Stat getattr(Inode inode, EnumSet<Stat.StatAttribute> attributes) {
+            return dirStat;
+        }
+
+        @Override
+        public DirectoryStream list(Inode inode, Opaque verifier, long cookie) {
+            return directoryStream;
+        }
+
+        @Override
+        public DirectoryStream list(Inode inode, Opaque verifier, long cookie,
+                EnumSet<Stat.StatAttribute> attributes) {
+            return directoryStream;
+        }
+
+        @Override
+        public NfsIdMapping getIdMapper() {
+            return idMapping;
+        }
+
+        @Override
+        public FsStat getFsStat() throws IOException {
+            return new FsStat(1L << 40, 1L << 20, 1L << 30, ENTRIES);
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+                .include(AttributeEncodingBenchmark.class.getSimpleName())
+                .resultFormat(ResultFormatType.JSON)
+                .build();
+
+        new Runner(opt).run();
+    }
+}
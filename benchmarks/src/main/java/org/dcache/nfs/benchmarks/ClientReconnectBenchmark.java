@@ -0,0 +1,109 @@
+package org.dcache.nfs.benchmarks;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.dcache.nfs.v4.NFS4Client;
+import org.dcache.nfs.v4.NFSv4StateHandler;
+import org.dcache.nfs.v4.xdr.verifier4;
+import org.dcache.oncrpc4j.util.Bytes;
+import org.dcache.oncrpc4j.util.Opaque;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Simulates a storm of EXCHANGE_ID requests of rebooted clients, where each request looks up the existing client
+ * record by owner id and replaces it with a new one.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Fork(1)
+public class ClientReconnectBenchmark {
+
+    /*
+     * The default client cache holds up to 5000 clients.
+     */
+    @Param({"100", "4000"})
+    private int clients;
+
+    private NFSv4StateHandler stateHandler;
+    private InetSocketAddress address;
+    private Opaque[] owners;
+
+    @Setup
+    public void setUp() throws UnknownHostException {
+        stateHandler = new NFSv4StateHandler();
+        address = new InetSocketAddress(InetAddress.getByName(null), 123);
+        owners = new Opaque[clients];
+        for (int i = 0; i < clients; i++) {
+            byte[] owner = new byte[16];
+            ThreadLocalRandom.current().nextBytes(owner);
+            owners[i] = Opaque.forImmutableBytes(owner);
+            createClient(owners[i]);
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        stateHandler.shutdown();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public NFS4Client lookupByOwner() {
+        return stateHandler.clientByOwner(owners[ThreadLocalRandom.current().nextInt(owners.length)]);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public NFS4Client reconnect() {
+        Opaque owner = owners[ThreadLocalRandom.current().nextInt(owners.length)];
+        // a client doesn't reconnect concurrently with itself
+        synchronized (owner) {
+            NFS4Client client = stateHandler.clientByOwner(owner);
+            if (client != null) {
+                stateHandler.removeClient(client);
+            }
+            return createClient(owner);
+        }
+    }
+
+    private NFS4Client createClient(Opaque owner) {
+        byte[] bootTime = new byte[8];
+        Bytes.putLong(bootTime, 0, System.nanoTime());
+        return stateHandler.createClient(address, address, 1, owner,
+                new verifier4(Opaque.forImmutableBytes(bootTime)), null, false);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+                .include(ClientReconnectBenchmark.class.getSimpleName())
+                .resultFormat(ResultFormatType.JSON)
+                .build();
+
+        new Runner(opt).run();
+    }
+}
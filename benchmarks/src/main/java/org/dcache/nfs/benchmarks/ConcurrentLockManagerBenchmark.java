@@ -4,6 +4,7 @@ import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
 
 import org.dcache.nfs.v4.StateOwner;
+import org.dcache.nfs.v4.nlm.IntervalTreeLockManager;
 import org.dcache.nfs.v4.nlm.LockException;
 import org.dcache.nfs.v4.nlm.LockManager;
 import org.dcache.nfs.v4.nlm.NlmLock;
@@ -15,6 +16,7 @@ import org.dcache.oncrpc4j.util.Opaque;
 import org.openjdk.jmh.annotations.Benchmark;
 import org.openjdk.jmh.annotations.BenchmarkMode;
 import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
 import org.openjdk.jmh.annotations.Scope;
 import org.openjdk.jmh.annotations.Setup;
 import org.openjdk.jmh.annotations.State;
@@ -30,11 +32,14 @@ public class ConcurrentLockManagerBenchmark {
     @State(Scope.Benchmark)
     public static class LockManagerHolder {
 
+        @Param({"SimpleLm", "IntervalTreeLockManager"})
+        private String lockManager;
+
         private LockManager lm;
 
         @Setup
         public void setUp() {
-            lm = new SimpleLm();
+            lm = newLockManager(lockManager);
         }
 
         public LockManager getLockManager() {
@@ -61,6 +66,63 @@ public class ConcurrentLockManagerBenchmark {
 
     }
 
+    /*
+     * A file with many fine-grained locks of different owners, e.g. accessed with MPI-IO. Each owner holds every other
+     * byte in its own block of the file, thus the locks can't be merged.
+     */
+    @State(Scope.Benchmark)
+    public static class DenseFileHolder {
+
+        @Param({"SimpleLm", "IntervalTreeLockManager"})
+        private String lockManager;
+
+        @Param({"1000", "100000"})
+        private int ranges;
+
+        private static final int OWNERS = 16;
+
+        private LockManager lm;
+        private final Opaque file = Opaque.forUtf8Bytes("dense-file");
+        private final StateOwner[] owners = new StateOwner[OWNERS];
+        private final StateOwner tester = new LockBuilder().withOwner("tester").build().getOwner();
+
+        @Setup
+        public void setUp() throws LockException {
+            lm = newLockManager(lockManager);
+            for (int i = 0; i < OWNERS; i++) {
+                owners[i] = new LockBuilder().withOwner("owner" + i).build().getOwner();
+            }
+
+            int rangesPerOwner = ranges / OWNERS;
+            for (int i = 0; i < ranges; i++) {
+                int owner = i / rangesPerOwner % OWNERS;
+                lm.lock(file, new NlmLock(owners[owner], nfs_lock_type4.WRITE_LT, 2L * i, 1));
+            }
+        }
+
+        /**
+         * Get the offset of random locked byte.
+         */
+        long lockedOffset() {
+            return 2L * ThreadLocalRandom.current().nextInt(ranges);
+        }
+
+        /**
+         * Get the owner of the lock at the given offset.
+         */
+        StateOwner ownerOf(long offset) {
+            return owners[(int) (offset / 2 / (ranges / OWNERS) % OWNERS)];
+        }
+
+        LockManager getLockManager() {
+            return lm;
+        }
+
+        Opaque getFile() {
+            return file;
+        }
+    }
+
     @Benchmark
     @Threads(16)
     @Warmup(iterations = 5, time = 100, timeUnit = TimeUnit.MILLISECONDS)
@@ -77,6 +139,51 @@ public class ConcurrentLockManagerBenchmark {
         return lock;
     }
 
+    /*
+     * The owner of a range locks and unlocks the unlocked byte next to it. The lock is merged with the existing one
+     * and split again on unlock.
+     */
+    @Benchmark
+    @Threads(1)
+    @Warmup(iterations = 5, time = 100, timeUnit = TimeUnit.MILLISECONDS)
+    public NlmLock benchmarkDenseLockUnlock(DenseFileHolder dfh) throws LockException {
+
+        long offset = dfh.lockedOffset();
+        NlmLock lock = new NlmLock(dfh.ownerOf(offset), nfs_lock_type4.WRITE_LT, offset + 1, 1);
+
+        dfh.getLockManager().lock(dfh.getFile(), lock);
+        dfh.getLockManager().unlock(dfh.getFile(), lock);
+        return lock;
+    }
+
+    /*
+     * A range of locked bytes is tested by an owner without locks, which conflicts with the locks of other owners.
+     */
+    @Benchmark
+    @Threads(1)
+    @Warmup(iterations = 5, time = 100, timeUnit = TimeUnit.MILLISECONDS)
+    public NlmLock benchmarkDenseConflictingTest(DenseFileHolder dfh) {
+
+        NlmLock lock = new NlmLock(dfh.tester, nfs_lock_type4.WRITE_LT, dfh.lockedOffset(), 64);
+        try {
+            dfh.getLockManager().test(dfh.getFile(), lock);
+        } catch (LockException e) {
+            // expected
+        }
+        return lock;
+    }
+
+    private static LockManager newLockManager(String name) {
+        switch (name) {
+            case "SimpleLm":
+                return new SimpleLm();
+            case "IntervalTreeLockManager":
+                return new IntervalTreeLockManager();
+            default:
+                throw new IllegalArgumentException("Unknown lock manager: " + name);
+        }
+    }
+
     public static class LockBuilder {
 
         private long offset;
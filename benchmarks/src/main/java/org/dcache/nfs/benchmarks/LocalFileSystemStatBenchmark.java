@@ -0,0 +1,106 @@
+package org.dcache.nfs.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.dcache.nfs.vfs.DirectoryEntry;
+import org.dcache.nfs.vfs.DirectoryStream;
+import org.dcache.nfs.vfs.Inode;
+import org.dcache.nfs.vfs.Stat;
+import org.dcache.nfs.vfs.VirtualFileSystem;
+import org.dcache.nfs4j.server.LocalFileSystem;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Measures the number of stats per second served by {@link LocalFileSystem} on a directory with many files.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Fork(1)
+public class LocalFileSystemStatBenchmark {
+
+    @Param({"100000"})
+    private int files;
+
+    private Path root;
+    private VirtualFileSystem fs;
+    private Inode[] inodes;
+
+    @Setup
+    public void setUp() throws IOException {
+        root = Files.createTempDirectory("nfs4j-stat");
+        Path dir = Files.createDirectory(root.resolve("dir"));
+        for (int i = 0; i < files; i++) {
+            Files.createFile(dir.resolve("file-" + i));
+        }
+
+        fs = new LocalFileSystem(root, List.of());
+        Inode dirInode = fs.lookup(fs.getRootInode(), "dir");
+
+        inodes = new Inode[files];
+        int i = 0;
+        try (DirectoryStream directoryStream = fs.list(dirInode, DirectoryStream.ZERO_VERIFIER, 0L,
+                EnumSet.noneOf(Stat.StatAttribute.class))) {
+            for (DirectoryEntry entry : directoryStream) {
+                inodes[i++] = entry.getInode();
+            }
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        try (Stream<Path> paths = Files.walk(root)) {
+            for (Path p : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(p);
+            }
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Stat getattr() throws IOException {
+        return fs.getattr(inodes[ThreadLocalRandom.current().nextInt(inodes.length)]);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public Stat getattrConcurrent() throws IOException {
+        return fs.getattr(inodes[ThreadLocalRandom.current().nextInt(inodes.length)]);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+                .include(LocalFileSystemStatBenchmark.class.getSimpleName())
+                .resultFormat(ResultFormatType.JSON)
+                .build();
+
+        new Runner(opt).run();
+    }
+}
@@ -35,6 +35,7 @@ import java.util.Comparator;
 import java.util.Iterator;
 import java.util.List;
 import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
@@ -59,6 +60,7 @@ public class ExportFile implements ExportTable {
 
     private volatile ImmutableMultimap<Integer, FsExport> _exports;
     private final Callable<URI[]> _exportFileProvider;
+    private final AtomicLong _generation = new AtomicLong();
 
     /**
      * Construct server export table from a given file.
@@ -110,6 +112,7 @@ public class ExportFile implements ExportTable {
             throw new IllegalStateException("exports uri not set, rescan impossible");
         };
         _exports = parse(reader);
+        _generation.incrementAndGet();
     }
 
     @Override
@@ -333,9 +336,15 @@ public class ExportFile implements ExportTable {
                 .sorted(Comparator.comparing(FsExport::client, HostEntryComparator::compare));
     }
 
+    @Override
+    public long generation() {
+        return _generation.get();
+    }
+
     public final void rescan() throws IOException {
         try {
             _exports = parse(_exportFileProvider.call());
+            _generation.incrementAndGet();
         } catch (Exception e) {
             throwIfInstanceOf(e, IOException.class);
             throwIfUnchecked(e);
@@ -62,4 +62,15 @@ public interface ExportTable {
      * @return best matching export entry for a given client or null if no entries found.
      */
     FsExport getExport(int index, InetAddress client);
+
+    /**
+     * Get the generation of this export table. The generation changes whenever the export entries are modified, which
+     * allows to cache data derived from the exports, like the pseudo file system tree.
+     *
+     * @return a positive generation number, or zero if the table doesn't track modifications.
+     * @since 0.28
+     */
+    default long generation() {
+        return 0;
+    }
 }
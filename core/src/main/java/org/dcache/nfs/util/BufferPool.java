@@ -0,0 +1,301 @@
+/*
+ * Copyright (c) 2026 Deutsches Elektronen-Synchroton,
+ * Member of the Helmholtz Association, (DESY), HAMBURG, GERMANY
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Library General Public License as
+ * published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this program (see the file COPYING.LIB for more
+ * details); if not, write to the Free Software Foundation, Inc.,
+ * 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package org.dcache.nfs.util;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.annotation.concurrent.GuardedBy;
+
+/**
+ * A thread-safe pool of direct {@link ByteBuffer}s.
+ * <p>
+ * Buffers are grouped into power-of-two size classes, from {@link #MIN_BUFFER_SIZE} up to the pool's maximal buffer
+ * size. Requests for larger buffers are served by unpooled allocations. Each size class keeps at most its share of
+ * the pool's maximal number of pooled bytes; buffers released into a full class are left to the garbage collector.
+ * <p>
+ * Buffers which back a reply should be acquired with {@link #acquireForReply(int)}. Such buffers are bound to the
+ * reply of the calling thread and are returned into the pool by {@link ReplyBuffers#release()}, which must be called
+ * only when the reply is encoded. Buffers of a reply which are not released by then are left to the garbage collector
+ * by {@link #endReply()}, as they might still be referenced.
+ */
+public class BufferPool {
+
+    /**
+     * The smallest pooled buffer size.
+     */
+    public static final int MIN_BUFFER_SIZE = 4096;
+
+    /**
+     * The default largest pooled buffer size.
+     */
+    public static final int DEFAULT_MAX_BUFFER_SIZE = 1024 * 1024;
+
+    /**
+     * The default upper limit of bytes kept in the pool.
+     */
+    public static final long DEFAULT_MAX_POOLED_BYTES = 64 * 1024 * 1024;
+
+    private static final BufferPool DEFAULT_POOL =
+            new BufferPool("nfs-io", DEFAULT_MAX_BUFFER_SIZE, DEFAULT_MAX_POOLED_BYTES);
+
+    private final String name;
+    private final int maxBufferSize;
+    private final long maxPooledBytes;
+    private final List<BlockingQueue<ByteBuffer>> sizeClasses;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final AtomicLong outstandingBytes = new AtomicLong();
+    private final AtomicLong pooledBytes = new AtomicLong();
+
+    /**
+     * Buffers acquired for the reply currently processed by a thread.
+     */
+    private final ThreadLocal<ReplyBuffers> currentReply = new ThreadLocal<>();
+
+    /**
+     * @param name the name of the pool, used to register the JMX bean.
+     * @param maxBufferSize the largest pooled buffer size, rounded up to a power of two.
+     * @param maxPooledBytes the upper limit of bytes kept in the pool.
+     */
+    public BufferPool(String name, int maxBufferSize, long maxPooledBytes) {
+        if (maxBufferSize < MIN_BUFFER_SIZE || maxBufferSize > (1 << 30)) {
+            throw new IllegalArgumentException("Invalid max buffer size: " + maxBufferSize);
+        }
+        this.name = name;
+        this.maxBufferSize = sizeOf(indexOf(maxBufferSize));
+        this.maxPooledBytes = maxPooledBytes;
+
+        int classCount = indexOf(this.maxBufferSize) + 1;
+        sizeClasses = new ArrayList<>(classCount);
+        for (int i = 0; i < classCount; i++) {
+            long maxBuffers = maxPooledBytes / classCount / sizeOf(i);
+            sizeClasses.add(new ArrayBlockingQueue<>((int) Math.max(1, Math.min(maxBuffers, Integer.MAX_VALUE))));
+        }
+        new BufferPoolMXBeanImpl(this);
+    }
+
+    /**
+     * Get the pool shared by the I/O operations.
+     */
+    public static BufferPool getDefault() {
+        return DEFAULT_POOL;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Get a direct buffer with at least {@code size} bytes remaining. The buffer's limit is set to {@code size}.
+     * The buffer must be returned with {@link #release(ByteBuffer)} and must not be used afterwards.
+     *
+     * @param size the number of bytes required.
+     * @return the direct buffer.
+     */
+    public ByteBuffer acquire(int size) {
+        if (size < 0) {
+            throw new IllegalArgumentException("Negative buffer size: " + size);
+        }
+
+        ByteBuffer buffer;
+        if (size > maxBufferSize) {
+            misses.increment();
+            buffer = ByteBuffer.allocateDirect(size);
+        } else {
+            int index = indexOf(size);
+            buffer = sizeClasses.get(index).poll();
+            if (buffer == null) {
+                misses.increment();
+                buffer = ByteBuffer.allocateDirect(sizeOf(index));
+            } else {
+                hits.increment();
+                pooledBytes.addAndGet(-buffer.capacity());
+                buffer.clear();
+            }
+            buffer.limit(size);
+        }
+        outstandingBytes.addAndGet(buffer.capacity());
+        return buffer;
+    }
+
+    /**
+     * Return a buffer acquired with {@link #acquire(int)} into the pool.
+     *
+     * @param buffer the buffer to return.
+     */
+    public void release(ByteBuffer buffer) {
+        int capacity = buffer.capacity();
+        outstandingBytes.addAndGet(-capacity);
+        if (!buffer.isDirect() || capacity > maxBufferSize || Integer.bitCount(capacity) != 1
+                || capacity < MIN_BUFFER_SIZE) {
+            // not a pooled buffer size
+            return;
+        }
+
+        if (sizeClasses.get(indexOf(capacity)).offer(buffer)) {
+            pooledBytes.addAndGet(capacity);
+        }
+    }
+
+    /**
+     * Start a reply on the calling thread. Buffers acquired with {@link #acquireForReply(int)} are bound to the reply
+     * until {@link #endReply()} is called.
+     *
+     * @return the buffers of the reply.
+     */
+    public ReplyBuffers beginReply() {
+        ReplyBuffers reply = new ReplyBuffers();
+        currentReply.set(reply);
+        return reply;
+    }
+
+    /**
+     * Get the buffers of the reply processed by the calling thread.
+     *
+     * @return the buffers of the reply or null, if the calling thread doesn't process a reply.
+     */
+    public ReplyBuffers currentReply() {
+        return currentReply.get();
+    }
+
+    /**
+     * Get a buffer with {@code size} bytes remaining, which is used as a part of the reply. If the calling thread
+     * doesn't process a reply, a non-pooled heap buffer is returned.
+     *
+     * @param size the number of bytes required.
+     * @return the buffer.
+     */
+    public ByteBuffer acquireForReply(int size) {
+        ReplyBuffers reply = currentReply.get();
+        if (reply == null || size == 0) {
+            return ByteBuffer.allocate(size);
+        }
+
+        ByteBuffer buffer = acquire(size);
+        reply.add(buffer);
+        return buffer;
+    }
+
+    /**
+     * End the reply on the calling thread. The buffers which were not released with {@link ReplyBuffers#release()}
+     * are left to the garbage collector, as the reply might still reference them.
+     */
+    public void endReply() {
+        ReplyBuffers reply = currentReply.get();
+        currentReply.remove();
+        if (reply != null) {
+            reply.discard();
+        }
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    /**
+     * Number of bytes in buffers which are acquired and not released yet.
+     */
+    public long getOutstandingBytes() {
+        return outstandingBytes.get();
+    }
+
+    /**
+     * Number of bytes in buffers which are kept in the pool.
+     */
+    public long getPooledBytes() {
+        return pooledBytes.get();
+    }
+
+    public long getMaxPooledBytes() {
+        return maxPooledBytes;
+    }
+
+    /**
+     * Drop all pooled buffers.
+     */
+    public void clear() {
+        for (BlockingQueue<ByteBuffer> sizeClass : sizeClasses) {
+            ByteBuffer buffer;
+            while ((buffer = sizeClass.poll()) != null) {
+                pooledBytes.addAndGet(-buffer.capacity());
+            }
+        }
+    }
+
+    private static int indexOf(int size) {
+        if (size <= MIN_BUFFER_SIZE) {
+            return 0;
+        }
+        // log2 of the next power of two, relative to the smallest size
+        return Integer.SIZE - Integer.numberOfLeadingZeros(size - 1) - Integer.numberOfTrailingZeros(MIN_BUFFER_SIZE);
+    }
+
+    private static int sizeOf(int index) {
+        return MIN_BUFFER_SIZE << index;
+    }
+
+    /**
+     * The buffers acquired for a reply.
+     */
+    public class ReplyBuffers {
+
+        @GuardedBy("this")
+        private final List<ByteBuffer> buffers = new ArrayList<>();
+
+        private ReplyBuffers() {
+        }
+
+        private synchronized void add(ByteBuffer buffer) {
+            buffers.add(buffer);
+        }
+
+        /**
+         * Return the buffers into the pool. Must be called only when the reply is encoded, thus the buffers are not
+         * referenced anymore. Subsequent calls have no effect.
+         */
+        public synchronized void release() {
+            for (ByteBuffer buffer : buffers) {
+                BufferPool.this.release(buffer);
+            }
+            buffers.clear();
+        }
+
+        /**
+         * Leave the buffers to the garbage collector.
+         */
+        private synchronized void discard() {
+            for (ByteBuffer buffer : buffers) {
+                outstandingBytes.addAndGet(-buffer.capacity());
+            }
+            buffers.clear();
+        }
+    }
+}
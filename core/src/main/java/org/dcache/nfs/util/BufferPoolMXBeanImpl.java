@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) 2026 Deutsches Elektronen-Synchroton,
+ * Member of the Helmholtz Association, (DESY), HAMBURG, GERMANY
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Library General Public License as
+ * published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this program (see the file COPYING.LIB for more
+ * details); if not, write to the Free Software Foundation, Inc.,
+ * 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package org.dcache.nfs.util;
+
+import java.lang.management.ManagementFactory;
+
+import javax.management.*;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A JMX wrapper for {@link BufferPool}
+ */
+public class BufferPoolMXBeanImpl implements BufferPoolMXBean {
+
+    private static final Logger _log = LoggerFactory.getLogger(BufferPoolMXBeanImpl.class);
+
+    private final BufferPool _pool;
+
+    public BufferPoolMXBeanImpl(BufferPool pool) {
+        _pool = pool;
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            String name = String.format("%s:type=BufferPool,name=%s",
+                    _pool.getClass().getPackage().getName(), _pool.getName());
+            ObjectName mxBeanName = new ObjectName(name);
+            if (!server.isRegistered(mxBeanName)) {
+                server.registerMBean(this, new ObjectName(name));
+            }
+        } catch (MalformedObjectNameException | InstanceAlreadyExistsException
+                | MBeanRegistrationException | NotCompliantMBeanException ex) {
+            _log.warn("Failed to register JMX bean: {}", ex.getMessage());
+        }
+    }
+
+    @Override
+    public long getHitCount() {
+        return _pool.getHitCount();
+    }
+
+    @Override
+    public long getMissCount() {
+        return _pool.getMissCount();
+    }
+
+    @Override
+    public double getHitRate() {
+        long hits = _pool.getHitCount();
+        long requests = hits + _pool.getMissCount();
+        return requests == 0 ? 1.0 : (double) hits / requests;
+    }
+
+    @Override
+    public long getOutstandingBytes() {
+        return _pool.getOutstandingBytes();
+    }
+
+    @Override
+    public long getPooledBytes() {
+        return _pool.getPooledBytes();
+    }
+
+    @Override
+    public long getMaxPooledBytes() {
+        return _pool.getMaxPooledBytes();
+    }
+
+    @Override
+    public void clear() {
+        _pool.clear();
+    }
+}
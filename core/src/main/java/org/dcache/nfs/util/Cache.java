@@ -26,12 +26,14 @@ import java.time.Duration;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.MissingResourceException;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicReference;
-import java.util.concurrent.locks.StampedLock;
+
+import javax.annotation.concurrent.GuardedBy;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -51,6 +53,11 @@ import org.slf4j.LoggerFactory;
  *
  * </pre>
  *
+ * The lookups take no lock. The expired entries are removed on access or by {@link #cleanUp()}, which checks only
+ * the entries which might have expired since the last cleanup. For that, each entry is scheduled on a timer wheel,
+ * i.e. a time ordered set of buckets, each holding the entries which expire within the same tick. An entry accessed
+ * after it has been scheduled is re-scheduled when its bucket is due.
+ *
  * @author Tigran Mkrtchyan
  * @param <K> the type of keys maintained by this cache
  * @param <V> the type of cached values
@@ -88,9 +95,15 @@ public class Cache<K, V> {
     private final Map<K, CacheElement<V>> _storage;
 
     /**
-     * Internal storage access lock.
+     * Buckets of entries by expiry tick.
      */
-    private final StampedLock _accessLock = new StampedLock();
+    @GuardedBy("_wheel")
+    private final TreeMap<Long, Map<K, CacheElement<V>>> _wheel = new TreeMap<>();
+
+    /**
+     * The width of a timer wheel bucket in milliseconds.
+     */
+    private final long _tick;
     /**
      * Cache event listener.
      */
@@ -152,7 +165,8 @@ public class Cache<K, V> {
         _size = size;
         _defaultEntryMaxLifeTime = entryLifeTime;
         _defaultEntryIdleTime = entryIdleTime;
-        _storage = new HashMap<>(_size);
+        _storage = new ConcurrentHashMap<>(_size);
+        _tick = Math.max(1L, CacheElement.toMillis(entryIdleTime) / 64);
         _eventListener = eventListener;
         _mxBean = new CacheMXBeanImpl<>(this);
         _timeSource = clock;
@@ -193,15 +207,19 @@ public class Cache<K, V> {
     public void put(K k, V v, Duration entryMaxLifeTime, Duration entryIdleTime) {
         _log.debug("Adding new cache entry: key = [{}], value = [{}]", k, v);
 
-        long stamp = _accessLock.writeLock();
-        try {
-            if (_storage.size() >= _size && !_storage.containsKey(k)) {
-                _log.warn("Cache limit reached: {}", _size);
-                throw new MissingResourceException("Cache limit reached", Cache.class.getName(), "");
+        // the limit is a soft one, as concurrent puts might pass the check together
+        if (_storage.size() >= _size && !_storage.containsKey(k)) {
+            _log.warn("Cache limit reached: {}", _size);
+            throw new MissingResourceException("Cache limit reached", Cache.class.getName(), "");
+        }
+        CacheElement<V> element = new CacheElement<>(v, _timeSource, entryMaxLifeTime, entryIdleTime);
+        // update the storage and the wheel together, otherwise racing puts might leave the older element scheduled
+        synchronized (_wheel) {
+            CacheElement<V> old = _storage.put(k, element);
+            if (old != null) {
+                unschedule(k, old);
             }
-            _storage.put(k, new CacheElement<>(v, _timeSource, entryMaxLifeTime, entryIdleTime));
-        } finally {
-            _accessLock.unlock(stamp);
+            schedule(k, element);
         }
 
         _eventListener.notifyPut(this, v);
@@ -216,48 +234,28 @@ public class Cache<K, V> {
      */
     public V get(K k) {
 
-        V v;
-        boolean valid;
-        boolean removed = false;
-
-        long stamp = _accessLock.readLock();
-        try {
-            CacheElement<V> element = _storage.get(k);
-
-            if (element == null) {
-                _log.debug("No cache hits for key = [{}]", k);
-                return null;
-            }
-
-            valid = element.validAt(_timeSource.instant());
-            v = element.getObject();
-
-            if (!valid) {
-                _log.debug("Cache hits but entry expired for key = [{}], value = [{}]", k, v);
-                long ws = _accessLock.tryConvertToWriteLock(stamp);
-                if (ws != 0L) {
-                    stamp = ws;
-                } else {
-                    _accessLock.unlock(stamp);
-                    stamp = _accessLock.writeLock();
-                }
-                removed = _storage.remove(k) != null;
-            } else {
-                _log.debug("Cache hits for key = [{}], value = [{}]", k, v);
-            }
-        } finally {
-            _accessLock.unlock(stamp);
+        CacheElement<V> element = _storage.get(k);
+        if (element == null) {
+            _log.debug("No cache hits for key = [{}]", k);
+            return null;
         }
 
-        if (!valid) {
+        if (!element.validAt(_timeSource.instant())) {
+            V v = element.peekObject();
+            _log.debug("Cache hits but entry expired for key = [{}], value = [{}]", k, v);
             // notify only if this thread have removed the expired entry
-            if (removed) {
+            if (_storage.remove(k, element)) {
+                synchronized (_wheel) {
+                    unschedule(k, element);
+                }
                 _eventListener.notifyExpired(this, v);
             }
-            v = null;
-        } else {
-            _eventListener.notifyGet(this, v);
+            return null;
         }
+
+        V v = element.getObject();
+        _log.debug("Cache hits for key = [{}], value = [{}]", k, v);
+        _eventListener.notifyGet(this, v);
         return v;
     }
 
@@ -272,15 +270,13 @@ public class Cache<K, V> {
         V v;
         boolean valid;
 
-        long stamp = _accessLock.writeLock();
-        try {
-            CacheElement<V> element = _storage.remove(k);
-            if (element == null)
-                return null;
-            valid = element.validAt(_timeSource.instant());
-            v = element.getObject();
-        } finally {
-            _accessLock.unlock(stamp);
+        CacheElement<V> element = _storage.remove(k);
+        if (element == null)
+            return null;
+        valid = element.validAt(_timeSource.instant());
+        v = element.getObject();
+        synchronized (_wheel) {
+            unschedule(k, element);
         }
 
         _log.debug("Removing entry: active = [{}] key = [{}], value = [{}]",
@@ -297,13 +293,7 @@ public class Cache<K, V> {
      * @return number of elements.
      */
     int size() {
-
-        long stamp = _accessLock.readLock();
-        try {
-            return _storage.size();
-        } finally {
-            _accessLock.unlock(stamp);
-        }
+        return _storage.size();
     }
 
     /**
@@ -331,11 +321,9 @@ public class Cache<K, V> {
 
         _log.debug("Cleaning the cache");
 
-        long stamp = _accessLock.writeLock();
-        try {
+        synchronized (_wheel) {
             _storage.clear();
-        } finally {
-            _accessLock.unlock(stamp);
+            _wheel.clear();
         }
     }
 
@@ -344,26 +332,38 @@ public class Cache<K, V> {
      */
     public void cleanUp() {
         List<V> expiredEntries = new ArrayList<>();
+        List<Map.Entry<K, CacheElement<V>>> dueEntries = new ArrayList<>();
+
+        Instant now = _timeSource.instant();
+        long nowTick = now.toEpochMilli() / _tick;
+        synchronized (_wheel) {
+            while (!_wheel.isEmpty() && _wheel.firstKey() <= nowTick) {
+                dueEntries.addAll(_wheel.pollFirstEntry().getValue().entrySet());
+            }
+        }
 
-        long stamp = _accessLock.writeLock();
-        try {
-            Instant now = _timeSource.instant();
-            Iterator<Map.Entry<K, CacheElement<V>>> entries = _storage.entrySet().iterator();
-            while (entries.hasNext()) {
-                Map.Entry<K, CacheElement<V>> entry = entries.next();
-                CacheElement<V> cacheElement = entry.getValue();
-
-                if (!cacheElement.validAt(now)) {
-                    _log.debug("Cleaning expired entry key = [{}], value = [{}]",
-                            entry.getKey(), cacheElement.getObject());
-                    entries.remove();
-                    expiredEntries.add(cacheElement.getObject());
+        List<Map.Entry<K, CacheElement<V>>> rescheduled = new ArrayList<>();
+        for (Map.Entry<K, CacheElement<V>> entry : dueEntries) {
+            K k = entry.getKey();
+            CacheElement<V> cacheElement = entry.getValue();
+            if (cacheElement.validAt(now)) {
+                // accessed since scheduled
+                rescheduled.add(entry);
+            } else if (_storage.remove(k, cacheElement)) {
+                _log.debug("Cleaning expired entry key = [{}], value = [{}]", k, cacheElement.peekObject());
+                expiredEntries.add(cacheElement.peekObject());
+            }
+        }
+
+        synchronized (_wheel) {
+            for (Map.Entry<K, CacheElement<V>> entry : rescheduled) {
+                // skip entries removed or replaced in the meantime
+                if (_storage.get(entry.getKey()) == entry.getValue()) {
+                    schedule(entry.getKey(), entry.getValue());
                 }
             }
-            _lastClean.set(now);
-        } finally {
-            _accessLock.unlock(stamp);
         }
+        _lastClean.set(now);
 
         expiredEntries.forEach(v -> _eventListener.notifyExpired(this, v));
     }
@@ -374,16 +374,22 @@ public class Cache<K, V> {
      * @return list of entries.
      */
     public List<CacheElement<V>> entries() {
-        List<CacheElement<V>> entries;
-
-        long stamp = _accessLock.readLock();
-        try {
-            entries = new ArrayList<>(_storage.size());
-            entries.addAll(_storage.values());
-        } finally {
-            _accessLock.unlock(stamp);
+        return new ArrayList<>(_storage.values());
+    }
+
+    @GuardedBy("_wheel")
+    private void schedule(K k, CacheElement<V> element) {
+        long tick = element.expiresAt() / _tick;
+        element.setExpiryTick(tick);
+        _wheel.computeIfAbsent(tick, t -> new HashMap<>()).put(k, element);
+    }
+
+    @GuardedBy("_wheel")
+    private void unschedule(K k, CacheElement<V> element) {
+        Map<K, CacheElement<V>> bucket = _wheel.get(element.getExpiryTick());
+        if (bucket != null && bucket.remove(k, element) && bucket.isEmpty()) {
+            _wheel.remove(element.getExpiryTick());
         }
-        return entries;
     }
 
     public Instant lastClean() {
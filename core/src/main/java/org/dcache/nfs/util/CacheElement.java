@@ -49,7 +49,7 @@ public class CacheElement<V> {
     /**
      * Elements last access time.
      */
-    private Instant _lastAccessTime;
+    private volatile Instant _lastAccessTime;
     /**
      * internal object.
      */
@@ -57,6 +57,11 @@ public class CacheElement<V> {
 
     private final Clock _clock;
 
+    /**
+     * The timer wheel tick the element is scheduled at, guarded by the cache's timer wheel.
+     */
+    private long _expiryTick;
+
     CacheElement(V inner, Clock clock, Duration maxLifeTime, Duration idleTime) {
         _clock = clock;
         _creationTime = _clock.instant();
@@ -73,7 +78,11 @@ public class CacheElement<V> {
      * @return internal object.
      */
     public V getObject() {
-        _lastAccessTime = _clock.instant();
+        Instant now = _clock.instant();
+        // avoid the cost of a volatile write on frequent accesses
+        if (now.toEpochMilli() != _lastAccessTime.toEpochMilli()) {
+            _lastAccessTime = now;
+        }
         return _inner;
     }
 
@@ -98,6 +107,41 @@ public class CacheElement<V> {
                 Duration.between(_creationTime, instant).compareTo(_maxLifeTime) <= 0;
     }
 
+    /**
+     * Get the point in time, in milliseconds since epoch, at which the entry expires if not accessed anymore.
+     *
+     * @return expiry time in milliseconds, or {@link Long#MAX_VALUE} if too far in the future.
+     */
+    long expiresAt() {
+        long idleUntil = plus(_lastAccessTime.toEpochMilli(), toMillis(_idleTime));
+        long liveUntil = plus(_creationTime.toEpochMilli(), toMillis(_maxLifeTime));
+        return Math.min(idleUntil, liveUntil);
+    }
+
+    long getExpiryTick() {
+        return _expiryTick;
+    }
+
+    void setExpiryTick(long expiryTick) {
+        _expiryTick = expiryTick;
+    }
+
+    /**
+     * Convert duration to milliseconds, saturating at {@link Long#MAX_VALUE}.
+     */
+    static long toMillis(Duration duration) {
+        try {
+            return duration.toMillis();
+        } catch (ArithmeticException e) {
+            return Long.MAX_VALUE;
+        }
+    }
+
+    private static long plus(long a, long b) {
+        long r = a + b;
+        return ((a ^ r) & (b ^ r)) < 0 ? Long.MAX_VALUE : r;
+    }
+
     @Override
     public String toString() {
         Instant now = _clock.instant();
@@ -0,0 +1,165 @@
+/*
+ * Copyright (c) 2026 Deutsches Elektronen-Synchroton,
+ * Member of the Helmholtz Association, (DESY), HAMBURG, GERMANY
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Library General Public License as
+ * published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this program (see the file COPYING.LIB for more
+ * details); if not, write to the Free Software Foundation, Inc.,
+ * 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package org.dcache.nfs.util;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A lock-free histogram of latencies in the spirit of HdrHistogram.
+ * <p>
+ * Values are recorded into log-linear buckets: each power of two range is split into {@code 2^}{@link #SUB_BUCKET_BITS}
+ * equal sub-buckets, which keeps the relative error of the reported percentiles below {@code 1/2^SUB_BUCKET_BITS}
+ * with a fixed memory footprint. Values above the highest trackable value are recorded into the last bucket.
+ * <p>
+ * Recording is wait-free and safe to use concurrently with reading, though a snapshot taken while values are being
+ * recorded may be slightly inconsistent.
+ */
+public class LatencyHistogram {
+
+    /**
+     * Number of bits of the value's precision kept in each power of two range.
+     */
+    public static final int SUB_BUCKET_BITS = 4;
+
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+
+    /**
+     * Number of power of two ranges above the linear range. Covers values up to {@code 2^40} nanoseconds, about 18
+     * minutes.
+     */
+    private static final int MAX_EXPONENT = 40;
+
+    private static final int BUCKET_COUNT = (MAX_EXPONENT - SUB_BUCKET_BITS + 2) * SUB_BUCKET_COUNT;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Record a latency.
+     *
+     * @param nanos the latency in nanoseconds.
+     */
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        buckets.incrementAndGet(indexOf(value));
+        count.increment();
+        sum.add(value);
+        if (value > max.get()) {
+            max.accumulateAndGet(value, Math::max);
+        }
+    }
+
+    /**
+     * Get number of recorded values.
+     */
+    public long getCount() {
+        return count.sum();
+    }
+
+    /**
+     * Get the highest recorded value.
+     *
+     * @param unit the time unit of the returned value.
+     */
+    public long getMax(TimeUnit unit) {
+        return unit.convert(max.get(), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Get the arithmetic mean of the recorded values in nanoseconds.
+     */
+    public double getMean() {
+        long n = count.sum();
+        return n == 0 ? 0.0 : (double) sum.sum() / n;
+    }
+
+    /**
+     * Get the value below which the given percentage of the recorded values fall. The returned value is the upper
+     * bound of the bucket the percentile falls into, but never above the highest recorded value.
+     *
+     * @param percentile percentile in the range 0.0 to 100.0.
+     * @param unit the time unit of the returned value.
+     * @return the value at the given percentile, or zero if nothing is recorded.
+     */
+    public long getValueAtPercentile(double percentile, TimeUnit unit) {
+        if (percentile < 0.0 || percentile > 100.0) {
+            throw new IllegalArgumentException("Invalid percentile: " + percentile);
+        }
+
+        long total = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            total += buckets.get(i);
+        }
+        if (total == 0) {
+            return 0;
+        }
+
+        long rank = Math.max(1, (long) Math.ceil(total * percentile / 100.0));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += buckets.get(i);
+            if (seen >= rank) {
+                // the last bucket is unbounded
+                long value = i == BUCKET_COUNT - 1 ? max.get() : Math.min(upperBoundOf(i), max.get());
+                return unit.convert(value, TimeUnit.NANOSECONDS);
+            }
+        }
+        return unit.convert(max.get(), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Discard all recorded values.
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            buckets.set(i, 0);
+        }
+        count.reset();
+        sum.reset();
+        max.set(0);
+    }
+
+    private static int indexOf(long value) {
+        if (value < SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+        int exponent = Math.min(63 - Long.numberOfLeadingZeros(value), MAX_EXPONENT);
+        if (exponent == MAX_EXPONENT && value >= 1L << (MAX_EXPONENT + 1)) {
+            return BUCKET_COUNT - 1;
+        }
+        int shift = exponent - SUB_BUCKET_BITS;
+        int subBucket = (int) (value >>> shift) & (SUB_BUCKET_COUNT - 1);
+        return (shift + 1) * SUB_BUCKET_COUNT + subBucket;
+    }
+
+    private static long upperBoundOf(int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+        int shift = index / SUB_BUCKET_COUNT - 1;
+        long subBucket = index % SUB_BUCKET_COUNT;
+        return ((SUB_BUCKET_COUNT + subBucket + 1) << shift) - 1;
+    }
+}
@@ -23,7 +23,13 @@ import static org.dcache.nfs.v3.Utils.checkFilename;
 import static org.dcache.nfs.v3.Utils.defaultPostOpAttr;
 import static org.dcache.nfs.v3.Utils.defaultWccData;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.EnumSet;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 
 import javax.security.auth.Subject;
 
@@ -35,18 +41,23 @@ import org.dcache.nfs.status.NfsIoException;
 import org.dcache.nfs.status.NoEntException;
 import org.dcache.nfs.status.NotDirException;
 import org.dcache.nfs.status.TooSmallException;
+import org.dcache.nfs.util.BufferPool;
 import org.dcache.nfs.util.UnixSubjects;
 import org.dcache.nfs.v3.xdr.*;
+import org.dcache.nfs.vfs.DirectoryEntries;
 import org.dcache.nfs.vfs.DirectoryEntry;
 import org.dcache.nfs.vfs.DirectoryStream;
 import org.dcache.nfs.vfs.FsStat;
 import org.dcache.nfs.vfs.Inode;
 import org.dcache.nfs.vfs.PseudoFs;
 import org.dcache.nfs.vfs.Stat;
+import org.dcache.nfs.vfs.Stat.StatAttribute;
 import org.dcache.nfs.vfs.VirtualFileSystem;
+import org.dcache.oncrpc4j.rpc.OncRpcException;
 import org.dcache.oncrpc4j.rpc.RpcCall;
 import org.dcache.oncrpc4j.util.Bytes;
 import org.dcache.oncrpc4j.util.Opaque;
+import org.dcache.oncrpc4j.xdr.XdrEncodingStream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -67,6 +78,18 @@ public class NfsServerV3 extends nfs3_protServerStub {
     private static final int ENTRYPLUS3_SIZE = 124;
     private static final int READDIR3RESOK_SIZE = 104;
     private static final int READDIRPLUS3RESOK_SIZE = 104;
+
+    /**
+     * File attributes used by READDIR3 entries.
+     */
+    private static final EnumSet<StatAttribute> FILEID_STAT_ATTRIBUTES = EnumSet.of(StatAttribute.INO);
+
+    /**
+     * File attributes used by {@link Utils#fill_attributes(Stat, fattr3)}.
+     */
+    private static final EnumSet<StatAttribute> FATTR3_STAT_ATTRIBUTES = EnumSet.of(StatAttribute.MODE,
+            StatAttribute.NLINK, StatAttribute.OWNER, StatAttribute.GROUP, StatAttribute.DEV, StatAttribute.INO,
+            StatAttribute.SIZE, StatAttribute.ATIME, StatAttribute.MTIME, StatAttribute.CTIME);
     private static final Logger _log = LoggerFactory.getLogger(NfsServerV3.class);
 
     private final VirtualFileSystem _vfs;
@@ -87,6 +110,17 @@ public class NfsServerV3 extends nfs3_protServerStub {
         return verf;
     }
 
+    @Override
+    public void dispatchOncRpcCall(RpcCall call) throws OncRpcException, IOException {
+        BufferPool.getDefault().beginReply();
+        try {
+            super.dispatchOncRpcCall(call);
+        } finally {
+            // the buffers are returned into the pool by the encoded reply, the remaining ones might still be in use
+            BufferPool.getDefault().endReply();
+        }
+    }
+
     @Override
     public ACCESS3res NFSPROC3_ACCESS_3(RpcCall call$, ACCESS3args arg1) {
 
@@ -618,79 +652,92 @@ public class NfsServerV3 extends nfs3_protServerStub {
             }
 
             long startValue = arg1.cookie.value.value;
-            DirectoryStream directoryStream;
             cookieverf3 cookieverf = arg1.cookieverf;
 
-            directoryStream = fs.list(dir, cookieverf.value, startValue);
-            Iterator<DirectoryEntry> dirList = directoryStream.iterator();
-
-            res.status = nfsstat.NFS_OK;
-            res.resok = new READDIRPLUS3resok();
-            res.resok.reply = new dirlistplus3();
-            res.resok.reply.eof = true;
-            res.resok.dir_attributes = new post_op_attr();
-            res.resok.dir_attributes.attributes_follow = true;
-            res.resok.dir_attributes.attributes = new fattr3();
-            res.resok.cookieverf = new cookieverf3(directoryStream.getVerifier());
-
-            Utils.fill_attributes(dirStat, res.resok.dir_attributes.attributes);
-
-            int currcount = READDIRPLUS3RESOK_SIZE;
-            int dircount = 0;
-            int fcount = 0;
-            entryplus3 lastEntry = null;
-
-            while (dirList.hasNext()) {
-
-                DirectoryEntry le = dirList.next();
-                String name = le.getName();
-                Inode ef = le.getInode();
-
-                entryplus3 currentEntry = new entryplus3();
-                currentEntry.fileid = new fileid3(new uint64(le.getStat().getIno()));
-                currentEntry.name = new filename3(name);
-                currentEntry.cookie = new cookie3(new uint64(le.getCookie()));
-                currentEntry.name_handle = new post_op_fh3();
-                currentEntry.name_handle.handle_follows = true;
-                currentEntry.name_handle.handle = new nfs_fh3();
-                currentEntry.name_handle.handle.data = ef.toNfsHandle();
-                currentEntry.name_attributes = new post_op_attr();
-                currentEntry.name_attributes.attributes_follow = true;
-                currentEntry.name_attributes.attributes = new fattr3();
-                Utils.fill_attributes(le.getStat(), currentEntry.name_attributes.attributes);
-
-                // check if writing this entry exceeds the count limit
-                int newSize = ENTRYPLUS3_SIZE + name.length() + currentEntry.name_handle.handle.data.numBytes();
-                int newDirSize = name.length();
-                if ((currcount + newSize > arg1.maxcount.value.value) || (dircount
-                        + newDirSize > arg1.dircount.value.value)) {
-                    if (lastEntry == null) {
-                        // corner case - means we didnt have enough space to
-                        // write even a single entry.
-                        throw new TooSmallException("can't send even a single entry");
+            try (DirectoryStream directoryStream = fs.list(dir, cookieverf.value, startValue,
+                    FATTR3_STAT_ATTRIBUTES)) {
+                Iterator<DirectoryEntry> dirList = directoryStream.iterator();
+
+                res.status = nfsstat.NFS_OK;
+                res.resok = new READDIRPLUS3resok();
+                res.resok.reply = new dirlistplus3();
+                res.resok.reply.eof = true;
+                res.resok.dir_attributes = new post_op_attr();
+                res.resok.dir_attributes.attributes_follow = true;
+                res.resok.dir_attributes.attributes = new fattr3();
+                res.resok.cookieverf = new cookieverf3(directoryStream.getVerifier());
+
+                Utils.fill_attributes(dirStat, res.resok.dir_attributes.attributes);
+
+                int currcount = READDIRPLUS3RESOK_SIZE;
+                int dircount = 0;
+                int fcount = 0;
+                entryplus3 lastEntry = null;
+
+                // the upper bound of entries which fit into the reply
+                int batchSize = Math.min((arg1.maxcount.value.value - READDIRPLUS3RESOK_SIZE) / ENTRYPLUS3_SIZE,
+                        arg1.dircount.value.value) + 1;
+
+                while (res.resok.reply.eof && dirList.hasNext()) {
+
+                    List<DirectoryEntry> batch = DirectoryEntries.nextBatch(dirList, batchSize);
+                    Map<Inode, Stat> stats = DirectoryEntries.fetchMissing(fs, batch, FATTR3_STAT_ATTRIBUTES);
+
+                    for (DirectoryEntry le : batch) {
+                        String name = le.getName();
+                        Inode ef = le.getInode();
+                        Stat stat = DirectoryEntries.statOf(fs, le, stats, FATTR3_STAT_ATTRIBUTES);
+
+                        entryplus3 currentEntry = new entryplus3();
+                        currentEntry.fileid = new fileid3(new uint64(stat.getIno()));
+                        currentEntry.name = new filename3(name);
+                        currentEntry.cookie = new cookie3(new uint64(le.getCookie()));
+                        currentEntry.name_handle = new post_op_fh3();
+                        currentEntry.name_handle.handle_follows = true;
+                        currentEntry.name_handle.handle = new nfs_fh3();
+                        currentEntry.name_handle.handle.data = ef.toNfsHandle();
+                        currentEntry.name_attributes = new post_op_attr();
+                        currentEntry.name_attributes.attributes_follow = true;
+                        currentEntry.name_attributes.attributes = new fattr3();
+                        Utils.fill_attributes(stat, currentEntry.name_attributes.attributes);
+
+                        // check if writing this entry exceeds the count limit
+                        int newSize = ENTRYPLUS3_SIZE + name.length() + currentEntry.name_handle.handle.data.numBytes();
+                        int newDirSize = name.length();
+                        if ((currcount + newSize > arg1.maxcount.value.value) || (dircount
+                                + newDirSize > arg1.dircount.value.value)) {
+                            if (lastEntry == null) {
+                                // corner case - means we didnt have enough space to
+                                // write even a single entry.
+                                throw new TooSmallException("can't send even a single entry");
+                            }
+                            res.resok.reply.eof = false;
+                            break;
+                        }
+
+                        fcount++;
+                        dircount += newDirSize;
+                        currcount += newSize;
+
+                        if (lastEntry == null) {
+                            res.resok.reply.entries = currentEntry;
+                        } else {
+                            lastEntry.nextentry = currentEntry;
+                        }
+                        lastEntry = currentEntry;
                     }
-                    res.resok.reply.eof = false;
-                    break;
                 }
 
-                fcount++;
-                dircount += newDirSize;
-                currcount += newSize;
-
-                if (lastEntry == null) {
-                    res.resok.reply.entries = currentEntry;
-                } else {
-                    lastEntry.nextentry = currentEntry;
-                }
-                lastEntry = currentEntry;
+                _log.debug("Sending {} entries ( {} bytes from {}, dircount = {} from {} ) cookie = {}",
+                        fcount, currcount,
+                        arg1.maxcount.value.value, dircount,
+                        arg1.dircount.value.value,
+                        startValue);
+            } catch (UncheckedIOException e) {
+                // entries of a lazy listing are fetched while iterating
+                throw e.getCause();
             }
 
-            _log.debug("Sending {} entries ( {} bytes from {}, dircount = {} from {} ) cookie = {}",
-                    fcount, currcount,
-                    arg1.maxcount.value.value, dircount,
-                    arg1.dircount.value.value,
-                    startValue);
-
         } catch (ChimeraNFSException hne) {
             _log.debug("READDIRPLUS3 status: {}", hne.toString());
             res.resfail = new READDIRPLUS3resfail();
@@ -725,64 +772,76 @@ public class NfsServerV3 extends nfs3_protServerStub {
             }
 
             long startValue = arg1.cookie.value.value;
-            DirectoryStream directoryStream;
             cookieverf3 cookieverf = arg1.cookieverf;
 
-            directoryStream = fs.list(dir, cookieverf.value, startValue);
-            Iterator<DirectoryEntry> dirList = directoryStream.iterator();
-
-            res.status = nfsstat.NFS_OK;
-            res.resok = new READDIR3resok();
-            res.resok.reply = new dirlist3();
-            res.resok.reply.eof = true;
-            res.resok.dir_attributes = new post_op_attr();
-            res.resok.dir_attributes.attributes_follow = true;
-            res.resok.dir_attributes.attributes = new fattr3();
-            Utils.fill_attributes(dirStat, res.resok.dir_attributes.attributes);
-
-            res.resok.cookieverf = new cookieverf3(directoryStream.getVerifier());
-
-            int currcount = READDIR3RESOK_SIZE;
-            int fcount = 0;
-            entry3 lastEntry = null;
-
-            while (dirList.hasNext()) {
-
-                DirectoryEntry le = dirList.next();
-                String name = le.getName();
-
-                entry3 currentEntry = new entry3();
-                currentEntry.fileid = new fileid3(new uint64(le.getStat().getIno()));
-                currentEntry.name = new filename3(name);
-                currentEntry.cookie = new cookie3(new uint64(le.getCookie()));
-
-                // check if writing this entry exceeds the count limit
-                int newSize = ENTRY3_SIZE + name.length();
-                if (currcount + newSize > arg1.count.value.value) {
-                    if (lastEntry == null) {
-                        // corner case - means we didnt have enough space to
-                        // write even a single entry.
-                        throw new TooSmallException("can't send even a single entry");
+            try (DirectoryStream directoryStream = fs.list(dir, cookieverf.value, startValue,
+                    FILEID_STAT_ATTRIBUTES)) {
+                Iterator<DirectoryEntry> dirList = directoryStream.iterator();
+
+                res.status = nfsstat.NFS_OK;
+                res.resok = new READDIR3resok();
+                res.resok.reply = new dirlist3();
+                res.resok.reply.eof = true;
+                res.resok.dir_attributes = new post_op_attr();
+                res.resok.dir_attributes.attributes_follow = true;
+                res.resok.dir_attributes.attributes = new fattr3();
+                Utils.fill_attributes(dirStat, res.resok.dir_attributes.attributes);
+
+                res.resok.cookieverf = new cookieverf3(directoryStream.getVerifier());
+
+                int currcount = READDIR3RESOK_SIZE;
+                int fcount = 0;
+                entry3 lastEntry = null;
+
+                // the upper bound of entries which fit into the reply
+                int batchSize = (arg1.count.value.value - READDIR3RESOK_SIZE) / ENTRY3_SIZE + 1;
+
+                while (res.resok.reply.eof && dirList.hasNext()) {
+
+                    List<DirectoryEntry> batch = DirectoryEntries.nextBatch(dirList, batchSize);
+                    Map<Inode, Stat> stats = DirectoryEntries.fetchMissing(fs, batch, FILEID_STAT_ATTRIBUTES);
+
+                    for (DirectoryEntry le : batch) {
+                        String name = le.getName();
+                        Stat stat = DirectoryEntries.statOf(fs, le, stats, FILEID_STAT_ATTRIBUTES);
+
+                        entry3 currentEntry = new entry3();
+                        currentEntry.fileid = new fileid3(new uint64(stat.getIno()));
+                        currentEntry.name = new filename3(name);
+                        currentEntry.cookie = new cookie3(new uint64(le.getCookie()));
+
+                        // check if writing this entry exceeds the count limit
+                        int newSize = ENTRY3_SIZE + name.length();
+                        if (currcount + newSize > arg1.count.value.value) {
+                            if (lastEntry == null) {
+                                // corner case - means we didnt have enough space to
+                                // write even a single entry.
+                                throw new TooSmallException("can't send even a single entry");
+                            }
+                            res.resok.reply.eof = false;
+                            break;
+                        }
+                        fcount++;
+                        currcount += newSize;
+
+                        if (lastEntry == null) {
+                            res.resok.reply.entries = currentEntry;
+                        } else {
+                            lastEntry.nextentry = currentEntry;
+                        }
+                        lastEntry = currentEntry;
                     }
-                    res.resok.reply.eof = false;
-                    break;
                 }
-                fcount++;
-                currcount += newSize;
 
-                if (lastEntry == null) {
-                    res.resok.reply.entries = currentEntry;
-                } else {
-                    lastEntry.nextentry = currentEntry;
-                }
-                lastEntry = currentEntry;
+                _log.debug("Sending {} entries ( {} bytes from {}) cookie = {}",
+                        fcount, currcount,
+                        arg1.count.value.value,
+                        startValue);
+            } catch (UncheckedIOException e) {
+                // entries of a lazy listing are fetched while iterating
+                throw e.getCause();
             }
 
-            _log.debug("Sending {} entries ( {} bytes from {}) cookie = {}",
-                    fcount, currcount,
-                    arg1.count.value.value,
-                    startValue);
-
         } catch (ChimeraNFSException hne) {
             _log.error("READDIR: {}", hne.toString());
             res.resfail = new READDIR3resfail();
@@ -837,7 +896,7 @@ public class NfsServerV3 extends nfs3_protServerStub {
     public READ3res NFSPROC3_READ_3(RpcCall call$, READ3args arg1) {
 
         VirtualFileSystem fs = new PseudoFs(_vfs, call$, _exports);
-        READ3res res = new READ3res();
+        READ3res res = new PooledREAD3res(BufferPool.getDefault().currentReply());
 
         try {
             Inode inode = Inode.forNfsHandle(arg1.file.data);
@@ -851,20 +910,19 @@ public class NfsServerV3 extends nfs3_protServerStub {
             res.resok.count = new count3();
             res.resok.count.value = new uint32();
 
-            byte[] b = new byte[count];
-            res.resok.count.value.value = fs.read(inode, b, offset, count);
-            if (res.resok.count.value.value < 0) {
+            // don't allocate more than can be read and use the buffer as is, even on short reads. A pooled buffer is
+            // returned into the pool when the reply is encoded.
+            int len = (int) Math.max(0L, Math.min(count, inodeStat.getSize() - offset));
+            ByteBuffer b = fs.supportsDirectBuffers() ? BufferPool.getDefault().acquireForReply(len)
+                    : ByteBuffer.allocate(len);
+            int n = b.hasRemaining() ? fs.read(inode, b, offset) : 0;
+            if (n < 0) {
                 throw new NfsIoException("IO not allowed");
             }
-            if (res.resok.count.value.value == count) {
-                res.resok.data = Opaque.forImmutableBytes(b);
-            } else {
-                byte[] data = new byte[res.resok.count.value.value];;
-                System.arraycopy(b, 0, data, 0, res.resok.count.value.value);
-                res.resok.data = Opaque.forImmutableBytes(data);
-            }
+            res.resok.count.value.value = n;
+            res.resok.data = Opaque.forOwnedByteBuffer(b, 0, n);
 
-            if (res.resok.count.value.value + offset == inodeStat.getSize()) {
+            if (res.resok.count.value.value + offset >= inodeStat.getSize()) {
                 res.resok.eof = true;
             }
 
@@ -1197,4 +1255,29 @@ public class NfsServerV3 extends nfs3_protServerStub {
         return res;
 
     }
+
+    /**
+     * The result of a READ request, which returns the pooled buffer holding the data into the pool, once it is
+     * encoded.
+     */
+    private static class PooledREAD3res extends READ3res {
+
+        private final BufferPool.ReplyBuffers buffers;
+
+        PooledREAD3res(BufferPool.ReplyBuffers buffers) {
+            this.buffers = buffers;
+        }
+
+        @Override
+        public void xdrEncode(XdrEncodingStream xdr) throws OncRpcException, IOException {
+            try {
+                super.xdrEncode(xdr);
+            } finally {
+                if (buffers != null) {
+                    // the data is copied into the encoding stream
+                    buffers.release();
+                }
+            }
+        }
+    }
 }
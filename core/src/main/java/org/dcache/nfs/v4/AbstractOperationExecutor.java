@@ -20,6 +20,7 @@
 package org.dcache.nfs.v4;
 
 import java.io.IOException;
+import java.util.Objects;
 
 import org.dcache.nfs.ChimeraNFSException;
 import org.dcache.nfs.nfsstat;
@@ -48,12 +49,25 @@ public abstract class AbstractOperationExecutor implements OperationExecutor {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(AbstractOperationExecutor.class);
 
+    private volatile OperationMetricsListener metricsListener = OperationMetricsListener.NOP;
+
+    /**
+     * Set the listener which is notified about the status and processing time of every executed operation.
+     *
+     * @param metricsListener the listener to notify.
+     * @see OperationStatistics
+     */
+    public void setMetricsListener(OperationMetricsListener metricsListener) {
+        this.metricsListener = Objects.requireNonNull(metricsListener);
+    }
+
     @Override
     public nfs_resop4 execute(CompoundContext context, nfs_argop4 args) throws IOException, OncRpcException {
 
         AbstractNFSv4Operation op = getOperation(args);
         nfs_resop4 opResult = nfs_resop4.resopFor(args.argop);
 
+        long start = System.nanoTime();
         try {
             op.process(context, opResult);
         } catch (NfsIoException | ResourceException | ServerFaultException e) {
@@ -75,6 +89,7 @@ public abstract class AbstractOperationExecutor implements OperationExecutor {
             opResult.setStatus(nfsstat.NFSERR_SERVERFAULT);
             LOGGER.error("NFS uncaught exception: op: {} : {}", nfs_opnum4.toString(args.argop), e.getMessage(), e);
         }
+        metricsListener.onOperation(args.argop, opResult.getStatus(), System.nanoTime() - start);
         return opResult;
     }
 
@@ -0,0 +1,335 @@
+/*
+ * Copyright (c) 2026 Deutsches Elektronen-Synchroton,
+ * Member of the Helmholtz Association, (DESY), HAMBURG, GERMANY
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Library General Public License as
+ * published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this program (see the file COPYING.LIB for more
+ * details); if not, write to the Free Software Foundation, Inc.,
+ * 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package org.dcache.nfs.v4;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.dcache.nfs.v4.xdr.attrlist4;
+import org.dcache.nfs.v4.xdr.bitmap4;
+import org.dcache.nfs.v4.xdr.fattr4;
+import org.dcache.nfs.v4.xdr.nfs4_prot;
+import org.dcache.nfs.vfs.Inode;
+import org.dcache.nfs.vfs.Stat;
+import org.dcache.nfs.vfs.Stat.StatAttribute;
+import org.dcache.oncrpc4j.rpc.OncRpcException;
+import org.dcache.oncrpc4j.util.Opaque;
+import org.dcache.oncrpc4j.xdr.Xdr;
+import org.dcache.oncrpc4j.xdr.XdrAble;
+import org.dcache.oncrpc4j.xdr.XdrEncodingStream;
+
+/**
+ * Encoder of file attributes into {@link fattr4}.
+ * <p>
+ * A requested attribute bitmap is compiled once into an {@link EncodingPlan}, a list of attribute writers. The plans
+ * are cached, as clients request the same few bitmaps again and again. The frequently requested attributes, like the
+ * ones used by {@code ls -l}, are written directly from {@link Stat} into the reply's encoding buffer, without
+ * intermediate XDR objects. All other attributes are encoded by {@link OperationGETATTR#fattr2xdr}.
+ */
+class AttributeEncoder {
+
+    /**
+     * Maximal number of cached plans.
+     */
+    private static final int MAX_PLANS = 1024;
+
+    private static final Map<Bitmap, EncodingPlan> PLANS = new ConcurrentHashMap<>();
+
+    private AttributeEncoder() {
+    }
+
+    /**
+     * Encode the requested attributes of the given inode.
+     *
+     * @param bitmap requested attributes.
+     * @param inode the inode.
+     * @param stat the inode's stat.
+     * @param context compound context.
+     * @param attrContext values shared by all attributes in a reply.
+     * @return encoded attributes.
+     */
+    static fattr4 encode(bitmap4 bitmap, Inode inode, Stat stat, CompoundContext context,
+            AttributeEvaluationContext attrContext) throws IOException {
+        return planOf(bitmap).encode(inode, stat, context, attrContext);
+    }
+
+    /**
+     * Get the, possibly cached, plan to encode the given attributes.
+     */
+    static EncodingPlan planOf(bitmap4 bitmap) {
+        Bitmap key = new Bitmap(bitmap.value);
+        EncodingPlan plan = PLANS.get(key);
+        if (plan == null) {
+            key = new Bitmap(bitmap.value == null ? null : bitmap.value.clone());
+            plan = new EncodingPlan(bitmap);
+            if (PLANS.size() >= MAX_PLANS) {
+                // a client with unusual requests, just start over
+                PLANS.clear();
+            }
+            PLANS.put(key, plan);
+        }
+        return plan;
+    }
+
+    /**
+     * A writer of a single attribute.
+     */
+    @FunctionalInterface
+    private interface AttributeWriter {
+
+        /**
+         * Write attribute value into the given stream.
+         *
+         * @return false if attribute is not supported for the given inode and nothing was written.
+         */
+        boolean write(XdrEncodingStream xdr, Inode inode, Stat stat, CompoundContext context,
+                AttributeEvaluationContext attrContext) throws IOException, OncRpcException;
+    }
+
+    /**
+     * Precompiled encoding of an attribute bitmap.
+     */
+    static class EncodingPlan {
+
+        private final int[] attributes;
+        private final AttributeWriter[] writers;
+        private final int maskLength;
+        private final EnumSet<StatAttribute> statAttributes;
+
+        private EncodingPlan(bitmap4 bitmap) {
+            int[] requested = new int[0];
+            int n = 0;
+            for (int attr : bitmap) {
+                if (n == requested.length) {
+                    requested = Arrays.copyOf(requested, Math.max(8, n * 2));
+                }
+                requested[n++] = attr;
+            }
+
+            attributes = Arrays.copyOf(requested, n);
+            writers = new AttributeWriter[n];
+            for (int i = 0; i < n; i++) {
+                writers[i] = writerOf(attributes[i]);
+            }
+            maskLength = n == 0 ? 0 : attributes[n - 1] / 32 + 1;
+
+            statAttributes = EnumSet.noneOf(StatAttribute.class);
+            for (int attr : attributes) {
+                statAttributes.addAll(statAttributesOf(attr));
+            }
+        }
+
+        /**
+         * Get the file attributes needed to encode the requested attributes.
+         */
+        EnumSet<StatAttribute> statAttributes() {
+            return EnumSet.copyOf(statAttributes);
+        }
+
+        fattr4 encode(Inode inode, Stat stat, CompoundContext context, AttributeEvaluationContext attrContext)
+                throws IOException {
+
+            int[] processed = new int[maskLength];
+            Xdr xdr = attrContext.getEncodingBuffer();
+            xdr.beginEncoding();
+            for (int i = 0; i < writers.length; i++) {
+                if (writers[i].write(xdr, inode, stat, context, attrContext)) {
+                    int attr = attributes[i];
+                    processed[attr / 32] |= 1 << (attr % 32);
+                }
+            }
+            xdr.endEncoding();
+
+            // don't send trailing empty words of unsupported attributes
+            int length = processed.length;
+            while (length > 0 && processed[length - 1] == 0) {
+                length--;
+            }
+
+            fattr4 fattr = new fattr4();
+            fattr.attrmask = new bitmap4(length == processed.length ? processed : Arrays.copyOf(processed, length));
+            fattr.attr_vals = new attrlist4(xdr.toOpaque());
+            return fattr;
+        }
+    }
+
+    private static AttributeWriter writerOf(int attr) {
+        switch (attr) {
+            case nfs4_prot.FATTR4_TYPE:
+                return (xdr, inode, stat, context, attrContext) -> {
+                    xdr.xdrEncodeInt(OperationGETATTR.unixType2NFS(stat.getMode()));
+                    return true;
+                };
+            case nfs4_prot.FATTR4_CHANGE:
+                return (xdr, inode, stat, context, attrContext) -> {
+                    xdr.xdrEncodeLong(stat.getGeneration());
+                    return true;
+                };
+            case nfs4_prot.FATTR4_SIZE:
+            case nfs4_prot.FATTR4_SPACE_USED:
+                return (xdr, inode, stat, context, attrContext) -> {
+                    xdr.xdrEncodeLong(stat.getSize());
+                    return true;
+                };
+            case nfs4_prot.FATTR4_FILEID:
+                return (xdr, inode, stat, context, attrContext) -> {
+                    if (!stat.isDefined(StatAttribute.INO)) {
+                        return false;
+                    }
+                    xdr.xdrEncodeLong(stat.getIno());
+                    return true;
+                };
+            case nfs4_prot.FATTR4_MODE:
+                return (xdr, inode, stat, context, attrContext) -> {
+                    xdr.xdrEncodeInt(stat.getMode() & 07777);
+                    return true;
+                };
+            case nfs4_prot.FATTR4_NUMLINKS:
+                return (xdr, inode, stat, context, attrContext) -> {
+                    xdr.xdrEncodeInt(stat.getNlink());
+                    return true;
+                };
+            case nfs4_prot.FATTR4_OWNER:
+                return (xdr, inode, stat, context, attrContext) -> {
+                    encodeUtf8(xdr, attrContext.uidToPrincipal(stat.getUid()));
+                    return true;
+                };
+            case nfs4_prot.FATTR4_OWNER_GROUP:
+                return (xdr, inode, stat, context, attrContext) -> {
+                    encodeUtf8(xdr, attrContext.gidToPrincipal(stat.getGid()));
+                    return true;
+                };
+            case nfs4_prot.FATTR4_RAWDEV:
+                return (xdr, inode, stat, context, attrContext) -> {
+                    xdr.xdrEncodeInt(0);
+                    xdr.xdrEncodeInt(0);
+                    return true;
+                };
+            case nfs4_prot.FATTR4_TIME_ACCESS:
+                return (xdr, inode, stat, context, attrContext) -> {
+                    encodeTime(xdr, stat.getATime());
+                    return true;
+                };
+            case nfs4_prot.FATTR4_TIME_METADATA:
+                return (xdr, inode, stat, context, attrContext) -> {
+                    encodeTime(xdr, stat.getCTime());
+                    return true;
+                };
+            case nfs4_prot.FATTR4_TIME_MODIFY:
+                return (xdr, inode, stat, context, attrContext) -> {
+                    encodeTime(xdr, stat.getMTime());
+                    return true;
+                };
+            default:
+                return (xdr, inode, stat, context, attrContext) -> {
+                    Optional<? extends XdrAble> value = OperationGETATTR.fattr2xdr(attr, inode, stat, context,
+                            attrContext);
+                    if (value.isEmpty()) {
+                        return false;
+                    }
+                    value.get().xdrEncode(xdr);
+                    return true;
+                };
+        }
+    }
+
+    /**
+     * Get the file attributes which are used to encode the given attribute.
+     */
+    private static EnumSet<StatAttribute> statAttributesOf(int attr) {
+        switch (attr) {
+            case nfs4_prot.FATTR4_TYPE:
+            case nfs4_prot.FATTR4_MODE:
+                return EnumSet.of(StatAttribute.MODE);
+            case nfs4_prot.FATTR4_CHANGE:
+                return EnumSet.of(StatAttribute.GENERATION);
+            case nfs4_prot.FATTR4_SIZE:
+            case nfs4_prot.FATTR4_SPACE_USED:
+                return EnumSet.of(StatAttribute.SIZE);
+            case nfs4_prot.FATTR4_FILEID:
+            case nfs4_prot.FATTR4_MOUNTED_ON_FILEID:
+                return EnumSet.of(StatAttribute.INO);
+            case nfs4_prot.FATTR4_NUMLINKS:
+                return EnumSet.of(StatAttribute.NLINK);
+            case nfs4_prot.FATTR4_OWNER:
+                return EnumSet.of(StatAttribute.OWNER);
+            case nfs4_prot.FATTR4_OWNER_GROUP:
+                return EnumSet.of(StatAttribute.GROUP);
+            case nfs4_prot.FATTR4_ARCHIVE:
+            case nfs4_prot.FATTR4_HIDDEN:
+                return EnumSet.of(StatAttribute.FLAGS);
+            case nfs4_prot.FATTR4_TIME_ACCESS:
+                return EnumSet.of(StatAttribute.ATIME);
+            case nfs4_prot.FATTR4_TIME_BACKUP:
+                return EnumSet.of(StatAttribute.BACKUPTIME);
+            case nfs4_prot.FATTR4_TIME_CREATE:
+                return EnumSet.of(StatAttribute.BTIME);
+            case nfs4_prot.FATTR4_TIME_METADATA:
+                return EnumSet.of(StatAttribute.CTIME);
+            case nfs4_prot.FATTR4_TIME_MODIFY:
+                return EnumSet.of(StatAttribute.MTIME);
+            default:
+                return EnumSet.noneOf(StatAttribute.class);
+        }
+    }
+
+    /**
+     * Encode a utf8string, like {@link org.dcache.nfs.v4.xdr.utf8string#xdrEncode}.
+     */
+    private static void encodeUtf8(XdrEncodingStream xdr, Opaque value) throws OncRpcException {
+        xdr.xdrEncodeDynamicOpaque(value);
+    }
+
+    /**
+     * Encode a time given in milliseconds, like {@link org.dcache.nfs.v4.xdr.nfstime4#xdrEncode}.
+     */
+    private static void encodeTime(XdrEncodingStream xdr, long millis) throws OncRpcException {
+        xdr.xdrEncodeLong(millis / 1000);
+        xdr.xdrEncodeInt((int) ((millis % 1000) * 1000000));
+    }
+
+    /**
+     * Attribute bitmap as a hash key.
+     */
+    private static class Bitmap {
+
+        private final int[] value;
+        private final int hashCode;
+
+        Bitmap(int[] value) {
+            this.value = value;
+            this.hashCode = Arrays.hashCode(value);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof Bitmap && Arrays.equals(value, ((Bitmap) obj).value);
+        }
+    }
+}
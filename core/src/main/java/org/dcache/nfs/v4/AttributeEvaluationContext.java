@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2026 Deutsches Elektronen-Synchroton,
+ * Member of the Helmholtz Association, (DESY), HAMBURG, GERMANY
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Library General Public License as
+ * published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this program (see the file COPYING.LIB for more
+ * details); if not, write to the Free Software Foundation, Inc.,
+ * 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package org.dcache.nfs.v4;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.dcache.nfs.v4.xdr.nfsace4;
+import org.dcache.nfs.vfs.FsStat;
+import org.dcache.nfs.vfs.Inode;
+import org.dcache.nfs.vfs.VirtualFileSystem;
+import org.dcache.oncrpc4j.util.Opaque;
+import org.dcache.oncrpc4j.xdr.Xdr;
+
+/**
+ * Values shared by the attributes encoded into a single reply, like GETATTR or a batch of READDIR entries. File system
+ * statistics, ACLs and owner principals are fetched from the file system lazily, on first use, and at most once.
+ * <p>
+ * The context is not thread-safe and is intended to be used only for the lifetime of a single operation.
+ */
+class AttributeEvaluationContext {
+
+    private final VirtualFileSystem _fs;
+
+    private FsStat _fsStat;
+
+    private Inode _aclInode;
+    private nfsace4[] _acl;
+
+    private final Map<Integer, Opaque> _owners = new HashMap<>();
+    private final Map<Integer, Opaque> _groups = new HashMap<>();
+
+    private Xdr _xdr;
+
+    AttributeEvaluationContext(VirtualFileSystem fs) {
+        _fs = fs;
+    }
+
+    VirtualFileSystem getFs() {
+        return _fs;
+    }
+
+    /**
+     * Get file system statistics, querying the file system on first call.
+     */
+    FsStat getFsStat() throws IOException {
+        if (_fsStat == null) {
+            _fsStat = _fs.getFsStat();
+        }
+        return _fsStat;
+    }
+
+    /**
+     * Get ACL of the given inode. The ACL of the last requested inode is remembered.
+     */
+    nfsace4[] getAcl(Inode inode) throws IOException {
+        if (_acl == null || !inode.equals(_aclInode)) {
+            _acl = _fs.getAcl(inode);
+            _aclInode = inode;
+        }
+        return _acl;
+    }
+
+    /**
+     * Get UTF-8 encoded principal of the given user id.
+     */
+    Opaque uidToPrincipal(int uid) {
+        return _owners.computeIfAbsent(uid, id -> Opaque.forUtf8Bytes(_fs.getIdMapper().uidToPrincipal(id)));
+    }
+
+    /**
+     * Get UTF-8 encoded principal of the given group id.
+     */
+    Opaque gidToPrincipal(int gid) {
+        return _groups.computeIfAbsent(gid, id -> Opaque.forUtf8Bytes(_fs.getIdMapper().gidToPrincipal(id)));
+    }
+
+    /**
+     * Get the buffer to encode attributes into. The same buffer is returned on each call, thus the encoded data must
+     * be copied out before the next use.
+     */
+    Xdr getEncodingBuffer() {
+        if (_xdr == null) {
+            _xdr = new Xdr(1024);
+        }
+        return _xdr;
+    }
+}
@@ -28,13 +28,16 @@ import org.dcache.nfs.v4.xdr.CB_COMPOUND4args;
 import org.dcache.nfs.v4.xdr.CB_COMPOUND4res;
 import org.dcache.nfs.v4.xdr.CB_GETATTR4args;
 import org.dcache.nfs.v4.xdr.CB_LAYOUTRECALL4args;
+import org.dcache.nfs.v4.xdr.CB_NOTIFY4args;
 import org.dcache.nfs.v4.xdr.CB_NOTIFY_DEVICEID4args;
+import org.dcache.nfs.v4.xdr.CB_NOTIFY_LOCK4args;
 import org.dcache.nfs.v4.xdr.CB_OFFLOAD4args;
 import org.dcache.nfs.v4.xdr.CB_RECALL4args;
 import org.dcache.nfs.v4.xdr.CB_SEQUENCE4args;
 import org.dcache.nfs.v4.xdr.bitmap4;
 import org.dcache.nfs.v4.xdr.callback_sec_parms4;
 import org.dcache.nfs.v4.xdr.deviceid4;
+import org.dcache.nfs.v4.xdr.fattr4;
 import org.dcache.nfs.v4.xdr.fsid4;
 import org.dcache.nfs.v4.xdr.layoutiomode4;
 import org.dcache.nfs.v4.xdr.layoutrecall4;
@@ -42,6 +45,7 @@ import org.dcache.nfs.v4.xdr.layoutrecall_file4;
 import org.dcache.nfs.v4.xdr.layoutrecall_type4;
 import org.dcache.nfs.v4.xdr.layouttype4;
 import org.dcache.nfs.v4.xdr.length4;
+import org.dcache.nfs.v4.xdr.lock_owner4;
 import org.dcache.nfs.v4.xdr.nfs4_prot;
 import org.dcache.nfs.v4.xdr.nfs_cb_argop4;
 import org.dcache.nfs.v4.xdr.nfs_cb_opnum4;
@@ -207,6 +211,105 @@ public class ClientCB {
         }
     }
 
+    /**
+     * Query the attributes of a file delegated for writing to the client.
+     *
+     * @param fh file handle of the file
+     * @param attrRequest the requested attributes
+     * @return the attributes of the file as known to the client
+     * @throws OncRpcException if an RPC error occurs
+     * @throws IOException if an I/O error occurs
+     * @throws TimeoutException if the client doesn't reply in time
+     */
+    public fattr4 cbGetAttr(nfs_fh4 fh, bitmap4 attrRequest) throws OncRpcException, IOException,
+            TimeoutException {
+
+        CB_GETATTR4args cbGetAttr = new CB_GETATTR4args();
+        cbGetAttr.attr_request = attrRequest;
+        cbGetAttr.fh = fh;
+
+        nfs_cb_argop4 opArgs = new nfs_cb_argop4();
+        opArgs.argop = nfs_cb_opnum4.OP_CB_GETATTR;
+        opArgs.opcbgetattr = cbGetAttr;
+
+        var slot = _clientSession.acquireSlot();
+        try {
+            XdrAble args = generateCompound(slot, "cb_getattr", opArgs);
+
+            CB_COMPOUND4res res = new CB_COMPOUND4res();
+            _rpc.call(nfs4_prot.CB_COMPOUND_1, args, res, 1, TimeUnit.SECONDS, null);
+            nfsstat.throwIfNeeded(res.status);
+            return res.resarray[1].opcbgetattr.resok4.obj_attributes;
+        } finally {
+            _clientSession.releaseSlot(slot);
+        }
+    }
+
+    /**
+     * Notify the client about changes in a delegated directory.
+     *
+     * @param fh file handle of the directory
+     * @param stateid stateid of the directory delegation
+     * @param changes the changes of the directory
+     * @throws OncRpcException if an RPC error occurs
+     * @throws IOException if an I/O error occurs
+     * @throws TimeoutException if the client doesn't reply in time
+     */
+    public void cbNotify(nfs_fh4 fh, stateid4 stateid, notify4[] changes) throws OncRpcException, IOException,
+            TimeoutException {
+
+        CB_NOTIFY4args cbNotify = new CB_NOTIFY4args();
+        cbNotify.cna_fh = fh;
+        cbNotify.cna_stateid = stateid;
+        cbNotify.cna_changes = changes;
+
+        nfs_cb_argop4 opArgs = new nfs_cb_argop4();
+        opArgs.argop = nfs_cb_opnum4.OP_CB_NOTIFY;
+        opArgs.opcbnotify = cbNotify;
+
+        var slot = _clientSession.acquireSlot();
+        try {
+            XdrAble args = generateCompound(slot, "cb_notify", opArgs);
+
+            CB_COMPOUND4res res = new CB_COMPOUND4res();
+            _rpc.call(nfs4_prot.CB_COMPOUND_1, args, res, 1, TimeUnit.SECONDS, null);
+            nfsstat.throwIfNeeded(res.status);
+        } finally {
+            _clientSession.releaseSlot(slot);
+        }
+    }
+
+    /**
+     * Notify the client that a lock it has been waiting for might be available.
+     *
+     * @param fh file handle of the locked file
+     * @param owner the lock owner waiting for the lock
+     * @throws OncRpcException if an RPC error occurs
+     * @throws IOException if an I/O error occurs
+     * @throws TimeoutException if the client doesn't reply in time
+     */
+    public void cbNotifyLock(nfs_fh4 fh, lock_owner4 owner) throws OncRpcException, IOException, TimeoutException {
+
+        CB_NOTIFY_LOCK4args cbNotifyLock = new CB_NOTIFY_LOCK4args();
+        cbNotifyLock.cnla_fh = fh;
+        cbNotifyLock.cnla_lock_owner = owner;
+
+        nfs_cb_argop4 opArgs = new nfs_cb_argop4();
+        opArgs.argop = nfs_cb_opnum4.OP_CB_NOTIFY_LOCK;
+        opArgs.opcbnotify_lock = cbNotifyLock;
+
+        var slot = _clientSession.acquireSlot();
+        try {
+            XdrAble args = generateCompound(slot, "cb_notify_lock", opArgs);
+
+            CB_COMPOUND4res res = new CB_COMPOUND4res();
+            _rpc.call(nfs4_prot.CB_COMPOUND_1, args, res, 1, TimeUnit.SECONDS, null);
+            nfsstat.throwIfNeeded(res.status);
+        } finally {
+            _clientSession.releaseSlot(slot);
+        }
+    }
+
     public void cbLayoutRecallFsid() throws OncRpcException, IOException {
 
         CB_LAYOUTRECALL4args cbLayoutrecall = new CB_LAYOUTRECALL4args();
@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) 2026 Deutsches Elektronen-Synchroton,
+ * Member of the Helmholtz Association, (DESY), HAMBURG, GERMANY
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Library General Public License as
+ * published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this program (see the file COPYING.LIB for more
+ * details); if not, write to the Free Software Foundation, Inc.,
+ * 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package org.dcache.nfs.v4;
+
+import java.io.IOException;
+
+import org.dcache.nfs.util.BufferPool;
+import org.dcache.nfs.v4.xdr.COMPOUND4res;
+import org.dcache.oncrpc4j.rpc.OncRpcException;
+import org.dcache.oncrpc4j.xdr.XdrEncodingStream;
+
+/**
+ * The result of a COMPOUND request, which returns the pooled buffers backing the operation results into the pool,
+ * once it is encoded. Thus, the reply must be encoded only once. The results, which were already encoded for the
+ * session reply cache, are written as is.
+ * <p>
+ * Releasing the buffers right after encoding relies on {@link XdrEncodingStream} copying opaque data into its own
+ * buffer, as oncrpc4j's {@code Xdr} does, thus the encoded reply doesn't reference the pooled buffers while it's sent.
+ */
+class CompoundReply extends COMPOUND4res {
+
+    private final BufferPool.ReplyBuffers buffers;
+
+    /**
+     * The encoded form of the leading operation results or null.
+     */
+    private ReplyCache.EncodedReply encodedResults;
+
+    /**
+     * @param buffers the buffers of the reply or null, if the reply is not backed by pooled buffers.
+     */
+    CompoundReply(BufferPool.ReplyBuffers buffers) {
+        this.buffers = buffers;
+    }
+
+    /**
+     * Set the encoded form of the leading operation results, which is used instead of encoding them again.
+     *
+     * @param encodedResults the encoded results.
+     */
+    void setEncodedResults(ReplyCache.EncodedReply encodedResults) {
+        this.encodedResults = encodedResults;
+    }
+
+    @Override
+    public void xdrEncode(XdrEncodingStream xdr) throws OncRpcException, IOException {
+        try {
+            xdr.xdrEncodeInt(status);
+            tag.xdrEncode(xdr);
+            int size = resarray.size();
+            int encoded = encodedResults == null ? 0 : encodedResults.ops();
+            xdr.xdrEncodeInt(size);
+            for (int i = 0; i < size; i++) {
+                if (i < encoded) {
+                    encodedResults.encode(i, xdr);
+                } else {
+                    resarray.get(i).xdrEncode(xdr);
+                }
+            }
+        } finally {
+            if (buffers != null) {
+                // the data is copied into the encoding stream, see class comment
+                buffers.release();
+            }
+        }
+    }
+}
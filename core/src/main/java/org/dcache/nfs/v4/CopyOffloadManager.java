@@ -0,0 +1,332 @@
+/*
+ * Copyright (c) 2026 Deutsches Elektronen-Synchroton,
+ * Member of the Helmholtz Association, (DESY), HAMBURG, GERMANY
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Library General Public License as
+ * published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this program (see the file COPYING.LIB for more
+ * details); if not, write to the Free Software Foundation, Inc.,
+ * 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package org.dcache.nfs.v4;
+
+import java.io.IOException;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.OptionalInt;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.dcache.nfs.ChimeraNFSException;
+import org.dcache.nfs.nfsstat;
+import org.dcache.nfs.status.BadStateidException;
+import org.dcache.nfs.status.DelayException;
+import org.dcache.nfs.v4.xdr.length4;
+import org.dcache.nfs.v4.xdr.nfs_fh4;
+import org.dcache.nfs.v4.xdr.stable_how4;
+import org.dcache.nfs.v4.xdr.stateid4;
+import org.dcache.nfs.v4.xdr.verifier4;
+import org.dcache.nfs.v4.xdr.write_response4;
+import org.dcache.nfs.vfs.Inode;
+import org.dcache.nfs.vfs.Stat;
+import org.dcache.nfs.vfs.VirtualFileSystem;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Throwables;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Engine for asynchronous (offloaded) intra-server copies as specified in rfc7862#section-4.
+ * <p>
+ * Each copy is identified by a server-side copy stateid and executed on a dedicated, bounded thread pool. The data is
+ * copied with {@link VirtualFileSystem#copyFileRange(Inode, long, Inode, long, long)} in chunks, which allows to
+ * report the progress to OFFLOAD_STATUS and to stop the copy on OFFLOAD_CANCEL in between. The client is notified
+ * with CB_OFFLOAD when copy completes, unless it was canceled.
+ */
+public class CopyOffloadManager {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CopyOffloadManager.class);
+
+    /**
+     * Default number of copies executed concurrently.
+     */
+    public static final int DEFAULT_THREADS = 4;
+
+    /**
+     * Default number of copies waiting for execution.
+     */
+    public static final int DEFAULT_MAX_PENDING = 1024;
+
+    /**
+     * Default number of bytes copied by a single {@code copyFileRange} call.
+     */
+    public static final long DEFAULT_CHUNK_SIZE = 64 * 1024 * 1024;
+
+    private final ThreadPoolExecutor executor;
+
+    private final long chunkSize;
+
+    /**
+     * Copies in progress or completed, but not released yet by the client.
+     */
+    private final Map<stateid4, OffloadedCopy> copies = new ConcurrentHashMap<>();
+
+    public CopyOffloadManager() {
+        this(DEFAULT_THREADS, DEFAULT_MAX_PENDING, DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * Create copy offload engine.
+     *
+     * @param threads number of copies executed concurrently.
+     * @param maxPending number of copies which can wait for execution before new copies are rejected.
+     * @param chunkSize number of bytes copied by a single {@code copyFileRange} call.
+     */
+    public CopyOffloadManager(int threads, int maxPending, long chunkSize) {
+        this.chunkSize = chunkSize;
+        executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(maxPending),
+                new ThreadFactoryBuilder()
+                        .setNameFormat("NFSv4.2 copy-offload-%d")
+                        .setDaemon(true)
+                        .build());
+    }
+
+    /**
+     * Start an asynchronous copy. The returned server-side copy stateid is derived from the given open state and
+     * the copy is canceled when the state is disposed.
+     *
+     * @param client the client requested the copy.
+     * @param openState the open state to derive copy stateid from.
+     * @param fs the file system to use.
+     * @param src inode of the source file.
+     * @param srcPos starting position in the source file.
+     * @param dst inode of the destination file.
+     * @param dstPos starting position in the destination file.
+     * @param len number of bytes to copy, or zero to copy up to the end of the source file.
+     * @param verifier write verifier returned to client on completion.
+     * @return copy stateid.
+     * @throws DelayException if too many copies are pending.
+     * @throws ChimeraNFSException
+     */
+    public stateid4 submit(NFS4Client client, NFS4State openState, VirtualFileSystem fs, Inode src, long srcPos,
+            Inode dst, long dstPos, long len, verifier4 verifier) throws ChimeraNFSException {
+
+        NFS4State copyState = client.createServerSideCopyState(openState.getStateOwner(), openState);
+        stateid4 stateid = copyState.stateid();
+
+        OffloadedCopy copy = new OffloadedCopy(client, stateid, fs, src, srcPos, dst, dstPos, len, verifier);
+        copies.put(stateid, copy);
+        copyState.addDisposeListener(s -> {
+            OffloadedCopy c = copies.remove(s.stateid());
+            if (c != null) {
+                c.cancel();
+            }
+        });
+
+        try {
+            executor.execute(copy);
+        } catch (RejectedExecutionException e) {
+            client.releaseState(stateid);
+            throw new DelayException("Too many pending copy offloads");
+        }
+        return stateid;
+    }
+
+    /**
+     * Get copy associated with the given copy stateid.
+     *
+     * @param client the client owning the copy.
+     * @param stateid copy stateid.
+     * @return the copy.
+     * @throws BadStateidException if no copy of the client is associated with the stateid.
+     */
+    public OffloadedCopy getCopy(NFS4Client client, stateid4 stateid) throws BadStateidException {
+        OffloadedCopy copy = copies.get(stateid);
+        if (copy == null || copy.client != client) {
+            throw new BadStateidException("No copy associated with stateid: " + stateid);
+        }
+        return copy;
+    }
+
+    /**
+     * Stop the copy associated with the given copy stateid and release the stateid. The client will not receive a
+     * CB_OFFLOAD for a canceled copy.
+     *
+     * @param client the client owning the copy.
+     * @param stateid copy stateid.
+     * @throws ChimeraNFSException
+     */
+    public void cancel(NFS4Client client, stateid4 stateid) throws ChimeraNFSException {
+        getCopy(client, stateid);
+        // the dispose listener removes and cancels the copy
+        client.releaseState(stateid);
+    }
+
+    /**
+     * Stop all copies and the copy executor.
+     */
+    public void shutdown() {
+        copies.values().forEach(OffloadedCopy::cancel);
+        copies.clear();
+        executor.shutdownNow();
+    }
+
+    /**
+     * A single copy executed in background.
+     */
+    public class OffloadedCopy implements Runnable {
+
+        private final NFS4Client client;
+        private final stateid4 stateid;
+        private final VirtualFileSystem fs;
+        private final Inode src;
+        private final long srcPos;
+        private final Inode dst;
+        private final long dstPos;
+        private final long len;
+        private final verifier4 verifier;
+
+        private final AtomicLong copied = new AtomicLong();
+        private volatile boolean canceled;
+        private volatile CompletableFuture<Long> currentChunk;
+
+        /**
+         * nfs status of the completed copy or -1, if copy still in progress.
+         */
+        private volatile int status = -1;
+
+        private OffloadedCopy(NFS4Client client, stateid4 stateid, VirtualFileSystem fs, Inode src, long srcPos,
+                Inode dst, long dstPos, long len, verifier4 verifier) {
+            this.client = client;
+            this.stateid = stateid;
+            this.fs = fs;
+            this.src = src;
+            this.srcPos = srcPos;
+            this.dst = dst;
+            this.dstPos = dstPos;
+            this.len = len;
+            this.verifier = verifier;
+        }
+
+        /**
+         * Get inode of the destination file.
+         */
+        public Inode getDestination() {
+            return dst;
+        }
+
+        /**
+         * Get number of bytes copied so far.
+         */
+        public long getBytesCopied() {
+            return copied.get();
+        }
+
+        /**
+         * Get the nfs status of the completed copy.
+         *
+         * @return nfs status of the copy or empty, if copy is still in progress.
+         */
+        public OptionalInt getCompletionStatus() {
+            int s = status;
+            return s == -1 ? OptionalInt.empty() : OptionalInt.of(s);
+        }
+
+        private void cancel() {
+            canceled = true;
+            CompletableFuture<Long> chunk = currentChunk;
+            if (chunk != null) {
+                chunk.cancel(false);
+            }
+        }
+
+        @Override
+        public void run() {
+            int result;
+            try {
+                long count = len;
+                if (count == 0) {
+                    count = Math.max(0L, fs.getattr(src, EnumSet.of(Stat.StatAttribute.SIZE)).getSize() - srcPos);
+                }
+
+                while (!canceled && copied.get() < count) {
+                    long offset = copied.get();
+                    currentChunk = fs.copyFileRange(src, srcPos + offset, dst, dstPos + offset,
+                            Math.min(chunkSize, count - offset));
+                    long n = currentChunk.get();
+                    if (n <= 0) {
+                        // end of source file
+                        break;
+                    }
+                    copied.addAndGet(n);
+                }
+                result = nfsstat.NFS_OK;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                result = nfsstat.NFSERR_IO;
+            } catch (CancellationException e) {
+                // copy canceled while a chunk was in progress
+                result = nfsstat.NFSERR_IO;
+            } catch (ExecutionException | IOException | RuntimeException e) {
+                result = toNfsState(e);
+            } finally {
+                currentChunk = null;
+            }
+
+            status = result;
+            if (canceled) {
+                LOGGER.debug("Copy-offload {} canceled after {} bytes", stateid, copied.get());
+                return;
+            }
+            notifyClient(result);
+        }
+
+        private void notifyClient(int result) {
+            var cr_response = new write_response4();
+            cr_response.wr_callback_id = new stateid4[] {};
+            cr_response.wr_committed = stable_how4.FILE_SYNC4;
+            cr_response.wr_count = new length4(copied.get());
+            cr_response.wr_writeverf = verifier;
+
+            ClientCB cb = client.getCB();
+            if (cb == null) {
+                LOGGER.warn("Can't notify client {} about copy-offload completion: no callback channel", client);
+                return;
+            }
+
+            try {
+                cb.cbOffload(new nfs_fh4(dst.toNfsHandle()), stateid, cr_response, result);
+            } catch (IOException e) {
+                LOGGER.warn("Failed to notify client about copy-offload completion: {}", e.getMessage());
+            }
+        }
+
+        private int toNfsState(Throwable t) {
+            Throwable cause = Throwables.getRootCause(t);
+            if (cause instanceof ChimeraNFSException) {
+                return ((ChimeraNFSException) cause).getStatus();
+            }
+
+            LOGGER.warn("Copy-offload failed with exception: {}", cause.toString());
+            return nfsstat.NFSERR_IO;
+        }
+    }
+}
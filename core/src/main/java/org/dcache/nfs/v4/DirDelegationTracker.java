@@ -0,0 +1,489 @@
+/*
+ * Copyright (c) 2026 Deutsches Elektronen-Synchroton,
+ * Member of the Helmholtz Association, (DESY), HAMBURG, GERMANY
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Library General Public License as
+ * published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this program (see the file COPYING.LIB for more
+ * details); if not, write to the Free Software Foundation, Inc.,
+ * 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package org.dcache.nfs.v4;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import javax.annotation.concurrent.GuardedBy;
+
+import org.dcache.nfs.ChimeraNFSException;
+import org.dcache.nfs.status.DelayException;
+import org.dcache.nfs.status.StaleException;
+import org.dcache.nfs.v4.xdr.attrlist4;
+import org.dcache.nfs.v4.xdr.bitmap4;
+import org.dcache.nfs.v4.xdr.component4;
+import org.dcache.nfs.v4.xdr.fattr4;
+import org.dcache.nfs.v4.xdr.nfs_cookie4;
+import org.dcache.nfs.v4.xdr.nfs_fh4;
+import org.dcache.nfs.v4.xdr.notify4;
+import org.dcache.nfs.v4.xdr.notify_add4;
+import org.dcache.nfs.v4.xdr.notify_entry4;
+import org.dcache.nfs.v4.xdr.notify_remove4;
+import org.dcache.nfs.v4.xdr.notify_rename4;
+import org.dcache.nfs.v4.xdr.notify_type4;
+import org.dcache.nfs.v4.xdr.notifylist4;
+import org.dcache.nfs.v4.xdr.prev_entry4;
+import org.dcache.nfs.v4.xdr.seqid4;
+import org.dcache.nfs.v4.xdr.stateid4;
+import org.dcache.nfs.vfs.Inode;
+import org.dcache.oncrpc4j.util.Opaque;
+import org.dcache.oncrpc4j.xdr.Xdr;
+import org.dcache.oncrpc4j.xdr.XdrAble;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * A class which tracks directory delegations.
+ * <p>
+ * A change of a delegated directory made by another client is sent to the delegation holder with CB_NOTIFY, if the
+ * holder has asked for notifications of that type. Otherwise, the delegation is recalled before the change is
+ * applied.
+ * <p>
+ * The notifications are sent asynchronously. The changes of a directory, which are made while a notification to the
+ * holder is in progress, are sent with the next CB_NOTIFY in a single batch. If the holder can't be notified, the
+ * delegation is recalled.
+ */
+public class DirDelegationTracker {
+
+    private static final Logger LOG = LoggerFactory.getLogger(DirDelegationTracker.class);
+
+    /**
+     * Bitmask of notification types supported by the server.
+     */
+    private static final int SUPPORTED_NOTIFICATIONS = 1 << notify_type4.NOTIFY4_REMOVE_ENTRY
+            | 1 << notify_type4.NOTIFY4_ADD_ENTRY
+            | 1 << notify_type4.NOTIFY4_RENAME_ENTRY;
+
+    /**
+     * The state owner of directory delegations, which are not bound to any open-owner.
+     */
+    private static final Opaque DIR_DELEGATION_OWNER = Opaque.forUtf8Bytes("dir-delegation");
+
+    /**
+     * Delegations associated with directories. The lists are never modified, but replaced.
+     */
+    private final Map<Opaque, List<DirDelegation>> delegations = new ConcurrentHashMap<>();
+
+    private final Executor executor;
+    private final ExecutorService ownExecutor;
+
+    /**
+     * Directory delegation record.
+     */
+    private static class DirDelegation {
+
+        private final NFS4Client client;
+        private final NFS4State state;
+
+        /**
+         * Bitmask of notification types requested by the client.
+         */
+        private volatile int notifications;
+
+        /**
+         * Whether the delegation recall was sent to the client.
+         */
+        private volatile boolean recalled;
+
+        /**
+         * The changes not sent to the client yet.
+         */
+        @GuardedBy("this")
+        private final List<notify4> pending = new ArrayList<>();
+
+        /**
+         * Whether a notification is in progress.
+         */
+        @GuardedBy("this")
+        private boolean sending;
+
+        DirDelegation(NFS4Client client, NFS4State state, int notifications) {
+            this.client = client;
+            this.state = state;
+            this.notifications = notifications;
+        }
+
+        boolean wants(int notificationType) {
+            return (notifications & 1 << notificationType) != 0;
+        }
+    }
+
+    public DirDelegationTracker() {
+        this(null);
+    }
+
+    /**
+     * @param executor executor to send notifications with, or {@code null} to use a dedicated thread pool.
+     */
+    public DirDelegationTracker(Executor executor) {
+        if (executor == null) {
+            ownExecutor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(),
+                    new ThreadFactoryBuilder()
+                            .setNameFormat("NFSv4.1 directory notifier-%d")
+                            .setDaemon(true)
+                            .build());
+            this.executor = ownExecutor;
+        } else {
+            ownExecutor = null;
+            this.executor = executor;
+        }
+    }
+
+    /**
+     * Stop sending notifications.
+     */
+    public void shutdown() {
+        if (ownExecutor != null) {
+            ownExecutor.shutdownNow();
+        }
+    }
+
+    /**
+     * Get the bitmask of notification types, which are requested and supported by the server.
+     *
+     * @param requested the notification types requested by the client.
+     * @return bitmask of notification types the client will be notified about.
+     */
+    public static int supportedNotifications(bitmap4 requested) {
+        if (requested.value == null || requested.value.length == 0) {
+            return 0;
+        }
+        return requested.value[0] & SUPPORTED_NOTIFICATIONS;
+    }
+
+    /**
+     * Delegate the directory to the client. If the client already holds a delegation for the directory, then the
+     * existing delegation is returned.
+     *
+     * @param client nfs client that requests the delegation.
+     * @param dir the inode of the directory.
+     * @param notifications bitmask of notification types the client will be notified about.
+     * @return the delegation stateid or null, if the directory is being recalled.
+     * @throws ChimeraNFSException
+     */
+    public stateid4 delegate(NFS4Client client, Inode dir, int notifications) throws ChimeraNFSException {
+
+        Opaque dirId = dir.getFileIdKey();
+        StateOwner owner = client.getOrCreateOwner(DIR_DELEGATION_OWNER, new seqid4(0));
+        NFS4State state = client.createDirDelegationState(owner);
+        DirDelegation delegation = new DirDelegation(client, state, notifications);
+        state.addDisposeListener(s -> remove(dirId, delegation));
+
+        // the check for recalls and existing delegations and the grant are atomic per directory
+        DirDelegation[] granted = new DirDelegation[1];
+        delegations.compute(dirId, (k, v) -> {
+            List<DirDelegation> dirDelegations = v == null ? List.of() : v;
+            if (dirDelegations.stream().anyMatch(d -> d.recalled)) {
+                return v;
+            }
+
+            var existing = dirDelegations.stream()
+                    .filter(d -> d.client.getId().equals(client.getId()))
+                    .findAny();
+            if (existing.isPresent()) {
+                existing.get().notifications = notifications;
+                granted[0] = existing.get();
+                return v;
+            }
+
+            List<DirDelegation> l = new ArrayList<>(dirDelegations);
+            l.add(delegation);
+            granted[0] = delegation;
+            return List.copyOf(l);
+        });
+
+        if (granted[0] != delegation) {
+            client.releaseState(state.stateid());
+        }
+        return granted[0] == null ? null : granted[0].state.stateid();
+    }
+
+    /**
+     * Return delegation for the given directory.
+     *
+     * @param client nfs client who returns the delegation.
+     * @param stateid delegation stateid
+     * @param dir the inode of the delegated directory.
+     */
+    public void delegationReturn(NFS4Client client, stateid4 stateid, Inode dir) throws ChimeraNFSException {
+
+        Opaque dirId = dir.getFileIdKey();
+        DirDelegation delegation = delegations.getOrDefault(dirId, List.of()).stream()
+                .filter(d -> d.client.getId().equals(client.getId()))
+                .filter(d -> d.state.stateid().equals(stateid))
+                .findFirst()
+                .orElseThrow(() -> new StaleException("no delegation found"));
+
+        remove(dirId, delegation);
+        delegation.state.tryDispose();
+    }
+
+    /**
+     * Recall delegations of the directory, which holders are not interested in the given type of change. Must be
+     * called before the directory is modified.
+     *
+     * @param client nfs client performing the change or null, if unknown.
+     * @param dir the inode of the directory to be modified.
+     * @param notificationType the type of the change as defined by {@link notify_type4}.
+     * @throws DelayException if delegations are being recalled.
+     */
+    public void recallConflicting(NFS4Client client, Inode dir, int notificationType) throws ChimeraNFSException {
+        recall(client, dir, d -> d.recalled || !d.wants(notificationType));
+    }
+
+    /**
+     * Recall all delegations of the directory. Must be called before the directory itself is removed or replaced.
+     *
+     * @param client nfs client performing the change or null, if unknown.
+     * @param dir the inode of the directory to be removed.
+     * @throws DelayException if delegations are being recalled.
+     */
+    public void recallAll(NFS4Client client, Inode dir) throws ChimeraNFSException {
+        recall(client, dir, d -> true);
+    }
+
+    /**
+     * Check whether any directory is delegated.
+     *
+     * @return true if at least one directory delegation is issued.
+     */
+    public boolean hasDelegations() {
+        return !delegations.isEmpty();
+    }
+
+    /**
+     * Notify delegation holders about a new entry in the directory.
+     *
+     * @param client nfs client performing the change or null, if unknown.
+     * @param dir the inode of the modified directory.
+     * @param name the name of the new entry.
+     */
+    public void notifyAdd(NFS4Client client, Inode dir, String name) {
+        notify(client, dir, notify_type4.NOTIFY4_ADD_ENTRY, addEntry(name));
+    }
+
+    /**
+     * Notify delegation holders about a removed entry of the directory.
+     *
+     * @param client nfs client performing the change or null, if unknown.
+     * @param dir the inode of the modified directory.
+     * @param name the name of the removed entry.
+     */
+    public void notifyRemove(NFS4Client client, Inode dir, String name) {
+        notify(client, dir, notify_type4.NOTIFY4_REMOVE_ENTRY, removeEntry(name));
+    }
+
+    /**
+     * Notify delegation holders about a renamed entry. A rename between two directories is reported as removal
+     * from the source directory and an addition to the destination directory.
+     *
+     * @param client nfs client performing the change or null, if unknown.
+     * @param srcDir the inode of the source directory.
+     * @param oldName the name of the entry in the source directory.
+     * @param destDir the inode of the destination directory.
+     * @param newName the name of the entry in the destination directory.
+     */
+    public void notifyRename(NFS4Client client, Inode srcDir, String oldName, Inode destDir, String newName) {
+        if (srcDir.equals(destDir)) {
+            notify_rename4 rename = new notify_rename4();
+            rename.nrn_old_entry = removeEntry(oldName);
+            rename.nrn_new_entry = addEntry(newName);
+            notify(client, srcDir, notify_type4.NOTIFY4_RENAME_ENTRY, rename);
+        } else {
+            notifyRemove(client, srcDir, oldName);
+            notifyAdd(client, destDir, newName);
+        }
+    }
+
+    /**
+     * Get all currently issued directory delegations. The resulting map contains directory's inodes as key and
+     * collection of nfs clients that hold the delegation as a value.
+     *
+     * @return map of all currently issued directory delegations.
+     */
+    public Map<Inode, Collection<NFS4Client>> getDelegations() {
+        return delegations.entrySet().stream()
+                .collect(Collectors.toMap(
+                        e -> Inode.forFileIdKey(e.getKey()),
+                        e -> e.getValue().stream().map(d -> d.client).collect(Collectors.toSet())));
+    }
+
+    private void recall(NFS4Client client, Inode dir, Predicate<DirDelegation> conflicting)
+            throws ChimeraNFSException {
+
+        nfs_fh4 fh = new nfs_fh4(dir.toNfsHandle());
+        int recalled = delegationsOf(client, dir)
+                .filter(conflicting)
+                .reduce(0, (c, d) -> recall(fh, d) ? c + 1 : c, Integer::sum);
+
+        if (recalled > 0) {
+            throw new DelayException("Recalling directory delegations");
+        }
+    }
+
+    private Stream<DirDelegation> delegationsOf(NFS4Client client, Inode dir) {
+        return delegations.getOrDefault(dir.getFileIdKey(), List.of()).stream()
+                .filter(d -> d.client.isLeaseValid())
+                .filter(d -> client == null || !d.client.getId().equals(client.getId()));
+    }
+
+    private void notify(NFS4Client client, Inode dir, int notificationType, XdrAble change) {
+
+        List<DirDelegation> holders = delegationsOf(client, dir).toList();
+        if (holders.isEmpty()) {
+            return;
+        }
+
+        nfs_fh4 fh = new nfs_fh4(dir.toNfsHandle());
+        notify4 notification = toNotification(notificationType, change);
+        for (DirDelegation d : holders) {
+            if (d.recalled || !d.wants(notificationType)) {
+                // delegated after the conflict check
+                executor.execute(() -> recall(fh, d));
+                continue;
+            }
+
+            boolean startSending;
+            synchronized (d) {
+                d.pending.add(notification);
+                startSending = !d.sending;
+                d.sending = true;
+            }
+            if (startSending) {
+                executor.execute(() -> sendNotifications(fh, d));
+            }
+        }
+    }
+
+    /**
+     * Send the pending changes to the delegation holder until there are no more. The changes, which are added while
+     * a notification is in progress, are sent in a single batch with the next one.
+     */
+    private void sendNotifications(nfs_fh4 fh, DirDelegation d) {
+        while (true) {
+            notify4[] changes;
+            synchronized (d) {
+                if (d.pending.isEmpty() || d.recalled) {
+                    d.pending.clear();
+                    d.sending = false;
+                    return;
+                }
+                changes = d.pending.toArray(notify4[]::new);
+                d.pending.clear();
+            }
+
+            try {
+                d.client.getCB().cbNotify(fh, d.state.stateid(), changes);
+            } catch (IOException | TimeoutException e) {
+                LOG.warn("Failed to notify {} about directory change, recalling delegation: {}", d.client,
+                        e.toString());
+                synchronized (d) {
+                    d.pending.clear();
+                    d.sending = false;
+                }
+                recall(fh, d);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Recall delegation from the client.
+     *
+     * @return true if recall is in progress, false if the client can't be reached and the delegation is dropped.
+     */
+    private boolean recall(nfs_fh4 fh, DirDelegation d) {
+        if (d.recalled) {
+            return true;
+        }
+        try {
+            d.client.getCB().cbDelegationRecall(fh, d.state.stateid(), false);
+            d.recalled = true;
+            return true;
+        } catch (IOException e) {
+            LOG.warn("Failed to recall directory delegation from {} : {}", d.client, e.toString());
+            d.state.disposeIgnoreFailures();
+            return false;
+        }
+    }
+
+    private void remove(Opaque dirId, DirDelegation delegation) {
+        delegations.computeIfPresent(dirId, (k, v) -> {
+            List<DirDelegation> l = new ArrayList<>(v);
+            l.remove(delegation);
+            return l.isEmpty() ? null : List.copyOf(l);
+        });
+    }
+
+    private static notify_entry4 toEntry(String name) {
+        notify_entry4 entry = new notify_entry4();
+        entry.ne_file = new component4(name);
+        entry.ne_attrs = new fattr4();
+        entry.ne_attrs.attrmask = new bitmap4(new int[0]);
+        entry.ne_attrs.attr_vals = new attrlist4(Opaque.EMPTY_OPAQUE);
+        return entry;
+    }
+
+    private static notify_add4 addEntry(String name) {
+        notify_add4 add = new notify_add4();
+        add.nad_old_entry = new notify_remove4[0];
+        add.nad_new_entry = toEntry(name);
+        add.nad_new_entry_cookie = new nfs_cookie4[0];
+        add.nad_prev_entry = new prev_entry4[0];
+        add.nad_last_entry = false;
+        return add;
+    }
+
+    private static notify_remove4 removeEntry(String name) {
+        notify_remove4 remove = new notify_remove4();
+        remove.nrm_old_entry = toEntry(name);
+        remove.nrm_old_entry_cookie = new nfs_cookie4(0);
+        return remove;
+    }
+
+    private static notify4 toNotification(int notificationType, XdrAble change) {
+        notify4 notification = new notify4();
+        notification.notify_mask = bitmap4.of(notificationType);
+        try (Xdr xdr = new Xdr(128)) {
+            xdr.beginEncoding();
+            change.xdrEncode(xdr);
+            xdr.endEncoding();
+            notification.notify_vals = new notifylist4(xdr.toOpaque());
+        } catch (IOException e) {
+            /* forced by interface, should never happen. */
+            throw new RuntimeException("Unexpected IOException:", e);
+        }
+        return notification;
+    }
+}
@@ -20,6 +20,7 @@
 package org.dcache.nfs.v4;
 
 import java.io.IOException;
+import java.time.Clock;
 import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -27,10 +28,18 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.concurrent.locks.Lock;
 import java.util.stream.Collectors;
 
+import javax.annotation.concurrent.GuardedBy;
+
 import org.dcache.nfs.ChimeraNFSException;
 import org.dcache.nfs.status.BadStateidException;
 import org.dcache.nfs.status.DelayException;
@@ -39,17 +48,22 @@ import org.dcache.nfs.status.InvalException;
 import org.dcache.nfs.status.ShareDeniedException;
 import org.dcache.nfs.status.StaleException;
 import org.dcache.nfs.util.AdaptiveDelegationLogic;
+import org.dcache.nfs.v4.xdr.bitmap4;
+import org.dcache.nfs.v4.xdr.fattr4_change;
+import org.dcache.nfs.v4.xdr.fattr4_size;
 import org.dcache.nfs.v4.xdr.nfs4_prot;
 import org.dcache.nfs.v4.xdr.nfs_fh4;
 import org.dcache.nfs.v4.xdr.open_delegation_type4;
 import org.dcache.nfs.v4.xdr.stateid4;
 import org.dcache.nfs.vfs.Inode;
 import org.dcache.nfs.vfs.OpenCloseTracker;
+import org.dcache.nfs.vfs.Stat;
 import org.dcache.oncrpc4j.util.Opaque;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.google.common.util.concurrent.Striped;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
 /**
  * A class which tracks open files.
@@ -74,6 +88,12 @@ public class FileTracker {
      */
     private final Map<Opaque, List<DelegationState>> delegations = new ConcurrentHashMap<>();
 
+    /**
+     * Write delegations by file, to check for them without taking the file lock. As a write delegation excludes any
+     * other delegation on the file, there is at most one per file.
+     */
+    private final Map<Opaque, DelegationState> writeDelegations = new ConcurrentHashMap<>();
+
     /**
      * Heuristic to offer delegations.
      *
@@ -82,14 +102,57 @@ public class FileTracker {
     private final AdaptiveDelegationLogic adlHeuristic =
             new AdaptiveDelegationLogic(4096, 4096, Duration.ofSeconds(120));
 
+    /**
+     * Time in milliseconds for which the attributes reported by the holder of a write delegation are used without
+     * querying the holder again. Must be longer than the client's retry interval after NFS4ERR_DELAY.
+     */
+    private static final long DELEGATED_ATTRIBUTES_VALIDITY = TimeUnit.SECONDS.toMillis(1);
+
     private final OpenCloseTracker openCloseTracker;
 
+    private final Clock clock;
+
+    private final Executor executor;
+    private final ExecutorService ownExecutor;
+
     public FileTracker() {
         this(null);
     }
 
     public FileTracker(OpenCloseTracker openCloseTracker) {
+        this(openCloseTracker, Clock.systemDefaultZone(), null);
+    }
+
+    /**
+     * @param openCloseTracker an open-close tracker that can log and intervene on open/close operations, or
+     *            {@code null}.
+     * @param clock clock to use for all time related operations.
+     * @param executor executor to query the holders of write delegations with, or {@code null} to use a dedicated
+     *            thread pool.
+     */
+    public FileTracker(OpenCloseTracker openCloseTracker, Clock clock, Executor executor) {
         this.openCloseTracker = openCloseTracker;
+        this.clock = clock;
+        if (executor == null) {
+            ownExecutor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(),
+                    new ThreadFactoryBuilder()
+                            .setNameFormat("NFSv4.1 delegation attributes-%d")
+                            .setDaemon(true)
+                            .build());
+            this.executor = ownExecutor;
+        } else {
+            ownExecutor = null;
+            this.executor = executor;
+        }
+    }
+
+    /**
+     * Stop querying the holders of write delegations.
+     */
+    public void shutdown() {
+        if (ownExecutor != null) {
+            ownExecutor.shutdownNow();
+        }
     }
 
     private static class OpenState {
@@ -160,6 +223,47 @@ public class FileTracker {
         private final int delegationType;
         private boolean revoked;
 
+        /**
+         * Whether the delegation recall was sent to the client. A recalled write delegation stays valid to let the
+         * client flush the cached modifications.
+         */
+        private volatile boolean recalled;
+
+        /**
+         * The change attribute and the size of a file delegated for writing, as reported by the holder in the last
+         * CB_GETATTR reply. Initially, the server's values at the grant time.
+         */
+        @GuardedBy("this")
+        private long clientChange;
+        @GuardedBy("this")
+        private long clientSize;
+
+        /**
+         * The change attribute of a file delegated for writing as reported by the server to other clients.
+         */
+        @GuardedBy("this")
+        private long change;
+
+        /**
+         * Whether the file attributes at the grant time are known.
+         */
+        @GuardedBy("this")
+        private boolean hasAttributes;
+
+        /**
+         * The last CB_GETATTR reply of the holder of a write delegation and the time it was received at.
+         */
+        @GuardedBy("this")
+        private AttributeMap reportedAttributes;
+        @GuardedBy("this")
+        private long reportedAt;
+
+        /**
+         * Whether a CB_GETATTR is in progress.
+         */
+        @GuardedBy("this")
+        private boolean querying;
+
         /**
          * @param client
          * @param delegationStateid
@@ -188,6 +292,51 @@ public class FileTracker {
             return revoked;
         }
 
+        /**
+         * Record the change attribute and the size of the file at the grant time.
+         */
+        synchronized void setAttributes(Stat stat) {
+            clientChange = stat.getGeneration();
+            clientSize = stat.getSize();
+            change = clientChange;
+            hasAttributes = true;
+        }
+
+        /**
+         * Get the attributes of the file, taking into account the change attribute and size reported by the holder of
+         * the write delegation. As described in rfc8881#section-10.4.3, the client's change attribute is only compared
+         * with the previously reported one. If the file was modified by the holder, the server's own change attribute
+         * is incremented, thus other clients see a monotonically increasing value.
+         *
+         * @param stat the attributes of the file known to the server.
+         * @param attrs the attributes reported by the holder with CB_GETATTR.
+         * @return a copy of {@code stat} with updated change attribute and size.
+         */
+        synchronized Stat delegatedAttributes(Stat stat, AttributeMap attrs) {
+            if (!hasAttributes) {
+                // granted without known attributes, the server's values are the best guess
+                setAttributes(stat);
+            }
+
+            Optional<fattr4_change> reportedChange = attrs.get(nfs4_prot.FATTR4_CHANGE);
+            Optional<fattr4_size> reportedSize = attrs.get(nfs4_prot.FATTR4_SIZE);
+            long cc = reportedChange.map(c -> c.value).orElse(clientChange);
+            long size = reportedSize.map(s -> s.value).orElse(clientSize);
+
+            // the file might be modified on the server as well, e.g. by flushing the cached writes
+            change = Math.max(change, stat.getGeneration());
+            if (cc != clientChange || size != clientSize) {
+                change++;
+                clientChange = cc;
+                clientSize = size;
+            }
+
+            Stat delegatedStat = stat.clone();
+            delegatedStat.setGeneration(change);
+            delegatedStat.setSize(clientSize);
+            return delegatedStat;
+        }
+
         @Override
         public boolean equals(Object obj) {
             if (obj == this)
@@ -223,9 +372,19 @@ public class FileTracker {
      * @param openStateId
      * @param delegationStateId
      * @param hasDelegation
+     * @param delegationType the type of granted delegation, {@link open_delegation_type4#OPEN_DELEGATE_NONE} if none.
      */
-    public record OpenRecord(stateid4 openStateId, stateid4 delegationStateId, boolean hasDelegation) {
+    public record OpenRecord(stateid4 openStateId, stateid4 delegationStateId, boolean hasDelegation,
+            int delegationType) {
 
+        /**
+         * Record of an open with a read delegation, if {@code hasDelegation} is true.
+         */
+        public OpenRecord(stateid4 openStateId, stateid4 delegationStateId, boolean hasDelegation) {
+            this(openStateId, delegationStateId, hasDelegation, hasDelegation
+                    ? open_delegation_type4.OPEN_DELEGATE_READ
+                    : open_delegation_type4.OPEN_DELEGATE_NONE);
+        }
     }
 
     /**
@@ -243,6 +402,25 @@ public class FileTracker {
      */
     public OpenRecord addOpen(NFS4Client client, StateOwner owner, Inode inode, int shareAccess, int shareDeny)
             throws ChimeraNFSException, IOException {
+        return addOpen(client, owner, inode, shareAccess, shareDeny, null);
+    }
+
+    /**
+     * Add a new open to the list of open files. If provided {@code shareAccess} and {@code shareDeny} conflicts with
+     * existing opens, @{link ShareDeniedException} exception will be thrown.
+     *
+     * @param client nfs client performing the open operation.
+     * @param owner open state owner
+     * @param inode of opened file.
+     * @param shareAccess type of access required.
+     * @param shareDeny type of access to deny others.
+     * @param stat the change attribute and the size of the file, recorded if a write delegation is granted, or null.
+     * @return a snapshot of an OpenRecord associated with open.
+     * @throws ShareDeniedException if share reservation conflicts with an existing open.
+     * @throws ChimeraNFSException
+     */
+    public OpenRecord addOpen(NFS4Client client, StateOwner owner, Inode inode, int shareAccess, int shareDeny,
+            Stat stat) throws ChimeraNFSException, IOException {
 
         // client explicitly refused delegation
         boolean acceptsDelegation = (shareAccess & nfs4_prot.OPEN4_SHARE_ACCESS_WANT_NO_DELEG) == 0;
@@ -272,10 +450,8 @@ public class FileTracker {
                 throw new ShareDeniedException("Conflicting share");
             }
 
-            /*
-             * REVISIT: currently only read-delegations are supported
-             */
             var existingDelegations = delegations.get(fileId);
+            boolean openForWrite = (shareAccess & nfs4_prot.OPEN4_SHARE_ACCESS_WRITE) != 0;
 
             /*
              * delegation is possible if: - client has not explicitly requested no delegation - client has a callback
@@ -288,26 +464,26 @@ public class FileTracker {
                     opens.stream()
                             .noneMatch(os -> (os.shareAccess & nfs4_prot.OPEN4_SHARE_ACCESS_WRITE) != 0));
 
-            // recall any read delegations if write
-            if ((existingDelegations != null) && (shareAccess & nfs4_prot.OPEN4_SHARE_ACCESS_WRITE) != 0) {
+            /*
+             * write delegation is possible if: - client has not explicitly requested no delegation - client has a
+             * callback channel - there are no other delegations for this file - no other client has the file open
+             */
+            boolean canDelegateWrite = acceptsDelegation && client.getCB() != null && existingDelegations == null &&
+                    opens.stream()
+                            .filter(os -> os.client.isLeaseValid())
+                            .allMatch(os -> os.client.getId().equals(client.getId()));
+
+            // recall any delegations if write, and write delegations on any open
+            if (existingDelegations != null) {
                 var fh = new nfs_fh4(inode.toNfsHandle());
                 int recalledDelegations = existingDelegations.stream()
                         .filter(d -> d.client().isLeaseValid())
                         .filter(d -> !d.client().getId().equals(client.getId()))
-                        .reduce(0, (c, d) -> {
-                            try {
-                                d.client().getCB().cbDelegationRecall(fh, d.delegationStateid().stateid(), false);
-                                d.revoked = true;
-                                return c + 1;
-                            } catch (IOException e) {
-                                LOG.warn("Failed to recall delegation from {} : {}", d.client(), e.toString());
-                                d.delegationStateid().disposeIgnoreFailures();
-                                return c;
-                            }
-                        }, Integer::sum);
+                        .filter(d -> openForWrite || d.delegationType() == open_delegation_type4.OPEN_DELEGATE_WRITE)
+                        .reduce(0, (c, d) -> recall(fh, d) ? c + 1 : c, Integer::sum);
 
                 if (recalledDelegations > 0) {
-                    throw new DelayException("Recalling read delegations");
+                    throw new DelayException("Recalling delegations");
                 }
             }
 
@@ -337,17 +513,17 @@ public class FileTracker {
                     }
 
                     // yet another open from the same client. Let's check if we can delegate.
+                    if (canDelegateWrite && (os.shareAccess & nfs4_prot.OPEN4_SHARE_ACCESS_WRITE) != 0 &&
+                            (wantWriteDelegation || adlHeuristic.shouldDelegate(client, inode))) {
+                        return delegate(client, os.getOwner(), fileId, openStateid,
+                                open_delegation_type4.OPEN_DELEGATE_WRITE, stat);
+                    }
+
                     if (canDelegateRead && (os.shareAccess
                             & nfs4_prot.OPEN4_SHARE_ACCESS_BOTH) == nfs4_prot.OPEN4_SHARE_ACCESS_READ &&
                             (wantReadDelegation || adlHeuristic.shouldDelegate(client, inode))) {
-
-                        var delegationState = client.createDelegationState(os.getOwner());
-                        var delegation = new DelegationState(client, delegationState,
-                                open_delegation_type4.OPEN_DELEGATE_READ);
-                        delegations.computeIfAbsent(fileId, x -> new ArrayList<>(1))
-                                .add(delegation);
-
-                        return new OpenRecord(openStateid, delegationState.stateid(), true);
+                        return delegate(client, os.getOwner(), fileId, openStateid,
+                                open_delegation_type4.OPEN_DELEGATE_READ, null);
                     }
 
                     return new OpenRecord(openStateid, null, false);
@@ -369,12 +545,13 @@ public class FileTracker {
             opens.add(openState);
             state.addDisposeListener(s -> removeOpen(inode, stateid));
 
-            // REVISIT: currently only read-delegations are supported
-            if (canDelegateRead && (wantReadDelegation || adlHeuristic.shouldDelegate(client, inode))) {
-                var delegationStateid = client.createDelegationState(state.getStateOwner());
-                delegations.computeIfAbsent(fileId, x -> new ArrayList<>(1))
-                        .add(new DelegationState(client, delegationStateid, open_delegation_type4.OPEN_DELEGATE_READ));
-                return new OpenRecord(openStateid, delegationStateid.stateid(), true);
+            if (canDelegateWrite && openForWrite
+                    && (wantWriteDelegation || adlHeuristic.shouldDelegate(client, inode))) {
+                return delegate(client, state.getStateOwner(), fileId, openStateid,
+                        open_delegation_type4.OPEN_DELEGATE_WRITE, stat);
+            } else if (canDelegateRead && (wantReadDelegation || adlHeuristic.shouldDelegate(client, inode))) {
+                return delegate(client, state.getStateOwner(), fileId, openStateid,
+                        open_delegation_type4.OPEN_DELEGATE_READ, null);
             } else {
                 // we need to return copy to avoid modification by concurrent opens
                 return new OpenRecord(openStateid, null, false);
@@ -384,6 +561,119 @@ public class FileTracker {
         }
     }
 
+    /**
+     * Grant a delegation to the client. Must be called with file lock held.
+     */
+    private OpenRecord delegate(NFS4Client client, StateOwner owner, Opaque fileId, stateid4 openStateid,
+            int delegationType, Stat stat) throws ChimeraNFSException {
+        var delegationStateid = client.createDelegationState(owner);
+        var delegation = new DelegationState(client, delegationStateid, delegationType);
+        if (stat != null) {
+            delegation.setAttributes(stat);
+        }
+        delegations.computeIfAbsent(fileId, x -> new ArrayList<>(1)).add(delegation);
+        if (delegationType == open_delegation_type4.OPEN_DELEGATE_WRITE) {
+            writeDelegations.put(fileId, delegation);
+        }
+        return new OpenRecord(openStateid, delegationStateid.stateid(), true, delegationType);
+    }
+
+    /**
+     * Recall delegation from the client. Must be called with file lock held.
+     *
+     * @return true if recall is in progress, false if the client can't be reached and the delegation is dropped.
+     */
+    private boolean recall(nfs_fh4 fh, DelegationState d) {
+        if (d.recalled) {
+            return true;
+        }
+        try {
+            d.client().getCB().cbDelegationRecall(fh, d.delegationStateid().stateid(), false);
+            d.recalled = true;
+            if (d.delegationType() == open_delegation_type4.OPEN_DELEGATE_READ) {
+                d.revoked = true;
+            }
+            return true;
+        } catch (IOException e) {
+            LOG.warn("Failed to recall delegation from {} : {}", d.client(), e.toString());
+            d.delegationStateid().disposeIgnoreFailures();
+            return false;
+        }
+    }
+
+    /**
+     * Get the attributes of a file, which might be delegated for writing to another client. As the delegation holder
+     * might cache modifications, the file size and change attribute are queried with CB_GETATTR. The query is sent
+     * asynchronously and the request is delayed until the reply is received. If the holder can't answer, the delegation
+     * is recalled.
+     *
+     * @param client nfs client performing the request or null, if unknown.
+     * @param inode the inode of the file.
+     * @param stat the attributes of the file known to the server.
+     * @return the attributes of the file with the size and change attribute provided by the delegation holder.
+     * @throws DelayException if the delegation holder is queried or the delegation is being recalled.
+     */
+    public Stat getDelegatedAttributes(NFS4Client client, Inode inode, Stat stat) throws ChimeraNFSException {
+
+        // the most files are not delegated for writing, thus check without taking the file lock
+        Opaque fileId = inode.getFileIdKey();
+        DelegationState writeDelegation = writeDelegations.get(fileId);
+        if (writeDelegation == null || !writeDelegation.client().isLeaseValid()
+                || (client != null && writeDelegation.client().getId().equals(client.getId()))) {
+            return stat;
+        }
+
+        if (writeDelegation.recalled) {
+            throw new DelayException("Recalling write delegation");
+        }
+
+        synchronized (writeDelegation) {
+            if (writeDelegation.reportedAttributes != null
+                    && clock.millis() - writeDelegation.reportedAt < DELEGATED_ATTRIBUTES_VALIDITY) {
+                return writeDelegation.delegatedAttributes(stat, writeDelegation.reportedAttributes);
+            }
+            if (writeDelegation.querying) {
+                throw new DelayException("Querying write delegation holder");
+            }
+            writeDelegation.querying = true;
+        }
+
+        var fh = new nfs_fh4(inode.toNfsHandle());
+        executor.execute(() -> queryDelegatedAttributes(fileId.toImmutableOpaque(), fh, writeDelegation));
+        throw new DelayException("Querying write delegation holder");
+    }
+
+    /**
+     * Query the attributes of a file from the holder of the write delegation. If the holder can't answer, the
+     * delegation is recalled.
+     */
+    private void queryDelegatedAttributes(Opaque fileId, nfs_fh4 fh, DelegationState d) {
+        AttributeMap attrs = null;
+        try {
+            attrs = new AttributeMap(d.client().getCB().cbGetAttr(fh,
+                    bitmap4.of(nfs4_prot.FATTR4_CHANGE, nfs4_prot.FATTR4_SIZE)));
+        } catch (IOException | TimeoutException e) {
+            LOG.warn("Failed to get attributes from {} : {}", d.client(), e.toString());
+            Lock lock = filesLock.get(fileId);
+            lock.lock();
+            try {
+                if (!recall(fh, d)) {
+                    removeDelegation(fileId, d);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        synchronized (d) {
+            if (attrs != null) {
+                d.reportedAttributes = attrs;
+                d.reportedAt = clock.millis();
+            }
+            d.querying = false;
+        }
+    }
+
     /**
      * Reduce access on open file.
      *
@@ -465,14 +755,25 @@ public class FileTracker {
                     .orElseThrow(StaleException::new);
 
             delegation.delegationStateid().tryDispose();
+            removeDelegation(fileId, delegation);
+
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Remove delegation record of the file. Must be called with file lock held.
+     */
+    private void removeDelegation(Opaque fileId, DelegationState delegation) {
+        var fileDelegations = delegations.get(fileId);
+        if (fileDelegations != null) {
             fileDelegations.remove(delegation);
             if (fileDelegations.isEmpty()) {
                 delegations.remove(fileId);
             }
-
-        } finally {
-            lock.unlock();
         }
+        writeDelegations.remove(fileId, delegation);
     }
 
     /**
@@ -529,6 +830,10 @@ public class FileTracker {
                     if (delegation.revoked()) {
                         throw new DelegRevokedException();
                     }
+                    // write delegation allows reads as well
+                    if (delegation.delegationType() == open_delegation_type4.OPEN_DELEGATE_WRITE) {
+                        return nfs4_prot.OPEN4_SHARE_ACCESS_BOTH;
+                    }
                     // NOTE: as delegation types match access modes we don't convert the values.
                     return delegation.delegationType();
                 }
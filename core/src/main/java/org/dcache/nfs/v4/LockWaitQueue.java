@@ -0,0 +1,474 @@
+/*
+ * Copyright (c) 2026 Deutsches Elektronen-Synchroton,
+ * Member of the Helmholtz Association, (DESY), HAMBURG, GERMANY
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Library General Public License as
+ * published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this program (see the file COPYING.LIB for more
+ * details); if not, write to the Free Software Foundation, Inc.,
+ * 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package org.dcache.nfs.v4;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.MBeanRegistrationException;
+import javax.management.MBeanServer;
+import javax.management.MalformedObjectNameException;
+import javax.management.NotCompliantMBeanException;
+import javax.management.ObjectName;
+
+import org.dcache.nfs.v4.nlm.LockDeniedException;
+import org.dcache.nfs.v4.nlm.LockException;
+import org.dcache.nfs.v4.nlm.LockManager;
+import org.dcache.nfs.v4.nlm.NlmLock;
+import org.dcache.nfs.v4.xdr.lock_owner4;
+import org.dcache.nfs.v4.xdr.nfs_fh4;
+import org.dcache.nfs.v4.xdr.nfs_lock_type4;
+import org.dcache.nfs.vfs.Inode;
+import org.dcache.oncrpc4j.util.Opaque;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.util.concurrent.Striped;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Per-file queues of NFSv4.1 clients waiting for blocking byte-range locks (READW_LT and WRITEW_LT).
+ * <p>
+ * When a lock range is released, the waiters, which requested an overlapping range, are notified with CB_NOTIFY_LOCK in
+ * the order they have requested the lock: either the first write waiter, or all read waiters up to the next write
+ * waiter. The range requested by notified waiters is reserved while the notification is sent and for a short time
+ * after it has been delivered, during which conflicting locks of other owners are denied. The waiters, which do not
+ * retry the lock within the lease time, are dropped.
+ * <p>
+ * The reservation check and the lock grant, as well as the lock release and the reservation for the waiters, are done
+ * under the same per-file guard, see {@link #lock(LockManager, Opaque, NlmLock)} and
+ * {@link #unlock(LockManager, Opaque, NlmLock)}.
+ */
+public class LockWaitQueue implements LockWaitQueueMXBean {
+
+    private static final Logger _log = LoggerFactory.getLogger(LockWaitQueue.class);
+
+    /**
+     * Default time for which the lock is reserved for the notified client.
+     */
+    public static final Duration DEFAULT_RESERVATION_TIME = Duration.ofSeconds(1);
+
+    /**
+     * The value of {@link Waiter#reservedUntil} while the notification is in progress.
+     */
+    private static final long NOTIFYING = Long.MAX_VALUE;
+
+    private final Clock clock;
+    private final long leaseTime;
+    private final long reservationTime;
+    private final Executor executor;
+    private final ExecutorService ownExecutor;
+
+    /**
+     * The waiters of a file in request order. The lists are immutable and replaced on each update.
+     */
+    private final Map<Opaque, List<Waiter>> queues = new ConcurrentHashMap<>();
+
+    /**
+     * Per-file guards, which serialize the lock grants and releases with the reservations.
+     */
+    private final Striped<Lock> fileLocks = Striped.lock(Runtime.getRuntime().availableProcessors() * 4);
+
+    private final AtomicLong notifications = new AtomicLong();
+    private final AtomicLong failedNotifications = new AtomicLong();
+    private final AtomicLong expiredReservations = new AtomicLong();
+
+    /**
+     * @param name the name of the JMX bean.
+     * @param clock clock to use for all time related operations.
+     * @param leaseTime time after which a waiter, which hasn't retried the lock, is dropped.
+     */
+    public LockWaitQueue(String name, Clock clock, Duration leaseTime) {
+        this(name, clock, leaseTime, DEFAULT_RESERVATION_TIME, null);
+    }
+
+    /**
+     * @param name the name of the JMX bean.
+     * @param clock clock to use for all time related operations.
+     * @param leaseTime time after which a waiter, which hasn't retried the lock, is dropped.
+     * @param reservationTime time for which the lock is reserved for the notified client.
+     * @param executor executor to send notifications with, or {@code null} to use a dedicated thread.
+     */
+    public LockWaitQueue(String name, Clock clock, Duration leaseTime, Duration reservationTime,
+            Executor executor) {
+        this.clock = clock;
+        this.leaseTime = leaseTime.toMillis();
+        this.reservationTime = reservationTime.toMillis();
+        if (executor == null) {
+            ownExecutor = Executors.newSingleThreadExecutor(
+                    new ThreadFactoryBuilder()
+                            .setNameFormat("NFSv4.1 lock notifier")
+                            .setDaemon(true)
+                            .build());
+            this.executor = ownExecutor;
+        } else {
+            ownExecutor = null;
+            this.executor = executor;
+        }
+
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            String objectName = String.format("%s:type=LockWaitQueue,name=%s",
+                    getClass().getPackage().getName(), name);
+            ObjectName mxBeanName = new ObjectName(objectName);
+            if (!server.isRegistered(mxBeanName)) {
+                server.registerMBean(this, mxBeanName);
+            }
+        } catch (MalformedObjectNameException | InstanceAlreadyExistsException
+                | MBeanRegistrationException | NotCompliantMBeanException ex) {
+            _log.warn("Failed to register JMX bean: {}", ex.getMessage());
+        }
+    }
+
+    /**
+     * Acquire the lock, unless the range is reserved for a notified waiter.
+     *
+     * @param lm the lock manager to acquire the lock with.
+     * @param lockKey the lock key of the file.
+     * @param lock the requested lock.
+     * @throws LockDeniedException if the range is reserved or a conflicting lock exists.
+     * @throws LockException if the lock can't be acquired.
+     */
+    void lock(LockManager lm, Opaque lockKey, NlmLock lock) throws LockException {
+        Lock guard = fileLocks.get(lockKey);
+        guard.lock();
+        try {
+            NlmLock reservedLock = getReservation(lockKey, lock);
+            if (reservedLock != null) {
+                throw new LockDeniedException("lock reserved", reservedLock);
+            }
+            lm.lock(lockKey, lock);
+        } finally {
+            guard.unlock();
+        }
+    }
+
+    /**
+     * Release the lock and notify the waiters for an overlapping range.
+     *
+     * @param lm the lock manager to release the lock with.
+     * @param lockKey the lock key of the file.
+     * @param lock the lock to release.
+     * @throws LockException if the lock can't be released.
+     */
+    void unlock(LockManager lm, Opaque lockKey, NlmLock lock) throws LockException {
+        Lock guard = fileLocks.get(lockKey);
+        guard.lock();
+        try {
+            lm.unlock(lockKey, lock);
+            unlocked(lockKey, lock);
+        } finally {
+            guard.unlock();
+        }
+    }
+
+    /**
+     * Release the lock, if exists, and notify the waiters for an overlapping range.
+     *
+     * @param lm the lock manager to release the lock with.
+     * @param lockKey the lock key of the file.
+     * @param lock the lock to release.
+     */
+    void unlockIfExists(LockManager lm, Opaque lockKey, NlmLock lock) {
+        Lock guard = fileLocks.get(lockKey);
+        guard.lock();
+        try {
+            lm.unlockIfExists(lockKey, lock);
+            unlocked(lockKey, lock);
+        } finally {
+            guard.unlock();
+        }
+    }
+
+    /**
+     * Check whether the range is reserved for a notified waiter.
+     *
+     * @param lockKey the lock key of the file.
+     * @param lock the requested lock.
+     * @return the reserved lock, which conflicts with the requested one, or null if there is no such reservation.
+     */
+    NlmLock getReservation(Opaque lockKey, NlmLock lock) {
+        if (!queues.containsKey(lockKey)) {
+            return null;
+        }
+
+        long now = clock.millis();
+        NlmLock[] reserved = new NlmLock[1];
+        List<Waiter> toNotify = new ArrayList<>();
+        Lock guard = fileLocks.get(lockKey);
+        guard.lock();
+        try {
+            queues.computeIfPresent(lockKey, (k, waiters) -> {
+                List<Waiter> alive = expire(waiters, now);
+
+                List<Waiter> expired = alive.stream()
+                        .filter(w -> w.reservedUntil != 0 && w.reservedUntil <= now)
+                        .toList();
+                if (!expired.isEmpty()) {
+                    // the notified clients didn't come back, move them to the end of the queue and pass the lock on
+                    List<Waiter> reordered = new ArrayList<>(alive);
+                    reordered.removeAll(expired);
+                    for (Waiter w : expired) {
+                        w.reservedUntil = 0;
+                        toNotify.addAll(reserve(reordered, w.lock, now));
+                    }
+                    expiredReservations.addAndGet(expired.size());
+                    reordered.addAll(expired);
+                    alive = List.copyOf(reordered);
+                }
+
+                for (Waiter w : alive) {
+                    if (w.reservedUntil != 0 && w.lock.isConflicting(lock)) {
+                        reserved[0] = w.lock;
+                        break;
+                    }
+                }
+                return alive.isEmpty() ? null : alive;
+            });
+        } finally {
+            guard.unlock();
+        }
+
+        toNotify.forEach(w -> notify(lockKey, w));
+        return reserved[0];
+    }
+
+    /**
+     * Add the lock owner to the waiters of the file. An owner, which is already waiting, keeps its position in the
+     * queue.
+     *
+     * @param client the client requested the lock.
+     * @param inode the file to lock.
+     * @param lock the denied lock.
+     */
+    void await(NFS4Client client, Inode inode, NlmLock lock) {
+        long now = clock.millis();
+        queues.compute(inode.getLockKey().toImmutableOpaque(), (k, waiters) -> {
+            List<Waiter> updated = new ArrayList<>();
+            boolean found = false;
+            if (waiters != null) {
+                for (Waiter w : expire(waiters, now)) {
+                    if (w.lock.isSameOwner(lock)) {
+                        w.lock = lock;
+                        w.lastSeen = now;
+                        w.reservedUntil = 0;
+                        found = true;
+                    }
+                    updated.add(w);
+                }
+            }
+            if (!found) {
+                updated.add(new Waiter(client, new nfs_fh4(inode.toNfsHandle()), lock, now));
+            }
+            return List.copyOf(updated);
+        });
+    }
+
+    /**
+     * Remove the lock owner from the waiters of the file, as the lock is granted.
+     *
+     * @param lockKey the lock key of the file.
+     * @param owner the lock owner.
+     */
+    void granted(Opaque lockKey, StateOwner owner) {
+        if (!queues.containsKey(lockKey)) {
+            return;
+        }
+        queues.computeIfPresent(lockKey, (k, waiters) -> {
+            List<Waiter> updated = waiters.stream()
+                    .filter(w -> !w.lock.getOwner().equals(owner))
+                    .toList();
+            return updated.isEmpty() ? null : updated;
+        });
+    }
+
+    /**
+     * Notify the waiters for an overlapping range, that the lock is released.
+     *
+     * @param lockKey the lock key of the file.
+     * @param lock the released lock.
+     */
+    void unlocked(Opaque lockKey, NlmLock lock) {
+        if (!queues.containsKey(lockKey)) {
+            return;
+        }
+
+        long now = clock.millis();
+        List<Waiter> toNotify = new ArrayList<>();
+        Lock guard = fileLocks.get(lockKey);
+        guard.lock();
+        try {
+            queues.computeIfPresent(lockKey, (k, waiters) -> {
+                List<Waiter> alive = expire(waiters, now);
+                toNotify.addAll(reserve(alive, lock, now));
+                return alive.isEmpty() ? null : alive;
+            });
+        } finally {
+            guard.unlock();
+        }
+
+        toNotify.forEach(w -> notify(lockKey, w));
+    }
+
+    /**
+     * Stop sending notifications.
+     */
+    public void shutdown() {
+        if (ownExecutor != null) {
+            ownExecutor.shutdownNow();
+        }
+    }
+
+    /**
+     * Drop the waiters, which haven't retried the lock within the lease time.
+     */
+    private List<Waiter> expire(List<Waiter> waiters, long now) {
+        if (waiters.stream().allMatch(w -> now - w.lastSeen <= leaseTime)) {
+            return waiters;
+        }
+        return waiters.stream()
+                .filter(w -> now - w.lastSeen <= leaseTime)
+                .toList();
+    }
+
+    /**
+     * Reserve the range for the waiters, which wait for an overlapping range: either the first write waiter, or all
+     * read waiters up to the next write waiter.
+     *
+     * @return the waiters to notify.
+     */
+    private List<Waiter> reserve(List<Waiter> waiters, NlmLock released, long now) {
+        List<Waiter> reserved = new ArrayList<>();
+        for (Waiter w : waiters) {
+            if (w.reservedUntil != 0 || !w.lock.isOverlappingRange(released)) {
+                continue;
+            }
+
+            boolean isWrite = w.lock.getLockType() == nfs_lock_type4.WRITEW_LT;
+            if (isWrite && !reserved.isEmpty()) {
+                break;
+            }
+            // the reservation time starts once the client has received the notification
+            w.reservedUntil = NOTIFYING;
+            reserved.add(w);
+            if (isWrite) {
+                break;
+            }
+        }
+        return reserved;
+    }
+
+    private void notify(Opaque lockKey, Waiter w) {
+        executor.execute(() -> {
+            try {
+                w.client.getCB().cbNotifyLock(w.fh, new lock_owner4(w.lock.getOwner().getRawStateOwner()));
+                notifications.incrementAndGet();
+                startReservation(lockKey, w);
+            } catch (IOException | TimeoutException e) {
+                _log.warn("Failed to notify {} about released lock: {}", w.client, e.toString());
+                failedNotifications.incrementAndGet();
+                granted(lockKey, w.lock.getOwner());
+            }
+        });
+    }
+
+    /**
+     * Start the reservation time of the notified waiter, unless it has retried the lock in the meantime.
+     */
+    private void startReservation(Opaque lockKey, Waiter w) {
+        queues.computeIfPresent(lockKey, (k, waiters) -> {
+            if (w.reservedUntil == NOTIFYING) {
+                w.reservedUntil = clock.millis() + reservationTime;
+            }
+            return waiters;
+        });
+    }
+
+    @Override
+    public int getWaiters() {
+        return queues.values().stream().mapToInt(List::size).sum();
+    }
+
+    @Override
+    public int getFiles() {
+        return queues.size();
+    }
+
+    @Override
+    public int getMaxQueueDepth() {
+        return queues.values().stream().mapToInt(List::size).max().orElse(0);
+    }
+
+    @Override
+    public long getNotifications() {
+        return notifications.get();
+    }
+
+    @Override
+    public long getFailedNotifications() {
+        return failedNotifications.get();
+    }
+
+    @Override
+    public long getExpiredReservations() {
+        return expiredReservations.get();
+    }
+
+    /**
+     * A lock owner waiting for a lock.
+     */
+    private static class Waiter {
+
+        private final NFS4Client client;
+        private final nfs_fh4 fh;
+        private volatile NlmLock lock;
+
+        /**
+         * The time of the last lock request.
+         */
+        private volatile long lastSeen;
+
+        /**
+         * The time until the lock is reserved for the waiter, {@link #NOTIFYING} while the waiter is notified, or zero
+         * if waiter is not notified.
+         */
+        private volatile long reservedUntil;
+
+        Waiter(NFS4Client client, nfs_fh4 fh, NlmLock lock, long now) {
+            this.client = client;
+            this.fh = fh;
+            this.lock = lock;
+            this.lastSeen = now;
+        }
+    }
+}
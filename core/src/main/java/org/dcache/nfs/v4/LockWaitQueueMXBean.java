@@ -0,0 +1,56 @@
+/*
+ * Copyright (c) 2026 Deutsches Elektronen-Synchroton,
+ * Member of the Helmholtz Association, (DESY), HAMBURG, GERMANY
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Library General Public License as
+ * published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this program (see the file COPYING.LIB for more
+ * details); if not, write to the Free Software Foundation, Inc.,
+ * 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package org.dcache.nfs.v4;
+
+/**
+ * Statistics of clients waiting for blocking byte-range locks.
+ */
+public interface LockWaitQueueMXBean {
+
+    /**
+     * Number of lock owners waiting for a lock.
+     */
+    int getWaiters();
+
+    /**
+     * Number of files with at least one waiting lock owner.
+     */
+    int getFiles();
+
+    /**
+     * The highest number of lock owners waiting for a lock on a single file.
+     */
+    int getMaxQueueDepth();
+
+    /**
+     * Number of CB_NOTIFY_LOCK callbacks sent to the clients.
+     */
+    long getNotifications();
+
+    /**
+     * Number of CB_NOTIFY_LOCK callbacks failed to be delivered.
+     */
+    long getFailedNotifications();
+
+    /**
+     * Number of reservations, which expired before the notified client claimed the lock.
+     */
+    long getExpiredReservations();
+}
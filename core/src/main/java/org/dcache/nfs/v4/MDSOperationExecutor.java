@@ -125,6 +125,8 @@ public class MDSOperationExecutor extends AbstractOperationExecutor {
                 return new OperationLAYOUTSTATS(op);
             case nfs_opnum4.OP_GETDEVICEINFO:
                 return new OperationGETDEVICEINFO(op);
+            case nfs_opnum4.OP_GET_DIR_DELEGATION:
+                return new OperationGET_DIR_DELEGATION(op);
             case nfs_opnum4.OP_EXCHANGE_ID:
                 /*
                  * By having chimera as a backend file system we need to support legacy .(xx)(xx)... commands. To allow
@@ -161,16 +163,23 @@ public class MDSOperationExecutor extends AbstractOperationExecutor {
                 return new OperationREMOVEXATTR(op);
             case nfs_opnum4.OP_COPY:
                 return new OperationCOPY(op);
+            case nfs_opnum4.OP_READ_PLUS:
+                return new OperationREAD_PLUS(op);
+            case nfs_opnum4.OP_SEEK:
+                return new OperationSEEK(op);
             case nfs_opnum4.OP_ALLOCATE:
-            case nfs_opnum4.OP_COPY_NOTIFY:
+                return new OperationALLOCATE(op);
             case nfs_opnum4.OP_DEALLOCATE:
-            case nfs_opnum4.OP_IO_ADVISE:
-            case nfs_opnum4.OP_OFFLOAD_CANCEL:
+                return new OperationDEALLOCATE(op);
+            case nfs_opnum4.OP_CLONE:
+                return new OperationCLONE(op);
             case nfs_opnum4.OP_OFFLOAD_STATUS:
-            case nfs_opnum4.OP_READ_PLUS:
-            case nfs_opnum4.OP_SEEK:
+                return new OperationOFFLOAD_STATUS(op);
+            case nfs_opnum4.OP_OFFLOAD_CANCEL:
+                return new OperationOFFLOAD_CANCEL(op);
+            case nfs_opnum4.OP_COPY_NOTIFY:
+            case nfs_opnum4.OP_IO_ADVISE:
             case nfs_opnum4.OP_WRITE_SAME:
-            case nfs_opnum4.OP_CLONE:
                 // in V4.2 all operations are optional.
                 return new AbstractNFSv4Operation(op, op.argop) {
                     @Override
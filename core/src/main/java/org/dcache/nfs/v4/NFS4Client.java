@@ -445,12 +445,18 @@ public class NFS4Client {
      *
      * @return list of sessions created by client.
      */
-    public Collection<NFSv41Session> sessions() {
-        return _sessions.values();
+    public synchronized Collection<NFSv41Session> sessions() {
+        return List.copyOf(_sessions.values());
     }
 
     public synchronized NFSv41Session createSession(int sequence, int cacheSize, int cbCacheSize, int maxOps,
             int maxCbOps) throws ChimeraNFSException {
+        return createSession(sequence, cacheSize, cbCacheSize, maxOps, maxCbOps,
+                NFSv4Defaults.NFS4_MAX_RESPONSE_SIZE_CACHED);
+    }
+
+    public synchronized NFSv41Session createSession(int sequence, int cacheSize, int cbCacheSize, int maxOps,
+            int maxCbOps, int maxResponseSizeCached) throws ChimeraNFSException {
 
         /*
          * For unconfirmed cleints server expects sequence number to be equal to value of eir_sequenceid that was
@@ -476,7 +482,8 @@ public class NFS4Client {
         }
 
         sessionid4 sessionid = _stateHandler.createSessionId(this, _sessionSequence);
-        NFSv41Session session = new NFSv41Session(this, sessionid, cacheSize, cbCacheSize, maxOps, maxCbOps);
+        NFSv41Session session = new NFSv41Session(this, sessionid, cacheSize, cbCacheSize, maxOps, maxCbOps,
+                maxResponseSizeCached, _stateHandler.getReplyCache());
 
         _sessions.put(sessionid, session);
         _sessionSequence++;
@@ -494,6 +501,7 @@ public class NFS4Client {
         if (session == null) {
             throw new BadSessionException("session not found");
         }
+        session.releaseSlots();
     }
 
     public synchronized NFSv41Session getSession(sessionid4 id) throws BadSessionException {
@@ -554,6 +562,7 @@ public class NFS4Client {
      */
     public synchronized final void tryDispose() throws ChimeraNFSException {
         drainStates();
+        _sessions.values().forEach(NFSv41Session::releaseSlots);
         Iterator<DisposeListener<NFS4Client>> i = _disposeListeners.iterator();
         while (i.hasNext()) {
             DisposeListener<NFS4Client> listener = i.next();
@@ -567,6 +576,7 @@ public class NFS4Client {
      */
     public synchronized final void disposeIgnoreFailures() {
         drainStates();
+        _sessions.values().forEach(NFSv41Session::releaseSlots);
         _disposeListeners.forEach(l -> {
             try {
                 l.notifyDisposed(NFS4Client.this);
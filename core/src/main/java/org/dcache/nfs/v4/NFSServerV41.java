@@ -19,6 +19,7 @@
  */
 package org.dcache.nfs.v4;
 
+import java.io.IOException;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -35,6 +36,7 @@ import org.dcache.nfs.status.ResourceException;
 import org.dcache.nfs.status.RetryUncacheRepException;
 import org.dcache.nfs.status.SequencePosException;
 import org.dcache.nfs.status.TooManyOpsException;
+import org.dcache.nfs.util.BufferPool;
 import org.dcache.nfs.v4.nlm.LockManager;
 import org.dcache.nfs.v4.nlm.SimpleLm;
 import org.dcache.nfs.v4.xdr.COMPOUND4args;
@@ -50,6 +52,7 @@ import org.dcache.nfs.v4.xdr.utf8str_cs;
 import org.dcache.nfs.v4.xdr.verifier4;
 import org.dcache.nfs.vfs.PseudoFs;
 import org.dcache.nfs.vfs.VirtualFileSystem;
+import org.dcache.oncrpc4j.rpc.OncRpcException;
 import org.dcache.oncrpc4j.rpc.RpcCall;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -110,6 +113,17 @@ public class NFSServerV41 extends nfs4_prot_NFS4_PROGRAM_ServerStub {
         _connectionAuthenticator = ConnectionAuthenticator.DUMMY_AUTHENTICATOR;
     }
 
+    @Override
+    public void dispatchOncRpcCall(RpcCall call) throws OncRpcException, IOException {
+        BufferPool.getDefault().beginReply();
+        try {
+            super.dispatchOncRpcCall(call);
+        } finally {
+            // the buffers are returned into the pool by the encoded reply, the remaining ones might still be in use
+            BufferPool.getDefault().endReply();
+        }
+    }
+
     @Override
     public void NFSPROC4_NULL_4(RpcCall call$) {
         _log.debug("NFS PING client: {}", call$.getTransport().getRemoteSocketAddress());
@@ -118,7 +132,8 @@ public class NFSServerV41 extends nfs4_prot_NFS4_PROGRAM_ServerStub {
     @Override
     public COMPOUND4res NFSPROC4_COMPOUND_4(RpcCall call$, COMPOUND4args arg1) {
 
-        COMPOUND4res res = new COMPOUND4res();
+        CompoundReply res = new CompoundReply(BufferPool.getDefault().currentReply());
+        CompoundContext context = null;
 
         try {
 
@@ -172,10 +187,16 @@ public class NFSServerV41 extends nfs4_prot_NFS4_PROGRAM_ServerStub {
                 builder.withoutPnfs();
             }
 
-            CompoundContext context = builder.build();
+            context = builder.build();
             CompoundContext.setThreadLocalContext(context);
 
             boolean retransmit = false;
+
+            /*
+             * the reply to store in the session slot, if requested by the client
+             */
+            ReplyCache.EncodedReply cachedReply = null;
+            boolean cacheable = true;
             for (int position = 0; position < arg1.argarray.length; position++) {
 
                 nfs_argop4 op = arg1.argarray[position];
@@ -209,7 +230,26 @@ public class NFSServerV41 extends nfs4_prot_NFS4_PROGRAM_ServerStub {
                     }
                 }
 
-                nfs_resop4 opResult = _operationExecutor.execute(context, op);
+                nfs_resop4 opResult;
+                if (context.cacheThis() && cachedReply != null
+                        && !cachedReply.fits(ReplyCache.maxResultSize(op))) {
+                    // rejected before execution, thus the operation is not performed without caching the reply
+                    opResult = nfs_resop4.resopFor(op.argop);
+                    opResult.setStatus(nfsstat.NFSERR_REP_TOO_BIG_TO_CACHE);
+                } else {
+                    opResult = _operationExecutor.execute(context, op);
+                }
+
+                if (context.cacheThis()) {
+                    if (cachedReply == null) {
+                        cachedReply = new ReplyCache.EncodedReply(context.getSession().getMaxResponseSizeCached());
+                    }
+                    if (!cachedReply.add(opResult)) {
+                        opResult = nfs_resop4.resopFor(op.argop);
+                        opResult.setStatus(nfsstat.NFSERR_REP_TOO_BIG_TO_CACHE);
+                        cacheable = cachedReply.add(opResult);
+                    }
+                }
 
                 res.resarray.add(opResult);
                 res.status = opResult.getStatus();
@@ -218,8 +258,15 @@ public class NFSServerV41 extends nfs4_prot_NFS4_PROGRAM_ServerStub {
                 }
             }
 
+            // the results stored in the session slot are encoded already
+            res.setEncodedResults(cachedReply);
+
             if (!retransmit && context.cacheThis()) {
-                context.getSessionSlot().update(res.resarray);
+                if (cacheable) {
+                    context.getSessionSlot().update(cachedReply);
+                } else {
+                    context.getSessionSlot().release();
+                }
             }
 
             _log.debug("OP: [{}] status: {}", res.tag, res.status);
@@ -237,6 +284,9 @@ public class NFSServerV41 extends nfs4_prot_NFS4_PROGRAM_ServerStub {
             MDC.remove(NfsMdc.CLIENT);
             MDC.remove(NfsMdc.SESSION);
 
+            if (context != null && context.getSessionSlot() != null) {
+                _statHandler.getSlotController().requestCompleted(context.getSession());
+            }
             CompoundContext.removeThreadLocalContext();
         }
 
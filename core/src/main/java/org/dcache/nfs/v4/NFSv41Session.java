@@ -22,6 +22,8 @@ package org.dcache.nfs.v4;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 import org.dcache.nfs.ChimeraNFSException;
 import org.dcache.nfs.status.BadSlotException;
@@ -34,16 +36,43 @@ public class NFSv41Session {
 
     private final sessionid4 _session;
     /**
-     * Session reply slots.
+     * Session reply slots. The slots are looked up without locking on every SEQUENCE.
      */
-    private final SessionSlot[] _slots;
+    private final AtomicReferenceArray<SessionSlot> _slots;
+
+    /**
+     * Number of allocated slots.
+     */
+    private final AtomicInteger _allocatedSlots = new AtomicInteger();
     private final NFS4Client _client;
     private final int _maxOps;
     private final int _maxCbOps;
+    private final int _maxResponseSizeCached;
+    private final ReplyCache _replyCache;
 
     private final int _maxCbRequests;
     private final Set<SessionConnection> _boundConnections;
 
+    /**
+     * The highest slot id the client is allowed to use.
+     */
+    private volatile int _highestSlot;
+
+    /**
+     * The highest slot id the server wants the client to use.
+     */
+    private volatile int _targetHighestSlot;
+
+    /**
+     * Number of requests currently processed by the server.
+     */
+    private final AtomicInteger _inFlight = new AtomicInteger();
+
+    /**
+     * Time of the last target highest slot id adjustment.
+     */
+    private long _lastSlotAdjustment;
+
     /**
      * Create new session for the given client.
      *
@@ -53,16 +82,22 @@ public class NFSv41Session {
      * @param maxCbRequests The maximum number of concurrent callback requests.
      * @param maxOps The maximum number of compound operations per requests.
      * @param maxCbOps The maximum number of compound operations per callback requests.
+     * @param maxResponseSizeCached The maximum size of a reply stored in the reply cache.
+     * @param replyCache The cache to store the replies in.
      */
     public NFSv41Session(NFS4Client client, sessionid4 sessionid, int maxRequests, int maxCbRequests, int maxOps,
-            int maxCbOps) {
+            int maxCbOps, int maxResponseSizeCached, ReplyCache replyCache) {
         _client = client;
-        _slots = new SessionSlot[maxRequests];
+        _slots = new AtomicReferenceArray<>(maxRequests);
         _session = sessionid;
         _maxOps = maxOps;
         _maxCbOps = maxCbOps;
         _maxCbRequests = maxCbRequests;
+        _maxResponseSizeCached = maxResponseSizeCached;
+        _replyCache = replyCache;
         _boundConnections = new HashSet<>();
+        _highestSlot = maxRequests - 1;
+        _targetHighestSlot = maxRequests - 1;
     }
 
     public sessionid4 id() {
@@ -74,12 +109,105 @@ public class NFSv41Session {
     }
 
     /**
-     * Get maximum slot id.
+     * Get the highest slot id the client is allowed to use.
      *
-     * @return max slot id.
+     * @return highest slot id.
      */
     public int getHighestSlot() {
-        return _slots.length - 1;
+        return _highestSlot;
+    }
+
+    /**
+     * Get maximum slot id negotiated with the client at session creation.
+     *
+     * @return max slot id.
+     */
+    public int getMaxSlot() {
+        return _slots.length() - 1;
+    }
+
+    /**
+     * Get the highest slot id the server wants the client to use.
+     *
+     * @return target highest slot id.
+     */
+    public int getTargetHighestSlot() {
+        return _targetHighestSlot;
+    }
+
+    /**
+     * Set the highest slot id the server wants the client to use. The slots above the target are released by
+     * {@link #updateHighestSlot(int)} once the client stops using them.
+     *
+     * @param slot target highest slot id.
+     */
+    void setTargetHighestSlot(int slot) {
+        _targetHighestSlot = Math.max(0, Math.min(slot, getMaxSlot()));
+    }
+
+    /**
+     * Bring the highest slot id closer to the target. The slots above the target are released only if the client
+     * doesn't use them anymore.
+     *
+     * @param clientHighestSlot the highest slot id in use by the client.
+     */
+    synchronized void updateHighestSlot(int clientHighestSlot) {
+        int target = _targetHighestSlot;
+        int highestSlot = _highestSlot;
+        if (target < highestSlot && clientHighestSlot <= target) {
+            // lower the limit first, thus concurrent allocations above the target back out, see getSessionSlot
+            _highestSlot = target;
+            for (int i = target + 1; i <= highestSlot; i++) {
+                SessionSlot slot = _slots.get(i);
+                if (slot != null && _slots.compareAndSet(i, slot, null)) {
+                    _allocatedSlots.decrementAndGet();
+                    slot.release();
+                }
+            }
+        } else if (target > highestSlot) {
+            _highestSlot = target;
+        }
+    }
+
+    /**
+     * Check whether the target highest slot id can be adjusted and record the adjustment time.
+     *
+     * @param now the current time in milliseconds.
+     * @param interval minimal time between two adjustments in milliseconds.
+     * @return true if the target can be adjusted.
+     */
+    synchronized boolean tryStartSlotAdjustment(long now, long interval) {
+        if (now - _lastSlotAdjustment < interval) {
+            return false;
+        }
+        _lastSlotAdjustment = now;
+        return true;
+    }
+
+    /**
+     * Get the number of slots holding a cached reply.
+     *
+     * @return number of allocated slots.
+     */
+    public int getAllocatedSlots() {
+        return _allocatedSlots.get();
+    }
+
+    /**
+     * Get the number of requests of this session currently processed by the server.
+     *
+     * @return number of in-flight requests.
+     */
+    public int getInFlightRequests() {
+        return _inFlight.get();
+    }
+
+    void requestStarted() {
+        _inFlight.incrementAndGet();
+    }
+
+    void requestCompleted() {
+        _inFlight.decrementAndGet();
     }
 
     public int getCbHighestSlot() {
@@ -93,7 +221,7 @@ public class NFSv41Session {
      */
     public int getHighestUsedSlot() {
         int id;
-        for (id = getHighestSlot(); id >= 0 && _slots[id] == null; id--) {
+        for (id = getHighestSlot(); id >= 0 && _slots.get(id) == null; id--) {
             /*
              * NOP. We only move pointer
              */
@@ -119,11 +247,25 @@ public class NFSv41Session {
             throw new BadSlotException("slot id overflow");
         }
 
-        if (_slots[slot] == null) {
-            _slots[slot] = new SessionSlot();
+        SessionSlot sessionSlot;
+        while ((sessionSlot = _slots.get(slot)) == null) {
+            sessionSlot = new SessionSlot(_replyCache);
+            if (_slots.compareAndSet(slot, null, sessionSlot)) {
+                _allocatedSlots.incrementAndGet();
+                break;
+            }
+            // allocated by a concurrent request, try again
         }
 
-        return _slots[slot];
+        // the highest slot might have been lowered concurrently
+        if (slot > getHighestSlot()) {
+            if (_slots.compareAndSet(slot, sessionSlot, null)) {
+                _allocatedSlots.decrementAndGet();
+                sessionSlot.release();
+            }
+            throw new BadSlotException("slot id overflow");
+        }
+        return sessionSlot;
     }
 
     /**
@@ -135,6 +277,27 @@ public class NFSv41Session {
         return _maxOps;
     }
 
+    /**
+     * Get maximal size of a reply, which server stores in the reply cache.
+     *
+     * @return number of bytes
+     */
+    public int getMaxResponseSizeCached() {
+        return _maxResponseSizeCached;
+    }
+
+    /**
+     * Remove the replies of this session from the reply cache.
+     */
+    void releaseSlots() {
+        for (int i = 0; i < _slots.length(); i++) {
+            SessionSlot slot = _slots.get(i);
+            if (slot != null) {
+                slot.release();
+            }
+        }
+    }
+
     /**
      * Get maximal number of call-back operations client will accept for this session.
      *
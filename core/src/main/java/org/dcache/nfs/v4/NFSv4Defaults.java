@@ -69,4 +69,14 @@ public interface NFSv4Defaults {
      */
     public final static int NFS4_MAX_SESSION_SLOTS = 16;
 
+    /**
+     * Maximal size of a reply the server caches in a session slot.
+     */
+    public final static int NFS4_MAX_RESPONSE_SIZE_CACHED = 16 * 1024;
+
+    /**
+     * Maximal number of bytes used by cached replies of all sessions.
+     */
+    public final static long NFS4_REPLY_CACHE_SIZE = 64 * 1024 * 1024;
+
 }
@@ -26,13 +26,17 @@ import java.net.InetSocketAddress;
 import java.security.Principal;
 import java.time.Clock;
 import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.stream.Collectors;
 
 import javax.annotation.concurrent.GuardedBy;
@@ -77,19 +81,23 @@ public class NFSv4StateHandler {
     private final ClientCache _clientsByServerId;
 
     /**
-     * Read/write lock that guards the access to {@link #_clientsByServerId}.
+     * Lock that serializes adding and removing of clients with the shutdown. Lookups don't take any lock.
      */
-    private final ReentrantReadWriteLock _accessLock = new ReentrantReadWriteLock();
+    private final Lock _writeLock = new ReentrantLock();
 
-    private final Lock _readLock = _accessLock.readLock();
-    private final Lock _writeLock = _accessLock.writeLock();
+    /**
+     * Clients by client side generated owner id, the most recent client last. As clients might expire from
+     * {@link #_clientsByServerId} without notice, the entries are validated on lookup and the stale ones are removed
+     * by the periodic cleanup.
+     */
+    private final Map<Opaque, List<NFS4Client>> _clientsByOwner = new ConcurrentHashMap<>();
 
     /**
      * Client's lease validity duration.
      */
     private final Duration _leaseTime;
 
-    private boolean _running;
+    private volatile boolean _running;
 
     /**
      * a system wide unique id of this state handler.
@@ -98,6 +106,16 @@ public class NFSv4StateHandler {
 
     private final FileTracker _openFileTracker;
 
+    private final DirDelegationTracker _dirDelegationTracker = new DirDelegationTracker();
+
+    private final CopyOffloadManager _copyOffloadManager = new CopyOffloadManager();
+
+    private final SlotController _slotController;
+
+    private final ReplyCache _replyCache = new ReplyCache();
+
+    private final LockWaitQueue _lockWaitQueue;
+
     private final ClientRecoveryStore clientStore;
 
     /**
@@ -141,7 +159,7 @@ public class NFSv4StateHandler {
     @VisibleForTesting
     NFSv4StateHandler(OpenCloseTracker oct, Duration leaseTime, int instanceId, ClientRecoveryStore clientStore,
             ClientCache clientsByServerId, Clock clock) {
-        _openFileTracker = oct == null ? new FileTracker() : new FileTracker(oct);
+        _openFileTracker = new FileTracker(oct, clock, null);
         _leaseTime = leaseTime;
         _clientsByServerId = clientsByServerId;
         _clock = clock;
@@ -149,6 +167,9 @@ public class NFSv4StateHandler {
         _running = true;
         _instanceId = instanceId;
         this.clientStore = clientStore;
+        _slotController = new SlotController(Integer.toString(instanceId),
+                () -> _clientsByServerId.peek().flatMap(c -> c.sessions().stream()), clock, _replyCache);
+        _lockWaitQueue = new LockWaitQueue(Integer.toString(instanceId), clock, leaseTime);
 
         _cleanerScheduler = Executors.newSingleThreadScheduledExecutor(
                 new ThreadFactoryBuilder()
@@ -157,7 +178,10 @@ public class NFSv4StateHandler {
                         .build());
 
         // periodic dead client scan
-        _cleanerScheduler.scheduleAtFixedRate(() -> _clientsByServerId.cleanUp(),
+        _cleanerScheduler.scheduleAtFixedRate(() -> {
+            _clientsByServerId.cleanUp();
+            removeStaleOwners();
+        },
                 _leaseTime.toSeconds() * 4, _leaseTime.toSeconds() * 4, TimeUnit.SECONDS);
 
         // one time action to close recovery window.
@@ -171,6 +195,7 @@ public class NFSv4StateHandler {
         try {
             checkState(_running, "NFS state handler not running");
             _clientsByServerId.remove(client.getId());
+            removeOwner(client);
             clientStore.removeClient(client.getOwnerId());
         } finally {
             _writeLock.unlock();
@@ -184,12 +209,45 @@ public class NFSv4StateHandler {
         try {
             checkState(_running, "NFS state handler not running");
             _clientsByServerId.put(newClient.getId(), newClient);
+            addOwner(newClient);
             clientStore.addClient(newClient.getOwnerId());
         } finally {
             _writeLock.unlock();
         }
     }
 
+    private void addOwner(NFS4Client client) {
+        _clientsByOwner.compute(client.getOwnerId(), (k, v) -> {
+            if (v == null) {
+                return List.of(client);
+            }
+            List<NFS4Client> clients = new ArrayList<>(v.size() + 1);
+            clients.addAll(v);
+            clients.add(client);
+            return List.copyOf(clients);
+        });
+    }
+
+    private void removeOwner(NFS4Client client) {
+        _clientsByOwner.computeIfPresent(client.getOwnerId(), (k, v) -> {
+            List<NFS4Client> clients = v.stream()
+                    .filter(c -> c != client)
+                    .collect(Collectors.toUnmodifiableList());
+            return clients.isEmpty() ? null : clients;
+        });
+    }
+
+    /**
+     * Remove owner index entries of clients which are not cached anymore, e.g. expired.
+     */
+    private void removeStaleOwners() {
+        Set<NFS4Client> clients = _clientsByServerId.peek().collect(Collectors.toSet());
+        _clientsByOwner.values().stream()
+                .flatMap(List::stream)
+                .filter(c -> !clients.contains(c))
+                .forEach(this::removeOwner);
+    }
+
     /**
      * Get confirmed, valid client by short-hand {@code clientid}.
      *
@@ -231,27 +289,17 @@ public class NFSv4StateHandler {
      */
     public NFS4Client getClient(clientid4 clientid) throws StaleClientidException {
 
-        _readLock.lock();
-        try {
-            checkState(_running, "NFS state handler not running");
+        checkState(_running, "NFS state handler not running");
 
-            NFS4Client client = _clientsByServerId.get(clientid);
-            if (client == null) {
-                throw new StaleClientidException("bad client id.");
-            }
-            return client;
-        } finally {
-            _readLock.unlock();
+        NFS4Client client = _clientsByServerId.get(clientid);
+        if (client == null) {
+            throw new StaleClientidException("bad client id.");
         }
+        return client;
     }
 
     public NFS4Client getClientIfExists(long clientId) {
-        _readLock.lock();
-        try {
-            return _clientsByServerId.get(new clientid4(clientId));
-        } finally {
-            _readLock.unlock();
-        }
+        return _clientsByServerId.get(new clientid4(clientId));
     }
 
     public NFS4Client getClientIdByStateId(stateid4 stateId) throws ChimeraNFSException {
@@ -268,35 +316,25 @@ public class NFSv4StateHandler {
             throw new BadStateidException();
         }
 
-        _readLock.lock();
-        try {
-            checkState(_running, "NFS state handler not running");
+        checkState(_running, "NFS state handler not running");
 
-            clientid4 clientId = new clientid4(stateId.getClientId());
-            NFS4Client client = _clientsByServerId.get(clientId);
-            if (client == null) {
-                throw new BadStateidException("no client for stateid: " + stateId);
-            }
-            return client;
-        } finally {
-            _readLock.unlock();
+        clientid4 clientId = new clientid4(stateId.getClientId());
+        NFS4Client client = _clientsByServerId.get(clientId);
+        if (client == null) {
+            throw new BadStateidException("no client for stateid: " + stateId);
         }
+        return client;
     }
 
     public NFS4Client getClient(sessionid4 id) throws ChimeraNFSException {
 
-        _readLock.lock();
-        try {
-            checkState(_running, "NFS state handler not running");
-            clientid4 clientId = new clientid4(id.value.longAt(0));
-            NFS4Client client = _clientsByServerId.get(clientId);
-            if (client == null) {
-                throw new BadSessionException("session not found: " + id);
-            }
-            return client;
-        } finally {
-            _readLock.unlock();
+        checkState(_running, "NFS state handler not running");
+        clientid4 clientId = new clientid4(id.value.longAt(0));
+        NFS4Client client = _clientsByServerId.get(clientId);
+        if (client == null) {
+            throw new BadSessionException("session not found: " + id);
         }
+        return client;
     }
 
     /**
@@ -309,16 +347,16 @@ public class NFSv4StateHandler {
      */
     public NFS4Client clientByOwner(Opaque ownerid) {
 
-        _readLock.lock();
-        try {
-            return _clientsByServerId
-                    .stream()
-                    .filter(c -> c.getOwnerId().equals(ownerid))
-                    .findAny()
-                    .orElse(null);
-        } finally {
-            _readLock.unlock();
+        List<NFS4Client> clients = _clientsByOwner.getOrDefault(ownerid, List.of());
+        for (int i = clients.size() - 1; i >= 0; i--) {
+            NFS4Client client = clients.get(i);
+            if (_clientsByServerId.get(client.getId()) == client) {
+                return client;
+            }
+            // expired or removed
+            removeOwner(client);
         }
+        return null;
     }
 
     public NFS4Client updateClientLeaseTime(stateid4 stateid) throws ChimeraNFSException {
@@ -339,14 +377,9 @@ public class NFSv4StateHandler {
 
     public List<NFS4Client> getClients() {
 
-        _readLock.lock();
-        try {
-            checkState(_running, "NFS state handler not running");
-            return _clientsByServerId.peek()
-                    .collect(Collectors.toList());
-        } finally {
-            _readLock.unlock();
-        }
+        checkState(_running, "NFS state handler not running");
+        return _clientsByServerId.peek()
+                .collect(Collectors.toList());
     }
 
     public NFS4Client createClient(InetSocketAddress clientAddress, InetSocketAddress localAddress, int minorVersion,
@@ -367,6 +400,51 @@ public class NFSv4StateHandler {
         return _openFileTracker;
     }
 
+    /**
+     * Get directory delegations tracker.
+     *
+     * @return directory delegations tracker
+     */
+    public DirDelegationTracker getDirDelegationTracker() {
+        return _dirDelegationTracker;
+    }
+
+    /**
+     * Get the queues of clients waiting for blocking locks.
+     *
+     * @return lock wait queue
+     */
+    public LockWaitQueue getLockWaitQueue() {
+        return _lockWaitQueue;
+    }
+
+    /**
+     * Get the cache of session replies.
+     *
+     * @return session reply cache
+     */
+    public ReplyCache getReplyCache() {
+        return _replyCache;
+    }
+
+    /**
+     * Get controller of the session slot table sizes.
+     *
+     * @return session slot controller
+     */
+    public SlotController getSlotController() {
+        return _slotController;
+    }
+
+    /**
+     * Get engine to run asynchronous server-side copies.
+     *
+     * @return copy offload engine.
+     */
+    public CopyOffloadManager getCopyOffloadManager() {
+        return _copyOffloadManager;
+    }
+
     /**
      * Clock used to time related operations.
      *
@@ -426,6 +504,7 @@ public class NFSv4StateHandler {
                     c.disposeIgnoreFailures();
                     _clientsByServerId.remove(c.getId());
                 });
+        _clientsByOwner.clear();
     }
 
     /**
@@ -438,6 +517,10 @@ public class NFSv4StateHandler {
             checkState(_running, "NFS state handler not running");
             _running = false;
             drainClients();
+            _copyOffloadManager.shutdown();
+            _lockWaitQueue.shutdown();
+            _dirDelegationTracker.shutdown();
+            _openFileTracker.shutdown();
             _cleanerScheduler.shutdown();
             clientStore.close();
         } finally {
@@ -450,7 +533,7 @@ public class NFSv4StateHandler {
      *
      * @return true, it state handler is running.
      */
-    public synchronized boolean isRunning() {
+    public boolean isRunning() {
         return _running;
     }
 
@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) 2026 Deutsches Elektronen-Synchroton,
+ * Member of the Helmholtz Association, (DESY), HAMBURG, GERMANY
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Library General Public License as
+ * published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this program (see the file COPYING.LIB for more
+ * details); if not, write to the Free Software Foundation, Inc.,
+ * 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package org.dcache.nfs.v4;
+
+import java.io.IOException;
+import java.util.EnumSet;
+
+import org.dcache.nfs.nfsstat;
+import org.dcache.nfs.status.InvalException;
+import org.dcache.nfs.status.IsDirException;
+import org.dcache.nfs.status.OpenModeException;
+import org.dcache.nfs.v4.xdr.CLONE4res;
+import org.dcache.nfs.v4.xdr.nfs4_prot;
+import org.dcache.nfs.v4.xdr.nfs_argop4;
+import org.dcache.nfs.v4.xdr.nfs_opnum4;
+import org.dcache.nfs.v4.xdr.nfs_resop4;
+import org.dcache.nfs.v4.xdr.stateid4;
+import org.dcache.nfs.vfs.Inode;
+import org.dcache.nfs.vfs.Stat;
+import org.dcache.nfs.vfs.VirtualFileSystem;
+
+/**
+ * NFSv4.2 CLONE operation as specified in rfc7862#section-15.13. Shares a byte range of the source file (saved
+ * filehandle) with the destination file (current filehandle) without copying the data.
+ */
+public class OperationCLONE extends AbstractNFSv4Operation {
+
+    public OperationCLONE(nfs_argop4 args) {
+        super(args, nfs_opnum4.OP_CLONE);
+    }
+
+    @Override
+    public void process(CompoundContext context, nfs_resop4 result) throws IOException {
+        final CLONE4res res = result.opclone;
+
+        VirtualFileSystem fs = context.getFs();
+        Inode srcInode = context.savedInode();
+        Inode dstInode = context.currentInode();
+
+        long srcOff = _args.opclone.cl_src_offset.value;
+        long dstOff = _args.opclone.cl_dst_offset.value;
+        long len = _args.opclone.cl_count.value;
+
+        _args.opclone.cl_src_offset.checkOverflow(len, "source offset + length overflow");
+        _args.opclone.cl_dst_offset.checkOverflow(len, "destination offset + length overflow");
+
+        Stat srcStat = fs.getattr(srcInode, EnumSet.of(Stat.StatAttribute.MODE, Stat.StatAttribute.SIZE));
+        checkRegularFile(srcStat);
+        checkRegularFile(fs.getattr(dstInode, Stat.STAT_ATTRIBUTES_TYPE_ONLY));
+
+        long srcSize = srcStat.getSize();
+        if (Long.compareUnsigned(srcOff, srcSize) > 0
+                || (len != 0 && Long.compareUnsigned(srcOff + len, srcSize) > 0)) {
+            throw new InvalException("source range beyond end of file");
+        }
+
+        if (srcInode.equals(dstInode)) {
+            long count = len == 0 ? srcSize - srcOff : len;
+            if (srcOff < dstOff + count && dstOff < srcOff + count) {
+                throw new InvalException("source and destination ranges overlap");
+            }
+        }
+
+        NFS4Client client = context.getSession().getClient();
+
+        stateid4 srcStateid = _args.opclone.cl_src_stateid;
+        stateid4 dstStateid = Stateids.getCurrentStateidIfNeeded(context, _args.opclone.cl_dst_stateid);
+
+        FileTracker fileTracker = context.getStateHandler().getFileTracker();
+        if ((fileTracker.getShareAccess(client, srcInode, srcStateid) & nfs4_prot.OPEN4_SHARE_ACCESS_READ) == 0) {
+            throw new OpenModeException("Invalid source inode open mode (required read)");
+        }
+
+        if ((fileTracker.getShareAccess(client, dstInode, dstStateid) & nfs4_prot.OPEN4_SHARE_ACCESS_WRITE) == 0) {
+            throw new OpenModeException("Invalid destination inode open mode (required write)");
+        }
+
+        fs.cloneRange(srcInode, srcOff, dstInode, dstOff, len);
+        res.cl_status = nfsstat.NFS_OK;
+    }
+
+    private static void checkRegularFile(Stat stat) throws IOException {
+        Stat.Type statType = stat.type();
+        if (statType == Stat.Type.DIRECTORY) {
+            throw new IsDirException();
+        }
+
+        if (statType != Stat.Type.REGULAR) {
+            throw new InvalException("not a regular file");
+        }
+    }
+}
@@ -32,12 +32,10 @@ import org.dcache.nfs.v4.xdr.copy_requirements4;
 import org.dcache.nfs.v4.xdr.length4;
 import org.dcache.nfs.v4.xdr.nfs4_prot;
 import org.dcache.nfs.v4.xdr.nfs_argop4;
-import org.dcache.nfs.v4.xdr.nfs_fh4;
 import org.dcache.nfs.v4.xdr.nfs_opnum4;
 import org.dcache.nfs.v4.xdr.nfs_resop4;
 import org.dcache.nfs.v4.xdr.stable_how4;
 import org.dcache.nfs.v4.xdr.stateid4;
-import org.dcache.nfs.v4.xdr.verifier4;
 import org.dcache.nfs.v4.xdr.write_response4;
 import org.dcache.nfs.vfs.Inode;
 import org.slf4j.Logger;
@@ -75,9 +73,9 @@ public class OperationCOPY extends AbstractNFSv4Operation {
         long dstPos = _args.opcopy.ca_dst_offset.value;
         long len = _args.opcopy.ca_count.value;
 
-        // Only consecutive copy is supported. Synchronous copy is allowed if the byte count is smaller than max IO
-        // size.
-        if (!_args.opcopy.ca_consecutive || (_args.opcopy.ca_synchronous && len > NFSv4Defaults.NFS4_MAXIOBUFFERSIZE)) {
+        // Data is always copied consecutively, which satisfies non-consecutive requests as well. Synchronous copy is
+        // allowed if the byte count is smaller than max IO size, larger copies are offloaded to not block the request.
+        if (_args.opcopy.ca_synchronous && len > NFSv4Defaults.NFS4_MAXIOBUFFERSIZE) {
             res.cr_requirements = new copy_requirements4();
             res.cr_requirements.cr_consecutive = true;
             res.cr_requirements.cr_synchronous = true;
@@ -109,8 +107,9 @@ public class OperationCOPY extends AbstractNFSv4Operation {
         res.cr_resok4.cr_response.wr_writeverf = context.getRebootVerifier();
         res.cr_status = nfsstat.NFS_OK;
 
-        CompletableFuture<Long> copyFuture = context.getFs().copyFileRange(srcInode, srcPos, dstInode, dstPos, len);
         if (_args.opcopy.ca_synchronous) {
+            CompletableFuture<Long> copyFuture = context.getFs().copyFileRange(srcInode, srcPos, dstInode, dstPos,
+                    len);
             long bytes = 0L;
             try {
                 bytes = copyFuture.get();
@@ -125,7 +124,9 @@ public class OperationCOPY extends AbstractNFSv4Operation {
             res.cr_resok4.cr_response.wr_count = new length4(bytes);
             res.cr_resok4.cr_response.wr_callback_id = new stateid4[] {};
         } else {
-            var copyState = notifyWhenComplete(client, dstInode, context.getRebootVerifier(), copyFuture);
+            var copyState = context.getStateHandler().getCopyOffloadManager()
+                    .submit(client, srcState, context.getFs(), srcInode, srcPos, dstInode, dstPos, len,
+                            context.getRebootVerifier());
             res.cr_resok4.cr_response.wr_callback_id = new stateid4[] {copyState};
             res.cr_resok4.cr_response.wr_count = new length4(0);
         }
@@ -135,40 +136,4 @@ public class OperationCOPY extends AbstractNFSv4Operation {
         res.cr_resok4.cr_requirements.cr_consecutive = true;
         res.cr_resok4.cr_requirements.cr_synchronous = _args.opcopy.ca_synchronous;
     }
-
-    private stateid4 notifyWhenComplete(NFS4Client client, Inode dstInode, verifier4 verifier,
-            CompletableFuture<Long> copyFuture) throws ChimeraNFSException {
-        var openState = client.state(_args.opcopy.ca_src_stateid);
-        var copyState = client.createServerSideCopyState(openState.getStateOwner(), openState).stateid();
-
-        copyFuture.handle((n, t) -> {
-
-            var cr_response = new write_response4();
-            cr_response.wr_callback_id = new stateid4[] {};
-            cr_response.wr_committed = stable_how4.FILE_SYNC4;
-            cr_response.wr_count = new length4(n);
-            cr_response.wr_writeverf = verifier;
-
-            try {
-                client.getCB().cbOffload(new nfs_fh4(dstInode.toNfsHandle()), copyState, cr_response, toNfsState(t));
-            } catch (IOException ex) {
-                LOGGER.warn("Failed to notify client about copy-offload completion: {}", ex.getMessage());
-            }
-
-            return null;
-        });
-
-        return copyState;
-    }
-
-    private int toNfsState(Throwable t) {
-
-        if (t == null) {
-            return nfsstat.NFS_OK;
-        }
-
-        // FIXME: we need some mapping between 'well known' exceptions and nfs error states.
-        LOGGER.warn("Copy-offload failed with exception: {}", Throwables.getRootCause(t).toString());
-        return nfsstat.NFSERR_IO;
-    }
 }
@@ -39,6 +39,7 @@ import org.dcache.nfs.v4.xdr.nfs_argop4;
 import org.dcache.nfs.v4.xdr.nfs_ftype4;
 import org.dcache.nfs.v4.xdr.nfs_opnum4;
 import org.dcache.nfs.v4.xdr.nfs_resop4;
+import org.dcache.nfs.v4.xdr.notify_type4;
 import org.dcache.nfs.vfs.Inode;
 import org.dcache.nfs.vfs.Stat;
 import org.dcache.oncrpc4j.rpc.OncRpcException;
@@ -79,6 +80,10 @@ public class OperationCREATE extends AbstractNFSv4Operation {
             appliedAttribytes.set(nfs4_prot.FATTR4_MODE);
         }
 
+        DirDelegationTracker dirDelegations = context.getStateHandler().getDirDelegationTracker();
+        NFS4Client client = context.getSession() == null ? null : context.getSession().getClient();
+        dirDelegations.recallConflicting(client, context.currentInode(), notify_type4.NOTIFY4_ADD_ENTRY);
+
         switch (type) {
 
             case nfs_ftype4.NF4DIR:
@@ -115,6 +120,7 @@ public class OperationCREATE extends AbstractNFSv4Operation {
             default:
                 throw new BadTypeException("bad file type: " + type);
         }
+        dirDelegations.notifyAdd(client, context.currentInode(), name);
 
         res.status = nfsstat.NFS_OK;
         res.resok4 = new CREATE4resok();
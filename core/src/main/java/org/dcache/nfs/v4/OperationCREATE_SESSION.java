@@ -104,7 +104,9 @@ public class OperationCREATE_SESSION extends AbstractNFSv4Operation {
                         _args.opcreate_session.csa_back_chan_attrs.ca_maxrequests.value),
                 Math.min(NFSv4Defaults.NFS4_MAX_OPS, _args.opcreate_session.csa_fore_chan_attrs.ca_maxoperations.value),
                 Math.min(NFSv4Defaults.NFS4_MAX_OPS,
-                        _args.opcreate_session.csa_back_chan_attrs.ca_maxoperations.value));
+                        _args.opcreate_session.csa_back_chan_attrs.ca_maxoperations.value),
+                (int) Math.min(NFSv4Defaults.NFS4_MAX_RESPONSE_SIZE_CACHED, Integer.toUnsignedLong(
+                        _args.opcreate_session.csa_fore_chan_attrs.ca_maxresponsesize_cached.value)));
         _log.debug("adding new session [{}]", session);
 
         /*
@@ -149,7 +151,9 @@ public class OperationCREATE_SESSION extends AbstractNFSv4Operation {
 
         res.csr_resok4.csr_fore_chan_attrs = _args.opcreate_session.csa_fore_chan_attrs;
         res.csr_resok4.csr_fore_chan_attrs.ca_maxoperations = new count4(session.getMaxOps());
-        res.csr_resok4.csr_fore_chan_attrs.ca_maxrequests = new count4(session.getHighestSlot() + 1);
+        res.csr_resok4.csr_fore_chan_attrs.ca_maxrequests = new count4(session.getMaxSlot() + 1);
+        res.csr_resok4.csr_fore_chan_attrs.ca_maxresponsesize_cached =
+                new count4(session.getMaxResponseSizeCached());
 
         res.csr_resok4.csr_back_chan_attrs = _args.opcreate_session.csa_back_chan_attrs;
         res.csr_resok4.csr_back_chan_attrs.ca_maxoperations = new count4(session.getMaxCbOps());
@@ -49,7 +49,11 @@ public class OperationDELEGRETURN extends AbstractNFSv4Operation {
             client = context.getStateHandler().getClientIdByStateId(stateid);
         }
 
-        context.getStateHandler().getFileTracker().delegationReturn(client, stateid, inode);
+        if (Stateids.isDirDelegationStateid(stateid)) {
+            context.getStateHandler().getDirDelegationTracker().delegationReturn(client, stateid, inode);
+        } else {
+            context.getStateHandler().getFileTracker().delegationReturn(client, stateid, inode);
+        }
         result.opdelegreturn.status = nfsstat.NFS_OK;
     }
 }
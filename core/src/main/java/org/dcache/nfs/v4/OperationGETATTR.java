@@ -35,7 +35,6 @@ import org.dcache.nfs.status.AccessException;
 import org.dcache.nfs.status.InvalException;
 import org.dcache.nfs.v4.xdr.GETATTR4res;
 import org.dcache.nfs.v4.xdr.GETATTR4resok;
-import org.dcache.nfs.v4.xdr.attrlist4;
 import org.dcache.nfs.v4.xdr.bitmap4;
 import org.dcache.nfs.v4.xdr.fattr4;
 import org.dcache.nfs.v4.xdr.fattr4_acl;
@@ -98,14 +97,13 @@ import org.dcache.nfs.v4.xdr.nfstime4;
 import org.dcache.nfs.v4.xdr.specdata4;
 import org.dcache.nfs.v4.xdr.uint64_t;
 import org.dcache.nfs.v4.xdr.utf8str_mixed;
+import org.dcache.nfs.v4.xdr.utf8string;
 import org.dcache.nfs.vfs.FsStat;
 import org.dcache.nfs.vfs.Inode;
 import org.dcache.nfs.vfs.Stat;
 import org.dcache.nfs.vfs.Stat.StatAttribute;
 import org.dcache.nfs.vfs.VirtualFileSystem;
 import org.dcache.oncrpc4j.rpc.OncRpcException;
-import org.dcache.oncrpc4j.util.Opaque;
-import org.dcache.oncrpc4j.xdr.Xdr;
 import org.dcache.oncrpc4j.xdr.XdrAble;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -123,10 +121,19 @@ public class OperationGETATTR extends AbstractNFSv4Operation {
 
         final GETATTR4res res = result.opgetattr;
 
+        bitmap4 attrRequest = _args.opgetattr.attr_request;
+        Inode inode = context.currentInode();
+        Stat stat = context.getFs().getattr(inode);
+
+        // a client holding a write delegation might have cached modifications of the file
+        if (context.getStateHandler() != null
+                && (attrRequest.isSet(nfs4_prot.FATTR4_SIZE) || attrRequest.isSet(nfs4_prot.FATTR4_CHANGE))) {
+            NFS4Client client = context.getSession() == null ? null : context.getSession().getClient();
+            stat = context.getStateHandler().getFileTracker().getDelegatedAttributes(client, inode, stat);
+        }
+
         res.resok4 = new GETATTR4resok();
-        res.resok4.obj_attributes = getAttributes(_args.opgetattr.attr_request,
-                context.getFs(),
-                context.currentInode(), context);
+        res.resok4.obj_attributes = getAttributes(attrRequest, context.getFs(), inode, stat, context);
 
         res.status = nfsstat.NFS_OK;
 
@@ -134,37 +141,16 @@ public class OperationGETATTR extends AbstractNFSv4Operation {
 
     static fattr4 getAttributes(bitmap4 bitmap, VirtualFileSystem fs, Inode inode, Stat stat, CompoundContext context)
             throws IOException, OncRpcException {
+        return getAttributes(bitmap, inode, stat, context, new AttributeEvaluationContext(fs));
+    }
 
-        /*
-         * bitmap we send back. can't be uninitialized.
-         */
-        bitmap4 processedAttributes = new bitmap4(new int[0]);
-
-        Opaque retBytes;
-        try (Xdr xdr = new Xdr(1024)) {
-            xdr.beginEncoding();
-
-            for (int i : bitmap) {
-                Optional<XdrAble> optionalAttr = (Optional<XdrAble>) fattr2xdr(i, fs, inode, stat, context);
-                if (optionalAttr.isPresent()) {
-                    XdrAble attr = optionalAttr.get();
-                    _log.debug("   getAttributes : {} ({}) OK.", i, attrMask2String(i));
-                    attr.xdrEncode(xdr);
-                    processedAttributes.set(i);
-                } else {
-                    _log.debug("   getAttributes : {} ({}) NOT SUPPORTED.", i, attrMask2String(i));
-                }
-            }
-
-            xdr.endEncoding();
-            retBytes = xdr.toOpaque();
-        }
-
-        fattr4 attributes = new fattr4();
-        attributes.attrmask = processedAttributes;
-        attributes.attr_vals = new attrlist4(retBytes);
-
-        return attributes;
+    /**
+     * Encode the requested attributes of the given inode. The values which are not specific to the inode are taken
+     * from {@code attrContext}, which allows to share them between multiple calls, e.g. by READDIR.
+     */
+    static fattr4 getAttributes(bitmap4 bitmap, Inode inode, Stat stat, CompoundContext context,
+            AttributeEvaluationContext attrContext) throws IOException, OncRpcException {
+        return AttributeEncoder.encode(bitmap, inode, stat, context, attrContext);
     }
 
     static fattr4 getAttributes(bitmap4 bitmap, VirtualFileSystem fs, Inode inode, CompoundContext context)
@@ -172,13 +158,6 @@ public class OperationGETATTR extends AbstractNFSv4Operation {
         return getAttributes(bitmap, fs, inode, context.getFs().getattr(inode), context);
     }
 
-    private static FsStat getFsStat(FsStat fsStat, VirtualFileSystem fs) throws IOException {
-        if (fsStat != null) {
-            return fsStat;
-        }
-        return fs.getFsStat();
-    }
-
     /**
      * get inodes requested attribute and converted into RPC xdr format operates with READ and R/W attributes
      *
@@ -191,8 +170,14 @@ public class OperationGETATTR extends AbstractNFSv4Operation {
     // read/read-write
     static Optional<? extends XdrAble> fattr2xdr(int fattr, VirtualFileSystem fs, Inode inode, Stat stat,
             CompoundContext context) throws IOException {
+        return fattr2xdr(fattr, inode, stat, context, new AttributeEvaluationContext(fs));
+    }
+
+    static Optional<? extends XdrAble> fattr2xdr(int fattr, Inode inode, Stat stat, CompoundContext context,
+            AttributeEvaluationContext attrContext) throws IOException {
 
-        FsStat fsStat = null;
+        VirtualFileSystem fs = attrContext.getFs();
+        FsStat fsStat;
 
         switch (fattr) {
 
@@ -252,7 +237,7 @@ public class OperationGETATTR extends AbstractNFSv4Operation {
                 fh.value = inode.toNfsHandle();
                 return Optional.of(new fattr4_filehandle(fh));
             case nfs4_prot.FATTR4_ACL:
-                nfsace4[] aces = context.getFs().getAcl(inode);
+                nfsace4[] aces = attrContext.getAcl(inode);
                 return Optional.of(new fattr4_acl(aces));
             case nfs4_prot.FATTR4_ACLSUPPORT:
                 fattr4_aclsupport aclSupport = new fattr4_aclsupport(
@@ -276,15 +261,15 @@ public class OperationGETATTR extends AbstractNFSv4Operation {
                     return Optional.empty();
                 }
             case nfs4_prot.FATTR4_FILES_AVAIL:
-                fsStat = getFsStat(fsStat, fs);
+                fsStat = attrContext.getFsStat();
                 fattr4_files_avail files_avail = new fattr4_files_avail(fsStat.getTotalFiles() - fsStat.getUsedFiles());
                 return Optional.of(files_avail);
             case nfs4_prot.FATTR4_FILES_FREE:
-                fsStat = getFsStat(fsStat, fs);
+                fsStat = attrContext.getFsStat();
                 fattr4_files_free files_free = new fattr4_files_free(fsStat.getTotalFiles() - fsStat.getUsedFiles());
                 return Optional.of(files_free);
             case nfs4_prot.FATTR4_FILES_TOTAL:
-                fsStat = getFsStat(fsStat, fs);
+                fsStat = attrContext.getFsStat();
                 return Optional.of(new fattr4_files_total(fsStat.getTotalFiles()));
             case nfs4_prot.FATTR4_FS_LOCATIONS:
                 return Optional.empty();
@@ -313,12 +298,10 @@ public class OperationGETATTR extends AbstractNFSv4Operation {
             case nfs4_prot.FATTR4_NUMLINKS:
                 return Optional.of(new fattr4_numlinks(stat.getNlink()));
             case nfs4_prot.FATTR4_OWNER:
-                String owner_s = context.getFs().getIdMapper().uidToPrincipal(stat.getUid());
-                utf8str_mixed user = new utf8str_mixed(owner_s);
+                utf8str_mixed user = new utf8str_mixed(new utf8string(attrContext.uidToPrincipal(stat.getUid())));
                 return Optional.of(new fattr4_owner(user));
             case nfs4_prot.FATTR4_OWNER_GROUP:
-                String group_s = context.getFs().getIdMapper().gidToPrincipal(stat.getGid());
-                utf8str_mixed group = new utf8str_mixed(group_s);
+                utf8str_mixed group = new utf8str_mixed(new utf8string(attrContext.gidToPrincipal(stat.getGid())));
                 return Optional.of(new fattr4_owner(group));
             case nfs4_prot.FATTR4_QUOTA_AVAIL_HARD:
                 return Optional.empty();
@@ -332,15 +315,15 @@ public class OperationGETATTR extends AbstractNFSv4Operation {
                 dev.specdata2 = 0;
                 return Optional.of(new fattr4_rawdev(dev));
             case nfs4_prot.FATTR4_SPACE_AVAIL:
-                fsStat = getFsStat(fsStat, fs);
+                fsStat = attrContext.getFsStat();
                 fattr4_space_avail spaceAvail = new fattr4_space_avail(fsStat.getTotalSpace() - fsStat.getUsedSpace());
                 return Optional.of(spaceAvail);
             case nfs4_prot.FATTR4_SPACE_FREE:
-                fsStat = getFsStat(fsStat, fs);
+                fsStat = attrContext.getFsStat();
                 fattr4_space_free space_free = new fattr4_space_free(fsStat.getTotalSpace() - fsStat.getUsedSpace());
                 return Optional.of(space_free);
             case nfs4_prot.FATTR4_SPACE_TOTAL:
-                fsStat = getFsStat(fsStat, fs);
+                fsStat = attrContext.getFsStat();
                 return Optional.of(new fattr4_space_total(fsStat.getTotalSpace()));
             case nfs4_prot.FATTR4_SPACE_USED:
                 return Optional.of(new fattr4_space_used(stat.getSize()));
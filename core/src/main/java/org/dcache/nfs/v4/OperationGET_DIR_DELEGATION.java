@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) 2026 Deutsches Elektronen-Synchroton,
+ * Member of the Helmholtz Association, (DESY), HAMBURG, GERMANY
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Library General Public License as
+ * published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this program (see the file COPYING.LIB for more
+ * details); if not, write to the Free Software Foundation, Inc.,
+ * 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package org.dcache.nfs.v4;
+
+import java.io.IOException;
+
+import org.dcache.nfs.ChimeraNFSException;
+import org.dcache.nfs.nfsstat;
+import org.dcache.nfs.status.NotDirException;
+import org.dcache.nfs.v4.xdr.GET_DIR_DELEGATION4res;
+import org.dcache.nfs.v4.xdr.GET_DIR_DELEGATION4res_non_fatal;
+import org.dcache.nfs.v4.xdr.GET_DIR_DELEGATION4resok;
+import org.dcache.nfs.v4.xdr.bitmap4;
+import org.dcache.nfs.v4.xdr.gddrnf4_status;
+import org.dcache.nfs.v4.xdr.nfs_argop4;
+import org.dcache.nfs.v4.xdr.nfs_opnum4;
+import org.dcache.nfs.v4.xdr.nfs_resop4;
+import org.dcache.nfs.v4.xdr.stateid4;
+import org.dcache.nfs.v4.xdr.verifier4;
+import org.dcache.nfs.vfs.DirectoryStream;
+import org.dcache.nfs.vfs.Inode;
+import org.dcache.nfs.vfs.Stat;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class OperationGET_DIR_DELEGATION extends AbstractNFSv4Operation {
+
+    private static final Logger _log = LoggerFactory.getLogger(OperationGET_DIR_DELEGATION.class);
+
+    public OperationGET_DIR_DELEGATION(nfs_argop4 args) {
+        super(args, nfs_opnum4.OP_GET_DIR_DELEGATION);
+    }
+
+    @Override
+    public void process(CompoundContext context, nfs_resop4 result) throws ChimeraNFSException, IOException {
+
+        final GET_DIR_DELEGATION4res res = result.opget_dir_delegation;
+
+        Inode dir = context.currentInode();
+        Stat stat = context.getFs().getattr(dir, Stat.STAT_ATTRIBUTES_TYPE_ONLY);
+        if (stat.type() != Stat.Type.DIRECTORY) {
+            throw new NotDirException();
+        }
+
+        NFS4Client client = context.getSession().getClient();
+
+        res.gddr_status = nfsstat.NFS_OK;
+        res.gddr_res_non_fatal4 = new GET_DIR_DELEGATION4res_non_fatal();
+        // we never signal delegation availability
+        res.gddr_res_non_fatal4.gddrnf_will_signal_deleg_avail = false;
+
+        stateid4 stateid = null;
+        int notifications = DirDelegationTracker.supportedNotifications(
+                _args.opget_dir_delegation.gdda_notification_types);
+        if (client.getCB() != null) {
+            stateid = context.getStateHandler().getDirDelegationTracker().delegate(client, dir, notifications);
+        }
+
+        if (stateid == null) {
+            _log.debug("Directory delegation of {} is not available for {}", dir, client);
+            res.gddr_res_non_fatal4.gddrnf_status = gddrnf4_status.GDD4_UNAVAIL;
+            return;
+        }
+
+        res.gddr_res_non_fatal4.gddrnf_status = gddrnf4_status.GDD4_OK;
+        res.gddr_res_non_fatal4.gddrnf_resok4 = new GET_DIR_DELEGATION4resok();
+        res.gddr_res_non_fatal4.gddrnf_resok4.gddr_cookieverf = new verifier4(DirectoryStream.ZERO_VERIFIER);
+        res.gddr_res_non_fatal4.gddrnf_resok4.gddr_stateid = stateid;
+        res.gddr_res_non_fatal4.gddrnf_resok4.gddr_notification = new bitmap4(new int[] {notifications});
+        // attribute change notifications are not supported
+        res.gddr_res_non_fatal4.gddrnf_resok4.gddr_child_attributes = new bitmap4(new int[0]);
+        res.gddr_res_non_fatal4.gddrnf_resok4.gddr_dir_attributes = new bitmap4(new int[0]);
+    }
+}
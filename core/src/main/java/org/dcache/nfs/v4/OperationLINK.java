@@ -31,6 +31,7 @@ import org.dcache.nfs.v4.xdr.changeid4;
 import org.dcache.nfs.v4.xdr.nfs_argop4;
 import org.dcache.nfs.v4.xdr.nfs_opnum4;
 import org.dcache.nfs.v4.xdr.nfs_resop4;
+import org.dcache.nfs.v4.xdr.notify_type4;
 import org.dcache.nfs.vfs.Inode;
 import org.dcache.nfs.vfs.Stat;
 import org.slf4j.Logger;
@@ -65,9 +66,14 @@ public class OperationLINK extends AbstractNFSv4Operation {
             throw new NotDirException("Can't create a hard-link in non directory object");
         }
 
+        DirDelegationTracker dirDelegations = context.getStateHandler().getDirDelegationTracker();
+        NFS4Client client = context.getSession() == null ? null : context.getSession().getClient();
+        dirDelegations.recallConflicting(client, parent, notify_type4.NOTIFY4_ADD_ENTRY);
+
         result.oplink.resok4.cinfo.before = new changeid4(parentDirStat.getGeneration());
         context.getFs().link(context.currentInode(), context.savedInode(), newName,
                 context.getSubject());
+        dirDelegations.notifyAdd(client, parent, newName);
 
         result.oplink.resok4.cinfo.after = new changeid4(context.getFs().getattr(parent).getGeneration());
 
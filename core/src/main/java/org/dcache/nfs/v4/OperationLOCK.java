@@ -122,10 +122,21 @@ public class OperationLOCK extends AbstractNFSv4Operation {
                     _args.oplock.length.value);
             Opaque lockKey = inode.getLockKey();
             LockManager lm = context.getLm();
-            lm.lock(lockKey, lock);
+            LockWaitQueue lockWaitQueue = context.getStateHandler().getLockWaitQueue();
+
+            try {
+                // the range might be reserved for a client notified about released lock
+                lockWaitQueue.lock(lm, lockKey, lock);
+            } catch (LockDeniedException e) {
+                if (isBlocking(_args.oplock.locktype) && context.getMinorversion() > 0 && client.getCB() != null) {
+                    lockWaitQueue.await(client, inode, lock);
+                }
+                throw e;
+            }
+            lockWaitQueue.granted(lockKey, lockOwner);
 
             // ensure, that on close locks will be released
-            lock_state.addDisposeListener(s -> lm.unlockIfExists(lockKey, lock));
+            lock_state.addDisposeListener(s -> lockWaitQueue.unlockIfExists(lm, lockKey, lock));
 
             // FIXME: we might run into race condition, thus updating sedid must be fenced!
             lock_state.bumpSeqid();
@@ -147,4 +158,8 @@ public class OperationLOCK extends AbstractNFSv4Operation {
         }
     }
 
+    private static boolean isBlocking(int lockType) {
+        return lockType == nfs_lock_type4.READW_LT || lockType == nfs_lock_type4.WRITEW_LT;
+    }
+
 }
@@ -76,7 +76,7 @@ public class OperationLOCKU extends AbstractNFSv4Operation {
             NlmLock lock = new NlmLock(lockOwner, _args.oplocku.locktype, _args.oplocku.offset.value,
                     _args.oplocku.length.value);
             try {
-                context.getLm().unlock(inode.getLockKey(), lock);
+                context.getStateHandler().getLockWaitQueue().unlock(context.getLm(), inode.getLockKey(), lock);
             } catch (LockRangeUnavailabeException e) {
                 // posix locks allows unlocking of not locked regions
             }
@@ -0,0 +1,45 @@
+/*
+ * Copyright (c) 2026 Deutsches Elektronen-Synchroton,
+ * Member of the Helmholtz Association, (DESY), HAMBURG, GERMANY
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Library General Public License as
+ * published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this program (see the file COPYING.LIB for more
+ * details); if not, write to the Free Software Foundation, Inc.,
+ * 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package org.dcache.nfs.v4;
+
+/**
+ * A listener which is notified about every NFSv4 operation processed by {@link AbstractOperationExecutor}.
+ * <p>
+ * The listener is called on the request processing path, thus implementations must be thread-safe and must not
+ * block.
+ */
+@FunctionalInterface
+public interface OperationMetricsListener {
+
+    /**
+     * A listener which ignores all notifications.
+     */
+    OperationMetricsListener NOP = (opnum, status, elapsedNanos) -> {
+    };
+
+    /**
+     * Called when an operation is processed.
+     *
+     * @param opnum the operation number, as defined by {@link org.dcache.nfs.v4.xdr.nfs_opnum4}.
+     * @param status the status of the operation, as defined by {@link org.dcache.nfs.nfsstat}.
+     * @param elapsedNanos the time spent to process the operation in nanoseconds.
+     */
+    void onOperation(int opnum, int status, long elapsedNanos);
+}
@@ -20,6 +20,7 @@
 package org.dcache.nfs.v4;
 
 import java.io.IOException;
+import java.util.EnumSet;
 import java.util.Optional;
 
 import org.dcache.nfs.ChimeraNFSException;
@@ -43,20 +44,25 @@ import org.dcache.nfs.v4.xdr.change_info4;
 import org.dcache.nfs.v4.xdr.changeid4;
 import org.dcache.nfs.v4.xdr.createmode4;
 import org.dcache.nfs.v4.xdr.fattr4_size;
+import org.dcache.nfs.v4.xdr.limit_by4;
 import org.dcache.nfs.v4.xdr.mode4;
 import org.dcache.nfs.v4.xdr.nfs4_prot;
 import org.dcache.nfs.v4.xdr.nfs_argop4;
 import org.dcache.nfs.v4.xdr.nfs_opnum4;
 import org.dcache.nfs.v4.xdr.nfs_resop4;
+import org.dcache.nfs.v4.xdr.nfs_space_limit4;
 import org.dcache.nfs.v4.xdr.nfsace4;
+import org.dcache.nfs.v4.xdr.notify_type4;
 import org.dcache.nfs.v4.xdr.open_claim_type4;
 import org.dcache.nfs.v4.xdr.open_delegation4;
 import org.dcache.nfs.v4.xdr.open_delegation_type4;
 import org.dcache.nfs.v4.xdr.open_none_delegation4;
 import org.dcache.nfs.v4.xdr.open_read_delegation4;
+import org.dcache.nfs.v4.xdr.open_write_delegation4;
 import org.dcache.nfs.v4.xdr.opentype4;
 import org.dcache.nfs.v4.xdr.stateid4;
 import org.dcache.nfs.v4.xdr.uint32_t;
+import org.dcache.nfs.v4.xdr.uint64_t;
 import org.dcache.nfs.v4.xdr.utf8str_mixed;
 import org.dcache.nfs.v4.xdr.why_no_delegation4;
 import org.dcache.nfs.vfs.Inode;
@@ -158,9 +164,13 @@ public class OperationOPEN extends AbstractNFSv4Operation {
                             mode = createMode.get().value;
                         }
 
+                        DirDelegationTracker dirDelegations = context.getStateHandler().getDirDelegationTracker();
+                        dirDelegations.recallConflicting(client, parent, notify_type4.NOTIFY4_ADD_ENTRY);
+
                         _log.debug("Creating a new file: {}", name);
                         inode = context.getFs().create(context.currentInode(), Stat.Type.REGULAR,
                                 name, context.getSubject(), mode);
+                        dirDelegations.notifyAdd(client, parent, name);
 
                         /*
                          * Tell client which attributes was applied.
@@ -261,7 +271,9 @@ public class OperationOPEN extends AbstractNFSv4Operation {
          * if it's v4.0, then client have to confirm
          */
         if (context.getMinorversion() > 0) {
-            res.resok4.rflags = new uint32_t(nfs4_prot.OPEN4_RESULT_LOCKTYPE_POSIX);
+            // blocking locks are notified with CB_NOTIFY_LOCK
+            res.resok4.rflags = new uint32_t(nfs4_prot.OPEN4_RESULT_LOCKTYPE_POSIX
+                    | nfs4_prot.OPEN4_RESULT_MAY_NOTIFY_LOCK);
         } else {
             res.resok4.rflags = new uint32_t(nfs4_prot.OPEN4_RESULT_LOCKTYPE_POSIX
                     | nfs4_prot.OPEN4_RESULT_CONFIRM);
@@ -273,16 +285,40 @@ public class OperationOPEN extends AbstractNFSv4Operation {
          *
          * THis is a perfectly a valid situation as at the end file is created and only one writer is allowed.
          */
+        Stat fileStat = null;
+        if ((_args.opopen.share_access.value & nfs4_prot.OPEN4_SHARE_ACCESS_WRITE) != 0
+                && (_args.opopen.share_access.value & nfs4_prot.OPEN4_SHARE_ACCESS_WANT_NO_DELEG) == 0
+                && client.getCB() != null) {
+            // the change attribute and size of a file delegated for writing are tracked from the grant time
+            fileStat = context.getFs().getattr(context.currentInode(),
+                    EnumSet.of(Stat.StatAttribute.SIZE, Stat.StatAttribute.GENERATION));
+        }
+
         var openRecord = context
                 .getStateHandler()
                 .getFileTracker()
                 .addOpen(client, owner, context.currentInode(),
                         _args.opopen.share_access.value,
-                        _args.opopen.share_deny.value);
+                        _args.opopen.share_deny.value,
+                        fileStat);
 
         context.currentStateid(openRecord.openStateId());
         res.resok4.stateid = openRecord.openStateId();
-        if (openRecord.hasDelegation()) {
+        if (openRecord.delegationType() == open_delegation_type4.OPEN_DELEGATE_WRITE) {
+            res.resok4.delegation.delegation_type = open_delegation_type4.OPEN_DELEGATE_WRITE;
+            res.resok4.delegation.write = new open_write_delegation4();
+            res.resok4.delegation.write.stateid = openRecord.delegationStateId();
+            res.resok4.delegation.write.recall = false;
+            res.resok4.delegation.write.space_limit = new nfs_space_limit4();
+            res.resok4.delegation.write.space_limit.limitby = limit_by4.NFS_LIMIT_SIZE;
+            res.resok4.delegation.write.space_limit.filesize = new uint64_t(nfs4_prot.NFS4_UINT64_MAX);
+            res.resok4.delegation.write.permissions = new nfsace4();
+            res.resok4.delegation.write.permissions.type = new acetype4(nfs4_prot.ACE4_ACCESS_ALLOWED_ACE_TYPE);
+            res.resok4.delegation.write.permissions.flag = new aceflag4(0);
+            res.resok4.delegation.write.permissions.access_mask = new acemask4(nfs4_prot.ACCESS4_READ
+                    | nfs4_prot.ACCESS4_MODIFY | nfs4_prot.ACCESS4_EXTEND);
+            res.resok4.delegation.write.permissions.who = new utf8str_mixed(context.getPrincipal().getName());
+        } else if (openRecord.hasDelegation()) {
             res.resok4.delegation.delegation_type = open_delegation_type4.OPEN_DELEGATE_READ;
             res.resok4.delegation.read = new open_read_delegation4();
             res.resok4.delegation.read.stateid = openRecord.delegationStateId();
@@ -34,6 +34,10 @@ import org.dcache.oncrpc4j.util.Opaque;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+/**
+ * NFSv4 READ operation. The file system reads the data into a buffer sized to the available data, which is owned by
+ * the reply and, if pooled, returned into the pool once the reply is encoded.
+ */
 public class OperationREAD extends AbstractNFSv4Operation {
 
     private static final Logger _log = LoggerFactory.getLogger(OperationREAD.class);
@@ -62,12 +66,20 @@ public class OperationREAD extends AbstractNFSv4Operation {
         }
 
         long offset = _args.opread.offset.value;
-        int count = _args.opread.count.value;
+        // the count is unsigned, and never more than advertised with maxread is returned. The file system sizes the
+        // reply buffer to the data available at offset.
+        int count = (int) Math.min(Integer.toUnsignedLong(_args.opread.count.value),
+                NFSv4Defaults.NFS4_MAXIOBUFFERSIZE);
 
         res.resok4 = new READ4resok();
         Opaque bytesRead = context.getFs().read(stateid, inode, offset, count, res.resok4::setEOF);
 
         if (bytesRead == null) {
+            bytesRead = Opaque.EMPTY_OPAQUE;
+        }
+
+        if (bytesRead.numBytes() == 0 && count > 0) {
+            // nothing to read at offset
             res.resok4.eof = true;
         }
 
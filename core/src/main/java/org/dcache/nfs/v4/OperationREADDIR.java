@@ -20,7 +20,11 @@
 package org.dcache.nfs.v4;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.EnumSet;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 
 import org.dcache.nfs.ChimeraNFSException;
 import org.dcache.nfs.nfsstat;
@@ -41,15 +45,18 @@ import org.dcache.nfs.v4.xdr.nfs_cookie4;
 import org.dcache.nfs.v4.xdr.nfs_opnum4;
 import org.dcache.nfs.v4.xdr.nfs_resop4;
 import org.dcache.nfs.v4.xdr.verifier4;
+import org.dcache.nfs.vfs.DirectoryEntries;
 import org.dcache.nfs.vfs.DirectoryEntry;
 import org.dcache.nfs.vfs.DirectoryStream;
 import org.dcache.nfs.vfs.Inode;
 import org.dcache.nfs.vfs.Stat;
+import org.dcache.nfs.vfs.Stat.StatAttribute;
 import org.dcache.oncrpc4j.rpc.OncRpcException;
 import org.dcache.oncrpc4j.util.Opaque;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.collect.Iterators;
 import com.google.common.primitives.Ints;
 
 public class OperationREADDIR extends AbstractNFSv4Operation {
@@ -72,6 +79,11 @@ public class OperationREADDIR extends AbstractNFSv4Operation {
      */
     private static final long COOKIE_OFFSET = 3;
 
+    /**
+     * Smallest possible entry size accounted against dircount. 1 (shortest name) + 4 (sizeof(long))
+     */
+    private static final int DIR_ENTRY_SIZE = 5;
+
     OperationREADDIR(nfs_argop4 args) {
         super(args, nfs_opnum4.OP_READDIR);
     }
@@ -84,7 +96,6 @@ public class OperationREADDIR extends AbstractNFSv4Operation {
 
         final Inode dir = context.currentInode();
 
-        DirectoryStream directoryStream;
         verifier4 verifier = _args.opreaddir.cookieverf;
         long startValue = _args.opreaddir.cookie.value;
 
@@ -105,91 +116,137 @@ public class OperationREADDIR extends AbstractNFSv4Operation {
             startValue -= COOKIE_OFFSET;
         }
 
-        directoryStream = context.getFs().list(dir, verifier.value, startValue);
-        Iterator<DirectoryEntry> dirList = directoryStream.iterator();
-        if (_args.opreaddir.maxcount.value < READDIR4RESOK_SIZE) {
-            throw new TooSmallException("maxcount too small");
-        }
+        bitmap4 attrRequest = _args.opreaddir.attr_request;
+        EnumSet<StatAttribute> statAttributes = AttributeEncoder.planOf(attrRequest).statAttributes();
+        try (DirectoryStream directoryStream = context.getFs().list(dir, verifier.value, startValue,
+                statAttributes)) {
 
-        res.status = nfsstat.NFS_OK;
-        res.resok4 = new READDIR4resok();
-        res.resok4.reply = new dirlist4();
-        res.resok4.reply.eof = true;
-        res.resok4.cookieverf = new verifier4(directoryStream.getVerifier());
+            // skip . and .. while nfsv4 do not care about them
+            Iterator<DirectoryEntry> dirList = Iterators.filter(directoryStream.iterator(),
+                    e -> !e.getName().equals(".") && !e.getName().equals(".."));
+            if (_args.opreaddir.maxcount.value < READDIR4RESOK_SIZE) {
+                throw new TooSmallException("maxcount too small");
+            }
 
-        int currcount = READDIR4RESOK_SIZE;
-        int dircount = 0;
-        entry4 lastEntry = null;
+            res.status = nfsstat.NFS_OK;
+            res.resok4 = new READDIR4resok();
+            res.resok4.reply = new dirlist4();
+            res.resok4.reply.eof = true;
+            res.resok4.cookieverf = new verifier4(directoryStream.getVerifier());
 
-        int fcount = 0;
-        while (dirList.hasNext()) {
+            int currcount = READDIR4RESOK_SIZE;
+            int dircount = 0;
+            entry4 lastEntry = null;
 
-            DirectoryEntry le = dirList.next();
-            String name = le.getName();
+            // each requested attribute takes at least one XDR unit
+            int entrySize = ENTRY4_SIZE + 4 * attributeCount(attrRequest);
 
-            // skip . and .. while nfsv4 do not care about them
-            if (name.equals(".")) {
-                continue;
-            }
-            if (name.equals("..")) {
-                continue;
-            }
+            int fcount = 0;
+            // shared by all entries of the reply
+            AttributeEvaluationContext attrContext = new AttributeEvaluationContext(context.getFs());
+            while (res.resok4.reply.eof && dirList.hasNext()) {
 
-            Inode ei = le.getInode();
-
-            entry4 currentEntry = new entry4();
-            currentEntry.name = new component4(name);
-            // shift all cookies by OFFSET, as 1 and 2 are reserved
-            currentEntry.cookie = new nfs_cookie4(le.getCookie() + COOKIE_OFFSET);
-
-            try {
-                currentEntry.attrs = OperationGETATTR.getAttributes(_args.opreaddir.attr_request, context.getFs(), ei,
-                        le.getStat(), context);
-            } catch (ChimeraNFSException e) {
-                /*
-                 * If the client is not interested in error per file, fail the complete request.
-                 *
-                 * @see: rfc7530#section-16.24.4
-                 */
-                if (!_args.opreaddir.attr_request.isSet(nfs4_prot.FATTR4_RDATTR_ERROR)) {
-                    throw e;
+                if (fcount > 0) {
+                    // size the next batch by the entries encoded so far
+                    entrySize = Math.max(ENTRY4_SIZE, (currcount - READDIR4RESOK_SIZE) / fcount);
                 }
-                currentEntry.attrs = generateReaddirErrorAttribute(e.getStatus());
-            }
 
-            // check if writing this entry exceeds the count limit
-            int newSize = ENTRY4_SIZE + name.length() + currentEntry.name.value.numBytes()
-                    + currentEntry.attrs.attr_vals.value.numBytes();
-            int newDirSize = name.length() + 4; // name + sizeof(long)
-            if ((currcount + newSize > _args.opreaddir.maxcount.value) || (dircount
-                    + newDirSize > _args.opreaddir.dircount.value)) {
-                if (lastEntry == null) {
-                    // corner case - means we didnt have enough space to
-                    // write even a single entry.
-                    throw new TooSmallException("can't send even a single entry");
+                // the upper bound of entries which fit into the rest of the reply
+                int batchSize = Math.min((_args.opreaddir.maxcount.value - currcount) / entrySize,
+                        (_args.opreaddir.dircount.value - dircount) / DIR_ENTRY_SIZE) + 1;
+                List<DirectoryEntry> batch = DirectoryEntries.nextBatch(dirList, batchSize);
+                Map<Inode, Stat> stats = fetchMissingStats(context, batch, statAttributes);
+
+                for (DirectoryEntry le : batch) {
+
+                    String name = le.getName();
+                    Inode ei = le.getInode();
+
+                    entry4 currentEntry = new entry4();
+                    currentEntry.name = new component4(name);
+                    // shift all cookies by OFFSET, as 1 and 2 are reserved
+                    currentEntry.cookie = new nfs_cookie4(le.getCookie() + COOKIE_OFFSET);
+
+                    try {
+                        Stat stat = DirectoryEntries.statOf(context.getFs(), le, stats, statAttributes);
+                        currentEntry.attrs = OperationGETATTR.getAttributes(attrRequest, ei, stat, context,
+                                attrContext);
+                    } catch (ChimeraNFSException e) {
+                        /*
+                         * If the client is not interested in error per file, fail the complete request.
+                         *
+                         * @see: rfc7530#section-16.24.4
+                         */
+                        if (!attrRequest.isSet(nfs4_prot.FATTR4_RDATTR_ERROR)) {
+                            throw e;
+                        }
+                        currentEntry.attrs = generateReaddirErrorAttribute(e.getStatus());
+                    }
+
+                    // check if writing this entry exceeds the count limit
+                    int newSize = ENTRY4_SIZE + name.length() + currentEntry.name.value.numBytes()
+                            + currentEntry.attrs.attr_vals.value.numBytes();
+                    int newDirSize = name.length() + 4; // name + sizeof(long)
+                    if ((currcount + newSize > _args.opreaddir.maxcount.value) || (dircount
+                            + newDirSize > _args.opreaddir.dircount.value)) {
+                        if (lastEntry == null) {
+                            // corner case - means we didnt have enough space to
+                            // write even a single entry.
+                            throw new TooSmallException("can't send even a single entry");
+                        }
+                        res.resok4.reply.eof = false;
+                        break;
+                    }
+                    fcount++;
+                    dircount += newDirSize;
+                    currcount += newSize;
+
+                    if (lastEntry == null) {
+                        res.resok4.reply.entries = currentEntry;
+                    } else {
+                        lastEntry.nextentry = currentEntry;
+                    }
+                    lastEntry = currentEntry;
                 }
-                res.resok4.reply.eof = false;
-                break;
             }
-            fcount++;
-            dircount += newDirSize;
-            currcount += newSize;
-
-            if (lastEntry == null) {
-                res.resok4.reply.entries = currentEntry;
-            } else {
-                lastEntry.nextentry = currentEntry;
+
+            _log.debug("Sending {} entries ({} bytes from {}, dircount = {}) cookie = {} EOF={}",
+                    fcount,
+                    currcount,
+                    _args.opreaddir.maxcount.value,
+                    _args.opreaddir.dircount.value,
+                    startValue,
+                    res.resok4.reply.eof);
+        } catch (UncheckedIOException e) {
+            // entries of a lazy listing are fetched while iterating
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Fetch attributes of the entries listed without attributes with a single call to the file system. If that
+     * fails and the client accepts per entry errors, the attributes are fetched entry by entry later on.
+     */
+    private Map<Inode, Stat> fetchMissingStats(CompoundContext context, List<DirectoryEntry> entries,
+            EnumSet<StatAttribute> statAttributes) throws IOException {
+        try {
+            return DirectoryEntries.fetchMissing(context.getFs(), entries, statAttributes);
+        } catch (ChimeraNFSException e) {
+            if (!_args.opreaddir.attr_request.isSet(nfs4_prot.FATTR4_RDATTR_ERROR)) {
+                throw e;
             }
-            lastEntry = currentEntry;
+            return Map.of();
         }
+    }
 
-        _log.debug("Sending {} entries ({} bytes from {}, dircount = {}) cookie = {} EOF={}",
-                fcount,
-                currcount,
-                _args.opreaddir.maxcount.value,
-                _args.opreaddir.dircount.value,
-                startValue,
-                res.resok4.reply.eof);
+    private static int attributeCount(bitmap4 bitmap) {
+        int count = 0;
+        if (bitmap.value != null) {
+            for (int mask : bitmap.value) {
+                count += Integer.bitCount(mask);
+            }
+        }
+        return count;
     }
 
     private fattr4 generateReaddirErrorAttribute(int status) {
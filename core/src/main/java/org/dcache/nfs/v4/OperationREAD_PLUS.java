@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2026 Deutsches Elektronen-Synchroton,
+ * Member of the Helmholtz Association, (DESY), HAMBURG, GERMANY
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Library General Public License as
+ * published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this program (see the file COPYING.LIB for more
+ * details); if not, write to the Free Software Foundation, Inc.,
+ * 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package org.dcache.nfs.v4;
+
+import java.io.IOException;
+import java.util.List;
+
+import org.dcache.nfs.nfsstat;
+import org.dcache.nfs.status.OpenModeException;
+import org.dcache.nfs.v4.xdr.READ_PLUS4res;
+import org.dcache.nfs.v4.xdr.data4;
+import org.dcache.nfs.v4.xdr.data_content4;
+import org.dcache.nfs.v4.xdr.data_info4;
+import org.dcache.nfs.v4.xdr.length4;
+import org.dcache.nfs.v4.xdr.nfs4_prot;
+import org.dcache.nfs.v4.xdr.nfs_argop4;
+import org.dcache.nfs.v4.xdr.nfs_opnum4;
+import org.dcache.nfs.v4.xdr.nfs_resop4;
+import org.dcache.nfs.v4.xdr.offset4;
+import org.dcache.nfs.v4.xdr.read_plus_content;
+import org.dcache.nfs.v4.xdr.read_plus_res4;
+import org.dcache.nfs.v4.xdr.stateid4;
+import org.dcache.nfs.vfs.DataSegment;
+
+/**
+ * NFSv4.2 READ_PLUS operation as specified in rfc7862#section-15.10. Unlike READ, the reply describes holes in sparse
+ * files by offset and length instead of transferring them as zero-filled data.
+ */
+public class OperationREAD_PLUS extends AbstractNFSv4Operation {
+
+    public OperationREAD_PLUS(nfs_argop4 args) {
+        super(args, nfs_opnum4.OP_READ_PLUS);
+    }
+
+    @Override
+    public void process(CompoundContext context, nfs_resop4 result) throws IOException {
+        final READ_PLUS4res res = result.opread_plus;
+
+        stateid4 stateid = Stateids.getCurrentStateidIfNeeded(context, _args.opread_plus.rpa_stateid);
+        NFS4Client client = context.getClient(stateid, true);
+
+        var inode = context.currentInode();
+        int shareAccess = context.getStateHandler().getFileTracker().getShareAccess(client, inode, stateid);
+        if ((shareAccess & nfs4_prot.OPEN4_SHARE_ACCESS_READ) == 0) {
+            throw new OpenModeException("Invalid open mode");
+        }
+
+        long offset = _args.opread_plus.rpa_offset.value;
+        int count = _args.opread_plus.rpa_count.value;
+
+        res.rp_resok4 = new read_plus_res4();
+        List<DataSegment> segments = context.getFs().readPlus(stateid, inode, offset, count,
+                res.rp_resok4::setEOF);
+
+        if (segments.isEmpty()) {
+            res.rp_resok4.rpr_eof = true;
+        }
+
+        res.rp_resok4.rpr_contents = new read_plus_content[segments.size()];
+        for (int i = 0; i < segments.size(); i++) {
+            res.rp_resok4.rpr_contents[i] = toReadPlusContent(segments.get(i));
+        }
+        res.rp_status = nfsstat.NFS_OK;
+    }
+
+    private static read_plus_content toReadPlusContent(DataSegment segment) {
+        read_plus_content content = new read_plus_content();
+        if (segment.isHole()) {
+            content.rpc_content = data_content4.NFS4_CONTENT_HOLE;
+            content.rpc_hole = new data_info4();
+            content.rpc_hole.di_offset = new offset4(segment.getOffset());
+            content.rpc_hole.di_length = new length4(segment.getLength());
+        } else {
+            content.rpc_content = data_content4.NFS4_CONTENT_DATA;
+            content.rpc_data = new data4();
+            content.rpc_data.d_offset = new offset4(segment.getOffset());
+            content.rpc_data.d_data = segment.getData();
+        }
+        return content;
+    }
+}
@@ -31,6 +31,7 @@ import org.dcache.nfs.v4.xdr.changeid4;
 import org.dcache.nfs.v4.xdr.nfs_argop4;
 import org.dcache.nfs.v4.xdr.nfs_opnum4;
 import org.dcache.nfs.v4.xdr.nfs_resop4;
+import org.dcache.nfs.v4.xdr.notify_type4;
 import org.dcache.nfs.vfs.Inode;
 import org.dcache.nfs.vfs.Stat;
 import org.slf4j.Logger;
@@ -64,8 +65,17 @@ public class OperationREMOVE extends AbstractNFSv4Operation {
 
         _log.debug("REMOVE: {} : {}", parentInode, name);
 
+        DirDelegationTracker dirDelegations = context.getStateHandler().getDirDelegationTracker();
+        NFS4Client client = context.getSession() == null ? null : context.getSession().getClient();
+        dirDelegations.recallConflicting(client, parentInode, notify_type4.NOTIFY4_REMOVE_ENTRY);
+        if (dirDelegations.hasDelegations()) {
+            // the entry might be a delegated directory
+            dirDelegations.recallAll(client, context.getFs().lookup(parentInode, name));
+        }
+
         res.resok4.cinfo.before = new changeid4(stat.getGeneration());
         context.getFs().remove(parentInode, name);
+        dirDelegations.notifyRemove(client, parentInode, name);
 
         res.resok4.cinfo.after = new changeid4(context.getFs().getattr(parentInode).getGeneration());
     }
@@ -23,6 +23,7 @@ import java.io.IOException;
 
 import org.dcache.nfs.ChimeraNFSException;
 import org.dcache.nfs.nfsstat;
+import org.dcache.nfs.status.NoEntException;
 import org.dcache.nfs.status.NotDirException;
 import org.dcache.nfs.v4.xdr.RENAME4res;
 import org.dcache.nfs.v4.xdr.RENAME4resok;
@@ -31,6 +32,7 @@ import org.dcache.nfs.v4.xdr.changeid4;
 import org.dcache.nfs.v4.xdr.nfs_argop4;
 import org.dcache.nfs.v4.xdr.nfs_opnum4;
 import org.dcache.nfs.v4.xdr.nfs_resop4;
+import org.dcache.nfs.v4.xdr.notify_type4;
 import org.dcache.nfs.vfs.Inode;
 import org.dcache.nfs.vfs.Stat;
 import org.slf4j.Logger;
@@ -81,9 +83,32 @@ public class OperationRENAME extends AbstractNFSv4Operation {
         res.resok4.source_cinfo.before = new changeid4(sourceStat.getGeneration());
         res.resok4.target_cinfo.before = new changeid4(destStat.getGeneration());
 
+        DirDelegationTracker dirDelegations = context.getStateHandler().getDirDelegationTracker();
+        NFS4Client client = context.getSession() == null ? null : context.getSession().getClient();
+        Inode replaced = null;
+        if (dirDelegations.hasDelegations() && !(sourceDir.equals(destDir) && oldName.equals(newName))) {
+            replaced = lookupTarget(context, destDir, newName);
+        }
+
+        if (sourceDir.equals(destDir)) {
+            dirDelegations.recallConflicting(client, sourceDir, notify_type4.NOTIFY4_RENAME_ENTRY);
+        } else {
+            dirDelegations.recallConflicting(client, sourceDir, notify_type4.NOTIFY4_REMOVE_ENTRY);
+            dirDelegations.recallConflicting(client, destDir, notify_type4.NOTIFY4_ADD_ENTRY);
+        }
+        if (replaced != null) {
+            dirDelegations.recallConflicting(client, destDir, notify_type4.NOTIFY4_REMOVE_ENTRY);
+            // the replaced entry might be a delegated directory
+            dirDelegations.recallAll(client, replaced);
+        }
+
         boolean isChanged = context.getFs().move(sourceDir, oldName, destDir, newName);
 
         if (isChanged) {
+            if (replaced != null) {
+                dirDelegations.notifyRemove(client, destDir, newName);
+            }
+            dirDelegations.notifyRename(client, sourceDir, oldName, destDir, newName);
             res.resok4.source_cinfo.after = new changeid4(context.getFs().getattr(sourceDir).getGeneration());
             res.resok4.target_cinfo.after = new changeid4(context.getFs().getattr(destDir).getGeneration());
         } else {
@@ -92,4 +117,17 @@ public class OperationRENAME extends AbstractNFSv4Operation {
         }
 
     }
+
+    /**
+     * Get the entry which will be replaced by the rename.
+     *
+     * @return the inode of the existing entry or null, if there is no entry with the given name.
+     */
+    private static Inode lookupTarget(CompoundContext context, Inode dir, String name) throws IOException {
+        try {
+            return context.getFs().lookup(dir, name);
+        } catch (NoEntException e) {
+            return null;
+        }
+    }
 }
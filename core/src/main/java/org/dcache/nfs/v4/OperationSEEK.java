@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) 2026 Deutsches Elektronen-Synchroton,
+ * Member of the Helmholtz Association, (DESY), HAMBURG, GERMANY
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Library General Public License as
+ * published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this program (see the file COPYING.LIB for more
+ * details); if not, write to the Free Software Foundation, Inc.,
+ * 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package org.dcache.nfs.v4;
+
+import java.io.IOException;
+import java.util.EnumSet;
+
+import org.dcache.nfs.nfsstat;
+import org.dcache.nfs.status.InvalException;
+import org.dcache.nfs.status.OpenModeException;
+import org.dcache.nfs.v4.xdr.SEEK4res;
+import org.dcache.nfs.v4.xdr.nfs4_prot;
+import org.dcache.nfs.v4.xdr.nfs_argop4;
+import org.dcache.nfs.v4.xdr.nfs_opnum4;
+import org.dcache.nfs.v4.xdr.nfs_resop4;
+import org.dcache.nfs.v4.xdr.offset4;
+import org.dcache.nfs.v4.xdr.seek_res4;
+import org.dcache.nfs.v4.xdr.stateid4;
+import org.dcache.nfs.vfs.Inode;
+import org.dcache.nfs.vfs.Stat;
+import org.dcache.nfs.vfs.VirtualFileSystem.SeekType;
+
+/**
+ * NFSv4.2 SEEK operation as specified in rfc7862#section-15.11. Allows clients to find the next data or hole region
+ * in a file without reading it.
+ */
+public class OperationSEEK extends AbstractNFSv4Operation {
+
+    public OperationSEEK(nfs_argop4 args) {
+        super(args, nfs_opnum4.OP_SEEK);
+    }
+
+    @Override
+    public void process(CompoundContext context, nfs_resop4 result) throws IOException {
+        final SEEK4res res = result.opseek;
+
+        stateid4 stateid = Stateids.getCurrentStateidIfNeeded(context, _args.opseek.sa_stateid);
+        NFS4Client client = context.getClient(stateid, true);
+
+        Inode inode = context.currentInode();
+        int shareAccess = context.getStateHandler().getFileTracker().getShareAccess(client, inode, stateid);
+        if ((shareAccess & nfs4_prot.OPEN4_SHARE_ACCESS_READ) == 0) {
+            throw new OpenModeException("Invalid open mode");
+        }
+
+        SeekType what;
+        try {
+            what = SeekType.fromDataContent(_args.opseek.sa_what);
+        } catch (IllegalArgumentException e) {
+            throw new InvalException(e.getMessage());
+        }
+
+        long offset = context.getFs().seek(stateid, inode, _args.opseek.sa_offset.value, what);
+        long size = context.getFs().getattr(inode, EnumSet.of(Stat.StatAttribute.SIZE)).getSize();
+
+        res.resok4 = new seek_res4();
+        res.resok4.sr_eof = offset >= size;
+        res.resok4.sr_offset = new offset4(offset);
+        res.sa_status = nfsstat.NFS_OK;
+    }
+}
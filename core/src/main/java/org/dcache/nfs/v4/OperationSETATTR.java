@@ -43,6 +43,7 @@ import org.dcache.nfs.v4.xdr.nfs_argop4;
 import org.dcache.nfs.v4.xdr.nfs_opnum4;
 import org.dcache.nfs.v4.xdr.nfs_resop4;
 import org.dcache.nfs.v4.xdr.nfstime4;
+import org.dcache.nfs.v4.xdr.notify_type4;
 import org.dcache.nfs.v4.xdr.settime4;
 import org.dcache.nfs.v4.xdr.stateid4;
 import org.dcache.nfs.v4.xdr.time_how4;
@@ -98,6 +99,11 @@ public class OperationSETATTR extends AbstractNFSv4Operation {
             }
         }
 
+        // directory attribute change notifications are not supported
+        NFS4Client client = context.getSession() == null ? null : context.getSession().getClient();
+        context.getStateHandler().getDirDelegationTracker().recallConflicting(client, inode,
+                notify_type4.NOTIFY4_CHANGE_DIR_ATTRS);
+
         res.status = nfsstat.NFS_OK;
         res.attrsset = setAttributes(_args.opsetattr.obj_attributes, inode, context);
     }
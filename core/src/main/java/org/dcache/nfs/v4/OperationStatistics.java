@@ -0,0 +1,455 @@
+/*
+ * Copyright (c) 2026 Deutsches Elektronen-Synchroton,
+ * Member of the Helmholtz Association, (DESY), HAMBURG, GERMANY
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Library General Public License as
+ * published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this program (see the file COPYING.LIB for more
+ * details); if not, write to the Free Software Foundation, Inc.,
+ * 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package org.dcache.nfs.v4;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntFunction;
+import java.util.stream.IntStream;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.MBeanRegistrationException;
+import javax.management.MBeanServer;
+import javax.management.MalformedObjectNameException;
+import javax.management.NotCompliantMBeanException;
+import javax.management.ObjectName;
+
+import org.dcache.nfs.nfsstat;
+import org.dcache.nfs.util.LatencyHistogram;
+import org.dcache.nfs.v4.xdr.nfs_opnum4;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An {@link OperationMetricsListener} which collects per-opcode and per-status counters and latency histograms of
+ * NFSv4 operations and exports them over JMX.
+ * <p>
+ * Usage:
+ *
+ * <pre>
+ * MDSOperationExecutor executor = new MDSOperationExecutor();
+ * executor.setMetricsListener(new OperationStatistics("nfs-v4"));
+ * </pre>
+ */
+public class OperationStatistics implements OperationMetricsListener, OperationStatisticsMXBean {
+
+    private static final Logger _log = LoggerFactory.getLogger(OperationStatistics.class);
+
+    /**
+     * Index of the histogram which collects illegal and unknown operations.
+     */
+    private static final int ILLEGAL_OPNUM_INDEX = nfs_opnum4.OP_REMOVEXATTR + 1;
+
+    private final String _name;
+    private final LatencyHistogram[] _byOpnum = new LatencyHistogram[ILLEGAL_OPNUM_INDEX + 1];
+    private final Map<Integer, LatencyHistogram> _byStatus = new ConcurrentHashMap<>();
+
+    /**
+     * Create new statistics and register it as JMX bean.
+     *
+     * @param name the name of the JMX bean.
+     */
+    public OperationStatistics(String name) {
+        _name = name;
+        for (int i = 0; i < _byOpnum.length; i++) {
+            _byOpnum[i] = new LatencyHistogram();
+        }
+
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            String objectName = String.format("%s:type=OperationStatistics,name=%s",
+                    getClass().getPackage().getName(), _name);
+            ObjectName mxBeanName = new ObjectName(objectName);
+            if (!server.isRegistered(mxBeanName)) {
+                server.registerMBean(this, mxBeanName);
+            }
+        } catch (MalformedObjectNameException | InstanceAlreadyExistsException
+                | MBeanRegistrationException | NotCompliantMBeanException ex) {
+            _log.warn("Failed to register JMX bean: {}", ex.getMessage());
+        }
+    }
+
+    public String getName() {
+        return _name;
+    }
+
+    @Override
+    public void onOperation(int opnum, int status, long elapsedNanos) {
+        getOperationLatency(opnum).record(elapsedNanos);
+        _byStatus.computeIfAbsent(status, s -> new LatencyHistogram()).record(elapsedNanos);
+    }
+
+    /**
+     * Get latency histogram of the given operation. All illegal and unknown operations share a single histogram.
+     *
+     * @param opnum the operation number.
+     * @return the latency histogram.
+     */
+    public LatencyHistogram getOperationLatency(int opnum) {
+        return _byOpnum[opnum >= 0 && opnum < ILLEGAL_OPNUM_INDEX ? opnum : ILLEGAL_OPNUM_INDEX];
+    }
+
+    /**
+     * Get latency histogram of operations completed with the given status.
+     *
+     * @param status the nfs status.
+     * @return the latency histogram.
+     */
+    public LatencyHistogram getStatusLatency(int status) {
+        LatencyHistogram histogram = _byStatus.get(status);
+        return histogram == null ? new LatencyHistogram() : histogram;
+    }
+
+    /**
+     * Get number of processed operations with the given operation number.
+     *
+     * @param opnum the operation number.
+     * @return number of processed operations.
+     */
+    public long getCount(int opnum) {
+        return getOperationLatency(opnum).getCount();
+    }
+
+    @Override
+    public Latency[] getOperationLatencies() {
+        return toLatencies(_byOpnum.length, i -> _byOpnum[i],
+                i -> nfs_opnum4.toString(i == ILLEGAL_OPNUM_INDEX ? nfs_opnum4.OP_ILLEGAL : i));
+    }
+
+    @Override
+    public Latency[] getStatusLatencies() {
+        Integer[] statuses = _byStatus.keySet().stream().sorted().toArray(Integer[]::new);
+        return toLatencies(statuses.length, i -> _byStatus.get(statuses[i]), i -> nfsstat.toString(statuses[i]));
+    }
+
+    @Override
+    public void reset() {
+        for (LatencyHistogram histogram : _byOpnum) {
+            histogram.reset();
+        }
+        _byStatus.values().forEach(LatencyHistogram::reset);
+    }
+
+    private static Latency[] toLatencies(int size, IntFunction<LatencyHistogram> histograms,
+            IntFunction<String> names) {
+        return IntStream.range(0, size)
+                .filter(i -> histograms.apply(i).getCount() > 0)
+                .mapToObj(i -> toLatency(names.apply(i), histograms.apply(i)))
+                .toArray(Latency[]::new);
+    }
+
+    private static Latency toLatency(String name, LatencyHistogram histogram) {
+        return new Latency(name,
+                histogram.getCount(),
+                histogram.getMean() / 1000.0,
+                histogram.getValueAtPercentile(50.0, TimeUnit.MICROSECONDS),
+                histogram.getValueAtPercentile(90.0, TimeUnit.MICROSECONDS),
+                histogram.getValueAtPercentile(99.0, TimeUnit.MICROSECONDS),
+                histogram.getValueAtPercentile(99.9, TimeUnit.MICROSECONDS),
+                histogram.getMax(TimeUnit.MICROSECONDS));
+    }
+
+    @Override
+    public long getAccess() {
+        return getCount(nfs_opnum4.OP_ACCESS);
+    }
+
+    @Override
+    public long getClose() {
+        return getCount(nfs_opnum4.OP_CLOSE);
+    }
+
+    @Override
+    public long getCommit() {
+        return getCount(nfs_opnum4.OP_COMMIT);
+    }
+
+    @Override
+    public long getCreate() {
+        return getCount(nfs_opnum4.OP_CREATE);
+    }
+
+    @Override
+    public long getDelegpurge() {
+        return getCount(nfs_opnum4.OP_DELEGPURGE);
+    }
+
+    @Override
+    public long getDelegreturn() {
+        return getCount(nfs_opnum4.OP_DELEGRETURN);
+    }
+
+    @Override
+    public long getGetattr() {
+        return getCount(nfs_opnum4.OP_GETATTR);
+    }
+
+    @Override
+    public long getGetfh() {
+        return getCount(nfs_opnum4.OP_GETFH);
+    }
+
+    @Override
+    public long getLink() {
+        return getCount(nfs_opnum4.OP_LINK);
+    }
+
+    @Override
+    public long getLock() {
+        return getCount(nfs_opnum4.OP_LOCK);
+    }
+
+    @Override
+    public long getLockt() {
+        return getCount(nfs_opnum4.OP_LOCKT);
+    }
+
+    @Override
+    public long getLocku() {
+        return getCount(nfs_opnum4.OP_LOCKU);
+    }
+
+    @Override
+    public long getLookup() {
+        return getCount(nfs_opnum4.OP_LOOKUP);
+    }
+
+    @Override
+    public long getLookupp() {
+        return getCount(nfs_opnum4.OP_LOOKUPP);
+    }
+
+    @Override
+    public long getNverify() {
+        return getCount(nfs_opnum4.OP_NVERIFY);
+    }
+
+    @Override
+    public long getOpen() {
+        return getCount(nfs_opnum4.OP_OPEN);
+    }
+
+    @Override
+    public long getOpenattr() {
+        return getCount(nfs_opnum4.OP_OPENATTR);
+    }
+
+    @Override
+    public long getOpenConfirm() {
+        return getCount(nfs_opnum4.OP_OPEN_CONFIRM);
+    }
+
+    @Override
+    public long getOpenDowngrade() {
+        return getCount(nfs_opnum4.OP_OPEN_DOWNGRADE);
+    }
+
+    @Override
+    public long getPutfh() {
+        return getCount(nfs_opnum4.OP_PUTFH);
+    }
+
+    @Override
+    public long getPutpubfh() {
+        return getCount(nfs_opnum4.OP_PUTPUBFH);
+    }
+
+    @Override
+    public long getPutrootfh() {
+        return getCount(nfs_opnum4.OP_PUTROOTFH);
+    }
+
+    @Override
+    public long getRead() {
+        return getCount(nfs_opnum4.OP_READ);
+    }
+
+    @Override
+    public long getReaddir() {
+        return getCount(nfs_opnum4.OP_READDIR);
+    }
+
+    @Override
+    public long getReadlink() {
+        return getCount(nfs_opnum4.OP_READLINK);
+    }
+
+    @Override
+    public long getRemove() {
+        return getCount(nfs_opnum4.OP_REMOVE);
+    }
+
+    @Override
+    public long getRename() {
+        return getCount(nfs_opnum4.OP_RENAME);
+    }
+
+    @Override
+    public long getRenew() {
+        return getCount(nfs_opnum4.OP_RENEW);
+    }
+
+    @Override
+    public long getRestorefh() {
+        return getCount(nfs_opnum4.OP_RESTOREFH);
+    }
+
+    @Override
+    public long getSavefh() {
+        return getCount(nfs_opnum4.OP_SAVEFH);
+    }
+
+    @Override
+    public long getSecinfo() {
+        return getCount(nfs_opnum4.OP_SECINFO);
+    }
+
+    @Override
+    public long getSetattr() {
+        return getCount(nfs_opnum4.OP_SETATTR);
+    }
+
+    @Override
+    public long getSetclientid() {
+        return getCount(nfs_opnum4.OP_SETCLIENTID);
+    }
+
+    @Override
+    public long getSetclientidConfirm() {
+        return getCount(nfs_opnum4.OP_SETCLIENTID_CONFIRM);
+    }
+
+    @Override
+    public long getVerify() {
+        return getCount(nfs_opnum4.OP_VERIFY);
+    }
+
+    @Override
+    public long getWrite() {
+        return getCount(nfs_opnum4.OP_WRITE);
+    }
+
+    @Override
+    public long getReleaseLockowner() {
+        return getCount(nfs_opnum4.OP_RELEASE_LOCKOWNER);
+    }
+
+    @Override
+    public long getBackchannelCtl() {
+        return getCount(nfs_opnum4.OP_BACKCHANNEL_CTL);
+    }
+
+    @Override
+    public long getBindConnToSession() {
+        return getCount(nfs_opnum4.OP_BIND_CONN_TO_SESSION);
+    }
+
+    @Override
+    public long getExchangeId() {
+        return getCount(nfs_opnum4.OP_EXCHANGE_ID);
+    }
+
+    @Override
+    public long getCreateSession() {
+        return getCount(nfs_opnum4.OP_CREATE_SESSION);
+    }
+
+    @Override
+    public long getDestroySession() {
+        return getCount(nfs_opnum4.OP_DESTROY_SESSION);
+    }
+
+    @Override
+    public long getFreeStateid() {
+        return getCount(nfs_opnum4.OP_FREE_STATEID);
+    }
+
+    @Override
+    public long getGetDirDelegation() {
+        return getCount(nfs_opnum4.OP_GET_DIR_DELEGATION);
+    }
+
+    @Override
+    public long getGetdeviceinfo() {
+        return getCount(nfs_opnum4.OP_GETDEVICEINFO);
+    }
+
+    @Override
+    public long getGetdevicelist() {
+        return getCount(nfs_opnum4.OP_GETDEVICELIST);
+    }
+
+    @Override
+    public long getLayoutcommit() {
+        return getCount(nfs_opnum4.OP_LAYOUTCOMMIT);
+    }
+
+    @Override
+    public long getLayoutget() {
+        return getCount(nfs_opnum4.OP_LAYOUTGET);
+    }
+
+    @Override
+    public long getLayoutreturn() {
+        return getCount(nfs_opnum4.OP_LAYOUTRETURN);
+    }
+
+    @Override
+    public long getSecinfoNoName() {
+        return getCount(nfs_opnum4.OP_SECINFO_NO_NAME);
+    }
+
+    @Override
+    public long getSequence() {
+        return getCount(nfs_opnum4.OP_SEQUENCE);
+    }
+
+    @Override
+    public long getSetSsv() {
+        return getCount(nfs_opnum4.OP_SET_SSV);
+    }
+
+    @Override
+    public long getTestStateid() {
+        return getCount(nfs_opnum4.OP_TEST_STATEID);
+    }
+
+    @Override
+    public long getWantDelegation() {
+        return getCount(nfs_opnum4.OP_WANT_DELEGATION);
+    }
+
+    @Override
+    public long getDestroyClientid() {
+        return getCount(nfs_opnum4.OP_DESTROY_CLIENTID);
+    }
+
+    @Override
+    public long getReclaimComplete() {
+        return getCount(nfs_opnum4.OP_RECLAIM_COMPLETE);
+    }
+
+    @Override
+    public long getIllegal() {
+        return getCount(nfs_opnum4.OP_ILLEGAL);
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright (c) 2026 Deutsches Elektronen-Synchroton,
+ * Member of the Helmholtz Association, (DESY), HAMBURG, GERMANY
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Library General Public License as
+ * published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this program (see the file COPYING.LIB for more
+ * details); if not, write to the Free Software Foundation, Inc.,
+ * 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package org.dcache.nfs.v4;
+
+import javax.management.ConstructorParameters;
+
+/**
+ * Per-operation counters and latency distribution of NFSv4 operations.
+ */
+public interface OperationStatisticsMXBean extends OperationFactoryMXBean {
+
+    /**
+     * Latency distribution of operations with a given opcode or status.
+     */
+    class Latency {
+
+        private final String name;
+        private final long count;
+        private final double mean;
+        private final long p50;
+        private final long p90;
+        private final long p99;
+        private final long p999;
+        private final long max;
+
+        @ConstructorParameters({"name", "count", "mean", "p50", "p90", "p99", "p999", "max"})
+        public Latency(String name, long count, double mean, long p50, long p90, long p99, long p999, long max) {
+            this.name = name;
+            this.count = count;
+            this.mean = mean;
+            this.p50 = p50;
+            this.p90 = p90;
+            this.p99 = p99;
+            this.p999 = p999;
+            this.max = max;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        /**
+         * Mean latency in microseconds.
+         */
+        public double getMean() {
+            return mean;
+        }
+
+        /**
+         * Median latency in microseconds.
+         */
+        public long getP50() {
+            return p50;
+        }
+
+        /**
+         * 90th percentile latency in microseconds.
+         */
+        public long getP90() {
+            return p90;
+        }
+
+        /**
+         * 99th percentile latency in microseconds.
+         */
+        public long getP99() {
+            return p99;
+        }
+
+        /**
+         * 99.9th percentile latency in microseconds.
+         */
+        public long getP999() {
+            return p999;
+        }
+
+        /**
+         * Maximal latency in microseconds.
+         */
+        public long getMax() {
+            return max;
+        }
+    }
+
+    /**
+     * Latency distribution of each operation processed at least once.
+     */
+    Latency[] getOperationLatencies();
+
+    /**
+     * Latency distribution of operations per returned status.
+     */
+    Latency[] getStatusLatencies();
+
+    /**
+     * Discard all collected values.
+     */
+    void reset();
+}
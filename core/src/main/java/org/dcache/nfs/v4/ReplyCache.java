@@ -0,0 +1,294 @@
+/*
+ * Copyright (c) 2026 Deutsches Elektronen-Synchroton,
+ * Member of the Helmholtz Association, (DESY), HAMBURG, GERMANY
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Library General Public License as
+ * published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this program (see the file COPYING.LIB for more
+ * details); if not, write to the Free Software Foundation, Inc.,
+ * 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package org.dcache.nfs.v4;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+import javax.annotation.concurrent.GuardedBy;
+
+import org.dcache.nfs.v4.xdr.nfs_argop4;
+import org.dcache.nfs.v4.xdr.nfs_opnum4;
+import org.dcache.nfs.v4.xdr.nfs_resop4;
+import org.dcache.oncrpc4j.util.Opaque;
+import org.dcache.oncrpc4j.xdr.Xdr;
+import org.dcache.oncrpc4j.xdr.XdrEncodingStream;
+
+/**
+ * Session reply cache with a global byte budget. The replies are stored in XDR encoded form, thus the cache holds no
+ * references to the buffers of the original reply. If the budget is exhausted, the oldest entries are evicted. A
+ * retransmitted request, which reply was evicted, is answered with NFS4ERR_RETRY_UNCACHED_REP.
+ */
+public class ReplyCache {
+
+    /**
+     * Size of the operation number, the status and the fixed part of an operation result.
+     */
+    private static final int RESULT_HEADER_SIZE = 16;
+
+    /**
+     * Maximal number of bytes used by all entries.
+     */
+    private final long maxSize;
+
+    /**
+     * The cached entries, the oldest first.
+     */
+    @GuardedBy("this")
+    private final LinkedHashSet<Entry> entries = new LinkedHashSet<>();
+
+    @GuardedBy("this")
+    private long size;
+
+    public ReplyCache() {
+        this(NFSv4Defaults.NFS4_REPLY_CACHE_SIZE);
+    }
+
+    /**
+     * @param maxSize maximal number of bytes used by all entries.
+     */
+    public ReplyCache(long maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Store the reply in the cache, evicting the oldest entries if needed.
+     *
+     * @param reply the encoded reply.
+     * @return cache entry or null if the reply is bigger than the cache.
+     */
+    synchronized Entry put(EncodedReply reply) {
+        if (reply.size() > maxSize) {
+            return null;
+        }
+
+        Iterator<Entry> i = entries.iterator();
+        while (size + reply.size() > maxSize) {
+            Entry oldest = i.next();
+            i.remove();
+            size -= oldest.evict();
+        }
+
+        Entry entry = new Entry(reply.toBytes(), reply.ops());
+        entries.add(entry);
+        size += reply.size();
+        return entry;
+    }
+
+    /**
+     * Remove the entry from the cache.
+     *
+     * @param entry the entry to remove.
+     */
+    synchronized void release(Entry entry) {
+        if (entries.remove(entry)) {
+            size -= entry.evict();
+        }
+    }
+
+    /**
+     * Get the number of bytes used by cached replies.
+     *
+     * @return number of bytes.
+     */
+    public synchronized long size() {
+        return size;
+    }
+
+    /**
+     * Get the number of cached replies.
+     *
+     * @return number of entries.
+     */
+    public synchronized int entries() {
+        return entries.size();
+    }
+
+    /**
+     * Get the maximal number of bytes used by cached replies.
+     *
+     * @return number of bytes.
+     */
+    public long maxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Estimate the maximal size of an encoded operation result, if it is bounded by the operation arguments, for
+     * instance, by the number of bytes requested with READ.
+     *
+     * @param op the operation arguments.
+     * @return the maximal size in bytes, or zero if the size isn't known in advance.
+     */
+    static long maxResultSize(nfs_argop4 op) {
+        switch (op.argop) {
+            case nfs_opnum4.OP_READ:
+                return RESULT_HEADER_SIZE + Integer.toUnsignedLong(op.opread.count.value);
+            case nfs_opnum4.OP_READ_PLUS:
+                return RESULT_HEADER_SIZE + Integer.toUnsignedLong(op.opread_plus.rpa_count.value);
+            case nfs_opnum4.OP_READDIR:
+                return RESULT_HEADER_SIZE + Integer.toUnsignedLong(op.opreaddir.maxcount.value);
+            case nfs_opnum4.OP_LISTXATTRS:
+                return RESULT_HEADER_SIZE + Integer.toUnsignedLong(op.oplistxattrs.lxa_maxcount.value);
+            case nfs_opnum4.OP_GETDEVICEINFO:
+                return RESULT_HEADER_SIZE + Integer.toUnsignedLong(op.opgetdeviceinfo.gdia_maxcount.value);
+            case nfs_opnum4.OP_LAYOUTGET:
+                return RESULT_HEADER_SIZE + Integer.toUnsignedLong(op.oplayoutget.loga_maxcount.value);
+            default:
+                return 0;
+        }
+    }
+
+    /**
+     * A cached reply.
+     */
+    static class Entry {
+
+        private final int ops;
+
+        private volatile byte[] reply;
+
+        private Entry(byte[] reply, int ops) {
+            this.reply = reply;
+            this.ops = ops;
+        }
+
+        /**
+         * Get the cached reply.
+         *
+         * @return the list of operation results or null, if the entry is evicted.
+         */
+        List<nfs_resop4> get() {
+            byte[] data = reply;
+            if (data == null) {
+                return null;
+            }
+
+            List<nfs_resop4> results = new ArrayList<>(ops);
+            try (Xdr xdr = new Xdr(data)) {
+                xdr.beginDecoding();
+                for (int i = 0; i < ops; i++) {
+                    results.add(new nfs_resop4(xdr));
+                }
+                xdr.endDecoding();
+            } catch (IOException e) {
+                throw new RuntimeException("Unexpected IOException:", e);
+            }
+            return results;
+        }
+
+        private int evict() {
+            int n = reply.length;
+            reply = null;
+            return n;
+        }
+    }
+
+    /**
+     * Accumulates the XDR encoded results of a compound up to a maximal size.
+     */
+    static class EncodedReply {
+
+        private final int maxSize;
+        private final List<Opaque> results = new ArrayList<>();
+        private int size;
+
+        /**
+         * @param maxSize maximal size of the reply in bytes.
+         */
+        EncodedReply(int maxSize) {
+            this.maxSize = maxSize;
+        }
+
+        /**
+         * Add the operation result to the reply.
+         *
+         * @param result the result to add.
+         * @return false, if the reply would be bigger than the maximal size. In this case the result is not added.
+         */
+        boolean add(nfs_resop4 result) {
+            Opaque encoded;
+            try (Xdr xdr = new Xdr(256)) {
+                xdr.beginEncoding();
+                result.xdrEncode(xdr);
+                xdr.endEncoding();
+                encoded = xdr.toOpaque();
+            } catch (IOException e) {
+                throw new RuntimeException("Unexpected IOException:", e);
+            }
+
+            if (!fits(encoded.numBytes())) {
+                return false;
+            }
+            results.add(encoded);
+            size += encoded.numBytes();
+            return true;
+        }
+
+        /**
+         * Check whether a result of the given size can be added to the reply.
+         *
+         * @param resultSize the size of the encoded result in bytes.
+         * @return true, if the reply would not exceed the maximal size.
+         */
+        boolean fits(long resultSize) {
+            return size + resultSize <= maxSize;
+        }
+
+        /**
+         * Write the already encoded operation result.
+         *
+         * @param index the index of the result in the reply.
+         * @param xdr the stream to write into.
+         */
+        void encode(int index, XdrEncodingStream xdr) throws IOException {
+            Opaque result = results.get(index);
+            xdr.xdrEncodeOpaque(result, result.numBytes());
+        }
+
+        /**
+         * Get the number of operation results in the reply.
+         */
+        int ops() {
+            return results.size();
+        }
+
+        /**
+         * Get the size of encoded reply in bytes.
+         */
+        int size() {
+            return size;
+        }
+
+        private byte[] toBytes() {
+            byte[] bytes = new byte[size];
+            int offset = 0;
+            for (Opaque result : results) {
+                byte[] b = result.toBytes();
+                System.arraycopy(b, 0, bytes, offset, b.length);
+                offset += b.length;
+            }
+            return bytes;
+        }
+    }
+}
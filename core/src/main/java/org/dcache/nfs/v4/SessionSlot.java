@@ -34,10 +34,15 @@ public class SessionSlot {
 
     private static final Logger _log = LoggerFactory.getLogger(SessionSlot.class);
 
+    private final ReplyCache _cache;
     private int _sequence;
-    private List<nfs_resop4> _reply;
+    private ReplyCache.Entry _reply;
 
-    public SessionSlot() {
+    /**
+     * @param cache the cache to store the replies in.
+     */
+    public SessionSlot(ReplyCache cache) {
+        _cache = cache;
         _sequence = 0;
     }
 
@@ -46,7 +51,7 @@ public class SessionSlot {
      * previous sequence id, with three possible outcomes:
      * <ul>
      * <li>If the provided sequence id and the previous sequence id are the same then the request is a retry. The
-     * previous reply is returned or an empty List if no reply was recorded.
+     * previous reply is returned or an empty List if no reply was recorded or it was evicted from the cache.
      * <li>If the provided sequence id is one greater than the previous sequence id then this is a new request and null
      * is returned.
      * <li>For all other provided sequence id values a {@link SeqMisorderedException} is thrown.
@@ -56,13 +61,16 @@ public class SessionSlot {
      * @return the list of cached replies, possibly empty or {@code null} cached reply does not exist.
      * @throws SeqMisorderedException if {@code sequnce} is out of order.
      */
-    List<nfs_resop4> acquire(int sequence) throws SeqMisorderedException {
+    synchronized List<nfs_resop4> acquire(int sequence) throws SeqMisorderedException {
 
         if (sequence == _sequence) {
 
             _log.info("retransmit detected");
             if (_reply != null) {
-                return _reply;
+                List<nfs_resop4> reply = _reply.get();
+                if (reply != null) {
+                    return reply;
+                }
             }
 
             return Collections.emptyList();
@@ -75,11 +83,27 @@ public class SessionSlot {
         }
 
         _sequence = sequence;
-        _reply = null;
+        release();
         return null;
     }
 
-    void update(List<nfs_resop4> reply) {
-        _reply = reply;
+    /**
+     * Store the reply of the current request in the reply cache.
+     *
+     * @param reply the encoded reply.
+     */
+    synchronized void update(ReplyCache.EncodedReply reply) {
+        release();
+        _reply = _cache.put(reply);
+    }
+
+    /**
+     * Remove the reply of the current request from the reply cache.
+     */
+    synchronized void release() {
+        if (_reply != null) {
+            _cache.release(_reply);
+            _reply = null;
+        }
     }
 }
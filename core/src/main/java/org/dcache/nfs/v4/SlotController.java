@@ -0,0 +1,261 @@
+/*
+ * Copyright (c) 2026 Deutsches Elektronen-Synchroton,
+ * Member of the Helmholtz Association, (DESY), HAMBURG, GERMANY
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Library General Public License as
+ * published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this program (see the file COPYING.LIB for more
+ * details); if not, write to the Free Software Foundation, Inc.,
+ * 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package org.dcache.nfs.v4;
+
+import static java.util.Objects.requireNonNull;
+
+import java.lang.management.ManagementFactory;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntSupplier;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.MBeanRegistrationException;
+import javax.management.MBeanServer;
+import javax.management.MalformedObjectNameException;
+import javax.management.NotCompliantMBeanException;
+import javax.management.ObjectName;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Adjusts the number of slots each session may use depending on the server load.
+ * <p>
+ * The server is considered to be overloaded if too many requests wait for a worker thread, or if the reply cache is
+ * close to its byte budget, thus cached replies are evicted before the clients have seen them. The number of requests
+ * in flight is not a signal by itself, as it's bounded by the number of worker threads. Under overload the sessions
+ * which use at least their fair share of in-flight requests or allocated slots get their target highest slot id
+ * halved. Otherwise, sessions which use all their slots get their target raised, up to the number of slots negotiated
+ * with CREATE_SESSION.
+ * <p>
+ * The target is advertised to the client with each SEQUENCE reply. The slots above the target are released, once the
+ * client stops using them.
+ */
+public class SlotController implements SlotControllerMXBean {
+
+    private static final Logger _log = LoggerFactory.getLogger(SlotController.class);
+
+    /**
+     * Number of requests waiting for a worker thread above which the server is overloaded. This matches to number of
+     * worker threads configured by default.
+     */
+    public static final int DEFAULT_MAX_REQUEST_BACKLOG = Runtime.getRuntime().availableProcessors() * 4;
+
+    /**
+     * Fraction of the reply cache budget above which the server is overloaded.
+     */
+    private static final double REPLY_CACHE_HIGH_WATERMARK = 0.9;
+
+    /**
+     * Minimal time between two adjustments of a session.
+     */
+    private static final long ADJUST_INTERVAL = Duration.ofMillis(100).toMillis();
+
+    /**
+     * Minimal time between two scans of all sessions.
+     */
+    private static final long SCAN_INTERVAL = Duration.ofSeconds(1).toMillis();
+
+    private final Supplier<Stream<NFSv41Session>> sessions;
+    private final Clock clock;
+    private final ReplyCache replyCache;
+    private final int maxRequestBacklog;
+
+    /**
+     * Number of requests waiting for a worker thread.
+     */
+    private volatile IntSupplier requestBacklog = () -> 0;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicLong lastScan = new AtomicLong();
+
+    /*
+     * result of the last scan
+     */
+    private volatile int sessionCount;
+    private volatile int allocatedSlots;
+
+    /**
+     * @param name the name of the JMX bean.
+     * @param sessions supplier of all existing sessions.
+     * @param clock clock to use for all time related operations.
+     * @param replyCache the reply cache of the sessions.
+     */
+    public SlotController(String name, Supplier<Stream<NFSv41Session>> sessions, Clock clock,
+            ReplyCache replyCache) {
+        this(name, sessions, clock, replyCache, DEFAULT_MAX_REQUEST_BACKLOG);
+    }
+
+    /**
+     * @param name the name of the JMX bean.
+     * @param sessions supplier of all existing sessions.
+     * @param clock clock to use for all time related operations.
+     * @param replyCache the reply cache of the sessions.
+     * @param maxRequestBacklog number of requests waiting for a worker thread above which the server is overloaded.
+     */
+    public SlotController(String name, Supplier<Stream<NFSv41Session>> sessions, Clock clock, ReplyCache replyCache,
+            int maxRequestBacklog) {
+        this.sessions = sessions;
+        this.clock = clock;
+        this.replyCache = replyCache;
+        this.maxRequestBacklog = maxRequestBacklog;
+
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            String objectName = String.format("%s:type=SlotController,name=%s",
+                    getClass().getPackage().getName(), name);
+            ObjectName mxBeanName = new ObjectName(objectName);
+            if (!server.isRegistered(mxBeanName)) {
+                server.registerMBean(this, mxBeanName);
+            }
+        } catch (MalformedObjectNameException | InstanceAlreadyExistsException
+                | MBeanRegistrationException | NotCompliantMBeanException ex) {
+            _log.warn("Failed to register JMX bean: {}", ex.getMessage());
+        }
+    }
+
+    /**
+     * Set the source of the number of requests waiting for a worker thread, for instance, the queue length of the RPC
+     * service's executor. Without it, only the reply cache usage indicates overload.
+     *
+     * @param requestBacklog supplier of the number of queued requests.
+     */
+    public void setRequestBacklog(IntSupplier requestBacklog) {
+        this.requestBacklog = requireNonNull(requestBacklog);
+    }
+
+    /**
+     * Account a new request of the session. Must be followed by {@link #requestCompleted(NFSv41Session)}.
+     *
+     * @param session the session of the request.
+     */
+    void requestStarted(NFSv41Session session) {
+        inFlight.incrementAndGet();
+        session.requestStarted();
+    }
+
+    /**
+     * Account completion of a request started with {@link #requestStarted(NFSv41Session)}.
+     *
+     * @param session the session of the request.
+     */
+    void requestCompleted(NFSv41Session session) {
+        session.requestCompleted();
+        inFlight.decrementAndGet();
+    }
+
+    /**
+     * Update the target highest slot id of the session and release the slots, which are not used by the client
+     * anymore. Must be called before the request is accounted with {@link #requestStarted(NFSv41Session)}, thus the
+     * in-flight requests are the ones of other slots.
+     *
+     * @param session the session to adjust.
+     * @param clientHighestSlot the highest slot id in use by the client, as reported with SEQUENCE.
+     */
+    void adjust(NFSv41Session session, int clientHighestSlot) {
+
+        long now = clock.millis();
+        scanIfNeeded(now);
+
+        if (session.tryStartSlotAdjustment(now, ADJUST_INTERVAL)) {
+            int slots = session.getTargetHighestSlot() + 1;
+            // the requests of the session, including this one
+            int sessionInFlight = session.getInFlightRequests() + 1;
+            int sessionShare = Math.max(1, sessionCount);
+            if (isOverloaded()) {
+                // shed load from sessions using at least their fair share
+                if (sessionInFlight >= Math.max(1, (inFlight.get() + 1) / sessionShare)
+                        || session.getAllocatedSlots() >= Math.max(1, allocatedSlots / sessionShare)) {
+                    slots = Math.max(1, slots / 2);
+                }
+            } else if (sessionInFlight >= slots) {
+                slots = Math.min(session.getMaxSlot() + 1, slots + Math.max(1, slots / 4));
+            }
+            session.setTargetHighestSlot(slots - 1);
+        }
+
+        session.updateHighestSlot(clientHighestSlot);
+    }
+
+    private void scanIfNeeded(long now) {
+        long last = lastScan.get();
+        if (now - last < SCAN_INTERVAL || !lastScan.compareAndSet(last, now)) {
+            return;
+        }
+
+        int count = 0;
+        int allocated = 0;
+        for (NFSv41Session session : (Iterable<NFSv41Session>) sessions.get()::iterator) {
+            count++;
+            allocated += session.getAllocatedSlots();
+        }
+        sessionCount = count;
+        allocatedSlots = allocated;
+    }
+
+    @Override
+    public int getInFlightRequests() {
+        return inFlight.get();
+    }
+
+    @Override
+    public int getRequestBacklog() {
+        return requestBacklog.getAsInt();
+    }
+
+    @Override
+    public int getMaxRequestBacklog() {
+        return maxRequestBacklog;
+    }
+
+    @Override
+    public int getAllocatedSlots() {
+        return allocatedSlots;
+    }
+
+    @Override
+    public long getReplyCacheSize() {
+        return replyCache.size();
+    }
+
+    @Override
+    public long getMaxReplyCacheSize() {
+        return replyCache.maxSize();
+    }
+
+    @Override
+    public boolean isOverloaded() {
+        return getRequestBacklog() > maxRequestBacklog
+                || replyCache.size() > replyCache.maxSize() * REPLY_CACHE_HIGH_WATERMARK;
+    }
+
+    @Override
+    public SessionSlots[] getSessionSlots() {
+        return sessions.get()
+                .map(s -> new SessionSlots(s.id().toString(), s.getClient().toString(), s.getInFlightRequests(),
+                        s.getAllocatedSlots(), s.getHighestSlot(), s.getTargetHighestSlot()))
+                .toArray(SessionSlots[]::new);
+    }
+}
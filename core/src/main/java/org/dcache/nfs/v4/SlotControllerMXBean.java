@@ -0,0 +1,129 @@
+/*
+ * Copyright (c) 2026 Deutsches Elektronen-Synchroton,
+ * Member of the Helmholtz Association, (DESY), HAMBURG, GERMANY
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Library General Public License as
+ * published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this program (see the file COPYING.LIB for more
+ * details); if not, write to the Free Software Foundation, Inc.,
+ * 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package org.dcache.nfs.v4;
+
+import javax.management.ConstructorParameters;
+
+/**
+ * Server load and per-session slot usage as seen by {@link SlotController}.
+ */
+public interface SlotControllerMXBean {
+
+    /**
+     * Slot usage of a single session.
+     */
+    class SessionSlots {
+
+        private final String session;
+        private final String client;
+        private final int inFlightRequests;
+        private final int allocatedSlots;
+        private final int highestSlot;
+        private final int targetHighestSlot;
+
+        @ConstructorParameters({"session", "client", "inFlightRequests", "allocatedSlots", "highestSlot",
+                "targetHighestSlot"})
+        public SessionSlots(String session, String client, int inFlightRequests, int allocatedSlots,
+                int highestSlot, int targetHighestSlot) {
+            this.session = session;
+            this.client = client;
+            this.inFlightRequests = inFlightRequests;
+            this.allocatedSlots = allocatedSlots;
+            this.highestSlot = highestSlot;
+            this.targetHighestSlot = targetHighestSlot;
+        }
+
+        public String getSession() {
+            return session;
+        }
+
+        public String getClient() {
+            return client;
+        }
+
+        /**
+         * Number of requests of the session currently processed by the server.
+         */
+        public int getInFlightRequests() {
+            return inFlightRequests;
+        }
+
+        /**
+         * Number of slots holding a reply cache entry.
+         */
+        public int getAllocatedSlots() {
+            return allocatedSlots;
+        }
+
+        /**
+         * The highest slot id the client is allowed to use.
+         */
+        public int getHighestSlot() {
+            return highestSlot;
+        }
+
+        /**
+         * The highest slot id the server wants the client to use.
+         */
+        public int getTargetHighestSlot() {
+            return targetHighestSlot;
+        }
+    }
+
+    /**
+     * Number of session requests currently processed by the server.
+     */
+    int getInFlightRequests();
+
+    /**
+     * Number of requests waiting for a worker thread.
+     */
+    int getRequestBacklog();
+
+    /**
+     * Number of requests waiting for a worker thread above which the server is considered overloaded.
+     */
+    int getMaxRequestBacklog();
+
+    /**
+     * Number of allocated slots of all sessions, as of the last periodic scan.
+     */
+    int getAllocatedSlots();
+
+    /**
+     * Number of bytes used by the cached replies of all sessions.
+     */
+    long getReplyCacheSize();
+
+    /**
+     * The byte budget of the reply cache.
+     */
+    long getMaxReplyCacheSize();
+
+    /**
+     * Whether the server asks clients to reduce the number of used slots.
+     */
+    boolean isOverloaded();
+
+    /**
+     * Slot usage of all sessions.
+     */
+    SessionSlots[] getSessionSlots();
+}
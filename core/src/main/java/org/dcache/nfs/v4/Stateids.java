@@ -47,7 +47,7 @@ public class Stateids {
     /**
      * Directory delegation state ID.
      */
-    final static byte DIR_DELEGATION_STATE_ID = 0x04;
+    final static byte DIR_DELEGATION_STATE_ID = 0x06;
     /**
      * Server Side Copy state ID.
      */
@@ -133,6 +133,10 @@ public class Stateids {
         }
     }
 
+    public static boolean isDirDelegationStateid(stateid4 stateid) {
+        return stateid.other.byteAt(11) == DIR_DELEGATION_STATE_ID;
+    }
+
     public static void checkDirDelegationStateid(stateid4 stateid) throws BadStateidException {
         if (stateid.other.byteAt(11) != DIR_DELEGATION_STATE_ID) {
             throw new BadStateidException("Not a directory delegation stateid");
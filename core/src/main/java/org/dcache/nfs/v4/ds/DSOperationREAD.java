@@ -27,6 +27,7 @@ import org.dcache.nfs.ChimeraNFSException;
 import org.dcache.nfs.nfsstat;
 import org.dcache.nfs.status.InvalException;
 import org.dcache.nfs.status.IsDirException;
+import org.dcache.nfs.util.BufferPool;
 import org.dcache.nfs.v4.AbstractNFSv4Operation;
 import org.dcache.nfs.v4.CompoundContext;
 import org.dcache.nfs.v4.Stateids;
@@ -82,10 +83,12 @@ public class DSOperationREAD extends AbstractNFSv4Operation {
         long offset = _args.opread.offset.value;
         int count = _args.opread.count.value;
 
-        ByteBuffer bb = ByteBuffer.allocateDirect(count);
+        // pooled buffer sized to the available data, returned into the pool when the reply is encoded
+        ByteBuffer bb = BufferPool.getDefault()
+                .acquireForReply((int) Math.max(0L, Math.min(count, stat.getSize() - offset)));
         FileChannel in = _fsCache.get(inode);
 
-        int bytesReaded = in.read(bb, offset);
+        int bytesReaded = bb.hasRemaining() ? in.read(bb, offset) : -1;
         if (bytesReaded < 0) {
             eof = true;
             bytesReaded = 0;
@@ -93,8 +96,7 @@ public class DSOperationREAD extends AbstractNFSv4Operation {
 
         res.status = nfsstat.NFS_OK;
         res.resok4 = new READ4resok();
-        bb.flip();
-        res.resok4.data = Opaque.forOwnedByteBuffer(bb, 0, bb.remaining());
+        res.resok4.data = Opaque.forOwnedByteBuffer(bb, 0, bytesReaded);
 
         if (offset + bytesReaded == stat.getSize()) {
             eof = true;
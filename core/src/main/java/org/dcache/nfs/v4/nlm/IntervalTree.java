@@ -0,0 +1,248 @@
+/*
+ * Copyright (c) 2026 Deutsches Elektronen-Synchroton,
+ * Member of the Helmholtz Association, (DESY), HAMBURG, GERMANY
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Library General Public License as
+ * published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this program (see the file COPYING.LIB for more
+ * details); if not, write to the Free Software Foundation, Inc.,
+ * 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package org.dcache.nfs.v4.nlm;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Predicate;
+
+/**
+ * A set of closed intervals, which supports lookup of intervals overlapping a given range in O(log n + k) time, where
+ * k is the number of overlapping intervals. The intervals are stored in a randomized balanced binary search tree
+ * (treap) ordered by interval start, where each node is augmented with the highest interval end of its subtree.
+ * <p>
+ * This class is not thread safe.
+ *
+ * @param <T> type of values associated with intervals.
+ */
+class IntervalTree<T> {
+
+    /**
+     * An interval stored in the tree.
+     */
+    static final class Node<T> {
+
+        private final long first;
+        private final long last;
+        private final T value;
+
+        /**
+         * Insertion order to distinguish intervals with the same start.
+         */
+        private final long seq;
+        private final int priority;
+
+        private Node<T> left;
+        private Node<T> right;
+
+        /**
+         * The highest end of all intervals in the subtree.
+         */
+        private long maxLast;
+
+        private Node(long first, long last, T value, long seq) {
+            this.first = first;
+            this.last = last;
+            this.value = value;
+            this.seq = seq;
+            this.priority = ThreadLocalRandom.current().nextInt();
+            this.maxLast = last;
+        }
+
+        /**
+         * Get the first position covered by the interval.
+         */
+        long first() {
+            return first;
+        }
+
+        /**
+         * Get the last position covered by the interval.
+         */
+        long last() {
+            return last;
+        }
+
+        T value() {
+            return value;
+        }
+    }
+
+    private Node<T> root;
+    private int size;
+    private long nextSeq;
+
+    /**
+     * Add a new interval into the tree.
+     *
+     * @param first the first position covered by the interval.
+     * @param last the last position covered by the interval.
+     * @param value the value associated with the interval.
+     * @return node to remove the interval with.
+     */
+    Node<T> insert(long first, long last, T value) {
+        Node<T> node = new Node<>(first, last, value, nextSeq++);
+        root = insert(root, node);
+        size++;
+        return node;
+    }
+
+    /**
+     * Remove the interval from the tree.
+     *
+     * @param node the node returned by {@link #insert(long, long, Object)}.
+     */
+    void remove(Node<T> node) {
+        root = remove(root, node);
+        size--;
+    }
+
+    /**
+     * Find an interval, which overlaps given range and its value matches the predicate.
+     *
+     * @param first the first position of the range.
+     * @param last the last position of the range.
+     * @param filter the predicate to match values with.
+     * @return the value of the matching interval or null, if there is no such interval.
+     */
+    T findAny(long first, long last, Predicate<? super T> filter) {
+        return findAny(root, first, last, filter);
+    }
+
+    /**
+     * Get the number of intervals in the tree.
+     */
+    int size() {
+        return size;
+    }
+
+    private static <T> int compare(Node<T> a, Node<T> b) {
+        int c = Long.compare(a.first, b.first);
+        return c != 0 ? c : Long.compare(a.seq, b.seq);
+    }
+
+    private static <T> Node<T> insert(Node<T> root, Node<T> node) {
+        if (root == null) {
+            return node;
+        }
+
+        if (compare(node, root) < 0) {
+            root.left = insert(root.left, node);
+            if (root.left.priority > root.priority) {
+                root = rotateRight(root);
+            }
+        } else {
+            root.right = insert(root.right, node);
+            if (root.right.priority > root.priority) {
+                root = rotateLeft(root);
+            }
+        }
+        update(root);
+        return root;
+    }
+
+    private static <T> Node<T> remove(Node<T> root, Node<T> node) {
+        if (root == null) {
+            return null;
+        }
+
+        int c = compare(node, root);
+        if (c == 0) {
+            return join(root.left, root.right);
+        }
+
+        if (c < 0) {
+            root.left = remove(root.left, node);
+        } else {
+            root.right = remove(root.right, node);
+        }
+        update(root);
+        return root;
+    }
+
+    /**
+     * Join two subtrees, where all nodes of {@code a} are ordered before the nodes of {@code b}.
+     */
+    private static <T> Node<T> join(Node<T> a, Node<T> b) {
+        if (a == null) {
+            return b;
+        }
+        if (b == null) {
+            return a;
+        }
+
+        if (a.priority > b.priority) {
+            a.right = join(a.right, b);
+            update(a);
+            return a;
+        }
+        b.left = join(a, b.left);
+        update(b);
+        return b;
+    }
+
+    private static <T> T findAny(Node<T> node, long first, long last, Predicate<? super T> filter) {
+        while (node != null && node.maxLast >= first) {
+            T value = findAny(node.left, first, last, filter);
+            if (value != null) {
+                return value;
+            }
+
+            if (node.first > last) {
+                // all intervals in the right subtree start even later
+                return null;
+            }
+
+            if (node.last >= first && filter.test(node.value)) {
+                return node.value;
+            }
+            node = node.right;
+        }
+        return null;
+    }
+
+    private static <T> Node<T> rotateRight(Node<T> node) {
+        Node<T> left = node.left;
+        node.left = left.right;
+        left.right = node;
+        update(node);
+        update(left);
+        return left;
+    }
+
+    private static <T> Node<T> rotateLeft(Node<T> node) {
+        Node<T> right = node.right;
+        node.right = right.left;
+        right.left = node;
+        update(node);
+        update(right);
+        return right;
+    }
+
+    private static <T> void update(Node<T> node) {
+        long maxLast = node.last;
+        if (node.left != null) {
+            maxLast = Math.max(maxLast, node.left.maxLast);
+        }
+        if (node.right != null) {
+            maxLast = Math.max(maxLast, node.right.maxLast);
+        }
+        node.maxLast = maxLast;
+    }
+}
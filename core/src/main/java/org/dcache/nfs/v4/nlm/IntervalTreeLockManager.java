@@ -0,0 +1,282 @@
+/*
+ * Copyright (c) 2026 Deutsches Elektronen-Synchroton,
+ * Member of the Helmholtz Association, (DESY), HAMBURG, GERMANY
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Library General Public License as
+ * published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this program (see the file COPYING.LIB for more
+ * details); if not, write to the Free Software Foundation, Inc.,
+ * 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package org.dcache.nfs.v4.nlm;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
+
+import org.dcache.nfs.v4.StateOwner;
+import org.dcache.nfs.v4.xdr.nfs4_prot;
+import org.dcache.nfs.v4.xdr.nfs_lock_type4;
+import org.dcache.oncrpc4j.util.Opaque;
+
+import com.google.common.util.concurrent.Striped;
+
+/**
+ * Non-distributed implementation of {@link LockManager}, which is efficient for files with a large number of locks.
+ * <p>
+ * The locks of a file are kept in two interval trees, one for read and one for write locks, to find conflicting locks
+ * in O(log n + k) time. Additionally, the locks are indexed by owner and lock type in sorted maps of non-overlapping
+ * ranges, which are used to merge and split the locks of an owner in place.
+ * <p>
+ * Unlike {@link SimpleLm}, overlapping or adjacent locks of the same owner and type are merged, and
+ * {@link #test(Opaque, NlmLock)} reports only the locks, which conflict by type.
+ *
+ * @since 0.28
+ */
+public class IntervalTreeLockManager implements LockManager {
+
+    /*
+     * Use {@link Striped} here to split synchronized block on file locks into multiple partitions to increase
+     * concurrency, while guaranteeing atomicity on a single file.
+     *
+     * Use number of stripes equals to 4x#CPU. This matches to number of worker threads configured by default.
+     */
+    private final Striped<Lock> objLock;
+
+    private final Map<Opaque, FileLocks> files = new ConcurrentHashMap<>();
+
+    public IntervalTreeLockManager() {
+        this(Runtime.getRuntime().availableProcessors() * 4);
+    }
+
+    public IntervalTreeLockManager(int concurrency) {
+        objLock = Striped.lock(concurrency);
+    }
+
+    @Override
+    public void lock(Opaque objId, NlmLock lock) throws LockException {
+        Lock dlmLock = objLock.get(objId);
+        dlmLock.lock();
+        try {
+            FileLocks locks = files.get(objId);
+            if (locks == null) {
+                locks = new FileLocks();
+                files.put(objId.toImmutableOpaque(), locks);
+            } else {
+                NlmLock conflictingLock = locks.findConflicting(lock);
+                if (conflictingLock != null) {
+                    throw new LockDeniedException("object locked", conflictingLock);
+                }
+            }
+            locks.add(lock);
+        } finally {
+            dlmLock.unlock();
+        }
+    }
+
+    @Override
+    public void unlock(Opaque objId, NlmLock lock) throws LockException {
+        if (!tryUnlock(objId, lock)) {
+            throw new LockRangeUnavailabeException("no matching lock");
+        }
+    }
+
+    @Override
+    public void test(Opaque objId, NlmLock lock) throws LockException {
+        Lock dlmLock = objLock.get(objId);
+        dlmLock.lock();
+        try {
+            FileLocks locks = files.get(objId);
+            if (locks != null) {
+                NlmLock conflictingLock = locks.findConflicting(lock);
+                if (conflictingLock != null) {
+                    throw new LockDeniedException("object locked", conflictingLock);
+                }
+            }
+        } finally {
+            dlmLock.unlock();
+        }
+    }
+
+    @Override
+    public void unlockIfExists(Opaque objId, NlmLock lock) {
+        tryUnlock(objId, lock);
+    }
+
+    private boolean tryUnlock(Opaque objId, NlmLock lock) {
+        Lock dlmLock = objLock.get(objId);
+        dlmLock.lock();
+        try {
+            FileLocks locks = files.get(objId);
+            if (locks == null || !locks.remove(lock)) {
+                return false;
+            }
+            if (locks.isEmpty()) {
+                files.remove(objId);
+            }
+            return true;
+        } finally {
+            dlmLock.unlock();
+        }
+    }
+
+    /**
+     * Get the last byte covered by the lock.
+     */
+    private static long lastByte(NlmLock lock) {
+        // lengths above Long.MAX_VALUE, including NFS4_UINT64_MAX, lock up to the end of file
+        if (lock.getLength() < 0 || lock.getOffset() > Long.MAX_VALUE - lock.getLength()) {
+            return Long.MAX_VALUE;
+        }
+        return lock.getOffset() + lock.getLength() - 1;
+    }
+
+    private static boolean isWriteLock(int lockType) {
+        return lockType == nfs_lock_type4.WRITE_LT || lockType == nfs_lock_type4.WRITEW_LT;
+    }
+
+    /**
+     * Locks of a single file.
+     */
+    private static class FileLocks {
+
+        private final IntervalTree<NlmLock> readLocks = new IntervalTree<>();
+        private final IntervalTree<NlmLock> writeLocks = new IntervalTree<>();
+
+        /**
+         * Non-overlapping ranges of each owner and lock type, keyed by the first byte.
+         */
+        private final Map<StateOwner, Map<Integer, TreeMap<Long, IntervalTree.Node<NlmLock>>>> owners =
+                new HashMap<>();
+
+        private IntervalTree<NlmLock> locksOfType(int lockType) {
+            return isWriteLock(lockType) ? writeLocks : readLocks;
+        }
+
+        NlmLock findConflicting(NlmLock lock) {
+            long first = lock.getOffset();
+            long last = lastByte(lock);
+
+            NlmLock conflictingLock = writeLocks.findAny(first, last, l -> !l.isSameOwner(lock));
+            if (conflictingLock == null && isWriteLock(lock.getLockType())) {
+                conflictingLock = readLocks.findAny(first, last, l -> !l.isSameOwner(lock));
+            }
+            return conflictingLock;
+        }
+
+        void add(NlmLock lock) {
+            TreeMap<Long, IntervalTree.Node<NlmLock>> ranges = owners
+                    .computeIfAbsent(lock.getOwner(), o -> new HashMap<>())
+                    .computeIfAbsent(lock.getLockType(), t -> new TreeMap<>());
+            IntervalTree<NlmLock> tree = locksOfType(lock.getLockType());
+
+            long first = lock.getOffset();
+            long last = lastByte(lock);
+            boolean merged = false;
+
+            // merge with overlapping or adjacent ranges
+            Long from = ranges.floorKey(first);
+            Iterator<IntervalTree.Node<NlmLock>> i = ranges.tailMap(from == null ? first : from, true)
+                    .values().iterator();
+            while (i.hasNext()) {
+                IntervalTree.Node<NlmLock> range = i.next();
+                if (range.first() - 1 > last) {
+                    break;
+                }
+                if (range.last() < first - 1) {
+                    continue;
+                }
+                first = Math.min(first, range.first());
+                last = Math.max(last, range.last());
+                merged = true;
+                tree.remove(range);
+                i.remove();
+            }
+
+            NlmLock newLock = merged ? newLock(lock.getOwner(), lock.getLockType(), first, last) : lock;
+            ranges.put(first, tree.insert(first, last, newLock));
+        }
+
+        boolean remove(NlmLock lock) {
+            Map<Integer, TreeMap<Long, IntervalTree.Node<NlmLock>>> byType = owners.get(lock.getOwner());
+            if (byType == null) {
+                return false;
+            }
+
+            long first = lock.getOffset();
+            long last = lastByte(lock);
+            boolean removed = false;
+
+            Iterator<Map.Entry<Integer, TreeMap<Long, IntervalTree.Node<NlmLock>>>> types = byType.entrySet()
+                    .iterator();
+            while (types.hasNext()) {
+                Map.Entry<Integer, TreeMap<Long, IntervalTree.Node<NlmLock>>> e = types.next();
+                int lockType = e.getKey();
+                TreeMap<Long, IntervalTree.Node<NlmLock>> ranges = e.getValue();
+                IntervalTree<NlmLock> tree = locksOfType(lockType);
+
+                List<IntervalTree.Node<NlmLock>> overlapping = new ArrayList<>();
+                Long from = ranges.floorKey(first);
+                Iterator<IntervalTree.Node<NlmLock>> i = ranges.tailMap(from == null ? first : from, true)
+                        .values().iterator();
+                while (i.hasNext()) {
+                    IntervalTree.Node<NlmLock> range = i.next();
+                    if (range.first() > last) {
+                        break;
+                    }
+                    if (range.last() < first) {
+                        continue;
+                    }
+                    overlapping.add(range);
+                    tree.remove(range);
+                    i.remove();
+                }
+
+                // keep the parts outside of the unlocked range
+                for (IntervalTree.Node<NlmLock> range : overlapping) {
+                    if (range.first() < first) {
+                        ranges.put(range.first(), tree.insert(range.first(), first - 1,
+                                newLock(lock.getOwner(), lockType, range.first(), first - 1)));
+                    }
+                    if (range.last() > last) {
+                        ranges.put(last + 1, tree.insert(last + 1, range.last(),
+                                newLock(lock.getOwner(), lockType, last + 1, range.last())));
+                    }
+                }
+
+                removed |= !overlapping.isEmpty();
+                if (ranges.isEmpty()) {
+                    types.remove();
+                }
+            }
+
+            if (byType.isEmpty()) {
+                owners.remove(lock.getOwner());
+            }
+            return removed;
+        }
+
+        boolean isEmpty() {
+            return owners.isEmpty();
+        }
+
+        private static NlmLock newLock(StateOwner owner, int lockType, long first, long last) {
+            long length = last == Long.MAX_VALUE ? nfs4_prot.NFS4_UINT64_MAX : last - first + 1;
+            return new NlmLock(owner, lockType, first, length);
+        }
+    }
+}
@@ -50,5 +50,8 @@ public class read_plus_res4 implements XdrAble {
         }
     }
 
+    public void setEOF() {
+        this.rpr_eof = true;
+    }
 }
 // End of read_plus_res4.java
@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2026 Deutsches Elektronen-Synchroton,
+ * Member of the Helmholtz Association, (DESY), HAMBURG, GERMANY
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Library General Public License as
+ * published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this program (see the file COPYING.LIB for more
+ * details); if not, write to the Free Software Foundation, Inc.,
+ * 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package org.dcache.nfs.vfs;
+
+import static java.util.Objects.requireNonNull;
+
+import org.dcache.oncrpc4j.util.Opaque;
+
+import com.google.common.base.MoreObjects;
+
+/**
+ * A contiguous region of a file as returned by
+ * {@link VirtualFileSystem#readPlus(OpenHandle, Inode, long, int, Runnable)}. A segment either carries the file's
+ * data or describes a hole, e.g. a region that is not allocated on the backing storage and reads as zeros.
+ *
+ * @since 0.28
+ */
+public class DataSegment {
+
+    private final long _offset;
+    private final long _length;
+    private final Opaque _data;
+
+    private DataSegment(long offset, long length, Opaque data) {
+        _offset = offset;
+        _length = length;
+        _data = data;
+    }
+
+    /**
+     * Create a segment which carries file's data.
+     *
+     * @param offset file's position of the first byte in the segment.
+     * @param data the file's data.
+     * @return data segment.
+     */
+    public static DataSegment data(long offset, Opaque data) {
+        return new DataSegment(offset, requireNonNull(data).numBytes(), data);
+    }
+
+    /**
+     * Create a segment which describes a hole in the file.
+     *
+     * @param offset file's position where the hole starts.
+     * @param length length of the hole in bytes.
+     * @return hole segment.
+     */
+    public static DataSegment hole(long offset, long length) {
+        return new DataSegment(offset, length, null);
+    }
+
+    /**
+     * Returns {@code true} if this segment describes a hole.
+     *
+     * @return {@code true} if this segment describes a hole.
+     */
+    public boolean isHole() {
+        return _data == null;
+    }
+
+    public long getOffset() {
+        return _offset;
+    }
+
+    public long getLength() {
+        return _length;
+    }
+
+    /**
+     * Returns the file's data of this segment.
+     *
+     * @return segment's data or {@code null}, if this segment describes a hole.
+     */
+    public Opaque getData() {
+        return _data;
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+                .add("type", isHole() ? "hole" : "data")
+                .add("offset", _offset)
+                .add("length", _length)
+                .toString();
+    }
+}
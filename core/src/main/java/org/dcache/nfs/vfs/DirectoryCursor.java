@@ -0,0 +1,45 @@
+/*
+ * Copyright (c) 2026 Deutsches Elektronen-Synchroton,
+ * Member of the Helmholtz Association, (DESY), HAMBURG, GERMANY
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Library General Public License as
+ * published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this program (see the file COPYING.LIB for more
+ * details); if not, write to the Free Software Foundation, Inc.,
+ * 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package org.dcache.nfs.vfs;
+
+import java.io.IOException;
+import java.util.stream.Stream;
+
+/**
+ * A source of directory entries, which are produced on demand. Used by a {@link DirectoryStream} to list huge
+ * directories without materializing all entries in memory.
+ *
+ * @see DirectoryStream#DirectoryStream(org.dcache.oncrpc4j.util.Opaque, DirectoryCursor)
+ * @since 0.28
+ */
+@FunctionalInterface
+public interface DirectoryCursor {
+
+    /**
+     * Open a stream of the directory entries with cookies greater than the given one, ordered by cookie. The stream
+     * should be lazy, e.g. read from the backend as it's consumed. The stream is closed when the
+     * {@link DirectoryStream} which opened it is closed.
+     *
+     * @param cookie the cookie to start after, zero to start from the beginning of the directory.
+     * @return stream of directory entries.
+     * @throws IOException
+     */
+    Stream<DirectoryEntry> open(long cookie) throws IOException;
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright (c) 2026 Deutsches Elektronen-Synchroton,
+ * Member of the Helmholtz Association, (DESY), HAMBURG, GERMANY
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Library General Public License as
+ * published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this program (see the file COPYING.LIB for more
+ * details); if not, write to the Free Software Foundation, Inc.,
+ * 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package org.dcache.nfs.vfs;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.dcache.nfs.vfs.Stat.StatAttribute;
+
+/**
+ * Helper methods to fetch attributes of directory entries, which were listed without attributes, in batches.
+ *
+ * @see VirtualFileSystem#list(Inode, org.dcache.oncrpc4j.util.Opaque, long, EnumSet)
+ * @see VirtualFileSystem#getattrs(java.util.Collection, EnumSet)
+ * @since 0.28
+ */
+public final class DirectoryEntries {
+
+    /**
+     * Maximal number of entries in a batch.
+     */
+    public static final int MAX_BATCH_SIZE = 1024;
+
+    private DirectoryEntries() {
+        // no instance allowed
+    }
+
+    /**
+     * Take the next batch of entries from the given iterator.
+     *
+     * @param entries directory entries.
+     * @param size the number of entries to take, capped at {@link #MAX_BATCH_SIZE}.
+     * @return the next batch of entries, might be shorter than requested at the end of the listing.
+     */
+    public static List<DirectoryEntry> nextBatch(Iterator<DirectoryEntry> entries, int size) {
+        int batchSize = Math.max(1, Math.min(size, MAX_BATCH_SIZE));
+        List<DirectoryEntry> batch = new ArrayList<>(batchSize);
+        while (batch.size() < batchSize && entries.hasNext()) {
+            batch.add(entries.next());
+        }
+        return batch;
+    }
+
+    /**
+     * Fetch, with a single call to the file system, the attributes of all entries which were listed without
+     * attributes.
+     *
+     * @param fs the file system to query.
+     * @param entries directory entries.
+     * @param attributes the attributes needed by the caller.
+     * @return the fetched attributes keyed by inode.
+     * @throws IOException
+     */
+    public static Map<Inode, Stat> fetchMissing(VirtualFileSystem fs, List<DirectoryEntry> entries,
+            EnumSet<StatAttribute> attributes) throws IOException {
+
+        if (attributes.isEmpty()) {
+            return Map.of();
+        }
+
+        List<Inode> inodes = new ArrayList<>();
+        for (DirectoryEntry entry : entries) {
+            if (entry.getStat() == null) {
+                inodes.add(entry.getInode());
+            }
+        }
+
+        if (inodes.isEmpty()) {
+            return Map.of();
+        }
+        return fs.getattrs(inodes, attributes);
+    }
+
+    /**
+     * Get the attributes of a directory entry. The entry's own attributes are used if present, then the attributes
+     * fetched by {@link #fetchMissing(VirtualFileSystem, List, EnumSet)}. Otherwise, the attributes are queried from
+     * the file system.
+     *
+     * @param fs the file system to query.
+     * @param entry the directory entry.
+     * @param fetched attributes fetched in advance.
+     * @param attributes the attributes needed by the caller.
+     * @return attributes of the entry.
+     * @throws IOException
+     */
+    public static Stat statOf(VirtualFileSystem fs, DirectoryEntry entry, Map<Inode, Stat> fetched,
+            EnumSet<StatAttribute> attributes) throws IOException {
+
+        Stat stat = entry.getStat();
+        if (stat != null) {
+            return stat;
+        }
+
+        if (attributes.isEmpty()) {
+            // caller is not interested in any attribute
+            return new Stat();
+        }
+
+        stat = fetched.get(entry.getInode());
+        if (stat != null) {
+            return stat;
+        }
+        return fs.getattr(entry.getInode(), attributes);
+    }
+}
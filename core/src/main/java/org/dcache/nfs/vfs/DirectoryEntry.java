@@ -33,6 +33,16 @@ public class DirectoryEntry implements Comparable<DirectoryEntry> {
         _cookie = cookie;
     }
 
+    /**
+     * Create an entry without attributes.
+     *
+     * @see VirtualFileSystem#list(Inode, org.dcache.oncrpc4j.util.Opaque, long, java.util.EnumSet)
+     * @since 0.28
+     */
+    public DirectoryEntry(String name, Inode inode, long cookie) {
+        this(name, inode, null, cookie);
+    }
+
     public Inode getInode() {
         return _inode;
     }
@@ -41,6 +51,11 @@ public class DirectoryEntry implements Comparable<DirectoryEntry> {
         return _name;
     }
 
+    /**
+     * Get attributes of the entry.
+     *
+     * @return attributes of the entry, or {@code null} if listed without attributes.
+     */
     public Stat getStat() {
         return _stat;
     }
@@ -19,12 +19,17 @@
  */
 package org.dcache.nfs.vfs;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Iterator;
+import java.util.List;
 import java.util.NavigableSet;
 import java.util.TreeSet;
 import java.util.function.Function;
+import java.util.stream.Stream;
 
 import org.dcache.nfs.v4.xdr.nfs4_prot;
 import org.dcache.oncrpc4j.util.Opaque;
@@ -32,9 +37,11 @@ import org.dcache.oncrpc4j.util.Opaque;
 import com.google.common.collect.ForwardingNavigableSet;
 
 /**
- *
+ * A listing of a directory, ordered by cookie. The entries are either kept in memory, or produced on demand by a
+ * {@link DirectoryCursor}. In the latter case, the iteration might throw {@link UncheckedIOException} and the stream
+ * must be closed after use.
  */
-public class DirectoryStream implements Iterable<DirectoryEntry> {
+public class DirectoryStream implements Iterable<DirectoryEntry>, AutoCloseable {
 
     // v4 and v3 have the same verifier size
     public final static Opaque ZERO_VERIFIER = Opaque.forImmutableBytes(new byte[nfs4_prot.NFS4_VERIFIER_SIZE]);
@@ -42,6 +49,21 @@ public class DirectoryStream implements Iterable<DirectoryEntry> {
     private final Opaque verifier;
     private final NavigableSet<DirectoryEntry> entries;
 
+    /**
+     * The source of entries, if they are produced on demand.
+     */
+    private final DirectoryCursor cursor;
+
+    /**
+     * The cookie to start the cursor after.
+     */
+    private final long cookie;
+
+    /**
+     * Streams opened by the cursor, to be closed with this stream. Shared with the views of this stream.
+     */
+    private final List<Stream<DirectoryEntry>> openStreams;
+
     public DirectoryStream(Collection<DirectoryEntry> entries) {
         this(ZERO_VERIFIER, new TreeSet<>(entries));
     }
@@ -53,6 +75,29 @@ public class DirectoryStream implements Iterable<DirectoryEntry> {
     public DirectoryStream(Opaque verifier, NavigableSet<DirectoryEntry> entries) {
         this.verifier = verifier;
         this.entries = Collections.unmodifiableNavigableSet(entries);
+        this.cursor = null;
+        this.cookie = 0L;
+        this.openStreams = List.of();
+    }
+
+    /**
+     * Create a stream which entries are produced on demand by the given cursor.
+     *
+     * @param verifier the directory verifier.
+     * @param cursor the source of directory entries.
+     * @since 0.28
+     */
+    public DirectoryStream(Opaque verifier, DirectoryCursor cursor) {
+        this(verifier, cursor, 0L, new ArrayList<>());
+    }
+
+    private DirectoryStream(Opaque verifier, DirectoryCursor cursor, long cookie,
+            List<Stream<DirectoryEntry>> openStreams) {
+        this.verifier = verifier;
+        this.entries = null;
+        this.cursor = cursor;
+        this.cookie = cookie;
+        this.openStreams = openStreams;
     }
 
     public Opaque getVerifier() {
@@ -61,7 +106,34 @@ public class DirectoryStream implements Iterable<DirectoryEntry> {
 
     @Override
     public Iterator<DirectoryEntry> iterator() {
-        return entries.iterator();
+        if (cursor == null) {
+            return entries.iterator();
+        }
+
+        Stream<DirectoryEntry> stream;
+        try {
+            stream = cursor.open(cookie);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        synchronized (openStreams) {
+            openStreams.add(stream);
+        }
+        return stream.iterator();
+    }
+
+    /**
+     * Release the resources held by the iterators of this stream and its views.
+     */
+    @Override
+    public void close() {
+        if (cursor == null) {
+            return;
+        }
+        synchronized (openStreams) {
+            openStreams.forEach(Stream::close);
+            openStreams.clear();
+        }
     }
 
     /**
@@ -71,6 +143,9 @@ public class DirectoryStream implements Iterable<DirectoryEntry> {
      * @return view of this DirectoryStream, where all entries have cookies greater than specified {@code fromCookie}.
      */
     public DirectoryStream tail(long fromCookie) {
+        if (cursor != null) {
+            return new DirectoryStream(verifier, cursor, Math.max(cookie, fromCookie), openStreams);
+        }
         final DirectoryEntry cookieEntry = new DirectoryEntry("", null, null, fromCookie);
         return new DirectoryStream(verifier, entries.tailSet(cookieEntry, false));
     }
@@ -82,6 +157,10 @@ public class DirectoryStream implements Iterable<DirectoryEntry> {
      * @return the new stream with transformed elements.
      */
     public DirectoryStream transform(Function<? super DirectoryEntry, DirectoryEntry> function) {
+        if (cursor != null) {
+            return new DirectoryStream(verifier, c -> cursor.open(c).map(function), cookie,
+                    openStreams);
+        }
         return new DirectoryStream(this.verifier, new TransformingNavigableSet(function, entries));
     }
 
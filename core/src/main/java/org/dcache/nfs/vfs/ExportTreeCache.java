@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2026 Deutsches Elektronen-Synchroton,
+ * Member of the Helmholtz Association, (DESY), HAMBURG, GERMANY
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Library General Public License as
+ * published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this program (see the file COPYING.LIB for more
+ * details); if not, write to the Free Software Foundation, Inc.,
+ * 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package org.dcache.nfs.vfs;
+
+import java.net.InetAddress;
+import java.util.Map;
+import java.util.Objects;
+
+import org.dcache.nfs.ExportTable;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+
+/**
+ * A cache of pseudo file system trees. As a new {@link PseudoFs} is created for each request, the trees are shared by
+ * all instances on top of the same file system. A tree is identified by the export table, its generation and the
+ * client address, thus a cached tree is found without matching the client against the export table, and trees
+ * built before an export table re-scan are never used again. As exported directories can be removed or re-created
+ * without a re-scan, the users of a tree invalidate it when an export root turns out to be stale.
+ */
+class ExportTreeCache {
+
+    /**
+     * Maximal number of distinct trees per file system.
+     */
+    private static final int MAX_TREES = 1024;
+
+    private static final LoadingCache<VirtualFileSystem, ExportTreeCache> CACHES = CacheBuilder.newBuilder()
+            .weakKeys()
+            .build(CacheLoader.from(fs -> new ExportTreeCache()));
+
+    private final Cache<Key, Map<Inode, PseudoFsNode>> _trees = CacheBuilder.newBuilder()
+            .maximumSize(MAX_TREES)
+            .build();
+
+    /**
+     * Get the cache of the trees built on top of the given file system.
+     */
+    static ExportTreeCache of(VirtualFileSystem fs) {
+        return CACHES.getUnchecked(fs);
+    }
+
+    /**
+     * Get the tree built for the given client.
+     *
+     * @return the tree indexed by the node ids, or null if not cached.
+     */
+    Map<Inode, PseudoFsNode> get(ExportTable exportTable, long generation, InetAddress client) {
+        return _trees.getIfPresent(new Key(exportTable, generation, client));
+    }
+
+    /**
+     * Store the tree built for the given client. The trees built for older generations of the export table are
+     * discarded.
+     *
+     * @param tree the immutable tree indexed by the node ids.
+     */
+    void put(ExportTable exportTable, long generation, InetAddress client, Map<Inode, PseudoFsNode> tree) {
+        _trees.asMap().keySet().removeIf(k -> k.exportTable == exportTable && k.generation < generation);
+        _trees.put(new Key(exportTable, generation, client), tree);
+    }
+
+    /**
+     * Discard the tree built for the given client.
+     *
+     * @return true if a tree was cached.
+     */
+    boolean invalidate(ExportTable exportTable, long generation, InetAddress client) {
+        return _trees.asMap().remove(new Key(exportTable, generation, client)) != null;
+    }
+
+    private static class Key {
+
+        private final ExportTable exportTable;
+        private final long generation;
+        private final InetAddress client;
+
+        Key(ExportTable exportTable, long generation, InetAddress client) {
+            this.exportTable = exportTable;
+            this.generation = generation;
+            this.client = client;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(System.identityHashCode(exportTable), generation, client);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return exportTable == other.exportTable
+                    && generation == other.generation
+                    && client.equals(other.client);
+        }
+    }
+}
@@ -21,7 +21,10 @@ package org.dcache.nfs.vfs;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.util.Collection;
 import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 
 import javax.security.auth.Subject;
@@ -83,6 +86,12 @@ public abstract class ForwardingFileSystem implements VirtualFileSystem {
         return delegate().list(inode, verifier, cookie);
     }
 
+    @Override
+    public DirectoryStream list(Inode inode, Opaque verifier, long cookie, EnumSet<StatAttribute> attributes)
+            throws IOException {
+        return delegate().list(inode, verifier, cookie, attributes);
+    }
+
     @Override
     public Inode mkdir(Inode parent, String path, Subject subject, int mode) throws IOException {
         return delegate().mkdir(parent, path, subject, mode);
@@ -108,11 +117,27 @@ public abstract class ForwardingFileSystem implements VirtualFileSystem {
         return delegate().read(inode, data, offset);
     }
 
+    @Override
+    public boolean supportsDirectBuffers() {
+        return delegate().supportsDirectBuffers();
+    }
+
     @Override
     public Opaque read(OpenHandle oh, Inode inode, long offset, int toRead, Runnable eofReached) throws IOException {
         return delegate().read(oh, inode, offset, toRead, eofReached);
     }
 
+    @Override
+    public List<DataSegment> readPlus(OpenHandle oh, Inode inode, long offset, int toRead, Runnable eofReached)
+            throws IOException {
+        return delegate().readPlus(oh, inode, offset, toRead, eofReached);
+    }
+
+    @Override
+    public long seek(OpenHandle oh, Inode inode, long offset, SeekType what) throws IOException {
+        return delegate().seek(oh, inode, offset, what);
+    }
+
     @Override
     public String readlink(Inode inode) throws IOException {
         return delegate().readlink(inode);
@@ -146,6 +171,16 @@ public abstract class ForwardingFileSystem implements VirtualFileSystem {
         return delegate().write(oh, inode, data, offset, stabilityLevel);
     }
 
+    @Override
+    public void allocate(Inode inode, long offset, long length) throws IOException {
+        delegate().allocate(inode, offset, length);
+    }
+
+    @Override
+    public void deallocate(Inode inode, long offset, long length) throws IOException {
+        delegate().deallocate(inode, offset, length);
+    }
+
     @Override
     public void commit(Inode inode, long offset, int count) throws IOException {
         delegate().commit(inode, offset, count);
@@ -161,6 +196,12 @@ public abstract class ForwardingFileSystem implements VirtualFileSystem {
         return delegate().getattr(inode, attributes);
     }
 
+    @Override
+    public Map<Inode, Stat> getattrs(Collection<Inode> inodes, EnumSet<StatAttribute> attributes)
+            throws IOException {
+        return delegate().getattrs(inodes, attributes);
+    }
+
     @Override
     public void setattr(Inode inode, Stat stat) throws IOException {
         delegate().setattr(inode, stat);
@@ -231,6 +272,11 @@ public abstract class ForwardingFileSystem implements VirtualFileSystem {
         return delegate().copyFileRange(src, srcPos, dst, dstPos, len);
     }
 
+    @Override
+    public void cloneRange(Inode src, long srcOff, Inode dst, long dstOff, long len) throws IOException {
+        delegate().cloneRange(src, srcOff, dst, dstOff, len);
+    }
+
     @Override
     public void open(OpenHandle openStateid, Inode inode, int accessMode, int denyMode, boolean alreadyOpen)
             throws IOException {
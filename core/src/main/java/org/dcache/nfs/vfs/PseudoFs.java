@@ -50,16 +50,21 @@ import static org.dcache.nfs.v4.xdr.nfs4_prot.ACE4_WRITE_DATA;
 import static org.dcache.nfs.v4.xdr.nfs4_prot.ACE4_WRITE_OWNER;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.net.InetSocketAddress;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.EnumSet;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.function.Function;
 import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
 import javax.security.auth.Subject;
 
@@ -72,6 +77,7 @@ import org.dcache.nfs.status.InvalException;
 import org.dcache.nfs.status.NoEntException;
 import org.dcache.nfs.status.PermException;
 import org.dcache.nfs.status.RoFsException;
+import org.dcache.nfs.status.StaleException;
 import org.dcache.nfs.util.SubjectHolder;
 import org.dcache.nfs.v4.CompoundContext;
 import org.dcache.nfs.v4.ConnectionAuthenticator;
@@ -317,6 +323,17 @@ public class PseudoFs extends ForwardingFileSystem {
         return innerStrem.transform(new PushParentIndex(inode));
     }
 
+    @Override
+    public DirectoryStream list(Inode inode, Opaque verifier, long cookie, EnumSet<StatAttribute> attributes)
+            throws IOException {
+        Subject effectiveSubject = checkAccess(inode, ACE4_LIST_DIRECTORY);
+        if (inode.isPseudoInode()) {
+            return new DirectoryStream(listPseudoDirectory(inode)).tail(cookie);
+        }
+        DirectoryStream innerStrem = _inner.list(innerInode(inode), verifier, cookie, attributes);
+        return innerStrem.transform(new PushParentIndex(inode));
+    }
+
     @Override
     public Inode mkdir(Inode parent, String path, Subject subject, int mode) throws IOException {
         Subject effectiveSubject = checkAccess(parent, ACE4_ADD_SUBDIRECTORY);
@@ -366,12 +383,30 @@ public class PseudoFs extends ForwardingFileSystem {
         return _inner.read(innerInode(inode), data, offset);
     }
 
+    @Override
+    public boolean supportsDirectBuffers() {
+        return _inner.supportsDirectBuffers();
+    }
+
     @Override
     public Opaque read(OpenHandle oh, Inode inode, long offset, int toRead, Runnable eofReached) throws IOException {
         checkAccessReadWriteData(oh, inode, false);
         return _inner.read(oh, innerInode(inode), offset, toRead, eofReached);
     }
 
+    @Override
+    public List<DataSegment> readPlus(OpenHandle oh, Inode inode, long offset, int toRead, Runnable eofReached)
+            throws IOException {
+        checkAccessReadWriteData(oh, inode, false);
+        return _inner.readPlus(oh, innerInode(inode), offset, toRead, eofReached);
+    }
+
+    @Override
+    public long seek(OpenHandle oh, Inode inode, long offset, SeekType what) throws IOException {
+        checkAccessReadWriteData(oh, inode, false);
+        return _inner.seek(oh, innerInode(inode), offset, what);
+    }
+
     @Override
     public String readlink(Inode inode) throws IOException {
         checkAccess(inode, ACE4_READ_DATA);
@@ -427,6 +462,25 @@ public class PseudoFs extends ForwardingFileSystem {
         return _inner.write(oh, innerInode(inode), data, offset, stabilityLevel);
     }
 
+    @Override
+    public void allocate(Inode inode, long offset, long length) throws IOException {
+        checkAccess(inode, ACE4_WRITE_DATA);
+        _inner.allocate(innerInode(inode), offset, length);
+    }
+
+    @Override
+    public void deallocate(Inode inode, long offset, long length) throws IOException {
+        checkAccess(inode, ACE4_WRITE_DATA);
+        _inner.deallocate(innerInode(inode), offset, length);
+    }
+
+    @Override
+    public void cloneRange(Inode src, long srcOff, Inode dst, long dstOff, long len) throws IOException {
+        checkAccess(src, ACE4_READ_DATA);
+        checkAccess(dst, ACE4_WRITE_DATA);
+        _inner.cloneRange(innerInode(src), srcOff, innerInode(dst), dstOff, len);
+    }
+
     @Override
     public Stat getattr(Inode inode) throws IOException {
         checkAccess(inode, ACE4_READ_ATTRIBUTES);
@@ -439,6 +493,25 @@ public class PseudoFs extends ForwardingFileSystem {
         return _inner.getattr(innerInode(inode), attributes);
     }
 
+    @Override
+    public Map<Inode, Stat> getattrs(Collection<Inode> inodes, EnumSet<StatAttribute> attributes)
+            throws IOException {
+        Map<Inode, Inode> innerToOuter = new HashMap<>(inodes.size());
+        for (Inode inode : inodes) {
+            checkAccess(inode, ACE4_READ_ATTRIBUTES);
+            innerToOuter.put(innerInode(inode), inode);
+        }
+
+        Map<Inode, Stat> stats = new HashMap<>(inodes.size());
+        _inner.getattrs(innerToOuter.keySet(), attributes).forEach((innerInode, stat) -> {
+            Inode inode = innerToOuter.get(innerInode);
+            if (inode != null) {
+                stats.put(inode, stat);
+            }
+        });
+        return stats;
+    }
+
     @Override
     public void setattr(Inode inode, Stat stat) throws IOException {
         int mask = ACE4_WRITE_ATTRIBUTES;
@@ -630,22 +703,33 @@ public class PseudoFs extends ForwardingFileSystem {
     }
 
     private Inode lookupInPseudoDirectory(Inode parent, String name) throws IOException {
-        Set<PseudoFsNode> nodes = prepareExportTree();
+        PseudoFsNode n = childOf(prepareExportTree(), parent, name);
+        if (n != null && !exists(n) && invalidateExportTree()) {
+            // the directory was removed or re-created since the tree was built
+            n = childOf(prepareExportTree(), parent, name);
+        }
+        if (n == null) {
+            throw new NoEntException();
+        }
+        return n.isMountPoint() ? pseudoIdToReal(n.id(), getIndexId(n)) : n.id();
+    }
 
-        for (PseudoFsNode node : nodes) {
-            if (node.id().equals(parent)) {
-                PseudoFsNode n = node.getChild(name);
-                if (n != null) {
-                    return n.isMountPoint() ? pseudoIdToReal(n.id(), getIndexId(n)) : n.id();
-                }
-            }
+    private static PseudoFsNode childOf(Map<Inode, PseudoFsNode> tree, Inode parent, String name) {
+        PseudoFsNode node = tree.get(parent);
+        return node == null ? null : node.getChild(name);
+    }
+
+    private boolean exists(PseudoFsNode node) throws IOException {
+        try {
+            _inner.getattr(innerInode(node.id()), Stat.STAT_ATTRIBUTES_TYPE_ONLY);
+            return true;
+        } catch (NoEntException | StaleException e) {
+            return false;
         }
-        throw new NoEntException();
     }
 
     private boolean isPseudoDirectory(Inode dir) throws IOException {
-        return prepareExportTree().stream()
-                .anyMatch(n -> n.id().equals(dir));
+        return prepareExportTree().containsKey(dir);
     }
 
     public static Inode pseudoIdToReal(Inode inode, int index) {
@@ -689,30 +773,45 @@ public class PseudoFs extends ForwardingFileSystem {
     }
 
     private Collection<DirectoryEntry> listPseudoDirectory(Inode parent) throws ChimeraNFSException, IOException {
-        Set<PseudoFsNode> nodes = prepareExportTree();
-        for (PseudoFsNode node : nodes) {
-            if (node.id().equals(parent)) {
-                if (node.isMountPoint()) {
-                    return newArrayList(_inner.list(innerInode(parent), null, 0L).transform(new ConvertToRealInode(
-                            node)));
-                } else {
-                    long cookie = 3; // artificial cookie. Values 0, 1 and 2 are reserved.
-                    List<DirectoryEntry> pseudoLs = new ArrayList<>();
-                    for (String s : node.getChildren()) {
-                        PseudoFsNode subNode = node.getChild(s);
-                        Inode inode = subNode.id();
-                        Stat stat = _inner.getattr(innerInode(inode));
-                        DirectoryEntry e = new DirectoryEntry(s,
-                                subNode.isMountPoint()
-                                        ? pseudoIdToReal(inode, getIndexId(subNode)) : inode, stat, cookie);
-                        pseudoLs.add(e);
-                        cookie++;
-                    }
-                    return pseudoLs;
-                }
+        try {
+            return listPseudoDirectory(prepareExportTree(), parent);
+        } catch (NoEntException | StaleException e) {
+            // an exported directory was removed or re-created since the tree was built
+            if (!invalidateExportTree()) {
+                throw e;
+            }
+            return listPseudoDirectory(prepareExportTree(), parent);
+        }
+    }
+
+    private Collection<DirectoryEntry> listPseudoDirectory(Map<Inode, PseudoFsNode> tree, Inode parent)
+            throws ChimeraNFSException, IOException {
+        PseudoFsNode node = tree.get(parent);
+        if (node == null) {
+            throw new NoEntException();
+        }
+
+        if (node.isMountPoint()) {
+            try (DirectoryStream innerStream = _inner.list(innerInode(parent), null, 0L)) {
+                return newArrayList(innerStream.transform(new ConvertToRealInode(node)));
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
             }
         }
-        throw new NoEntException();
+
+        long cookie = 3; // artificial cookie. Values 0, 1 and 2 are reserved.
+        List<DirectoryEntry> pseudoLs = new ArrayList<>();
+        for (String s : node.getChildren()) {
+            PseudoFsNode subNode = node.getChild(s);
+            Inode inode = subNode.id();
+            Stat stat = _inner.getattr(innerInode(inode));
+            DirectoryEntry e = new DirectoryEntry(s,
+                    subNode.isMountPoint()
+                            ? pseudoIdToReal(inode, getIndexId(subNode)) : inode, stat, cookie);
+            pseudoLs.add(e);
+            cookie++;
+        }
+        return pseudoLs;
     }
 
     private Inode pushExportIndex(Inode inode, int index) {
@@ -744,14 +843,19 @@ public class PseudoFs extends ForwardingFileSystem {
         return new Inode(0, index, 1, inode.getFileIdKey());
     }
 
-    private void pathToPseudoFs(final PseudoFsNode root, Set<PseudoFsNode> all, FsExport e) {
+    /**
+     * Add the path of the given export to the tree.
+     *
+     * @return false if a path element can't be found.
+     */
+    private boolean pathToPseudoFs(final PseudoFsNode root, Set<PseudoFsNode> all, FsExport e) {
 
         PseudoFsNode parent = root;
         String path = e.getPath();
 
         if (e.getPath().equals("/")) {
             root.addExport(e);
-            return;
+            return true;
         }
 
         Splitter splitter = Splitter.on('/').omitEmptyStrings();
@@ -767,22 +871,43 @@ public class PseudoFs extends ForwardingFileSystem {
                 }
                 parent = node;
             } catch (IOException ef) {
-                return;
+                return false;
             }
         }
 
         all.addAll(pathNodes);
         parent.setId(pseudoIdToReal(parent.id(), e.getIndex()));
         parent.addExport(e);
+        return true;
     }
 
-    private Set<PseudoFsNode> prepareExportTree() throws ChimeraNFSException, IOException {
+    /**
+     * Get the pseudo file system tree of the exports visible to the client, indexed by node id. The tree is taken from
+     * the {@link ExportTreeCache} if the export table tracks its modifications.
+     */
+    private Map<Inode, PseudoFsNode> prepareExportTree() throws ChimeraNFSException, IOException {
+
+        long generation = _exportTable.generation();
+
+        ExportTreeCache treeCache = null;
+        if (generation > 0) {
+            treeCache = ExportTreeCache.of(_inner);
+            Map<Inode, PseudoFsNode> tree = treeCache.get(_exportTable, generation, _inetAddress.getAddress());
+            if (tree != null) {
+                return tree;
+            }
+        }
+
+        List<FsExport> exports = _exportTable.exports(_inetAddress.getAddress()).collect(Collectors.toList());
 
         Set<PseudoFsNode> nodes = new HashSet<>();
         Inode rootInode = realToPseudo(_inner.getRootInode());
         PseudoFsNode root = new PseudoFsNode(rootInode);
 
-        _exportTable.exports(_inetAddress.getAddress()).forEach(e -> pathToPseudoFs(root, nodes, e));
+        boolean complete = true;
+        for (FsExport e : exports) {
+            complete &= pathToPseudoFs(root, nodes, e);
+        }
 
         if (nodes.isEmpty()) {
             _log.warn("No exports found for: {}", _inetAddress);
@@ -790,7 +915,27 @@ public class PseudoFs extends ForwardingFileSystem {
         }
 
         nodes.add(root);
-        return nodes;
+
+        Map<Inode, PseudoFsNode> tree = new HashMap<>();
+        nodes.forEach(n -> tree.putIfAbsent(n.id(), n));
+        Map<Inode, PseudoFsNode> unmodifiableTree = Collections.unmodifiableMap(tree);
+
+        // don't cache trees with missing exports, as the exported directory might be created later
+        if (treeCache != null && complete) {
+            treeCache.put(_exportTable, generation, _inetAddress.getAddress(), unmodifiableTree);
+        }
+        return unmodifiableTree;
+    }
+
+    /**
+     * Discard the cached pseudo file system tree of the client.
+     *
+     * @return true if a cached tree was discarded.
+     */
+    private boolean invalidateExportTree() {
+        long generation = _exportTable.generation();
+        return generation > 0
+                && ExportTreeCache.of(_inner).invalidate(_exportTable, generation, _inetAddress.getAddress());
     }
 
     private static void checkSecurityFlavor(RpcAuth auth, FsExport.Sec minFlavor) throws ChimeraNFSException {
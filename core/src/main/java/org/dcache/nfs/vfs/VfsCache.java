@@ -22,13 +22,26 @@ package org.dcache.nfs.vfs;
 import static java.util.Objects.requireNonNull;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
 import java.util.Objects;
+import java.util.concurrent.ConcurrentSkipListMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 
 import javax.security.auth.Subject;
 
+import org.dcache.nfs.status.BadCookieException;
 import org.dcache.nfs.util.GuavaCacheMXBeanImpl;
+import org.dcache.nfs.vfs.Stat.StatAttribute;
 import org.dcache.oncrpc4j.util.Opaque;
 
 import com.google.common.base.Supplier;
@@ -38,18 +51,32 @@ import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
 import com.google.common.cache.LoadingCache;
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.Streams;
 
 /**
  * Caching decorator.
  */
 public class VfsCache extends ForwardingFileSystem {
 
+    /**
+     * Number of directory entries in a cached page of directory listing.
+     */
+    private static final int READDIR_PAGE_SIZE = 1024;
+
+    /**
+     * Maximal number of cached pages per directory.
+     */
+    private static final int READDIR_MAX_PAGES = 16;
+
+    private static final EnumSet<StatAttribute> ALL_ATTRIBUTES = EnumSet.allOf(StatAttribute.class);
+
     private final LoadingCache<CacheKey, Inode> _lookupCache;
     private final Cache<Opaque, Stat> _statCache;
     private final LoadingCache<Inode, Inode> _parentCache;
     private final Supplier<FsStat> _fsStatSupplier;
 
-    private final Cache<InodeCacheEntry, DirectoryStream> _readdirCache;
+    private final Cache<InodeCacheEntry, DirectoryPages> _readdirCache;
 
     private final VirtualFileSystem _inner;
 
@@ -103,6 +130,24 @@ public class VfsCache extends ForwardingFileSystem {
         _inner.commit(inode, offset, count);
     }
 
+    @Override
+    public void allocate(Inode inode, long offset, long length) throws IOException {
+        _inner.allocate(inode, offset, length);
+        invalidateStatCache(inode);
+    }
+
+    @Override
+    public void deallocate(Inode inode, long offset, long length) throws IOException {
+        _inner.deallocate(inode, offset, length);
+        invalidateStatCache(inode);
+    }
+
+    @Override
+    public void cloneRange(Inode src, long srcOff, Inode dst, long dstOff, long len) throws IOException {
+        _inner.cloneRange(src, srcOff, dst, dstOff, len);
+        invalidateStatCache(dst);
+    }
+
     @Override
     public Inode symlink(Inode parent, String path, String link, Subject subject, int mode) throws IOException {
         Inode inode = _inner.symlink(parent, path, link, subject, mode);
@@ -361,6 +406,47 @@ public class VfsCache extends ForwardingFileSystem {
 
     @Override
     public DirectoryStream list(Inode inode, Opaque verifier, long cookie) throws IOException {
+        return cachedList(inode, verifier, cookie, ALL_ATTRIBUTES, (v, c) -> delegate().list(inode, v, c));
+    }
+
+    @Override
+    public DirectoryStream list(Inode inode, Opaque verifier, long cookie, EnumSet<StatAttribute> attributes)
+            throws IOException {
+        return cachedList(inode, verifier, cookie, attributes, (v, c) -> delegate().list(inode, v, c, attributes));
+    }
+
+    @Override
+    public Map<Inode, Stat> getattrs(Collection<Inode> inodes, EnumSet<StatAttribute> attributes)
+            throws IOException {
+
+        Map<Inode, Stat> stats = new HashMap<>(inodes.size());
+        List<Inode> missing = new ArrayList<>();
+        for (Inode inode : inodes) {
+            Stat stat = _statCache.getIfPresent(inode.getFileIdKey());
+            if (stat != null) {
+                stats.put(inode, stat);
+            } else {
+                missing.add(inode);
+            }
+        }
+
+        if (!missing.isEmpty()) {
+            // the result may contain only the requested attributes, thus not cached
+            stats.putAll(_inner.getattrs(missing, attributes));
+        }
+        return stats;
+    }
+
+    /**
+     * Get directory listing, which entries are served from the cached pages of the listing. Pages, which are not
+     * cached, are fetched from the backend on demand.
+     * <p>
+     * Each page is fetched with a separate backend listing, thus pages are combined only if the backend verifier
+     * identifies them as the same directory snapshot. Backends, which have no such verifier, return
+     * {@link DirectoryStream#ZERO_VERIFIER}. Their listing is taken once, as a single page.
+     */
+    private DirectoryStream cachedList(Inode inode, Opaque verifier, long cookie, EnumSet<StatAttribute> attributes,
+            DirectoryLister lister) throws IOException {
 
         InodeCacheEntry cacheKey;
         if (cookie == 0L && verifier.equals(DirectoryStream.ZERO_VERIFIER)) {
@@ -372,15 +458,202 @@ public class VfsCache extends ForwardingFileSystem {
             cacheKey = new InodeCacheEntry(inode, verifier);
         }
 
-        DirectoryStream directoryStream = _readdirCache.getIfPresent(cacheKey);
-        if (directoryStream == null) {
-            // ask always for list from the beginning
-            directoryStream = delegate().list(inode, DirectoryStream.ZERO_VERIFIER, 0L);
-            cacheKey = new InodeCacheEntry(inode, directoryStream.getVerifier());
-            _readdirCache.put(cacheKey, directoryStream);
+        DirectoryPages pages = _readdirCache.getIfPresent(cacheKey);
+        if (pages == null || pages.pageOf(cookie) == null) {
+            // unknown snapshot is listed from the beginning
+            Opaque listVerifier = cookie == 0L ? DirectoryStream.ZERO_VERIFIER : verifier;
+            DirectoryPage page = loadPage(listVerifier, cookie, attributes, lister);
+            if (!listVerifier.equals(DirectoryStream.ZERO_VERIFIER)) {
+                checkSameSnapshot(listVerifier, page);
+            }
+            pages = _readdirCache.asMap().computeIfAbsent(new InodeCacheEntry(inode, page.verifier),
+                    k -> new DirectoryPages(page.verifier));
+            pages.add(page);
         }
 
-        return directoryStream.tail(cookie);
+        DirectoryPages directoryPages = pages;
+        return new DirectoryStream(pages.verifier,
+                c -> Streams.stream(new PageIterator(directoryPages, c, attributes, lister))).tail(cookie);
+    }
+
+    /**
+     * Fetch up to {@link #READDIR_PAGE_SIZE} entries from the backend, or all of them, if the backend can't identify
+     * directory snapshots.
+     */
+    private static DirectoryPage loadPage(Opaque verifier, long cookie, EnumSet<StatAttribute> attributes,
+            DirectoryLister lister) throws IOException {
+
+        try (DirectoryStream directoryStream = lister.list(verifier, cookie)) {
+            int pageSize = directoryStream.getVerifier().equals(DirectoryStream.ZERO_VERIFIER)
+                    ? Integer.MAX_VALUE
+                    : READDIR_PAGE_SIZE;
+            List<DirectoryEntry> entries = new ArrayList<>();
+            Iterator<DirectoryEntry> i = directoryStream.iterator();
+            while (entries.size() < pageSize && i.hasNext()) {
+                entries.add(i.next());
+            }
+            return new DirectoryPage(directoryStream.getVerifier(), cookie, entries, !i.hasNext(), attributes);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Ensure, that the page is a part of the directory snapshot identified by the verifier.
+     *
+     * @throws BadCookieException if the directory has changed since the listing was started.
+     */
+    private static void checkSameSnapshot(Opaque verifier, DirectoryPage page) throws BadCookieException {
+        if (!page.verifier.equals(verifier)) {
+            throw new BadCookieException("directory changed during listing");
+        }
+    }
+
+    /**
+     * Lists a directory starting after the given cookie.
+     */
+    @FunctionalInterface
+    private interface DirectoryLister {
+
+        DirectoryStream list(Opaque verifier, long cookie) throws IOException;
+    }
+
+    /**
+     * A part of directory listing.
+     */
+    private static class DirectoryPage {
+
+        private final Opaque verifier;
+
+        /**
+         * The cookie after which the page starts.
+         */
+        private final long start;
+        private final List<DirectoryEntry> entries;
+
+        /**
+         * Whether the page contains the end of the directory.
+         */
+        private final boolean last;
+
+        /**
+         * The attributes requested when the page was fetched.
+         */
+        private final EnumSet<StatAttribute> attributes;
+
+        DirectoryPage(Opaque verifier, long start, List<DirectoryEntry> entries, boolean last,
+                EnumSet<StatAttribute> attributes) {
+            this.verifier = verifier;
+            this.start = start;
+            this.entries = entries;
+            this.last = last;
+            this.attributes = EnumSet.copyOf(attributes);
+        }
+
+        long lastCookie() {
+            return entries.isEmpty() ? start : entries.get(entries.size() - 1).getCookie();
+        }
+
+        /**
+         * Whether the entry following the given cookie is in this page.
+         */
+        boolean covers(long cookie) {
+            return cookie >= start && (last || cookie < lastCookie());
+        }
+
+        Iterator<DirectoryEntry> entriesAfter(long cookie) {
+            return entries.stream()
+                    .filter(e -> e.getCookie() > cookie)
+                    .iterator();
+        }
+    }
+
+    /**
+     * The cached pages of a single directory snapshot.
+     */
+    private static class DirectoryPages {
+
+        private final Opaque verifier;
+        private final NavigableMap<Long, DirectoryPage> pages = new ConcurrentSkipListMap<>();
+
+        DirectoryPages(Opaque verifier) {
+            this.verifier = verifier;
+        }
+
+        DirectoryPage pageOf(long cookie) {
+            Map.Entry<Long, DirectoryPage> e = pages.floorEntry(cookie);
+            return e != null && e.getValue().covers(cookie) ? e.getValue() : null;
+        }
+
+        void add(DirectoryPage page) {
+            pages.put(page.start, page);
+            while (pages.size() > READDIR_MAX_PAGES) {
+                pages.pollFirstEntry();
+            }
+        }
+    }
+
+    /**
+     * Iterates over the cached pages of a directory, fetching missing pages from the backend.
+     */
+    private class PageIterator extends AbstractIterator<DirectoryEntry> {
+
+        private final DirectoryPages pages;
+        private final EnumSet<StatAttribute> attributes;
+        private final DirectoryLister lister;
+
+        private long cookie;
+        private DirectoryPage page;
+        private Iterator<DirectoryEntry> entries = Collections.emptyIterator();
+
+        PageIterator(DirectoryPages pages, long cookie, EnumSet<StatAttribute> attributes, DirectoryLister lister) {
+            this.pages = pages;
+            this.cookie = cookie;
+            this.attributes = attributes;
+            this.lister = lister;
+        }
+
+        @Override
+        protected DirectoryEntry computeNext() {
+            try {
+                while (!entries.hasNext()) {
+                    if (page != null && page.last) {
+                        return endOfData();
+                    }
+                    page = pages.pageOf(cookie);
+                    if (page == null) {
+                        page = loadPage(pages.verifier, cookie, attributes, lister);
+                        checkSameSnapshot(pages.verifier, page);
+                        pages.add(page);
+                    }
+                    entries = page.entriesAfter(cookie);
+                }
+
+                DirectoryEntry entry = entries.next();
+                cookie = entry.getCookie();
+                return withAttributes(entry);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        /**
+         * Adjust entry to the requested attributes, if the page was fetched with a different set of attributes.
+         */
+        private DirectoryEntry withAttributes(DirectoryEntry entry) throws IOException {
+            if (page.attributes.containsAll(attributes)) {
+                return entry;
+            }
+
+            if (attributes.equals(ALL_ATTRIBUTES)) {
+                // complete listing
+                return new DirectoryEntry(entry.getName(), entry.getInode(), statFromCacheOrLoad(entry.getInode()),
+                        entry.getCookie());
+            }
+
+            // let the caller fetch missing attributes
+            return new DirectoryEntry(entry.getName(), entry.getInode(), entry.getCookie());
+        }
     }
 
     @Override
@@ -21,15 +21,23 @@ package org.dcache.nfs.vfs;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.util.Collection;
 import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 
 import javax.security.auth.Subject;
 
 import org.dcache.nfs.status.InvalException;
 import org.dcache.nfs.status.IsDirException;
+import org.dcache.nfs.status.NXioException;
+import org.dcache.nfs.status.NoEntException;
 import org.dcache.nfs.status.NotSuppException;
+import org.dcache.nfs.util.BufferPool;
 import org.dcache.nfs.v4.NfsIdMapping;
+import org.dcache.nfs.v4.xdr.data_content4;
 import org.dcache.nfs.v4.xdr.nfsace4;
 import org.dcache.nfs.v4.xdr.stable_how4;
 import org.dcache.nfs.vfs.Stat.StatAttribute;
@@ -134,6 +142,31 @@ public interface VirtualFileSystem extends OpenCloseTracker {
      */
     DirectoryStream list(Inode inode, Opaque verifier, long cookie) throws IOException;
 
+    /**
+     * Get list of file system objects in the given directory, like {@link #list(Inode, Opaque, long)}, when the caller
+     * needs only the given subset of the attributes of the listed objects. An empty set of attributes means that only
+     * names, inodes and cookies are of interest.
+     * <p>
+     * The returned entries either contain at least the requested attributes, or have no attributes at all, e.g.
+     * {@link DirectoryEntry#getStat()} returns {@code null}. The caller fetches the missing attributes with
+     * {@link #getattrs(Collection, EnumSet)}, which allows the file system to skip the per-object stat calls during
+     * listing.
+     * <p>
+     * The default implementation returns the full listing of {@link #list(Inode, Opaque, long)}.
+     *
+     * @param inode inode of the directory to list.
+     * @param verifier opaque verifier to identify {@code snapshot} to list.
+     * @param cookie a logical offset in the listing.
+     * @param attributes the attributes of the listed objects which will be used by the caller.
+     * @return DirectoryStream containing directory listing.
+     * @throws IOException
+     * @since 0.28
+     */
+    default DirectoryStream list(Inode inode, Opaque verifier, long cookie, EnumSet<StatAttribute> attributes)
+            throws IOException {
+        return list(inode, verifier, cookie);
+    }
+
     /**
      * Generate a opaque directory verifier which is identified with can be used as identifier of directory's state
      * snapshot.
@@ -202,6 +235,15 @@ public interface VirtualFileSystem extends OpenCloseTracker {
      * @see {@link #read(Inode, ByteBuffer, long, Runnable)}
      */
     default int read(Inode inode, ByteBuffer data, long offset) throws IOException {
+        if (data.hasArray() && data.arrayOffset() + data.position() == 0) {
+            // read directly into the backing array, no need for an intermediate buffer
+            int n = read(inode, data.array(), offset, data.remaining());
+            if (n > 0) {
+                data.position(n);
+            }
+            return n;
+        }
+
         ByteBuffer buf = ByteBuffer.allocate(data.remaining());
         int n = read(inode, buf.array(), offset, buf.remaining());
         if (n > 0) {
@@ -211,6 +253,20 @@ public interface VirtualFileSystem extends OpenCloseTracker {
         return n;
     }
 
+    /**
+     * Whether {@link #read(Inode, ByteBuffer, long)} reads into a direct buffer without an intermediate copy, for
+     * instance, by using a {@link java.nio.channels.FileChannel}. If so, the server reads into pooled direct buffers,
+     * otherwise into heap buffers.
+     * <p>
+     * The default implementation returns {@code false}.
+     *
+     * @return true, if direct buffers are supported.
+     * @since 0.28
+     */
+    default boolean supportsDirectBuffers() {
+        return false;
+    }
+
     /**
      * Read data from file with a given inode into {@code data}.
      * <p>
@@ -246,7 +302,16 @@ public interface VirtualFileSystem extends OpenCloseTracker {
             throw new InvalException();
         }
 
-        ByteBuffer buf = ByteBuffer.allocate(toRead);
+        // don't allocate more than can be read
+        int len = (int) Math.max(0L, Math.min(toRead, stat.getSize() - offset));
+        if (len == 0) {
+            eofReached.run();
+            return Opaque.EMPTY_OPAQUE;
+        }
+
+        // a pooled buffer is returned into the pool when the reply is encoded
+        ByteBuffer buf = supportsDirectBuffers() ? BufferPool.getDefault().acquireForReply(len)
+                : ByteBuffer.allocate(len);
         int numRead = read(inode, buf, offset);
 
         if (numRead < 0) {
@@ -258,6 +323,71 @@ public interface VirtualFileSystem extends OpenCloseTracker {
         return Opaque.forOwnedByteBuffer(buf, 0, numRead);
     }
 
+    /**
+     * Read data from file with a given inode, describing regions that contain no data (holes) instead of returning
+     * them as zero-filled buffers. The returned segments are ordered by offset, do not overlap and cover the requested
+     * range from {@code offset}, possibly ending earlier if the end of file is reached. An empty list indicates that
+     * no data is available at {@code offset}.
+     * <p>
+     * The default implementation reports the whole range as data, as returned by
+     * {@link #read(OpenHandle, Inode, long, int, Runnable)}. File systems which are aware of sparse files should
+     * override this method together with {@link #seek(OpenHandle, Inode, long, SeekType)}.
+     *
+     * @param oh The open-handle, or {@code null}.
+     * @param inode inode of the file to read from.
+     * @param offset file's position to read from.
+     * @param toRead the maximum number of bytes to read.
+     * @param eofReached a non-blocking, idempotent callback to indicate that the end of the file was reached by the
+     *            returned segments.
+     * @return list of data and hole segments.
+     * @throws IOException
+     * @since 0.28
+     */
+    default List<DataSegment> readPlus(OpenHandle oh, Inode inode, long offset, int toRead, Runnable eofReached)
+            throws IOException {
+        Opaque data = read(oh, inode, offset, toRead, eofReached);
+        if (data == null || data.numBytes() == 0) {
+            return List.of();
+        }
+        return List.of(DataSegment.data(offset, data));
+    }
+
+    /**
+     * Find the offset of the next region of the given type in a file, starting at {@code offset}. If {@code offset}
+     * points into a region of the requested type, then {@code offset} itself is returned.
+     * <p>
+     * Every file has a virtual hole at the end of the file. Thus, if no region of the requested type follows
+     * {@code offset}, then the file size is returned.
+     * <p>
+     * The default implementation treats the whole file as data. File systems must report the same layout as
+     * {@link #readPlus(OpenHandle, Inode, long, int, Runnable)}, thus both methods should be overridden together.
+     *
+     * @param oh The open-handle, or {@code null}.
+     * @param inode inode of the file.
+     * @param offset file's position to start the search at.
+     * @param what the type of the region to look for.
+     * @return file's position of the next region of the requested type, or the file size if none is found.
+     * @throws NXioException if {@code offset} is at or beyond the end of the file.
+     * @throws IOException
+     * @since 0.28
+     */
+    default long seek(OpenHandle oh, Inode inode, long offset, SeekType what) throws IOException {
+        Stat stat = getattr(inode);
+
+        Stat.Type statType = stat.type();
+        if (statType == Stat.Type.DIRECTORY) {
+            throw new IsDirException();
+        } else if (statType == Stat.Type.SYMLINK) {
+            throw new InvalException();
+        }
+
+        long size = stat.getSize();
+        if (offset >= size) {
+            throw new NXioException("offset beyond end of file");
+        }
+        return what == SeekType.DATA ? offset : size;
+    }
+
     /**
      * Get value of a symbolic link object.
      *
@@ -339,6 +469,35 @@ public interface VirtualFileSystem extends OpenCloseTracker {
         return write(inode, data, offset, stabilityLevel);
     }
 
+    /**
+     * Reserve storage for the given byte range of a file. Subsequent writes into the range must not fail due to lack
+     * of space. If the range extends beyond the end of the file, the file size is increased accordingly; the content
+     * of the new region reads as zeros.
+     *
+     * @param inode inode of the file.
+     * @param offset the file position to start allocation at.
+     * @param length number of bytes to allocate.
+     * @throws IOException
+     * @since 0.28
+     */
+    default void allocate(Inode inode, long offset, long length) throws IOException {
+        throw new NotSuppException();
+    }
+
+    /**
+     * Release storage for the given byte range of a file. After successful completion, the range reads as zeros,
+     * and the file size remains unchanged.
+     *
+     * @param inode inode of the file.
+     * @param offset the file position to start deallocation at.
+     * @param length number of bytes to deallocate.
+     * @throws IOException
+     * @since 0.28
+     */
+    default void deallocate(Inode inode, long offset, long length) throws IOException {
+        throw new NotSuppException();
+    }
+
     /**
      * Flush data in {@code dirty} state to the stable storage. Typically follows
      * {@link #write(Inode, ByteBuffer, long, StabilityLevel)} operation.
@@ -370,6 +529,35 @@ public interface VirtualFileSystem extends OpenCloseTracker {
         return getattr(inode);
     }
 
+    /**
+     * Gets at least a specific subset of attributes for each of the given file system objects. File systems which can
+     * fetch attributes of multiple objects in a single call, e.g. a single database query, should override this
+     * method.
+     * <p>
+     * Objects which do not exist anymore may be omitted from the result.
+     * <p>
+     * The default implementation calls {@link #getattr(Inode, EnumSet)} for each object and skips objects which were
+     * removed in the meantime.
+     *
+     * @param inodes inodes of the file system objects.
+     * @param attributes the requested attributes.
+     * @return attributes of the file system objects keyed by inode.
+     * @throws IOException
+     * @since 0.28
+     */
+    default Map<Inode, Stat> getattrs(Collection<Inode> inodes, EnumSet<StatAttribute> attributes)
+            throws IOException {
+        Map<Inode, Stat> stats = new HashMap<>(inodes.size());
+        for (Inode inode : inodes) {
+            try {
+                stats.put(inode, getattr(inode, attributes));
+            } catch (NoEntException e) {
+                // removed since listed, omit it
+            }
+        }
+        return stats;
+    }
+
     /**
      * Set/update file system object's attributes.
      *
@@ -515,6 +703,39 @@ public interface VirtualFileSystem extends OpenCloseTracker {
         }
     }
 
+    /**
+     * The type of file region to look for with {@link VirtualFileSystem#seek(OpenHandle, Inode, long, SeekType)}.
+     */
+    public enum SeekType {
+        /**
+         * A region which contains file's data.
+         */
+        DATA,
+
+        /**
+         * A region which contains no data and reads as zeros.
+         */
+        HOLE;
+
+        /**
+         * Get {@link SeekType} corresponding to provided nfs {@code data_content4} value.
+         *
+         * @param what the value of nfs {@code data_content4}.
+         * @return seek type.
+         * @throws IllegalArgumentException if enum type has no constant with corresponding value.
+         */
+        public static SeekType fromDataContent(int what) {
+            switch (what) {
+                case data_content4.NFS4_CONTENT_DATA:
+                    return DATA;
+                case data_content4.NFS4_CONTENT_HOLE:
+                    return HOLE;
+                default:
+                    throw new IllegalArgumentException("unhandled data content " + what);
+            }
+        }
+    }
+
     /**
      * The modes of setXattr.
      */
@@ -600,6 +821,24 @@ public interface VirtualFileSystem extends OpenCloseTracker {
         return CompletableFuture.failedFuture(new NotSuppException());
     }
 
+    /**
+     * Share the given byte range of the source file with the destination file, typically by the means of
+     * copy-on-write (reflink). Unlike {@link #copyFileRange(Inode, long, Inode, long, long)}, the operation is
+     * expected to complete in time proportional to the metadata, not to the amount of data. If the range extends
+     * beyond the end of the destination file, the file size is increased accordingly.
+     *
+     * @param src inode of the source file.
+     * @param srcOff starting position in the source file.
+     * @param dst inode of the destination file.
+     * @param dstOff starting position in the destination file.
+     * @param len number of bytes to clone, or zero to clone up to the end of the source file.
+     * @throws IOException
+     * @since 0.28
+     */
+    default void cloneRange(Inode src, long srcOff, Inode dst, long dstOff, long len) throws IOException {
+        throw new NotSuppException();
+    }
+
     static final EnumSet<Stat.Flag> SUPPORTED_FLAGS_NONE = EnumSet.noneOf(Stat.Flag.class);
 
     default EnumSet<Stat.Flag> supportedFlags() {
@@ -123,6 +123,17 @@ public class ExportFileTest {
         assertExportExists("/added_export", ef);
     }
 
+    @Test
+    public void testGenerationChangedOnRescan() throws IOException {
+
+        ExportFile ef = new ExportFile(export, exportDir);
+        long generation = ef.generation();
+        assertTrue("generation must be positive", generation > 0);
+
+        ef.rescan();
+        assertTrue("generation not changed on rescan", ef.generation() > generation);
+    }
+
     private void assertExportExists(String path, ExportFile exportFile) {
         assertTrue("export " + path + " doesn't exists", exportFile.exports()
                 .anyMatch(e -> e.getPath().equals(path)));
@@ -0,0 +1,118 @@
+/*
+ * Copyright (c) 2009 - 2026 Deutsches Elektronen-Synchroton,
+ * Member of the Helmholtz Association, (DESY), HAMBURG, GERMANY
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Library General Public License as
+ * published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this program (see the file COPYING.LIB for more
+ * details); if not, write to the Free Software Foundation, Inc.,
+ * 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package org.dcache.nfs.util;
+
+import static org.junit.Assert.*;
+
+import java.nio.ByteBuffer;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class BufferPoolTest {
+
+    private BufferPool _pool;
+
+    @Before
+    public void setUp() {
+        _pool = new BufferPool("test-pool", 64 * 1024, 1024 * 1024);
+    }
+
+    @Test
+    public void testAcquireLimit() {
+        ByteBuffer buffer = _pool.acquire(5000);
+
+        assertTrue(buffer.isDirect());
+        assertEquals(0, buffer.position());
+        assertEquals(5000, buffer.limit());
+        assertEquals(8192, buffer.capacity());
+        assertEquals(8192, _pool.getOutstandingBytes());
+    }
+
+    @Test
+    public void testReuseReleased() {
+        ByteBuffer buffer = _pool.acquire(4096);
+        buffer.put((byte) 1);
+        _pool.release(buffer);
+
+        assertEquals(0, _pool.getOutstandingBytes());
+        assertEquals(4096, _pool.getPooledBytes());
+
+        ByteBuffer reused = _pool.acquire(100);
+        assertSame(buffer, reused);
+        assertEquals(0, reused.position());
+        assertEquals(100, reused.limit());
+        assertEquals(1, _pool.getHitCount());
+        assertEquals(1, _pool.getMissCount());
+    }
+
+    @Test
+    public void testOversizeNotPooled() {
+        ByteBuffer buffer = _pool.acquire(128 * 1024);
+        assertEquals(128 * 1024, buffer.capacity());
+
+        _pool.release(buffer);
+        assertEquals(0, _pool.getPooledBytes());
+        assertEquals(0, _pool.getOutstandingBytes());
+    }
+
+    @Test
+    public void testReplyBuffersReleasedWhenEncoded() {
+        BufferPool.ReplyBuffers reply = _pool.beginReply();
+        ByteBuffer buffer = _pool.acquireForReply(4096);
+        assertTrue(buffer.isDirect());
+        assertEquals(4096, _pool.getOutstandingBytes());
+
+        reply.release();
+        _pool.endReply();
+        assertEquals(0, _pool.getOutstandingBytes());
+        assertEquals(4096, _pool.getPooledBytes());
+    }
+
+    @Test
+    public void testNotReleasedReplyBuffersNotPooled() {
+        _pool.beginReply();
+        _pool.acquireForReply(4096);
+        _pool.endReply();
+
+        assertEquals(0, _pool.getOutstandingBytes());
+        assertEquals(0, _pool.getPooledBytes());
+    }
+
+    @Test
+    public void testReplyBuffersReleasedAfterEndNotPooled() {
+        BufferPool.ReplyBuffers reply = _pool.beginReply();
+        _pool.acquireForReply(4096);
+        _pool.endReply();
+        reply.release();
+
+        assertEquals(0, _pool.getOutstandingBytes());
+        assertEquals(0, _pool.getPooledBytes());
+        assertFalse(_pool.acquireForReply(4096).isDirect());
+    }
+
+    @Test
+    public void testHeapBufferOutsideOfReply() {
+        ByteBuffer buffer = _pool.acquireForReply(4096);
+
+        assertFalse(buffer.isDirect());
+        assertEquals(0, _pool.getMissCount());
+    }
+}
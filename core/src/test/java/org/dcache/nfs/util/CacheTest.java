@@ -23,6 +23,8 @@ import static org.junit.Assert.*;
 
 import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 
 import org.junit.Before;
@@ -120,6 +122,69 @@ public class CacheTest {
         assertNotNull("Expected Entry expired", _cache.get("key1"));
     }
 
+    @Test
+    public void testCleanUpKeepsAccessedEntry() {
+        _cache.put("key1", "value1", Duration.ofSeconds(100), Duration.ofSeconds(5));
+        _clock.advance(4, TimeUnit.SECONDS);
+        assertNotNull(_cache.get("key1"));
+        _clock.advance(4, TimeUnit.SECONDS);
+        _cache.cleanUp();
+        assertEquals("accessed entry removed", 1, _cache.size());
+
+        _clock.advance(2, TimeUnit.SECONDS);
+        _cache.cleanUp();
+        assertEquals("rescheduled entry not removed", 0, _cache.size());
+    }
+
+    @Test
+    public void testCleanUpAfterReplace() {
+        _cache.put("key1", "value1", Duration.ofSeconds(1), Duration.ofSeconds(1));
+        _cache.put("key1", "value2");
+        _clock.advance(2, TimeUnit.SECONDS);
+        _cache.cleanUp();
+        assertEquals("value2", _cache.get("key1"));
+    }
+
+    @Test
+    public void testCleanUpNotifiesExpired() {
+        List<String> expired = new ArrayList<>();
+        Cache<String, String> cache = new Cache<>("test cache", 10, Duration.ofSeconds(5), Duration.ofSeconds(5),
+                new NopCacheEventListener<>() {
+                    @Override
+                    public void notifyExpired(Cache<String, String> cache, String v) {
+                        expired.add(v);
+                    }
+                }, _clock);
+        cache.put("key1", "value1");
+        cache.put("key2", "value2");
+        cache.remove("key2");
+        _clock.advance(6, TimeUnit.SECONDS);
+        cache.cleanUp();
+        assertEquals(List.of("value1"), expired);
+    }
+
+    @Test
+    public void testCleanUpAfterConcurrentPuts() throws InterruptedException {
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            String value = "value" + i;
+            Thread t = new Thread(() -> {
+                for (int j = 0; j < 10_000; j++) {
+                    _cache.put("key1", value);
+                }
+            });
+            threads.add(t);
+            t.start();
+        }
+        for (Thread t : threads) {
+            t.join();
+        }
+
+        _clock.advance(6, TimeUnit.SECONDS);
+        _cache.cleanUp();
+        assertEquals(0, _cache.size());
+    }
+
     @Test
     public void testClear() {
         _cache.put("key1", "value1");
@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) 2009 - 2026 Deutsches Elektronen-Synchroton,
+ * Member of the Helmholtz Association, (DESY), HAMBURG, GERMANY
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Library General Public License as
+ * published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this program (see the file COPYING.LIB for more
+ * details); if not, write to the Free Software Foundation, Inc.,
+ * 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package org.dcache.nfs.util;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class LatencyHistogramTest {
+
+    private LatencyHistogram _histogram;
+
+    @Before
+    public void setUp() {
+        _histogram = new LatencyHistogram();
+    }
+
+    @Test
+    public void testEmpty() {
+        assertEquals(0, _histogram.getCount());
+        assertEquals(0, _histogram.getValueAtPercentile(99.0, TimeUnit.NANOSECONDS));
+        assertEquals(0.0, _histogram.getMean(), 0.0);
+    }
+
+    @Test
+    public void testSmallValuesAreExact() {
+        for (int i = 1; i <= 10; i++) {
+            _histogram.record(i);
+        }
+
+        assertEquals(10, _histogram.getCount());
+        assertEquals(5, _histogram.getValueAtPercentile(50.0, TimeUnit.NANOSECONDS));
+        assertEquals(10, _histogram.getValueAtPercentile(100.0, TimeUnit.NANOSECONDS));
+        assertEquals(5.5, _histogram.getMean(), 0.0);
+    }
+
+    @Test
+    public void testPercentileWithinPrecision() {
+        for (int i = 1; i <= 1000; i++) {
+            _histogram.record(TimeUnit.MICROSECONDS.toNanos(i));
+        }
+
+        long p99 = _histogram.getValueAtPercentile(99.0, TimeUnit.MICROSECONDS);
+        assertTrue("p99 out of precision: " + p99, p99 >= 990 && p99 <= 990 * 17 / 16);
+        assertEquals(1000, _histogram.getMax(TimeUnit.MICROSECONDS));
+        assertEquals(1000, _histogram.getValueAtPercentile(100.0, TimeUnit.MICROSECONDS));
+    }
+
+    @Test
+    public void testHugeValue() {
+        _histogram.record(Long.MAX_VALUE);
+
+        assertEquals(1, _histogram.getCount());
+        assertEquals(Long.MAX_VALUE, _histogram.getValueAtPercentile(100.0, TimeUnit.NANOSECONDS));
+    }
+
+    @Test
+    public void testReset() {
+        _histogram.record(100);
+        _histogram.reset();
+
+        assertEquals(0, _histogram.getCount());
+        assertEquals(0, _histogram.getMax(TimeUnit.NANOSECONDS));
+    }
+}
@@ -62,6 +62,7 @@ public class NfsServerV3READDIRPLUS_3Test {
         dirStat.setSize(512);
         vfs = mock(VirtualFileSystem.class); // the vfs serving it
         when(vfs.getattr(eq(dirInode))).thenReturn(dirStat);
+        when(vfs.list(any(), any(), anyLong(), any())).thenCallRealMethod(); // default implementation calls list
         ExportFile exportFile = new ExportFile(this.getClass().getResource("simpleExports").toURI()); // same package as
                                                                                                       // us
         nfsServer = new NfsServerV3(exportFile, vfs);
@@ -0,0 +1,131 @@
+package org.dcache.nfs.v4;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.dcache.nfs.nfsstat;
+import org.dcache.nfs.util.BufferPool;
+import org.dcache.nfs.v4.xdr.COMPOUND4res;
+import org.dcache.nfs.v4.xdr.READ4resok;
+import org.dcache.nfs.v4.xdr.nfs_opnum4;
+import org.dcache.nfs.v4.xdr.nfs_resop4;
+import org.dcache.nfs.v4.xdr.utf8str_cs;
+import org.dcache.oncrpc4j.util.Opaque;
+import org.dcache.oncrpc4j.xdr.Xdr;
+import org.junit.Test;
+
+public class CompoundReplyTest {
+
+    @Test
+    public void shouldReleaseBuffersWhenEncoded() throws IOException {
+        BufferPool pool = new BufferPool("compound-reply-test", 64 * 1024, 1024 * 1024);
+
+        CompoundReply reply = new CompoundReply(pool.beginReply());
+        pool.acquireForReply(4096);
+        reply.status = nfsstat.NFS_OK;
+        reply.tag = new utf8str_cs("");
+        reply.resarray = new ArrayList<>();
+        assertEquals(0, pool.getPooledBytes());
+
+        try (Xdr xdr = new Xdr(64)) {
+            xdr.beginEncoding();
+            reply.xdrEncode(xdr);
+            xdr.endEncoding();
+        }
+        pool.endReply();
+
+        assertEquals(0, pool.getOutstandingBytes());
+        assertEquals(4096, pool.getPooledBytes());
+    }
+
+    @Test
+    public void shouldNotReferenceReleasedBuffersAfterEncoding() throws IOException {
+        BufferPool pool = new BufferPool("compound-reply-test", 64 * 1024, 1024 * 1024);
+
+        CompoundReply reply = new CompoundReply(pool.beginReply());
+        ByteBuffer data = pool.acquireForReply(4096);
+        while (data.hasRemaining()) {
+            data.put((byte) 0x5a);
+        }
+        reply.status = nfsstat.NFS_OK;
+        reply.tag = new utf8str_cs("");
+        reply.resarray = List.of(readResult(Opaque.forOwnedByteBuffer(data, 0, 4096)));
+
+        COMPOUND4res expected = new COMPOUND4res();
+        expected.status = reply.status;
+        expected.tag = reply.tag;
+        expected.resarray = List.of(readResult(Opaque.forImmutableBytes(filled(4096, (byte) 0x5a))));
+
+        try (Xdr xdr = new Xdr(64)) {
+            xdr.beginEncoding();
+            reply.xdrEncode(xdr);
+            pool.endReply();
+
+            // the buffer is back in the pool and reused by another reply
+            ByteBuffer reused = pool.acquire(4096);
+            assertSame(data, reused);
+            reused.clear();
+            while (reused.hasRemaining()) {
+                reused.put((byte) 0);
+            }
+
+            xdr.endEncoding();
+            assertArrayEquals(encode(expected), xdr.toOpaque().toBytes());
+        }
+    }
+
+    @Test
+    public void shouldWriteEncodedResultsAsIs() throws IOException {
+        nfs_resop4 putrootfh = nfs_resop4.resopFor(nfs_opnum4.OP_PUTROOTFH);
+        putrootfh.setStatus(nfsstat.NFS_OK);
+        nfs_resop4 remove = nfs_resop4.resopFor(nfs_opnum4.OP_REMOVE);
+        remove.setStatus(nfsstat.NFSERR_NOENT);
+
+        COMPOUND4res expected = new COMPOUND4res();
+        expected.status = nfsstat.NFSERR_NOENT;
+        expected.tag = new utf8str_cs("tag");
+        expected.resarray = List.of(putrootfh, remove);
+
+        ReplyCache.EncodedReply encodedResults = new ReplyCache.EncodedReply(1024);
+        encodedResults.add(putrootfh);
+
+        CompoundReply reply = new CompoundReply(null);
+        reply.status = expected.status;
+        reply.tag = expected.tag;
+        reply.resarray = expected.resarray;
+        reply.setEncodedResults(encodedResults);
+
+        assertArrayEquals(encode(expected), encode(reply));
+    }
+
+    private static byte[] encode(COMPOUND4res res) throws IOException {
+        try (Xdr xdr = new Xdr(64)) {
+            xdr.beginEncoding();
+            res.xdrEncode(xdr);
+            xdr.endEncoding();
+            return xdr.toOpaque().toBytes();
+        }
+    }
+
+    private static nfs_resop4 readResult(Opaque data) {
+        nfs_resop4 result = nfs_resop4.resopFor(nfs_opnum4.OP_READ);
+        result.setStatus(nfsstat.NFS_OK);
+        result.opread.resok4 = new READ4resok();
+        result.opread.resok4.eof = true;
+        result.opread.resok4.data = data;
+        return result;
+    }
+
+    private static byte[] filled(int size, byte value) {
+        byte[] b = new byte[size];
+        Arrays.fill(b, value);
+        return b;
+    }
+}
@@ -0,0 +1,186 @@
+package org.dcache.nfs.v4;
+
+import static org.dcache.nfs.v4.NfsTestUtils.createClient;
+import static org.dcache.nfs.v4.NfsTestUtils.generateFileHandle;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeoutException;
+
+import org.dcache.nfs.status.DelayException;
+import org.dcache.nfs.v4.xdr.bitmap4;
+import org.dcache.nfs.v4.xdr.notify4;
+import org.dcache.nfs.v4.xdr.notify_type4;
+import org.dcache.nfs.v4.xdr.stateid4;
+import org.dcache.nfs.vfs.Inode;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import com.google.common.util.concurrent.MoreExecutors;
+
+public class DirDelegationTrackerTest {
+
+    private NFSv4StateHandler sh;
+    private DirDelegationTracker tracker;
+    private Inode dir;
+
+    @Before
+    public void setUp() {
+        sh = new NFSv4StateHandler();
+        tracker = new DirDelegationTracker(MoreExecutors.directExecutor());
+        dir = Inode.forFileIdKey(generateFileHandle().value);
+    }
+
+    @Test
+    public void shouldIssueDirDelegationStateid() throws Exception {
+        NFS4Client client = createClient(sh);
+        stateid4 stateid = tracker.delegate(client, dir, 0);
+
+        assertTrue(Stateids.isDirDelegationStateid(stateid));
+        assertEquals(stateid, tracker.delegate(client, dir, 0));
+    }
+
+    @Test
+    public void shouldIssueSingleDelegationOnConcurrentRequests() throws Exception {
+        NFS4Client client = createClient(sh);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Callable<stateid4>> requests = Collections.nCopies(64, () -> tracker.delegate(client, dir, 0));
+            Set<stateid4> stateids = new HashSet<>();
+            for (Future<stateid4> f : executor.invokeAll(requests)) {
+                stateids.add(f.get());
+            }
+            assertEquals(1, stateids.size());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void shouldRecallAllOnRemovedDirectory() throws Exception {
+        NFS4Client client1 = createClient(sh);
+        NFS4Client client2 = createClient(sh);
+
+        tracker.delegate(client1, dir, 1 << notify_type4.NOTIFY4_REMOVE_ENTRY);
+
+        try {
+            tracker.recallAll(client2, dir);
+            fail("Delay exception expected");
+        } catch (DelayException e) {
+            // expected
+        }
+
+        verify(client1.getCB()).cbDelegationRecall(any(), any(), anyBoolean());
+    }
+
+    @Test
+    public void shouldGrantSupportedNotificationsOnly() {
+        bitmap4 requested = bitmap4.of(notify_type4.NOTIFY4_ADD_ENTRY, notify_type4.NOTIFY4_CHANGE_CHILD_ATTRS);
+        assertEquals(1 << notify_type4.NOTIFY4_ADD_ENTRY, DirDelegationTracker.supportedNotifications(requested));
+    }
+
+    @Test
+    public void shouldNotifyAboutAddedEntry() throws Exception {
+        NFS4Client client1 = createClient(sh);
+        NFS4Client client2 = createClient(sh);
+
+        stateid4 stateid = tracker.delegate(client1, dir, 1 << notify_type4.NOTIFY4_ADD_ENTRY);
+
+        tracker.recallConflicting(client2, dir, notify_type4.NOTIFY4_ADD_ENTRY);
+        tracker.notifyAdd(client2, dir, "foo");
+
+        verify(client1.getCB()).cbNotify(any(), eq(stateid), any());
+        verify(client1.getCB(), never()).cbDelegationRecall(any(), any(), anyBoolean());
+    }
+
+    @Test
+    public void shouldBatchPendingNotifications() throws Exception {
+        List<Runnable> pending = new ArrayList<>();
+        tracker = new DirDelegationTracker(pending::add);
+        NFS4Client client1 = createClient(sh);
+        NFS4Client client2 = createClient(sh);
+
+        stateid4 stateid = tracker.delegate(client1, dir, 1 << notify_type4.NOTIFY4_ADD_ENTRY);
+        tracker.notifyAdd(client2, dir, "foo");
+        tracker.notifyAdd(client2, dir, "bar");
+
+        assertEquals(1, pending.size());
+        pending.forEach(Runnable::run);
+
+        ArgumentCaptor<notify4[]> changes = ArgumentCaptor.forClass(notify4[].class);
+        verify(client1.getCB()).cbNotify(any(), eq(stateid), changes.capture());
+        assertEquals(2, changes.getValue().length);
+    }
+
+    @Test
+    public void shouldRecallIfNotificationFails() throws Exception {
+        NFS4Client client1 = createClient(sh);
+        NFS4Client client2 = createClient(sh);
+        ClientCB cb = client1.getCB();
+        doThrow(new TimeoutException()).when(cb).cbNotify(any(), any(), any());
+
+        tracker.delegate(client1, dir, 1 << notify_type4.NOTIFY4_ADD_ENTRY);
+        tracker.notifyAdd(client2, dir, "foo");
+
+        verify(cb).cbDelegationRecall(any(), any(), anyBoolean());
+    }
+
+    @Test
+    public void shouldRecallOnChangeWithoutNotification() throws Exception {
+        NFS4Client client1 = createClient(sh);
+        NFS4Client client2 = createClient(sh);
+
+        tracker.delegate(client1, dir, 1 << notify_type4.NOTIFY4_ADD_ENTRY);
+
+        try {
+            tracker.recallConflicting(client2, dir, notify_type4.NOTIFY4_REMOVE_ENTRY);
+            fail("Delay exception expected");
+        } catch (DelayException e) {
+            // expected
+        }
+
+        verify(client1.getCB()).cbDelegationRecall(any(), any(), anyBoolean());
+        // no new delegations while recall is in progress
+        assertNull(tracker.delegate(client2, dir, 0));
+    }
+
+    @Test
+    public void shouldNotNotifyAboutOwnChanges() throws Exception {
+        NFS4Client client = createClient(sh);
+
+        tracker.delegate(client, dir, 0);
+        tracker.recallConflicting(client, dir, notify_type4.NOTIFY4_REMOVE_ENTRY);
+        tracker.notifyRemove(client, dir, "foo");
+
+        verify(client.getCB(), never()).cbNotify(any(), any(), any());
+        verify(client.getCB(), never()).cbDelegationRecall(any(), any(), anyBoolean());
+    }
+
+    @Test
+    public void shouldForgetReturnedDelegation() throws Exception {
+        NFS4Client client = createClient(sh);
+
+        stateid4 stateid = tracker.delegate(client, dir, 0);
+        tracker.delegationReturn(client, stateid, dir);
+
+        assertTrue(tracker.getDelegations().isEmpty());
+    }
+}
@@ -25,29 +25,44 @@ import static org.dcache.nfs.v4.xdr.nfs4_prot.OPEN4_SHARE_ACCESS_BOTH;
 import static org.dcache.nfs.v4.xdr.nfs4_prot.OPEN4_SHARE_ACCESS_READ;
 import static org.dcache.nfs.v4.xdr.nfs4_prot.OPEN4_SHARE_ACCESS_WANT_NO_DELEG;
 import static org.dcache.nfs.v4.xdr.nfs4_prot.OPEN4_SHARE_ACCESS_WANT_READ_DELEG;
+import static org.dcache.nfs.v4.xdr.nfs4_prot.OPEN4_SHARE_ACCESS_WANT_WRITE_DELEG;
 import static org.dcache.nfs.v4.xdr.nfs4_prot.OPEN4_SHARE_ACCESS_WRITE;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertThrows;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyBoolean;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 import java.io.IOException;
 import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import org.dcache.nfs.ChimeraNFSException;
 import org.dcache.nfs.status.BadStateidException;
 import org.dcache.nfs.status.DelayException;
 import org.dcache.nfs.status.InvalException;
 import org.dcache.nfs.status.ShareDeniedException;
+import org.dcache.nfs.util.ManualClock;
+import org.dcache.nfs.v4.xdr.attrlist4;
+import org.dcache.nfs.v4.xdr.bitmap4;
+import org.dcache.nfs.v4.xdr.fattr4;
+import org.dcache.nfs.v4.xdr.nfs4_prot;
 import org.dcache.nfs.v4.xdr.nfs_fh4;
+import org.dcache.nfs.v4.xdr.open_delegation_type4;
 import org.dcache.nfs.v4.xdr.seqid4;
 import org.dcache.nfs.vfs.Inode;
+import org.dcache.nfs.vfs.Stat;
 import org.dcache.oncrpc4j.util.Opaque;
 import org.hamcrest.Matchers;
 import org.junit.After;
@@ -59,12 +74,16 @@ public class FileTrackerTest {
     private OpenCloseTrackerTester openCloseTracker;
     private FileTracker tracker;
     private NFSv4StateHandler sh;
+    private ManualClock clock;
+    private List<Runnable> pendingQueries;
 
     @Before
     public void setUp() {
         openCloseTracker = new OpenCloseTrackerTester();
         sh = new NFSv4StateHandler(openCloseTracker);
-        tracker = new FileTracker(openCloseTracker);
+        clock = new ManualClock();
+        pendingQueries = new ArrayList<>();
+        tracker = new FileTracker(openCloseTracker, clock, pendingQueries::add);
     }
 
     @After
@@ -396,6 +415,160 @@ public class FileTrackerTest {
         assertEquals(1, openCloseTracker.getNumOpenAlreadyOpen());
     }
 
+    @Test
+    public void shouldGetWriteDelegation() throws Exception {
+
+        NFS4Client client = createClient(sh);
+        ClientCB mockCallBack = mock(ClientCB.class);
+        client.setCB(mockCallBack);
+
+        StateOwner stateOwner1 = client.getOrCreateOwner(Opaque.forUtf8Bytes("client1"), new seqid4(0));
+
+        nfs_fh4 fh = generateFileHandle();
+        Inode inode = Inode.forFileIdKey(fh.value);
+
+        var openRecord = tracker.addOpen(client, stateOwner1, inode, OPEN4_SHARE_ACCESS_BOTH
+                | OPEN4_SHARE_ACCESS_WANT_WRITE_DELEG, 0);
+        assertTrue("Write delegation not granted", openRecord.hasDelegation());
+        assertEquals(open_delegation_type4.OPEN_DELEGATE_WRITE, openRecord.delegationType());
+        assertEquals(OPEN4_SHARE_ACCESS_BOTH, tracker.getShareAccess(client, inode, openRecord.delegationStateId()));
+    }
+
+    @Test
+    public void shouldReCallWriteDelegationOnRead() throws Exception {
+
+        NFS4Client client1 = createClient(sh);
+        NFS4Client client2 = createClient(sh);
+
+        StateOwner stateOwner1 = client1.getOrCreateOwner(Opaque.forUtf8Bytes("client1"), new seqid4(0));
+        StateOwner stateOwner2 = client2.getOrCreateOwner(Opaque.forUtf8Bytes("client2"), new seqid4(0));
+
+        nfs_fh4 fh = generateFileHandle();
+        Inode inode = Inode.forFileIdKey(fh.value);
+
+        var openRecord1 = tracker.addOpen(client1, stateOwner1, inode, OPEN4_SHARE_ACCESS_WRITE
+                | OPEN4_SHARE_ACCESS_WANT_WRITE_DELEG, 0);
+        assertTrue("Write delegation not granted", openRecord1.hasDelegation());
+        try {
+            tracker.addOpen(client2, stateOwner2, inode, OPEN4_SHARE_ACCESS_READ, 0);
+            fail("Delay exception expected");
+        } catch (DelayException e) {
+            // expected
+        }
+
+        // recalled write delegation stays usable until returned
+        assertEquals(OPEN4_SHARE_ACCESS_BOTH, tracker.getShareAccess(client1, inode,
+                openRecord1.delegationStateId()));
+        verify(client1.getCB()).cbDelegationRecall(any(), any(), anyBoolean());
+    }
+
+    @Test
+    public void shouldGetAttributesFromWriteDelegationHolder() throws Exception {
+
+        NFS4Client client1 = createClient(sh);
+        NFS4Client client2 = createClient(sh);
+
+        StateOwner stateOwner1 = client1.getOrCreateOwner(Opaque.forUtf8Bytes("client1"), new seqid4(0));
+
+        nfs_fh4 fh = generateFileHandle();
+        Inode inode = Inode.forFileIdKey(fh.value);
+
+        Stat stat = new Stat();
+        stat.setGeneration(5);
+        stat.setSize(0);
+
+        tracker.addOpen(client1, stateOwner1, inode, OPEN4_SHARE_ACCESS_WRITE
+                | OPEN4_SHARE_ACCESS_WANT_WRITE_DELEG, 0, stat);
+
+        // the client's change attribute is opaque to the server, only modifications are detected
+        when(client1.getCB().cbGetAttr(any(), any())).thenReturn(delegatedAttrs(5, 0));
+        Stat delegatedStat = queryDelegatedAttributes(client2, inode, stat);
+        assertEquals(5, delegatedStat.getGeneration());
+        assertEquals(0, delegatedStat.getSize());
+
+        clock.advance(2, TimeUnit.SECONDS);
+        when(client1.getCB().cbGetAttr(any(), any())).thenReturn(delegatedAttrs(1, 4096));
+        delegatedStat = queryDelegatedAttributes(client2, inode, stat);
+        assertEquals(6, delegatedStat.getGeneration());
+        assertEquals(4096, delegatedStat.getSize());
+
+        // no further modifications
+        clock.advance(2, TimeUnit.SECONDS);
+        delegatedStat = queryDelegatedAttributes(client2, inode, stat);
+        assertEquals(6, delegatedStat.getGeneration());
+        assertEquals(4096, delegatedStat.getSize());
+
+        clock.advance(2, TimeUnit.SECONDS);
+        when(client1.getCB().cbGetAttr(any(), any())).thenReturn(delegatedAttrs(2, 4096));
+        assertEquals(7, queryDelegatedAttributes(client2, inode, stat).getGeneration());
+
+        // the holder gets server's view of the file
+        assertEquals(0, tracker.getDelegatedAttributes(client1, inode, stat).getSize());
+    }
+
+    @Test
+    public void shouldNotQueryWriteDelegationHolderTwice() throws Exception {
+
+        NFS4Client client1 = createClient(sh);
+        NFS4Client client2 = createClient(sh);
+        NFS4Client client3 = createClient(sh);
+
+        StateOwner stateOwner1 = client1.getOrCreateOwner(Opaque.forUtf8Bytes("client1"), new seqid4(0));
+
+        nfs_fh4 fh = generateFileHandle();
+        Inode inode = Inode.forFileIdKey(fh.value);
+        Stat stat = new Stat();
+        stat.setGeneration(1);
+        stat.setSize(0);
+
+        tracker.addOpen(client1, stateOwner1, inode, OPEN4_SHARE_ACCESS_WRITE
+                | OPEN4_SHARE_ACCESS_WANT_WRITE_DELEG, 0, stat);
+
+        assertThrows(DelayException.class, () -> tracker.getDelegatedAttributes(client2, inode, stat));
+        assertThrows(DelayException.class, () -> tracker.getDelegatedAttributes(client3, inode, stat));
+        assertEquals(1, pendingQueries.size());
+    }
+
+    @Test
+    public void shouldRecallWriteDelegationIfHolderDoesNotAnswer() throws Exception {
+
+        NFS4Client client1 = createClient(sh);
+        NFS4Client client2 = createClient(sh);
+
+        StateOwner stateOwner1 = client1.getOrCreateOwner(Opaque.forUtf8Bytes("client1"), new seqid4(0));
+
+        nfs_fh4 fh = generateFileHandle();
+        Inode inode = Inode.forFileIdKey(fh.value);
+        Stat stat = new Stat();
+        stat.setGeneration(1);
+        stat.setSize(0);
+
+        tracker.addOpen(client1, stateOwner1, inode, OPEN4_SHARE_ACCESS_WRITE
+                | OPEN4_SHARE_ACCESS_WANT_WRITE_DELEG, 0, stat);
+
+        when(client1.getCB().cbGetAttr(any(), any())).thenThrow(new TimeoutException());
+        assertThrows(DelayException.class, () -> queryDelegatedAttributes(client2, inode, stat));
+        verify(client1.getCB()).cbDelegationRecall(any(), any(), anyBoolean());
+    }
+
+    /**
+     * Get delegated attributes, processing the CB_GETATTR requested by the first attempt.
+     */
+    private Stat queryDelegatedAttributes(NFS4Client client, Inode inode, Stat stat) throws Exception {
+        assertThrows(DelayException.class, () -> tracker.getDelegatedAttributes(client, inode, stat));
+        pendingQueries.forEach(Runnable::run);
+        pendingQueries.clear();
+        return tracker.getDelegatedAttributes(client, inode, stat);
+    }
+
+    private static fattr4 delegatedAttrs(long change, long size) {
+        fattr4 attrs = new fattr4();
+        attrs.attrmask = bitmap4.of(nfs4_prot.FATTR4_CHANGE, nfs4_prot.FATTR4_SIZE);
+        attrs.attr_vals = new attrlist4(Opaque.forBytes(ByteBuffer.allocate(16).putLong(change).putLong(size)
+                .array()));
+        return attrs;
+    }
+
     @Test
     public void getOpenFiles() throws UnknownHostException, ChimeraNFSException, IOException {
 
@@ -0,0 +1,227 @@
+package org.dcache.nfs.v4;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeoutException;
+
+import org.dcache.nfs.util.ManualClock;
+import org.dcache.nfs.v4.nlm.LockDeniedException;
+import org.dcache.nfs.v4.nlm.LockManager;
+import org.dcache.nfs.v4.nlm.NlmLock;
+import org.dcache.nfs.v4.nlm.SimpleLm;
+import org.dcache.nfs.v4.xdr.clientid4;
+import org.dcache.nfs.v4.xdr.nfs_lock_type4;
+import org.dcache.nfs.v4.xdr.state_owner4;
+import org.dcache.nfs.vfs.Inode;
+import org.dcache.oncrpc4j.util.Opaque;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.util.concurrent.MoreExecutors;
+
+public class LockWaitQueueTest {
+
+    private final Inode inode = Inode.forFileIdKey(Opaque.forImmutableBytes(new byte[] {1, 2, 3, 4}));
+    private final Opaque lockKey = inode.getLockKey();
+
+    private ManualClock clock;
+    private LockWaitQueue lockWaitQueue;
+
+    @Before
+    public void setUp() {
+        clock = new ManualClock();
+        clock.advance(Duration.ofMinutes(1));
+        lockWaitQueue = new LockWaitQueue("test", clock, Duration.ofSeconds(90), Duration.ofSeconds(1),
+                MoreExecutors.directExecutor());
+    }
+
+    @Test
+    public void shouldNotifyFirstWriteWaiter() throws Exception {
+        NFS4Client client1 = newClient();
+        NFS4Client client2 = newClient();
+        lockWaitQueue.await(client1, inode, lock("owner1", nfs_lock_type4.WRITEW_LT, 0, 10));
+        lockWaitQueue.await(client2, inode, lock("owner2", nfs_lock_type4.WRITEW_LT, 0, 10));
+
+        lockWaitQueue.unlocked(lockKey, lock("owner0", nfs_lock_type4.WRITE_LT, 0, 10));
+
+        verify(client1.getCB()).cbNotifyLock(any(), any());
+        verify(client2.getCB(), never()).cbNotifyLock(any(), any());
+        assertEquals(1, lockWaitQueue.getNotifications());
+    }
+
+    @Test
+    public void shouldNotifyReadWaitersUpToWriteWaiter() throws Exception {
+        NFS4Client client1 = newClient();
+        NFS4Client client2 = newClient();
+        NFS4Client client3 = newClient();
+        lockWaitQueue.await(client1, inode, lock("owner1", nfs_lock_type4.READW_LT, 0, 10));
+        lockWaitQueue.await(client2, inode, lock("owner2", nfs_lock_type4.READW_LT, 0, 10));
+        lockWaitQueue.await(client3, inode, lock("owner3", nfs_lock_type4.WRITEW_LT, 0, 10));
+
+        lockWaitQueue.unlocked(lockKey, lock("owner0", nfs_lock_type4.WRITE_LT, 0, 10));
+
+        verify(client1.getCB()).cbNotifyLock(any(), any());
+        verify(client2.getCB()).cbNotifyLock(any(), any());
+        verify(client3.getCB(), never()).cbNotifyLock(any(), any());
+    }
+
+    @Test
+    public void shouldNotNotifyWaiterForOtherRange() throws Exception {
+        NFS4Client client1 = newClient();
+        lockWaitQueue.await(client1, inode, lock("owner1", nfs_lock_type4.WRITEW_LT, 100, 10));
+
+        lockWaitQueue.unlocked(lockKey, lock("owner0", nfs_lock_type4.WRITE_LT, 0, 10));
+
+        verify(client1.getCB(), never()).cbNotifyLock(any(), any());
+    }
+
+    @Test
+    public void shouldReserveLockForNotifiedWaiter() {
+        NlmLock waiting = lock("owner1", nfs_lock_type4.WRITEW_LT, 0, 10);
+        lockWaitQueue.await(newClient(), inode, waiting);
+        lockWaitQueue.unlocked(lockKey, lock("owner0", nfs_lock_type4.WRITE_LT, 0, 10));
+
+        assertEquals(waiting, lockWaitQueue.getReservation(lockKey, lock("owner2", nfs_lock_type4.WRITE_LT, 5, 1)));
+        assertNull(lockWaitQueue.getReservation(lockKey, lock("owner1", nfs_lock_type4.WRITE_LT, 0, 10)));
+    }
+
+    @Test
+    public void shouldPassLockOnIfReservationExpires() throws Exception {
+        NFS4Client client1 = newClient();
+        NFS4Client client2 = newClient();
+        NlmLock secondWaiter = lock("owner2", nfs_lock_type4.WRITEW_LT, 0, 10);
+        lockWaitQueue.await(client1, inode, lock("owner1", nfs_lock_type4.WRITEW_LT, 0, 10));
+        lockWaitQueue.await(client2, inode, secondWaiter);
+        lockWaitQueue.unlocked(lockKey, lock("owner0", nfs_lock_type4.WRITE_LT, 0, 10));
+
+        clock.advance(Duration.ofSeconds(2));
+
+        assertEquals(secondWaiter,
+                lockWaitQueue.getReservation(lockKey, lock("owner1", nfs_lock_type4.WRITE_LT, 0, 10)));
+        verify(client2.getCB()).cbNotifyLock(any(), any());
+        assertEquals(1, lockWaitQueue.getExpiredReservations());
+    }
+
+    @Test
+    public void shouldStartReservationWhenNotificationIsDelivered() {
+        List<Runnable> pending = new ArrayList<>();
+        lockWaitQueue = new LockWaitQueue("test", clock, Duration.ofSeconds(90), Duration.ofSeconds(1), pending::add);
+        NlmLock waiting = lock("owner1", nfs_lock_type4.WRITEW_LT, 0, 10);
+        lockWaitQueue.await(newClient(), inode, waiting);
+        lockWaitQueue.unlocked(lockKey, lock("owner0", nfs_lock_type4.WRITE_LT, 0, 10));
+
+        // the notification is still queued
+        clock.advance(Duration.ofSeconds(2));
+        assertEquals(waiting, lockWaitQueue.getReservation(lockKey, lock("owner2", nfs_lock_type4.WRITE_LT, 0, 10)));
+
+        pending.forEach(Runnable::run);
+        clock.advance(Duration.ofMillis(500));
+        assertEquals(waiting, lockWaitQueue.getReservation(lockKey, lock("owner2", nfs_lock_type4.WRITE_LT, 0, 10)));
+
+        clock.advance(Duration.ofSeconds(1));
+        assertNull(lockWaitQueue.getReservation(lockKey, lock("owner2", nfs_lock_type4.WRITE_LT, 0, 10)));
+    }
+
+    @Test
+    public void shouldDenyLockOnReservedRange() throws Exception {
+        LockManager lm = new SimpleLm();
+        NlmLock waiting = lock("owner1", nfs_lock_type4.WRITEW_LT, 0, 10);
+        NlmLock released = lock("owner0", nfs_lock_type4.WRITE_LT, 0, 10);
+        lockWaitQueue.lock(lm, lockKey, released);
+        lockWaitQueue.await(newClient(), inode, waiting);
+
+        lockWaitQueue.unlock(lm, lockKey, released);
+
+        try {
+            lockWaitQueue.lock(lm, lockKey, lock("owner2", nfs_lock_type4.WRITE_LT, 0, 10));
+            fail("lock on reserved range granted");
+        } catch (LockDeniedException e) {
+            assertEquals(waiting, e.getConflictingLock());
+        }
+        lockWaitQueue.lock(lm, lockKey, waiting);
+    }
+
+    @Test
+    public void shouldRemoveGrantedWaiter() {
+        NlmLock waiting = lock("owner1", nfs_lock_type4.WRITEW_LT, 0, 10);
+        lockWaitQueue.await(newClient(), inode, waiting);
+        lockWaitQueue.await(newClient(), inode, lock("owner2", nfs_lock_type4.WRITEW_LT, 0, 10));
+
+        assertEquals(2, lockWaitQueue.getWaiters());
+        assertEquals(2, lockWaitQueue.getMaxQueueDepth());
+
+        lockWaitQueue.granted(lockKey, waiting.getOwner());
+
+        assertEquals(1, lockWaitQueue.getWaiters());
+        assertEquals(1, lockWaitQueue.getFiles());
+    }
+
+    @Test
+    public void shouldKeepPositionOfWaitingOwner() throws Exception {
+        NFS4Client client1 = newClient();
+        NFS4Client client2 = newClient();
+        lockWaitQueue.await(client1, inode, lock("owner1", nfs_lock_type4.WRITEW_LT, 0, 10));
+        lockWaitQueue.await(client2, inode, lock("owner2", nfs_lock_type4.WRITEW_LT, 0, 10));
+        lockWaitQueue.await(client1, inode, lock("owner1", nfs_lock_type4.WRITEW_LT, 0, 10));
+
+        lockWaitQueue.unlocked(lockKey, lock("owner0", nfs_lock_type4.WRITE_LT, 0, 10));
+
+        assertEquals(2, lockWaitQueue.getWaiters());
+        verify(client1.getCB()).cbNotifyLock(any(), any());
+        verify(client2.getCB(), never()).cbNotifyLock(any(), any());
+    }
+
+    @Test
+    public void shouldDropWaitersAfterLeaseTime() throws Exception {
+        NFS4Client client1 = newClient();
+        lockWaitQueue.await(client1, inode, lock("owner1", nfs_lock_type4.WRITEW_LT, 0, 10));
+
+        clock.advance(Duration.ofSeconds(91));
+        lockWaitQueue.unlocked(lockKey, lock("owner0", nfs_lock_type4.WRITE_LT, 0, 10));
+
+        verify(client1.getCB(), never()).cbNotifyLock(any(), any());
+        assertEquals(0, lockWaitQueue.getWaiters());
+        assertEquals(0, lockWaitQueue.getFiles());
+    }
+
+    @Test
+    public void shouldDropWaiterIfNotificationFails() throws Exception {
+        NFS4Client client1 = newClient();
+        ClientCB cb = client1.getCB();
+        doThrow(new TimeoutException()).when(cb).cbNotifyLock(any(), any());
+        lockWaitQueue.await(client1, inode, lock("owner1", nfs_lock_type4.WRITEW_LT, 0, 10));
+
+        lockWaitQueue.unlocked(lockKey, lock("owner0", nfs_lock_type4.WRITE_LT, 0, 10));
+        lockWaitQueue.unlocked(lockKey, lock("owner0", nfs_lock_type4.WRITE_LT, 0, 10));
+
+        verify(client1.getCB(), times(1)).cbNotifyLock(any(), any());
+        assertEquals(1, lockWaitQueue.getFailedNotifications());
+        assertEquals(0, lockWaitQueue.getWaiters());
+    }
+
+    private static NFS4Client newClient() {
+        NFS4Client client = mock(NFS4Client.class);
+        ClientCB cb = mock(ClientCB.class);
+        when(client.getCB()).thenReturn(cb);
+        return client;
+    }
+
+    private static NlmLock lock(String owner, int lockType, long offset, long length) {
+        state_owner4 so = new state_owner4();
+        so.owner = Opaque.forUtf8Bytes(owner);
+        so.clientid = new clientid4(1);
+        return new NlmLock(new StateOwner(so, 1), lockType, offset, length);
+    }
+}
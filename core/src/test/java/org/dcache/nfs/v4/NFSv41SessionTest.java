@@ -66,6 +66,19 @@ public class NFSv41SessionTest {
         _session.getSessionSlot(slotToUse);
     }
 
+    @Test
+    public void testAllocatedSlots() throws ChimeraNFSException {
+        _session.getSessionSlot(0);
+        _session.getSessionSlot(0);
+        _session.getSessionSlot(5);
+        assertEquals(2, _session.getAllocatedSlots());
+
+        _session.setTargetHighestSlot(3);
+        _session.updateHighestSlot(3);
+        assertEquals(1, _session.getAllocatedSlots());
+        assertEquals(0, _session.getHighestUsedSlot());
+    }
+
     @Test
     public void testSessionRemove() throws ChimeraNFSException {
         assertTrue(_client.hasSessions());
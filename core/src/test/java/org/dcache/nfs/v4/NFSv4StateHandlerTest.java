@@ -21,8 +21,11 @@ package org.dcache.nfs.v4;
 
 import static org.dcache.nfs.v4.NfsTestUtils.createClient;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertSame;
 
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
 import java.net.UnknownHostException;
 import java.time.Duration;
 
@@ -31,10 +34,12 @@ import org.dcache.nfs.status.BadSeqidException;
 import org.dcache.nfs.status.BadSessionException;
 import org.dcache.nfs.status.BadStateidException;
 import org.dcache.nfs.status.StaleClientidException;
+import org.dcache.nfs.util.NopCacheEventListener;
 import org.dcache.nfs.v4.xdr.clientid4;
 import org.dcache.nfs.v4.xdr.seqid4;
 import org.dcache.nfs.v4.xdr.sessionid4;
 import org.dcache.nfs.v4.xdr.stateid4;
+import org.dcache.nfs.v4.xdr.verifier4;
 import org.dcache.oncrpc4j.util.Opaque;
 import org.junit.After;
 import org.junit.Before;
@@ -186,6 +191,46 @@ public class NFSv4StateHandlerTest {
         _stateHandler.getConfirmedClient(_client.getId());
     }
 
+    @Test
+    public void testClientByOwner() throws Exception {
+        assertSame(_client, _stateHandler.clientByOwner(_client.getOwnerId()));
+    }
+
+    @Test
+    public void testClientByOwnerNotExists() throws Exception {
+        assertNull(_stateHandler.clientByOwner(Opaque.forUtf8Bytes("unknown owner")));
+    }
+
+    @Test
+    public void testClientByOwnerAfterRemove() throws Exception {
+        _stateHandler.removeClient(_client);
+        assertNull(_stateHandler.clientByOwner(_client.getOwnerId()));
+    }
+
+    @Test
+    public void testClientByOwnerReturnsMostRecent() throws Exception {
+        NFS4Client rebooted = createClientWithOwner(_stateHandler, _client.getOwnerId());
+        assertSame(rebooted, _stateHandler.clientByOwner(_client.getOwnerId()));
+
+        _stateHandler.removeClient(rebooted);
+        assertSame(_client, _stateHandler.clientByOwner(_client.getOwnerId()));
+    }
+
+    @Test
+    public void testClientByOwnerAfterExpire() throws Exception {
+        ClientCache clientCache = new DefaultClientCache(Duration.ofSeconds(NFSv4Defaults.NFS4_LEASE_TIME),
+                new NopCacheEventListener<>());
+        NFSv4StateHandler stateHandler = new NFSv4StateHandler(null, Duration.ofSeconds(
+                NFSv4Defaults.NFS4_LEASE_TIME), 0, new EphemeralClientRecoveryStore(), clientCache);
+        try {
+            NFS4Client client = createClient(stateHandler);
+            clientCache.remove(client.getId());
+            assertNull(stateHandler.clientByOwner(client.getOwnerId()));
+        } finally {
+            stateHandler.shutdown();
+        }
+    }
+
     @Test
     public void testOpenStateidType() throws ChimeraNFSException {
         var openState = _client.createOpenState(_owner);
@@ -217,4 +262,11 @@ public class NFSv4StateHandlerTest {
         var sscState = _client.createServerSideCopyState(_owner, openState);
         Stateids.checkServerSiderCopyStateid(sscState.stateid());
     }
+
+    private static NFS4Client createClientWithOwner(NFSv4StateHandler stateHandler, Opaque owner)
+            throws UnknownHostException {
+        InetSocketAddress address = new InetSocketAddress(InetAddress.getByName(null), 123);
+        return stateHandler.createClient(address, address, 1, owner,
+                new verifier4(Opaque.forUtf8Bytes("verifier")), null, false);
+    }
 }
@@ -0,0 +1,103 @@
+package org.dcache.nfs.v4;
+
+import static org.dcache.nfs.v4.NfsTestUtils.execute;
+import static org.dcache.nfs.v4.NfsTestUtils.executeWithStatus;
+import static org.dcache.nfs.v4.NfsTestUtils.generateRpcCall;
+import static org.dcache.nfs.v4.NfsTestUtils.generateStateId;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+
+import org.dcache.nfs.nfsstat;
+import org.dcache.nfs.status.NotSuppException;
+import org.dcache.nfs.v4.xdr.COMPOUND4args;
+import org.dcache.nfs.v4.xdr.nfs4_prot;
+import org.dcache.nfs.v4.xdr.nfs_fh4;
+import org.dcache.nfs.vfs.Inode;
+import org.dcache.nfs.vfs.Stat;
+import org.dcache.nfs.vfs.VirtualFileSystem;
+import org.dcache.oncrpc4j.util.Opaque;
+import org.junit.Before;
+import org.junit.Test;
+
+public class OperationALLOCATETest {
+
+    private Inode inode = Inode.forFileIdKey(Opaque.forImmutableBytes(new byte[] {1, 2, 3, 4}));
+    private nfs_fh4 fh = new nfs_fh4(inode.toNfsHandle());
+    private VirtualFileSystem vfs;
+    private FileTracker fileTracker;
+    private CompoundContext context;
+
+    @Before
+    public void setUp() throws IOException {
+
+        Stat fileStat = new Stat();
+        fileStat.setMode(Stat.S_IFREG | 0644);
+
+        vfs = mock(VirtualFileSystem.class);
+        when(vfs.getattr(any(), any())).thenReturn(fileStat);
+
+        NFSv4StateHandler stateHandler = mock(NFSv4StateHandler.class);
+        NFS4Client client = mock(NFS4Client.class);
+        NFSv41Session session = mock(NFSv41Session.class);
+        fileTracker = mock(FileTracker.class);
+
+        when(stateHandler.getFileTracker()).thenReturn(fileTracker);
+        when(fileTracker.getShareAccess(any(), any(), any())).thenReturn(nfs4_prot.OPEN4_SHARE_ACCESS_BOTH);
+        when(stateHandler.getClientIdByStateId(any())).thenReturn(client);
+        when(session.getClient()).thenReturn(client);
+
+        context = new CompoundContextBuilder()
+                .withStateHandler(stateHandler)
+                .withSession(session)
+                .withFs(vfs)
+                .withMinorversion(2)
+                .withCall(generateRpcCall())
+                .build();
+    }
+
+    @Test
+    public void testAllocate() throws IOException {
+
+        COMPOUND4args args = new CompoundBuilder()
+                .withPutfh(fh)
+                .withAllocate(4096, 1024 * 1024, generateStateId())
+                .build();
+
+        execute(context, args);
+        verify(vfs).allocate(any(), anyLong(), anyLong());
+    }
+
+    @Test
+    public void testAllocateReadOnlyOpen() throws IOException {
+
+        when(fileTracker.getShareAccess(any(), any(), any())).thenReturn(nfs4_prot.OPEN4_SHARE_ACCESS_READ);
+
+        COMPOUND4args args = new CompoundBuilder()
+                .withPutfh(fh)
+                .withAllocate(0, 4096, generateStateId())
+                .build();
+
+        executeWithStatus(context, args, nfsstat.NFSERR_OPENMODE);
+        verify(vfs, never()).allocate(any(), anyLong(), anyLong());
+    }
+
+    @Test
+    public void testAllocateNotSupported() throws IOException {
+
+        doThrow(new NotSuppException()).when(vfs).allocate(any(), anyLong(), anyLong());
+
+        COMPOUND4args args = new CompoundBuilder()
+                .withPutfh(fh)
+                .withAllocate(0, 4096, generateStateId())
+                .build();
+
+        executeWithStatus(context, args, nfsstat.NFSERR_NOTSUPP);
+    }
+}
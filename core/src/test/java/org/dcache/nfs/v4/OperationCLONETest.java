@@ -0,0 +1,105 @@
+package org.dcache.nfs.v4;
+
+import static org.dcache.nfs.v4.NfsTestUtils.execute;
+import static org.dcache.nfs.v4.NfsTestUtils.executeWithStatus;
+import static org.dcache.nfs.v4.NfsTestUtils.generateRpcCall;
+import static org.dcache.nfs.v4.NfsTestUtils.generateStateId;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+
+import org.dcache.nfs.nfsstat;
+import org.dcache.nfs.v4.xdr.COMPOUND4args;
+import org.dcache.nfs.v4.xdr.nfs4_prot;
+import org.dcache.nfs.v4.xdr.nfs_fh4;
+import org.dcache.nfs.vfs.Inode;
+import org.dcache.nfs.vfs.Stat;
+import org.dcache.nfs.vfs.VirtualFileSystem;
+import org.dcache.oncrpc4j.util.Opaque;
+import org.junit.Before;
+import org.junit.Test;
+
+public class OperationCLONETest {
+
+    private Inode srcInode = Inode.forFileIdKey(Opaque.forImmutableBytes(new byte[] {1, 2, 3, 4}));
+    private Inode dstInode = Inode.forFileIdKey(Opaque.forImmutableBytes(new byte[] {5, 6, 7, 8}));
+    private nfs_fh4 srcFh = new nfs_fh4(srcInode.toNfsHandle());
+    private nfs_fh4 dstFh = new nfs_fh4(dstInode.toNfsHandle());
+    private VirtualFileSystem vfs;
+    private CompoundContext context;
+
+    @Before
+    public void setUp() throws IOException {
+
+        Stat fileStat = new Stat();
+        fileStat.setMode(Stat.S_IFREG | 0644);
+        fileStat.setSize(8192);
+
+        vfs = mock(VirtualFileSystem.class);
+        when(vfs.getattr(any(), any())).thenReturn(fileStat);
+
+        NFSv4StateHandler stateHandler = mock(NFSv4StateHandler.class);
+        NFS4Client client = mock(NFS4Client.class);
+        NFSv41Session session = mock(NFSv41Session.class);
+        FileTracker fileTracker = mock(FileTracker.class);
+
+        when(stateHandler.getFileTracker()).thenReturn(fileTracker);
+        when(fileTracker.getShareAccess(any(), any(), any())).thenReturn(nfs4_prot.OPEN4_SHARE_ACCESS_BOTH);
+        when(session.getClient()).thenReturn(client);
+
+        context = new CompoundContextBuilder()
+                .withStateHandler(stateHandler)
+                .withSession(session)
+                .withFs(vfs)
+                .withMinorversion(2)
+                .withCall(generateRpcCall())
+                .build();
+    }
+
+    @Test
+    public void testCloneWholeFile() throws IOException {
+
+        COMPOUND4args args = new CompoundBuilder()
+                .withPutfh(srcFh)
+                .withSavefh()
+                .withPutfh(dstFh)
+                .withClone(generateStateId(), 0, generateStateId(), 0, 0)
+                .build();
+
+        execute(context, args);
+        verify(vfs).cloneRange(eq(srcInode), eq(0L), eq(dstInode), eq(0L), eq(0L));
+    }
+
+    @Test
+    public void testCloneBeyondEndOfSource() throws IOException {
+
+        COMPOUND4args args = new CompoundBuilder()
+                .withPutfh(srcFh)
+                .withSavefh()
+                .withPutfh(dstFh)
+                .withClone(generateStateId(), 4096, generateStateId(), 0, 8192)
+                .build();
+
+        executeWithStatus(context, args, nfsstat.NFSERR_INVAL);
+        verify(vfs, never()).cloneRange(any(), anyLong(), any(), anyLong(), anyLong());
+    }
+
+    @Test
+    public void testCloneOverlappingRange() throws IOException {
+
+        COMPOUND4args args = new CompoundBuilder()
+                .withPutfh(srcFh)
+                .withSavefh()
+                .withClone(generateStateId(), 0, generateStateId(), 2048, 4096)
+                .build();
+
+        executeWithStatus(context, args, nfsstat.NFSERR_INVAL);
+        verify(vfs, never()).cloneRange(any(), anyLong(), any(), anyLong(), anyLong());
+    }
+}
@@ -2,7 +2,11 @@ package org.dcache.nfs.v4;
 
 import static org.dcache.nfs.v4.NfsTestUtils.createClient;
 import static org.dcache.nfs.v4.NfsTestUtils.execute;
+import static org.dcache.nfs.v4.NfsTestUtils.executeWithStatus;
 import static org.dcache.nfs.v4.NfsTestUtils.generateRpcCall;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.Mockito.mock;
@@ -13,8 +17,11 @@ import java.net.UnknownHostException;
 import java.util.concurrent.CompletableFuture;
 
 import org.dcache.nfs.ChimeraNFSException;
+import org.dcache.nfs.nfsstat;
 import org.dcache.nfs.status.OffloadNoReqsException;
 import org.dcache.nfs.v4.xdr.COMPOUND4args;
+import org.dcache.nfs.v4.xdr.COMPOUND4res;
+import org.dcache.nfs.v4.xdr.OFFLOAD_STATUS4resok;
 import org.dcache.nfs.v4.xdr.nfs4_prot;
 import org.dcache.nfs.v4.xdr.nfs_fh4;
 import org.dcache.nfs.v4.xdr.state_owner4;
@@ -70,8 +77,8 @@ public class OperationCOPYTest {
         openCloseTracker.tearDown();
     }
 
-    @Test(expected = OffloadNoReqsException.class)
-    public void testCopyRejectNonConsecutive() throws Exception {
+    @Test
+    public void testCopyAcceptNonConsecutive() throws Exception {
         openCloseTracker.expectUponTeardownNumOpenNew(2);
         openCloseTracker.expectUponTeardownNumOpenAlreadyOpen(0);
 
@@ -80,16 +87,18 @@ public class OperationCOPYTest {
                 .withPutfh(fhSrc)
                 .withSavefh()
                 .withPutfh(fhDest)
-                .withIntraServerCopy(srcStateid, destStateid, 0L, 0L, 0L, true, false)
+                .withIntraServerCopy(srcStateid, destStateid, 0L, 0L, 8192L, true, false)
                 .build();
 
         CompoundContext context = new CompoundContextBuilder()
                 .withStateHandler(stateHandler)
                 .withSession(session)
+                .withFs(vfs)
                 .withCall(generateRpcCall())
                 .build();
 
-        execute(context, copyArgs);
+        COMPOUND4res res = execute(context, copyArgs);
+        assertTrue(res.resarray.get(3).opcopy.cr_resok4.cr_requirements.cr_consecutive);
     }
 
     @Test(expected = OffloadNoReqsException.class)
@@ -161,4 +170,135 @@ public class OperationCOPYTest {
 
         execute(context, copyArgs);
     }
+
+    @Test
+    public void testAsyncCopyStatus() throws Exception {
+        openCloseTracker.expectUponTeardownNumOpenNew(2);
+        openCloseTracker.expectUponTeardownNumOpenAlreadyOpen(0);
+
+        CompletableFuture<Long> chunk = new CompletableFuture<>();
+        when(vfs.copyFileRange(any(), anyLong(), any(), anyLong(), anyLong())).thenReturn(chunk);
+
+        CompoundContext context = new CompoundContextBuilder()
+                .withStateHandler(stateHandler)
+                .withSession(session)
+                .withFs(vfs)
+                .withCall(generateRpcCall())
+                .build();
+
+        stateid4 copyStateid = startAsyncCopy(context, 8192L);
+
+        COMPOUND4args statusArgs = new CompoundBuilder()
+                .withMinorversion(2)
+                .withPutfh(fhDest)
+                .withOffloadStatus(copyStateid)
+                .build();
+
+        OFFLOAD_STATUS4resok status = execute(context, statusArgs).resarray.get(1).opoffload_status.osr_resok4;
+        assertEquals(0L, status.osr_count.value);
+        assertEquals(0, status.osr_complete.length);
+
+        chunk.complete(8192L);
+        waitForCompletion(copyStateid);
+
+        status = execute(context, statusArgs).resarray.get(1).opoffload_status.osr_resok4;
+        assertEquals(8192L, status.osr_count.value);
+        assertArrayEquals(new int[] {nfsstat.NFS_OK}, status.osr_complete);
+    }
+
+    @Test
+    public void testAsyncCopyCancel() throws Exception {
+        openCloseTracker.expectUponTeardownNumOpenNew(2);
+        openCloseTracker.expectUponTeardownNumOpenAlreadyOpen(0);
+
+        CompletableFuture<Long> chunk = new CompletableFuture<>();
+        when(vfs.copyFileRange(any(), anyLong(), any(), anyLong(), anyLong())).thenReturn(chunk);
+
+        CompoundContext context = new CompoundContextBuilder()
+                .withStateHandler(stateHandler)
+                .withSession(session)
+                .withFs(vfs)
+                .withCall(generateRpcCall())
+                .build();
+
+        stateid4 copyStateid = startAsyncCopy(context, 8192L);
+
+        COMPOUND4args cancelArgs = new CompoundBuilder()
+                .withMinorversion(2)
+                .withPutfh(fhDest)
+                .withOffloadCancel(copyStateid)
+                .build();
+
+        execute(context, cancelArgs);
+
+        COMPOUND4args statusArgs = new CompoundBuilder()
+                .withMinorversion(2)
+                .withPutfh(fhDest)
+                .withOffloadStatus(copyStateid)
+                .build();
+
+        executeWithStatus(context, statusArgs, nfsstat.NFSERR_BAD_STATEID);
+    }
+
+    @Test
+    public void testAsyncCopyStatusByOtherClient() throws Exception {
+        openCloseTracker.expectUponTeardownNumOpenNew(2);
+        openCloseTracker.expectUponTeardownNumOpenAlreadyOpen(0);
+
+        when(vfs.copyFileRange(any(), anyLong(), any(), anyLong(), anyLong())).thenReturn(new CompletableFuture<>());
+
+        CompoundContext context = new CompoundContextBuilder()
+                .withStateHandler(stateHandler)
+                .withSession(session)
+                .withFs(vfs)
+                .withCall(generateRpcCall())
+                .build();
+
+        stateid4 copyStateid = startAsyncCopy(context, 8192L);
+
+        NFS4Client otherClient = createClient(stateHandler);
+        CompoundContext otherContext = new CompoundContextBuilder()
+                .withStateHandler(stateHandler)
+                .withSession(otherClient.createSession(1, 8196, 8192, 128, 16))
+                .withFs(vfs)
+                .withCall(generateRpcCall())
+                .build();
+
+        COMPOUND4args statusArgs = new CompoundBuilder()
+                .withMinorversion(2)
+                .withPutfh(fhDest)
+                .withOffloadStatus(copyStateid)
+                .build();
+        executeWithStatus(otherContext, statusArgs, nfsstat.NFSERR_BAD_STATEID);
+
+        COMPOUND4args cancelArgs = new CompoundBuilder()
+                .withMinorversion(2)
+                .withPutfh(fhDest)
+                .withOffloadCancel(copyStateid)
+                .build();
+        executeWithStatus(otherContext, cancelArgs, nfsstat.NFSERR_BAD_STATEID);
+
+        execute(context, statusArgs);
+        execute(context, cancelArgs);
+    }
+
+    private stateid4 startAsyncCopy(CompoundContext context, long len) throws Exception {
+        COMPOUND4args copyArgs = new CompoundBuilder()
+                .withMinorversion(2)
+                .withPutfh(fhSrc)
+                .withSavefh()
+                .withPutfh(fhDest)
+                .withIntraServerCopy(srcStateid, destStateid, 0L, 0L, len, false, true)
+                .build();
+
+        COMPOUND4res res = execute(context, copyArgs);
+        return res.resarray.get(3).opcopy.cr_resok4.cr_response.wr_callback_id[0];
+    }
+
+    private void waitForCompletion(stateid4 copyStateid) throws Exception {
+        var copy = stateHandler.getCopyOffloadManager().getCopy(client, copyStateid);
+        for (int i = 0; i < 100 && copy.getCompletionStatus().isEmpty(); i++) {
+            Thread.sleep(10);
+        }
+    }
 }
@@ -0,0 +1,201 @@
+package org.dcache.nfs.v4;
+
+import static org.dcache.nfs.v4.NfsTestUtils.execute;
+import static org.dcache.nfs.v4.NfsTestUtils.executeWithStatus;
+import static org.dcache.nfs.v4.NfsTestUtils.generateRpcCall;
+import static org.dcache.nfs.v4.NfsTestUtils.generateStateId;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+
+import org.dcache.nfs.nfsstat;
+import org.dcache.nfs.status.NotSuppException;
+import org.dcache.nfs.v4.xdr.COMPOUND4args;
+import org.dcache.nfs.v4.xdr.nfs4_prot;
+import org.dcache.nfs.v4.xdr.nfs_fh4;
+import org.dcache.nfs.vfs.Inode;
+import org.dcache.nfs.vfs.Stat;
+import org.dcache.nfs.vfs.VirtualFileSystem;
+import org.dcache.oncrpc4j.util.Opaque;
+import org.junit.Before;
+import org.junit.Test;
+
+public class OperationDEALLOCATETest {
+
+    private Inode inode = Inode.forFileIdKey(Opaque.forImmutableBytes(new byte[] {1, 2, 3, 4}));
+    private nfs_fh4 fh = new nfs_fh4(inode.toNfsHandle());
+    private VirtualFileSystem vfs;
+    private Stat fileStat;
+    private NFSv4StateHandler stateHandler;
+    private FileTracker fileTracker;
+    private CompoundContext context;
+
+    @Before
+    public void setUp() throws IOException {
+
+        fileStat = new Stat();
+        fileStat.setMode(Stat.S_IFREG | 0644);
+        fileStat.setSize(8192);
+
+        vfs = mock(VirtualFileSystem.class);
+        when(vfs.getattr(any(), any())).thenReturn(fileStat);
+
+        stateHandler = mock(NFSv4StateHandler.class);
+        NFS4Client client = mock(NFS4Client.class);
+        NFSv41Session session = mock(NFSv41Session.class);
+        fileTracker = mock(FileTracker.class);
+
+        when(stateHandler.getFileTracker()).thenReturn(fileTracker);
+        when(fileTracker.getShareAccess(any(), any(), any())).thenReturn(nfs4_prot.OPEN4_SHARE_ACCESS_BOTH);
+        when(stateHandler.getClientIdByStateId(any())).thenReturn(client);
+        when(session.getClient()).thenReturn(client);
+
+        context = new CompoundContextBuilder()
+                .withStateHandler(stateHandler)
+                .withSession(session)
+                .withFs(vfs)
+                .withMinorversion(2)
+                .withCall(generateRpcCall())
+                .build();
+    }
+
+    @Test
+    public void testDeallocateRangeAsRequested() throws IOException {
+
+        COMPOUND4args args = new CompoundBuilder()
+                .withPutfh(fh)
+                .withDeallocate(4096, 1024 * 1024, generateStateId())
+                .build();
+
+        execute(context, args);
+        verify(vfs).deallocate(inode, 4096, 1024 * 1024);
+    }
+
+    @Test
+    public void testDeallocateDoesNotChangeSize() throws IOException {
+
+        // the range extends beyond the end of file
+        COMPOUND4args args = new CompoundBuilder()
+                .withPutfh(fh)
+                .withDeallocate(4096, 1024 * 1024, generateStateId())
+                .build();
+
+        execute(context, args);
+        verify(vfs, never()).setattr(any(), any());
+    }
+
+    @Test
+    public void testDeallocateToEndOfFile() throws IOException {
+
+        COMPOUND4args args = new CompoundBuilder()
+                .withPutfh(fh)
+                .withDeallocate(4096, nfs4_prot.NFS4_UINT64_MAX, generateStateId())
+                .build();
+
+        execute(context, args);
+        verify(vfs).deallocate(inode, 4096, nfs4_prot.NFS4_UINT64_MAX);
+    }
+
+    @Test
+    public void testDeallocateOffsetLengthOverflow() throws IOException {
+
+        // offset is 2^64 - 4096, as unsigned
+        COMPOUND4args args = new CompoundBuilder()
+                .withPutfh(fh)
+                .withDeallocate(-4096L, 8192, generateStateId())
+                .build();
+
+        executeWithStatus(context, args, nfsstat.NFSERR_INVAL);
+        verify(vfs, never()).deallocate(any(), anyLong(), anyLong());
+    }
+
+    @Test
+    public void testDeallocateDirectory() throws IOException {
+
+        fileStat.setMode(Stat.S_IFDIR | 0755);
+
+        COMPOUND4args args = new CompoundBuilder()
+                .withPutfh(fh)
+                .withDeallocate(0, 4096, generateStateId())
+                .build();
+
+        executeWithStatus(context, args, nfsstat.NFSERR_ISDIR);
+        verify(vfs, never()).deallocate(any(), anyLong(), anyLong());
+    }
+
+    @Test
+    public void testDeallocateSymlink() throws IOException {
+
+        fileStat.setMode(Stat.S_IFLNK | 0777);
+
+        COMPOUND4args args = new CompoundBuilder()
+                .withPutfh(fh)
+                .withDeallocate(0, 4096, generateStateId())
+                .build();
+
+        executeWithStatus(context, args, nfsstat.NFSERR_WRONG_TYPE);
+        verify(vfs, never()).deallocate(any(), anyLong(), anyLong());
+    }
+
+    @Test
+    public void testDeallocateWithoutMatchingOpen() throws IOException {
+
+        when(stateHandler.getFileTracker()).thenReturn(new FileTracker());
+
+        COMPOUND4args args = new CompoundBuilder()
+                .withPutfh(fh)
+                .withDeallocate(0, 4096, generateStateId())
+                .build();
+
+        executeWithStatus(context, args, nfsstat.NFSERR_BAD_STATEID);
+        verify(vfs, never()).deallocate(any(), anyLong(), anyLong());
+    }
+
+    @Test
+    public void testDeallocateWithAnonymousStateid() throws IOException {
+
+        when(stateHandler.getFileTracker()).thenReturn(new FileTracker());
+
+        COMPOUND4args args = new CompoundBuilder()
+                .withPutfh(fh)
+                .withDeallocate(0, 4096, Stateids.ZeroStateId())
+                .build();
+
+        executeWithStatus(context, args, nfsstat.NFSERR_BAD_STATEID);
+        verify(vfs, never()).deallocate(any(), anyLong(), anyLong());
+    }
+
+    @Test
+    public void testDeallocateReadOnlyOpen() throws IOException {
+
+        when(fileTracker.getShareAccess(any(), any(), any())).thenReturn(nfs4_prot.OPEN4_SHARE_ACCESS_READ);
+
+        COMPOUND4args args = new CompoundBuilder()
+                .withPutfh(fh)
+                .withDeallocate(0, 4096, generateStateId())
+                .build();
+
+        executeWithStatus(context, args, nfsstat.NFSERR_OPENMODE);
+        verify(vfs, never()).deallocate(any(), anyLong(), anyLong());
+    }
+
+    @Test
+    public void testDeallocateNotSupported() throws IOException {
+
+        doThrow(new NotSuppException()).when(vfs).deallocate(any(), anyLong(), eq(4096L));
+
+        COMPOUND4args args = new CompoundBuilder()
+                .withPutfh(fh)
+                .withDeallocate(0, 4096, generateStateId())
+                .build();
+
+        executeWithStatus(context, args, nfsstat.NFSERR_NOTSUPP);
+    }
+}
@@ -3,8 +3,10 @@ package org.dcache.nfs.v4;
 import static org.dcache.nfs.v4.xdr.layouttype4.LAYOUT4_BLOCK_VOLUME;
 import static org.dcache.nfs.v4.xdr.layouttype4.LAYOUT4_OSD2_OBJECTS;
 import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 
 import java.io.IOException;
 import java.net.InetSocketAddress;
@@ -13,11 +15,19 @@ import java.util.EnumSet;
 import java.util.Optional;
 
 import org.dcache.nfs.ExportFile;
+import org.dcache.nfs.v4.xdr.bitmap4;
+import org.dcache.nfs.v4.xdr.fattr4;
 import org.dcache.nfs.v4.xdr.fattr4_fs_layout_types;
 import org.dcache.nfs.v4.xdr.nfs4_prot;
+import org.dcache.nfs.vfs.Inode;
+import org.dcache.nfs.vfs.Stat;
+import org.dcache.nfs.vfs.VirtualFileSystem;
+import org.dcache.oncrpc4j.util.Opaque;
 import org.dcache.oncrpc4j.rpc.RpcAuthTypeNone;
 import org.dcache.oncrpc4j.rpc.RpcCall;
 import org.dcache.oncrpc4j.rpc.RpcTransport;
+import org.dcache.oncrpc4j.xdr.Xdr;
+import org.dcache.oncrpc4j.xdr.XdrAble;
 import org.junit.Test;
 
 /**
@@ -53,4 +63,50 @@ public class OperationGETATTRTest {
 
     }
 
+    @Test
+    public void testCompiledEncodingMatchesPerAttributeEncoding() throws IOException {
+
+        VirtualFileSystem vfs = mock(VirtualFileSystem.class);
+        NfsIdMapping idMapping = mock(NfsIdMapping.class);
+        when(idMapping.uidToPrincipal(1001)).thenReturn("alice");
+        when(idMapping.gidToPrincipal(1002)).thenReturn("staff");
+        when(vfs.getIdMapper()).thenReturn(idMapping);
+
+        CompoundContext context = new CompoundContextBuilder()
+                .withFs(vfs)
+                .withCall(NfsTestUtils.generateRpcCall())
+                .build();
+
+        Inode inode = Inode.forFileIdKey(Opaque.forImmutableBytes(new byte[] {1, 2, 3, 4}));
+        Stat stat = new Stat();
+        stat.setMode(Stat.S_IFREG | 0640);
+        stat.setNlink(2);
+        stat.setUid(1001);
+        stat.setGid(1002);
+        stat.setSize(8192);
+        stat.setIno(42);
+        stat.setGeneration(7);
+        stat.setATime(1700000000123L);
+        stat.setMTime(1700000001456L);
+        stat.setCTime(1700000002789L);
+
+        bitmap4 bitmap = bitmap4.of(nfs4_prot.FATTR4_TYPE, nfs4_prot.FATTR4_CHANGE, nfs4_prot.FATTR4_SIZE,
+                nfs4_prot.FATTR4_FSID, nfs4_prot.FATTR4_FILEID, nfs4_prot.FATTR4_MODE, nfs4_prot.FATTR4_NUMLINKS,
+                nfs4_prot.FATTR4_OWNER, nfs4_prot.FATTR4_OWNER_GROUP, nfs4_prot.FATTR4_RAWDEV,
+                nfs4_prot.FATTR4_SPACE_USED, nfs4_prot.FATTR4_TIME_ACCESS, nfs4_prot.FATTR4_TIME_METADATA,
+                nfs4_prot.FATTR4_TIME_MODIFY, nfs4_prot.FATTR4_MOUNTED_ON_FILEID);
+
+        fattr4 compiled = OperationGETATTR.getAttributes(bitmap, vfs, inode, stat, context);
+
+        Xdr expected = new Xdr(1024);
+        expected.beginEncoding();
+        for (int attr : bitmap) {
+            Optional<? extends XdrAble> value = OperationGETATTR.fattr2xdr(attr, vfs, inode, stat, context);
+            value.get().xdrEncode(expected);
+        }
+        expected.endEncoding();
+
+        assertArrayEquals(bitmap.value, compiled.attrmask.value);
+        assertEquals(expected.toOpaque(), compiled.attr_vals.value);
+    }
 }
@@ -11,22 +11,32 @@ import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.ArgumentMatchers.longThat;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.IntStream;
 
 import org.dcache.nfs.nfsstat;
 import org.dcache.nfs.status.MovedException;
 import org.dcache.nfs.status.TooSmallException;
+import org.dcache.nfs.v4.xdr.bitmap4;
 import org.dcache.nfs.v4.xdr.entry4;
 import org.dcache.nfs.v4.xdr.fattr4_rdattr_error;
 import org.dcache.nfs.v4.xdr.nfs4_prot;
@@ -36,14 +46,17 @@ import org.dcache.nfs.v4.xdr.nfs_resop4;
 import org.dcache.nfs.v4.xdr.verifier4;
 import org.dcache.nfs.vfs.DirectoryEntry;
 import org.dcache.nfs.vfs.DirectoryStream;
+import org.dcache.nfs.vfs.FsStat;
 import org.dcache.nfs.vfs.Inode;
 import org.dcache.nfs.vfs.Stat;
+import org.dcache.nfs.vfs.Stat.StatAttribute;
 import org.dcache.nfs.vfs.VirtualFileSystem;
 import org.dcache.oncrpc4j.util.Opaque;
 import org.dcache.oncrpc4j.xdr.Xdr;
 import org.junit.Before;
 import org.junit.Test;
 
+import com.google.common.collect.Maps;
 import com.google.common.primitives.Ints;
 
 public class OperationREADDIRTest {
@@ -81,6 +94,7 @@ public class OperationREADDIRTest {
         vfs = mock(VirtualFileSystem.class); // the vfs serving it
         when(vfs.getattr(eq(dirInode))).thenReturn(dirStat);
         given(vfs.getattr(any(), any())).willCallRealMethod(); // default implementation calls getattr
+        given(vfs.list(any(), any(), anyLong(), any())).willCallRealMethod(); // default implementation calls list
 
         result = nfs_resop4.resopFor(nfs_opnum4.OP_READDIR);
         context = new CompoundContextBuilder()
@@ -154,6 +168,79 @@ public class OperationREADDIRTest {
         assertEquals("Invalid error code returned", nfsstat.NFSERR_MOVED, rderror.value);
     }
 
+    @Test
+    public void testSharedAttributesFetchedOncePerReply() throws Exception {
+
+        givenDirectory(file("file1"), file("file2"), file("file3"));
+        NfsIdMapping idMapping = mock(NfsIdMapping.class);
+        when(idMapping.uidToPrincipal(1)).thenReturn("1");
+        when(vfs.getIdMapper()).thenReturn(idMapping);
+        when(vfs.getFsStat()).thenReturn(new FsStat(1024, 100, 512, 50));
+
+        listed(nfs4_prot.FATTR4_OWNER, nfs4_prot.FATTR4_FILES_FREE, nfs4_prot.FATTR4_SPACE_AVAIL,
+                nfs4_prot.FATTR4_SPACE_TOTAL);
+
+        assertEquals(3, entryCount());
+        verify(vfs, times(1)).getFsStat();
+        verify(idMapping, times(1)).uidToPrincipal(1);
+    }
+
+    @Test
+    public void testAttributesOfEntriesFetchedInBatch() throws Exception {
+
+        DirectoryEntry file1 = file("file1");
+        DirectoryEntry file2 = file("file2");
+        EnumSet<StatAttribute> fileid = EnumSet.of(StatAttribute.INO);
+
+        // list is stubbed to call the real method, which must not be invoked while stubbing
+        doReturn(new DirectoryStream(Arrays.asList(
+                new DirectoryEntry(file1.getName(), file1.getInode(), file1.getCookie()),
+                new DirectoryEntry(file2.getName(), file2.getInode(), file2.getCookie()))))
+                .when(vfs).list(eq(dirInode), any(), anyLong(), eq(fileid));
+        when(vfs.getattrs(any(), eq(fileid))).thenReturn(Map.of(file1.getInode(), file1.getStat(),
+                file2.getInode(), file2.getStat()));
+
+        listed(nfs4_prot.FATTR4_FILEID);
+
+        assertEquals(2, entryCount());
+        verify(vfs, times(1)).getattrs(any(), eq(fileid));
+        verify(vfs, never()).getattr(file1.getInode());
+        verify(vfs, never()).getattr(file2.getInode());
+    }
+
+    @Test
+    public void testBatchSizedByRequestedAttributes() throws Exception {
+
+        EnumSet<StatAttribute> statAttributes = AttributeEncoder.planOf(bitmap4.of(nfs4_prot.FATTR4_TYPE,
+                nfs4_prot.FATTR4_CHANGE, nfs4_prot.FATTR4_SIZE, nfs4_prot.FATTR4_FILEID, nfs4_prot.FATTR4_MODE,
+                nfs4_prot.FATTR4_TIME_MODIFY)).statAttributes();
+
+        List<DirectoryEntry> files = IntStream.range(0, 100)
+                .mapToObj(i -> file("file" + i))
+                .toList();
+        Map<Inode, Stat> stats = new HashMap<>();
+        List<DirectoryEntry> listing = new ArrayList<>();
+        for (DirectoryEntry file : files) {
+            stats.put(file.getInode(), file.getStat());
+            listing.add(new DirectoryEntry(file.getName(), file.getInode(), file.getCookie()));
+        }
+
+        List<Integer> fetched = new ArrayList<>();
+        doReturn(new DirectoryStream(listing)).when(vfs).list(eq(dirInode), any(), anyLong(), eq(statAttributes));
+        when(vfs.getattrs(any(), eq(statAttributes))).thenAnswer(i -> {
+            Collection<Inode> inodes = i.getArgument(0);
+            fetched.add(inodes.size());
+            return Maps.filterKeys(stats, inodes::contains);
+        });
+
+        listed(nfs4_prot.FATTR4_TYPE, nfs4_prot.FATTR4_CHANGE, nfs4_prot.FATTR4_SIZE, nfs4_prot.FATTR4_FILEID,
+                nfs4_prot.FATTR4_MODE, nfs4_prot.FATTR4_TIME_MODIFY);
+
+        int returned = entryCount();
+        assertFalse(result.opreaddir.resok4.reply.eof);
+        assertThat(fetched.stream().mapToInt(Integer::intValue).sum(), lessThanOrEqualTo(2 * returned));
+    }
+
     @Test
     public void testReaddirBehindCookie() throws Exception {
 
@@ -3,9 +3,16 @@ package org.dcache.nfs.v4;
 import static org.dcache.nfs.v4.NfsTestUtils.execute;
 import static org.dcache.nfs.v4.NfsTestUtils.generateRpcCall;
 import static org.dcache.nfs.v4.NfsTestUtils.generateStateId;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.CALLS_REAL_METHODS;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
@@ -14,9 +21,13 @@ import static org.mockito.Mockito.when;
 
 import java.io.IOException;
 import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
 
 import org.dcache.nfs.ChimeraNFSException;
+import org.dcache.nfs.util.BufferPool;
 import org.dcache.nfs.v4.xdr.COMPOUND4args;
+import org.dcache.nfs.v4.xdr.COMPOUND4res;
+import org.dcache.nfs.v4.xdr.READ4resok;
 import org.dcache.nfs.v4.xdr.nfs4_prot;
 import org.dcache.nfs.v4.xdr.nfs_fh4;
 import org.dcache.nfs.v4.xdr.stateid4;
@@ -124,4 +135,106 @@ public class OperationREADTest {
         execute(context, readArgs);
         verify(stateHandler, never()).updateClientLeaseTime(stateid);
     }
+
+    @Test
+    public void testShortReadWithoutEof() throws IOException {
+        when(vfs.read(any(), any(), anyLong(), anyInt(), any()))
+                .thenReturn(Opaque.forImmutableBytes(new byte[100]));
+
+        READ4resok resok = read(1024, 0);
+
+        assertEquals(100, resok.data.numBytes());
+        assertFalse(resok.eof);
+    }
+
+    @Test
+    public void testEofReportedByFileSystem() throws IOException {
+        when(vfs.read(any(), any(), anyLong(), anyInt(), any())).thenAnswer(i -> {
+            i.getArgument(4, Runnable.class).run();
+            return Opaque.forImmutableBytes(new byte[12]);
+        });
+
+        READ4resok resok = read(1024, 500);
+
+        assertEquals(12, resok.data.numBytes());
+        assertTrue(resok.eof);
+    }
+
+    @Test
+    public void testEofOnEmptyRead() throws IOException {
+        when(vfs.read(any(), any(), anyLong(), anyInt(), any())).thenReturn(null);
+
+        READ4resok resok = read(1024, 4096);
+
+        assertEquals(0, resok.data.numBytes());
+        assertTrue(resok.eof);
+    }
+
+    @Test
+    public void testCountLimitedToMaxRead() throws IOException {
+        when(vfs.read(any(), any(), anyLong(), anyInt(), any())).thenReturn(Opaque.EMPTY_OPAQUE);
+
+        read(-1, 0);
+
+        verify(vfs).read(any(), any(), eq(0L), eq((int) NFSv4Defaults.NFS4_MAXIOBUFFERSIZE), any());
+    }
+
+    @Test
+    public void testReplyOwnsPooledBuffer() throws IOException {
+        vfs = mock(VirtualFileSystem.class, CALLS_REAL_METHODS);
+        doReturn(fileStat).when(vfs).getattr(any());
+        doReturn(true).when(vfs).supportsDirectBuffers();
+        doAnswer(i -> {
+            ByteBuffer buf = i.getArgument(1);
+            int n = buf.remaining();
+            while (buf.hasRemaining()) {
+                buf.put((byte) 1);
+            }
+            return n;
+        }).when(vfs).read(any(), any(ByteBuffer.class), anyLong());
+
+        BufferPool pool = BufferPool.getDefault();
+        long outstanding = pool.getOutstandingBytes();
+        BufferPool.ReplyBuffers replyBuffers = pool.beginReply();
+        try {
+            READ4resok resok = read(512, 0);
+
+            assertEquals(512, resok.data.numBytes());
+            assertTrue(resok.eof);
+            assertTrue("buffer must be held by the reply", pool.getOutstandingBytes() > outstanding);
+
+            replyBuffers.release();
+            assertEquals(outstanding, pool.getOutstandingBytes());
+        } finally {
+            pool.endReply();
+        }
+    }
+
+    private READ4resok read(int count, long offset) throws IOException {
+        NFSv4StateHandler stateHandler = mock(NFSv4StateHandler.class);
+        NFS4Client client = mock(NFS4Client.class);
+        NFSv41Session session = mock(NFSv41Session.class);
+        FileTracker fileTracker = mock(FileTracker.class);
+
+        when(stateHandler.getFileTracker()).thenReturn(fileTracker);
+        when(fileTracker.getShareAccess(any(), any(), any())).thenReturn(nfs4_prot.OPEN4_SHARE_ACCESS_READ);
+        when(stateHandler.getClientIdByStateId(any())).thenReturn(client);
+        when(session.getClient()).thenReturn(client);
+
+        COMPOUND4args readArgs = new CompoundBuilder()
+                .withPutfh(fh)
+                .withRead(count, offset, generateStateId())
+                .build();
+
+        CompoundContext context = new CompoundContextBuilder()
+                .withStateHandler(stateHandler)
+                .withSession(session)
+                .withFs(vfs)
+                .withMinorversion(1)
+                .withCall(generateRpcCall())
+                .build();
+
+        COMPOUND4res res = execute(context, readArgs);
+        return res.resarray.get(1).opread.resok4;
+    }
 }
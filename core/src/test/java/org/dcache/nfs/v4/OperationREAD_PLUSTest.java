@@ -0,0 +1,137 @@
+package org.dcache.nfs.v4;
+
+import static org.dcache.nfs.v4.NfsTestUtils.execute;
+import static org.dcache.nfs.v4.NfsTestUtils.generateRpcCall;
+import static org.dcache.nfs.v4.NfsTestUtils.generateStateId;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.util.List;
+
+import org.dcache.nfs.v4.xdr.COMPOUND4args;
+import org.dcache.nfs.v4.xdr.COMPOUND4res;
+import org.dcache.nfs.v4.xdr.data_content4;
+import org.dcache.nfs.v4.xdr.nfs4_prot;
+import org.dcache.nfs.v4.xdr.nfs_fh4;
+import org.dcache.nfs.v4.xdr.read_plus_res4;
+import org.dcache.nfs.v4.xdr.stateid4;
+import org.dcache.nfs.vfs.DataSegment;
+import org.dcache.nfs.vfs.Inode;
+import org.dcache.nfs.vfs.VirtualFileSystem;
+import org.dcache.oncrpc4j.util.Opaque;
+import org.junit.Before;
+import org.junit.Test;
+
+public class OperationREAD_PLUSTest {
+
+    private Inode inode = Inode.forFileIdKey(Opaque.forImmutableBytes(new byte[] {1, 2, 3, 4}));
+    private nfs_fh4 fh = new nfs_fh4(inode.toNfsHandle());
+    private VirtualFileSystem vfs;
+    private CompoundContext context;
+
+    @Before
+    public void setUp() throws IOException {
+
+        vfs = mock(VirtualFileSystem.class);
+
+        NFSv4StateHandler stateHandler = mock(NFSv4StateHandler.class);
+        NFS4Client client = mock(NFS4Client.class);
+        NFSv41Session session = mock(NFSv41Session.class);
+        FileTracker fileTracker = mock(FileTracker.class);
+
+        when(stateHandler.getFileTracker()).thenReturn(fileTracker);
+        when(fileTracker.getShareAccess(any(), any(), any())).thenReturn(nfs4_prot.OPEN4_SHARE_ACCESS_READ);
+        when(stateHandler.getClientIdByStateId(any())).thenReturn(client);
+        when(session.getClient()).thenReturn(client);
+
+        context = new CompoundContextBuilder()
+                .withStateHandler(stateHandler)
+                .withSession(session)
+                .withFs(vfs)
+                .withMinorversion(2)
+                .withCall(generateRpcCall())
+                .build();
+    }
+
+    @Test
+    public void testHolesAndData() throws IOException {
+
+        stateid4 stateid = generateStateId();
+        byte[] data = new byte[] {1, 2, 3, 4};
+
+        when(vfs.readPlus(any(), any(), anyLong(), anyInt(), any())).thenReturn(List.of(
+                DataSegment.hole(0, 8192),
+                DataSegment.data(8192, Opaque.forImmutableBytes(data))));
+
+        COMPOUND4args args = new CompoundBuilder()
+                .withPutfh(fh)
+                .withReadPlus(8196, 0, stateid)
+                .build();
+
+        COMPOUND4res res = execute(context, args);
+        read_plus_res4 resok = res.resarray.get(1).opread_plus.rp_resok4;
+
+        assertFalse(resok.rpr_eof);
+        assertEquals(2, resok.rpr_contents.length);
+
+        assertEquals(data_content4.NFS4_CONTENT_HOLE, resok.rpr_contents[0].rpc_content);
+        assertEquals(0L, resok.rpr_contents[0].rpc_hole.di_offset.value);
+        assertEquals(8192L, resok.rpr_contents[0].rpc_hole.di_length.value);
+
+        assertEquals(data_content4.NFS4_CONTENT_DATA, resok.rpr_contents[1].rpc_content);
+        assertEquals(8192L, resok.rpr_contents[1].rpc_data.d_offset.value);
+        assertArrayEquals(data, resok.rpr_contents[1].rpc_data.d_data.toBytes());
+    }
+
+    @Test
+    public void testEofOnEmptyResult() throws IOException {
+
+        stateid4 stateid = generateStateId();
+        when(vfs.readPlus(any(), any(), anyLong(), anyInt(), any())).thenReturn(List.of());
+
+        COMPOUND4args args = new CompoundBuilder()
+                .withPutfh(fh)
+                .withReadPlus(1024, 4096, stateid)
+                .build();
+
+        COMPOUND4res res = execute(context, args);
+        read_plus_res4 resok = res.resarray.get(1).opread_plus.rp_resok4;
+
+        assertTrue(resok.rpr_eof);
+        assertEquals(0, resok.rpr_contents.length);
+    }
+
+    @Test
+    public void testDefaultReadPlusReturnsData() throws IOException {
+
+        stateid4 stateid = generateStateId();
+        byte[] data = new byte[] {1, 2, 3, 4};
+
+        when(vfs.readPlus(any(), any(), anyLong(), anyInt(), any())).thenCallRealMethod();
+        when(vfs.read(any(), any(), anyLong(), anyInt(), any())).thenAnswer(i -> {
+            i.getArgument(4, Runnable.class).run();
+            return Opaque.forImmutableBytes(data);
+        });
+
+        COMPOUND4args args = new CompoundBuilder()
+                .withPutfh(fh)
+                .withReadPlus(1024, 0, stateid)
+                .build();
+
+        COMPOUND4res res = execute(context, args);
+        read_plus_res4 resok = res.resarray.get(1).opread_plus.rp_resok4;
+
+        assertTrue(resok.rpr_eof);
+        assertEquals(1, resok.rpr_contents.length);
+        assertEquals(data_content4.NFS4_CONTENT_DATA, resok.rpr_contents[0].rpc_content);
+        assertArrayEquals(data, resok.rpr_contents[0].rpc_data.d_data.toBytes());
+    }
+}
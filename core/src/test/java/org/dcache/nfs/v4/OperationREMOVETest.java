@@ -0,0 +1,104 @@
+package org.dcache.nfs.v4;
+
+import static org.dcache.nfs.v4.NfsTestUtils.createClient;
+import static org.dcache.nfs.v4.NfsTestUtils.execute;
+import static org.dcache.nfs.v4.NfsTestUtils.executeWithStatus;
+import static org.dcache.nfs.v4.NfsTestUtils.generateRpcCall;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+
+import org.dcache.nfs.nfsstat;
+import org.dcache.nfs.v4.xdr.COMPOUND4args;
+import org.dcache.nfs.v4.xdr.nfs_fh4;
+import org.dcache.nfs.v4.xdr.notify_type4;
+import org.dcache.nfs.vfs.Inode;
+import org.dcache.nfs.vfs.Stat;
+import org.dcache.nfs.vfs.VirtualFileSystem;
+import org.dcache.oncrpc4j.util.Opaque;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.util.concurrent.MoreExecutors;
+
+public class OperationREMOVETest {
+
+    private Inode dir = Inode.forFileIdKey(Opaque.forImmutableBytes(new byte[] {1, 2, 3, 4}));
+    private Inode subdir = Inode.forFileIdKey(Opaque.forImmutableBytes(new byte[] {5, 6, 7, 8}));
+    private nfs_fh4 fh = new nfs_fh4(dir.toNfsHandle());
+    private VirtualFileSystem vfs;
+    private DirDelegationTracker dirDelegations;
+    private NFS4Client holder;
+    private CompoundContext context;
+
+    @Before
+    public void setUp() throws IOException {
+
+        Stat dirStat = new Stat();
+        dirStat.setMode(Stat.S_IFDIR | 0755);
+        dirStat.setGeneration(1);
+
+        vfs = mock(VirtualFileSystem.class);
+        when(vfs.getattr(any())).thenReturn(dirStat);
+        when(vfs.getattr(any(), any())).thenReturn(dirStat);
+        when(vfs.lookup(dir, "foo")).thenReturn(subdir);
+
+        NFSv4StateHandler sh = new NFSv4StateHandler();
+        holder = createClient(sh);
+        NFS4Client client = createClient(sh);
+
+        dirDelegations = new DirDelegationTracker(MoreExecutors.directExecutor());
+        NFSv4StateHandler stateHandler = mock(NFSv4StateHandler.class);
+        when(stateHandler.getDirDelegationTracker()).thenReturn(dirDelegations);
+        NFSv41Session session = mock(NFSv41Session.class);
+        when(session.getClient()).thenReturn(client);
+
+        context = new CompoundContextBuilder()
+                .withStateHandler(stateHandler)
+                .withSession(session)
+                .withFs(vfs)
+                .withMinorversion(1)
+                .withCall(generateRpcCall())
+                .build();
+    }
+
+    @Test
+    public void testRemove() throws Exception {
+
+        execute(context, remove("foo"));
+        verify(vfs).remove(dir, "foo");
+    }
+
+    @Test
+    public void testRecallDelegationOfRemovedDirectory() throws Exception {
+
+        dirDelegations.delegate(holder, subdir, 1 << notify_type4.NOTIFY4_REMOVE_ENTRY);
+        executeWithStatus(context, remove("foo"), nfsstat.NFSERR_DELAY);
+
+        verify(holder.getCB()).cbDelegationRecall(any(), any(), anyBoolean());
+        verify(vfs, never()).remove(any(), any());
+    }
+
+    @Test
+    public void testNotifyRemove() throws Exception {
+
+        dirDelegations.delegate(holder, dir, 1 << notify_type4.NOTIFY4_REMOVE_ENTRY);
+        execute(context, remove("foo"));
+
+        verify(holder.getCB()).cbNotify(any(), any(), any());
+        verify(holder.getCB(), never()).cbDelegationRecall(any(), any(), anyBoolean());
+        verify(vfs).remove(dir, "foo");
+    }
+
+    private COMPOUND4args remove(String name) {
+        return new CompoundBuilder()
+                .withPutfh(fh)
+                .withRemove(name)
+                .build();
+    }
+}
@@ -0,0 +1,137 @@
+package org.dcache.nfs.v4;
+
+import static org.dcache.nfs.v4.NfsTestUtils.createClient;
+import static org.dcache.nfs.v4.NfsTestUtils.execute;
+import static org.dcache.nfs.v4.NfsTestUtils.executeWithStatus;
+import static org.dcache.nfs.v4.NfsTestUtils.generateRpcCall;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.util.List;
+
+import org.dcache.nfs.nfsstat;
+import org.dcache.nfs.status.NoEntException;
+import org.dcache.nfs.v4.xdr.COMPOUND4args;
+import org.dcache.nfs.v4.xdr.nfs_fh4;
+import org.dcache.nfs.v4.xdr.notify4;
+import org.dcache.nfs.v4.xdr.notify_type4;
+import org.dcache.nfs.v4.xdr.stateid4;
+import org.dcache.nfs.vfs.Inode;
+import org.dcache.nfs.vfs.Stat;
+import org.dcache.nfs.vfs.VirtualFileSystem;
+import org.dcache.oncrpc4j.util.Opaque;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import com.google.common.util.concurrent.MoreExecutors;
+
+public class OperationRENAMETest {
+
+    private Inode dir = Inode.forFileIdKey(Opaque.forImmutableBytes(new byte[] {1, 2, 3, 4}));
+    private Inode subdir = Inode.forFileIdKey(Opaque.forImmutableBytes(new byte[] {5, 6, 7, 8}));
+    private nfs_fh4 fh = new nfs_fh4(dir.toNfsHandle());
+    private VirtualFileSystem vfs;
+    private DirDelegationTracker dirDelegations;
+    private NFS4Client holder;
+    private CompoundContext context;
+
+    @Before
+    public void setUp() throws IOException {
+
+        Stat dirStat = new Stat();
+        dirStat.setMode(Stat.S_IFDIR | 0755);
+        dirStat.setGeneration(1);
+
+        vfs = mock(VirtualFileSystem.class);
+        when(vfs.getattr(any())).thenReturn(dirStat);
+        when(vfs.getattr(any(), any())).thenReturn(dirStat);
+        when(vfs.lookup(dir, "foo")).thenThrow(new NoEntException());
+        when(vfs.move(any(), any(), any(), any())).thenReturn(true);
+
+        NFSv4StateHandler sh = new NFSv4StateHandler();
+        holder = createClient(sh);
+        NFS4Client client = createClient(sh);
+
+        dirDelegations = new DirDelegationTracker(MoreExecutors.directExecutor());
+        NFSv4StateHandler stateHandler = mock(NFSv4StateHandler.class);
+        when(stateHandler.getDirDelegationTracker()).thenReturn(dirDelegations);
+        NFSv41Session session = mock(NFSv41Session.class);
+        when(session.getClient()).thenReturn(client);
+
+        context = new CompoundContextBuilder()
+                .withStateHandler(stateHandler)
+                .withSession(session)
+                .withFs(vfs)
+                .withMinorversion(1)
+                .withCall(generateRpcCall())
+                .build();
+    }
+
+    @Test
+    public void testNotifyRename() throws Exception {
+
+        stateid4 stateid = dirDelegations.delegate(holder, dir, 1 << notify_type4.NOTIFY4_RENAME_ENTRY);
+        execute(context, rename("bar", "foo"));
+
+        ArgumentCaptor<notify4[]> changes = ArgumentCaptor.forClass(notify4[].class);
+        verify(holder.getCB()).cbNotify(any(), eq(stateid), changes.capture());
+        assertTrue(changes.getValue()[0].notify_mask.isSet(notify_type4.NOTIFY4_RENAME_ENTRY));
+    }
+
+    @Test
+    public void testNotifyRemoveOfReplacedEntry() throws Exception {
+
+        doReturn(subdir).when(vfs).lookup(dir, "foo");
+        stateid4 stateid = dirDelegations.delegate(holder, dir,
+                1 << notify_type4.NOTIFY4_RENAME_ENTRY | 1 << notify_type4.NOTIFY4_REMOVE_ENTRY);
+        execute(context, rename("bar", "foo"));
+
+        ArgumentCaptor<notify4[]> changes = ArgumentCaptor.forClass(notify4[].class);
+        verify(holder.getCB(), times(2)).cbNotify(any(), eq(stateid), changes.capture());
+        List<notify4[]> sent = changes.getAllValues();
+        assertEquals(2, sent.size());
+        assertTrue(sent.get(0)[0].notify_mask.isSet(notify_type4.NOTIFY4_REMOVE_ENTRY));
+        assertTrue(sent.get(1)[0].notify_mask.isSet(notify_type4.NOTIFY4_RENAME_ENTRY));
+    }
+
+    @Test
+    public void testRecallIfReplacedEntryNotNotified() throws Exception {
+
+        doReturn(subdir).when(vfs).lookup(dir, "foo");
+        dirDelegations.delegate(holder, dir, 1 << notify_type4.NOTIFY4_RENAME_ENTRY);
+        executeWithStatus(context, rename("bar", "foo"), nfsstat.NFSERR_DELAY);
+
+        verify(holder.getCB()).cbDelegationRecall(any(), any(), anyBoolean());
+        verify(vfs, never()).move(any(), any(), any(), any());
+    }
+
+    @Test
+    public void testRecallDelegationOfReplacedDirectory() throws Exception {
+
+        doReturn(subdir).when(vfs).lookup(dir, "foo");
+        dirDelegations.delegate(holder, subdir, 1 << notify_type4.NOTIFY4_ADD_ENTRY);
+        executeWithStatus(context, rename("bar", "foo"), nfsstat.NFSERR_DELAY);
+
+        verify(holder.getCB()).cbDelegationRecall(any(), any(), anyBoolean());
+        verify(vfs, never()).move(any(), any(), any(), any());
+    }
+
+    private COMPOUND4args rename(String oldName, String newName) {
+        return new CompoundBuilder()
+                .withPutfh(fh)
+                .withSavefh()
+                .withRename(oldName, newName)
+                .build();
+    }
+}
@@ -0,0 +1,109 @@
+package org.dcache.nfs.v4;
+
+import static org.dcache.nfs.v4.NfsTestUtils.execute;
+import static org.dcache.nfs.v4.NfsTestUtils.executeWithStatus;
+import static org.dcache.nfs.v4.NfsTestUtils.generateRpcCall;
+import static org.dcache.nfs.v4.NfsTestUtils.generateStateId;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+
+import org.dcache.nfs.nfsstat;
+import org.dcache.nfs.v4.xdr.COMPOUND4args;
+import org.dcache.nfs.v4.xdr.COMPOUND4res;
+import org.dcache.nfs.v4.xdr.data_content4;
+import org.dcache.nfs.v4.xdr.nfs4_prot;
+import org.dcache.nfs.v4.xdr.nfs_fh4;
+import org.dcache.nfs.v4.xdr.seek_res4;
+import org.dcache.nfs.vfs.Inode;
+import org.dcache.nfs.vfs.Stat;
+import org.dcache.nfs.vfs.VirtualFileSystem;
+import org.dcache.oncrpc4j.util.Opaque;
+import org.junit.Before;
+import org.junit.Test;
+
+public class OperationSEEKTest {
+
+    private Inode inode = Inode.forFileIdKey(Opaque.forImmutableBytes(new byte[] {1, 2, 3, 4}));
+    private nfs_fh4 fh = new nfs_fh4(inode.toNfsHandle());
+    private VirtualFileSystem vfs;
+    private CompoundContext context;
+
+    @Before
+    public void setUp() throws IOException {
+
+        Stat fileStat = new Stat();
+        fileStat.setMode(Stat.S_IFREG | 0644);
+        fileStat.setSize(8192);
+
+        vfs = mock(VirtualFileSystem.class);
+        when(vfs.getattr(any())).thenReturn(fileStat);
+        when(vfs.getattr(any(), any())).thenReturn(fileStat);
+        when(vfs.seek(any(), any(), anyLong(), any())).thenCallRealMethod();
+
+        NFSv4StateHandler stateHandler = mock(NFSv4StateHandler.class);
+        NFS4Client client = mock(NFS4Client.class);
+        NFSv41Session session = mock(NFSv41Session.class);
+        FileTracker fileTracker = mock(FileTracker.class);
+
+        when(stateHandler.getFileTracker()).thenReturn(fileTracker);
+        when(fileTracker.getShareAccess(any(), any(), any())).thenReturn(nfs4_prot.OPEN4_SHARE_ACCESS_READ);
+        when(stateHandler.getClientIdByStateId(any())).thenReturn(client);
+        when(session.getClient()).thenReturn(client);
+
+        context = new CompoundContextBuilder()
+                .withStateHandler(stateHandler)
+                .withSession(session)
+                .withFs(vfs)
+                .withMinorversion(2)
+                .withCall(generateRpcCall())
+                .build();
+    }
+
+    @Test
+    public void testSeekData() throws IOException {
+
+        COMPOUND4args args = new CompoundBuilder()
+                .withPutfh(fh)
+                .withSeek(100, data_content4.NFS4_CONTENT_DATA, generateStateId())
+                .build();
+
+        COMPOUND4res res = execute(context, args);
+        seek_res4 resok = res.resarray.get(1).opseek.resok4;
+
+        assertFalse(resok.sr_eof);
+        assertEquals(100L, resok.sr_offset.value);
+    }
+
+    @Test
+    public void testVirtualHoleAtEndOfFile() throws IOException {
+
+        COMPOUND4args args = new CompoundBuilder()
+                .withPutfh(fh)
+                .withSeek(0, data_content4.NFS4_CONTENT_HOLE, generateStateId())
+                .build();
+
+        COMPOUND4res res = execute(context, args);
+        seek_res4 resok = res.resarray.get(1).opseek.resok4;
+
+        assertTrue(resok.sr_eof);
+        assertEquals(8192L, resok.sr_offset.value);
+    }
+
+    @Test
+    public void testSeekBeyondEndOfFile() throws IOException {
+
+        COMPOUND4args args = new CompoundBuilder()
+                .withPutfh(fh)
+                .withSeek(8192, data_content4.NFS4_CONTENT_DATA, generateStateId())
+                .build();
+
+        executeWithStatus(context, args, nfsstat.NFSERR_NXIO);
+    }
+}
@@ -0,0 +1,95 @@
+package org.dcache.nfs.v4;
+
+import static org.dcache.nfs.v4.NfsTestUtils.generateRpcCall;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.dcache.nfs.nfsstat;
+import org.dcache.nfs.v4.xdr.COMPOUND4args;
+import org.dcache.nfs.v4.xdr.nfs_argop4;
+import org.dcache.nfs.v4.xdr.nfs_fh4;
+import org.dcache.nfs.v4.xdr.nfs_opnum4;
+import org.dcache.nfs.vfs.Inode;
+import org.dcache.nfs.vfs.VirtualFileSystem;
+import org.dcache.oncrpc4j.util.Opaque;
+import org.junit.Before;
+import org.junit.Test;
+
+public class OperationStatisticsTest {
+
+    private MDSOperationExecutor executor;
+    private OperationStatistics statistics;
+    private CompoundContext context;
+
+    @Before
+    public void setUp() {
+        executor = new MDSOperationExecutor();
+        statistics = new OperationStatistics("test-stats");
+        executor.setMetricsListener(statistics);
+
+        context = new CompoundContextBuilder()
+                .withFs(mock(VirtualFileSystem.class))
+                .withMinorversion(1)
+                .withCall(generateRpcCall())
+                .build();
+    }
+
+    @Test
+    public void testListenerNotified() throws IOException {
+        OperationMetricsListener listener = mock(OperationMetricsListener.class);
+        executor.setMetricsListener(listener);
+
+        execute(new CompoundBuilder().withGetfh().build());
+
+        verify(listener).onOperation(eq(nfs_opnum4.OP_GETFH), eq(nfsstat.NFSERR_NOFILEHANDLE), anyLong());
+    }
+
+    @Test
+    public void testCountPerOperation() throws IOException {
+        Inode inode = Inode.forFileIdKey(Opaque.forImmutableBytes(new byte[] {1, 2, 3, 4}));
+
+        execute(new CompoundBuilder()
+                .withPutfh(new nfs_fh4(inode.toNfsHandle()))
+                .withGetfh()
+                .withGetfh()
+                .build());
+
+        assertEquals(1, statistics.getPutfh());
+        assertEquals(2, statistics.getGetfh());
+        assertEquals(0, statistics.getRead());
+        assertArrayEquals(new String[] {"GETFH", "PUTFH"},
+                Arrays.stream(statistics.getOperationLatencies())
+                        .map(OperationStatisticsMXBean.Latency::getName)
+                        .toArray(String[]::new));
+    }
+
+    @Test
+    public void testCountPerStatus() throws IOException {
+        execute(new CompoundBuilder().withGetfh().build());
+
+        assertEquals(1, statistics.getStatusLatency(nfsstat.NFSERR_NOFILEHANDLE).getCount());
+        assertEquals(0, statistics.getStatusLatency(nfsstat.NFS_OK).getCount());
+    }
+
+    @Test
+    public void testReset() throws IOException {
+        execute(new CompoundBuilder().withGetfh().build());
+        statistics.reset();
+
+        assertEquals(0, statistics.getGetfh());
+        assertEquals(0, statistics.getOperationLatencies().length);
+    }
+
+    private void execute(COMPOUND4args args) throws IOException {
+        for (nfs_argop4 arg : args.argarray) {
+            executor.execute(context, arg);
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package org.dcache.nfs.v4;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.dcache.nfs.ChimeraNFSException;
+import org.dcache.nfs.nfsstat;
+import org.dcache.nfs.v4.xdr.READ4args;
+import org.dcache.nfs.v4.xdr.count4;
+import org.dcache.nfs.v4.xdr.nfs_argop4;
+import org.dcache.nfs.v4.xdr.nfs_opnum4;
+import org.dcache.nfs.v4.xdr.nfs_resop4;
+import org.junit.Test;
+
+public class ReplyCacheTest {
+
+    @Test
+    public void shouldDecodeCachedReply() {
+        ReplyCache cache = new ReplyCache(1024);
+        ReplyCache.Entry entry = cache.put(encode(1024, nfs_opnum4.OP_PUTROOTFH, nfs_opnum4.OP_REMOVE));
+
+        List<nfs_resop4> reply = entry.get();
+
+        assertEquals(2, reply.size());
+        assertEquals(nfs_opnum4.OP_PUTROOTFH, reply.get(0).resop);
+        assertEquals(nfs_opnum4.OP_REMOVE, reply.get(1).resop);
+        assertEquals(nfsstat.NFSERR_NOENT, reply.get(1).getStatus());
+    }
+
+    @Test
+    public void shouldRejectReplyBiggerThanMaxSize() {
+        ReplyCache.EncodedReply reply = new ReplyCache.EncodedReply(12);
+
+        assertTrue(reply.add(result(nfs_opnum4.OP_PUTROOTFH)));
+        assertFalse(reply.add(result(nfs_opnum4.OP_REMOVE)));
+        assertEquals(1, reply.ops());
+    }
+
+    @Test
+    public void shouldEvictOldestEntries() {
+        ReplyCache.EncodedReply reply = encode(1024, nfs_opnum4.OP_PUTROOTFH);
+        ReplyCache cache = new ReplyCache(reply.size() * 2);
+
+        ReplyCache.Entry first = cache.put(reply);
+        ReplyCache.Entry second = cache.put(encode(1024, nfs_opnum4.OP_PUTROOTFH));
+        ReplyCache.Entry third = cache.put(encode(1024, nfs_opnum4.OP_PUTROOTFH));
+
+        assertNull(first.get());
+        assertEquals(1, second.get().size());
+        assertEquals(1, third.get().size());
+        assertEquals(2, cache.entries());
+        assertEquals(reply.size() * 2, cache.size());
+    }
+
+    @Test
+    public void shouldNotCacheReplyBiggerThanCache() {
+        ReplyCache cache = new ReplyCache(4);
+        assertNull(cache.put(encode(1024, nfs_opnum4.OP_PUTROOTFH, nfs_opnum4.OP_REMOVE)));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void shouldReleaseEntry() {
+        ReplyCache cache = new ReplyCache(1024);
+        ReplyCache.Entry entry = cache.put(encode(1024, nfs_opnum4.OP_PUTROOTFH));
+
+        cache.release(entry);
+
+        assertNull(entry.get());
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.entries());
+    }
+
+    @Test
+    public void shouldReplaceReplyOnNextSequence() throws ChimeraNFSException {
+        ReplyCache cache = new ReplyCache(1024);
+        SessionSlot slot = new SessionSlot(cache);
+
+        assertNull(slot.acquire(1));
+        slot.update(encode(1024, nfs_opnum4.OP_PUTROOTFH));
+        assertEquals(1, slot.acquire(1).size());
+
+        assertNull(slot.acquire(2));
+        assertEquals(0, cache.entries());
+    }
+
+    @Test
+    public void shouldReturnEmptyReplyIfEvicted() throws ChimeraNFSException {
+        ReplyCache.EncodedReply reply = encode(1024, nfs_opnum4.OP_PUTROOTFH);
+        ReplyCache cache = new ReplyCache(reply.size());
+        SessionSlot slot = new SessionSlot(cache);
+
+        slot.acquire(1);
+        slot.update(reply);
+        cache.put(encode(1024, nfs_opnum4.OP_PUTROOTFH));
+
+        assertTrue(slot.acquire(1).isEmpty());
+    }
+
+    @Test
+    public void shouldRejectTooBigReadBeforeExecution() {
+        nfs_argop4 op = new nfs_argop4();
+        op.argop = nfs_opnum4.OP_READ;
+        op.opread = new READ4args();
+        op.opread.count = new count4(32 * 1024);
+
+        ReplyCache.EncodedReply reply = encode(16 * 1024, nfs_opnum4.OP_PUTROOTFH);
+        assertFalse(reply.fits(ReplyCache.maxResultSize(op)));
+
+        op.opread.count = new count4(1024);
+        assertTrue(reply.fits(ReplyCache.maxResultSize(op)));
+    }
+
+    @Test
+    public void shouldNotEstimateUnboundedResults() {
+        nfs_argop4 op = new nfs_argop4();
+        op.argop = nfs_opnum4.OP_PUTROOTFH;
+        assertEquals(0, ReplyCache.maxResultSize(op));
+    }
+
+    private static ReplyCache.EncodedReply encode(int maxSize, int... ops) {
+        ReplyCache.EncodedReply reply = new ReplyCache.EncodedReply(maxSize);
+        for (int op : ops) {
+            assertTrue(reply.add(result(op)));
+        }
+        return reply;
+    }
+
+    private static nfs_resop4 result(int op) {
+        nfs_resop4 result = nfs_resop4.resopFor(op);
+        result.setStatus(op == nfs_opnum4.OP_REMOVE ? nfsstat.NFSERR_NOENT : nfsstat.NFS_OK);
+        return result;
+    }
+}
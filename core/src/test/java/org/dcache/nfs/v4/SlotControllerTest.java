@@ -0,0 +1,157 @@
+package org.dcache.nfs.v4;
+
+import static org.dcache.nfs.v4.NfsTestUtils.createClient;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import org.dcache.nfs.ChimeraNFSException;
+import org.dcache.nfs.nfsstat;
+import org.dcache.nfs.status.BadSlotException;
+import org.dcache.nfs.util.ManualClock;
+import org.dcache.nfs.v4.xdr.nfs_opnum4;
+import org.dcache.nfs.v4.xdr.nfs_resop4;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SlotControllerTest {
+
+    private ManualClock clock;
+    private NFSv41Session session;
+    private ReplyCache replyCache;
+    private AtomicInteger backlog;
+    private SlotController slotController;
+
+    @Before
+    public void setUp() throws UnknownHostException, ChimeraNFSException {
+        clock = new ManualClock();
+        clock.advance(Duration.ofMinutes(1));
+        session = createClient().createSession(1, 16, 1, 8, 8);
+        replyCache = new ReplyCache(1024 * 1024);
+        backlog = new AtomicInteger();
+        slotController = new SlotController("test", () -> Stream.of(session), clock, replyCache, 2);
+        slotController.setRequestBacklog(backlog::get);
+    }
+
+    @Test
+    public void shouldShrinkTargetWhenRequestsQueued() {
+        backlog.set(3);
+        assertTrue(slotController.isOverloaded());
+
+        slotController.adjust(session, 15);
+
+        assertEquals(7, session.getTargetHighestSlot());
+    }
+
+    @Test
+    public void shouldShrinkTargetWhenReplyCacheFull() {
+        ReplyCache.EncodedReply reply = new ReplyCache.EncodedReply(1024);
+        reply.add(result(nfs_opnum4.OP_PUTROOTFH));
+        replyCache = new ReplyCache(reply.size());
+        replyCache.put(reply);
+        slotController = new SlotController("test", () -> Stream.of(session), clock, replyCache, 2);
+        assertTrue(slotController.isOverloaded());
+
+        slotController.adjust(session, 15);
+
+        assertEquals(7, session.getTargetHighestSlot());
+    }
+
+    @Test
+    public void shouldNotBeOverloadedByRequestsInFlight() {
+        startRequests(64);
+        assertFalse(slotController.isOverloaded());
+    }
+
+    @Test
+    public void shouldKeepSlotsInUseByClient() throws ChimeraNFSException {
+        backlog.set(3);
+        slotController.adjust(session, 15);
+
+        assertEquals(15, session.getHighestSlot());
+        session.getSessionSlot(15);
+    }
+
+    @Test(expected = BadSlotException.class)
+    public void shouldReleaseSlotsAboveTarget() throws ChimeraNFSException {
+        backlog.set(3);
+        slotController.adjust(session, 15);
+        backlog.set(0);
+
+        clock.advance(Duration.ofSeconds(1));
+        slotController.adjust(session, 7);
+
+        assertEquals(7, session.getHighestSlot());
+        session.getSessionSlot(8);
+    }
+
+    @Test
+    public void shouldAdjustAtMostOncePerInterval() {
+        backlog.set(3);
+        slotController.adjust(session, 15);
+        slotController.adjust(session, 15);
+
+        assertEquals(7, session.getTargetHighestSlot());
+    }
+
+    @Test
+    public void shouldGrowTargetWhenAllSlotsInUse() {
+        session.setTargetHighestSlot(0);
+        session.updateHighestSlot(0);
+
+        slotController.adjust(session, 0);
+
+        assertEquals(1, session.getTargetHighestSlot());
+        assertEquals(1, session.getHighestSlot());
+    }
+
+    @Test
+    public void shouldNotGrowWhenOtherSlotsIdle() {
+        session.setTargetHighestSlot(3);
+        session.updateHighestSlot(3);
+        startRequests(2);
+
+        slotController.adjust(session, 3);
+
+        assertEquals(3, session.getTargetHighestSlot());
+    }
+
+    @Test
+    public void shouldNotGrowAboveNegotiatedSlots() {
+        startRequests(15);
+        slotController.adjust(session, 15);
+
+        assertEquals(15, session.getTargetHighestSlot());
+    }
+
+    @Test
+    public void shouldExposeSessionSlots() throws ChimeraNFSException {
+        session.getSessionSlot(0);
+        session.getSessionSlot(1);
+        startRequests(1);
+
+        SlotControllerMXBean.SessionSlots[] slots = slotController.getSessionSlots();
+
+        assertEquals(1, slots.length);
+        assertEquals(2, slots[0].getAllocatedSlots());
+        assertEquals(1, slots[0].getInFlightRequests());
+        assertEquals(15, slots[0].getHighestSlot());
+    }
+
+    private void startRequests(int count) {
+        for (int i = 0; i < count; i++) {
+            slotController.requestStarted(session);
+        }
+    }
+
+    private static nfs_resop4 result(int op) {
+        nfs_resop4 result = nfs_resop4.resopFor(op);
+        result.setStatus(nfsstat.NFS_OK);
+        return result;
+    }
+}
@@ -0,0 +1,108 @@
+package org.dcache.nfs.v4.nlm;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.dcache.nfs.v4.xdr.nfs4_prot;
+import org.dcache.oncrpc4j.util.Opaque;
+import org.junit.Test;
+
+public class IntervalTreeLockManagerTest extends SimpleLmTest {
+
+    private final Opaque file = Opaque.forUtf8Bytes("file");
+
+    @Override
+    protected LockManager createLockManager() {
+        return new IntervalTreeLockManager();
+    }
+
+    @Test
+    public void testTestOfNonConflictingReadLock() throws LockException {
+        LockManager lm = createLockManager();
+        lm.lock(file, new LockBuilder().withOwner("owner1").from(0).length(10).forRead().build());
+        lm.test(file, new LockBuilder().withOwner("owner2").from(5).length(10).forRead().build());
+    }
+
+    @Test(expected = LockDeniedException.class)
+    public void testUnlockMiddleOfMergedLocks() throws LockException {
+        LockManager lm = createLockManager();
+        lm.lock(file, new LockBuilder().withOwner("owner1").from(0).length(10).forWrite().build());
+        lm.lock(file, new LockBuilder().withOwner("owner1").from(10).length(10).forWrite().build());
+
+        lm.unlock(file, new LockBuilder().withOwner("owner1").from(5).length(10).forWrite().build());
+        lm.lock(file, new LockBuilder().withOwner("owner2").from(5).length(10).forWrite().build());
+
+        lm.test(file, new LockBuilder().withOwner("owner2").from(4).length(1).forWrite().build());
+    }
+
+    @Test(expected = LockDeniedException.class)
+    public void testUnlockKeepsTail() throws LockException {
+        LockManager lm = createLockManager();
+        lm.lock(file, new LockBuilder().withOwner("owner1").from(0).length(nfs4_prot.NFS4_UINT64_MAX).forWrite()
+                .build());
+        lm.unlock(file, new LockBuilder().withOwner("owner1").from(0).length(100).forWrite().build());
+        lm.lock(file, new LockBuilder().withOwner("owner2").from(0).length(100).forWrite().build());
+
+        lm.test(file, new LockBuilder().withOwner("owner2").from(Long.MAX_VALUE - 1).length(1).forWrite().build());
+    }
+
+    @Test
+    public void testUnlockIfExistsOfMergedLock() throws LockException {
+        LockManager lm = createLockManager();
+        NlmLock lock1 = new LockBuilder().withOwner("owner1").from(0).length(10).forWrite().build();
+        NlmLock lock2 = new LockBuilder().withOwner("owner1").from(5).length(10).forWrite().build();
+        lm.lock(file, lock1);
+        lm.lock(file, lock2);
+
+        lm.unlockIfExists(file, lock1);
+        lm.unlockIfExists(file, lock2);
+
+        lm.lock(file, new LockBuilder().withOwner("owner2").from(0).length(nfs4_prot.NFS4_UINT64_MAX).forWrite()
+                .build());
+    }
+
+    @Test(expected = LockDeniedException.class)
+    public void testDenseRanges() throws LockException {
+        LockManager lm = createLockManager();
+        for (int i = 0; i < 10_000; i++) {
+            lm.lock(file, new LockBuilder().withOwner("owner" + i).from(2 * i).length(1).forWrite().build());
+        }
+        for (int i = 0; i < 10_000; i++) {
+            lm.lock(file, new LockBuilder().withOwner("other").from(2 * i + 1).length(1).forWrite().build());
+        }
+        lm.lock(file, new LockBuilder().withOwner("other").from(9_000).length(1).forWrite().build());
+    }
+
+    @Test
+    public void testConflictsOfRandomLocks() {
+        LockManager lm = createLockManager();
+        List<NlmLock> granted = new ArrayList<>();
+        Random random = new Random(42);
+
+        for (int i = 0; i < 5_000; i++) {
+            LockBuilder builder = new LockBuilder()
+                    .withOwner("owner" + random.nextInt(4))
+                    .from(random.nextInt(1000))
+                    .length(random.nextInt(10) == 0 ? nfs4_prot.NFS4_UINT64_MAX : 1 + random.nextInt(20));
+            NlmLock lock = random.nextBoolean() ? builder.forRead().build() : builder.forWrite().build();
+
+            boolean expected = granted.stream().noneMatch(l -> l.isConflicting(lock));
+            assertEquals("lock " + i + " " + lock, expected, tryLock(lm, lock));
+            if (expected) {
+                granted.add(lock);
+            }
+        }
+    }
+
+    private boolean tryLock(LockManager lm, NlmLock lock) {
+        try {
+            lm.lock(file, lock);
+            return true;
+        } catch (LockException e) {
+            return false;
+        }
+    }
+}
@@ -22,11 +22,15 @@ public class SimpleLmTest {
 
     @Before
     public void setUp() throws Exception {
-        nlm = new SimpleLm();
+        nlm = createLockManager();
         file1 = Opaque.forUtf8Bytes("file1");
         file2 = Opaque.forUtf8Bytes("file2");
     }
 
+    protected LockManager createLockManager() {
+        return new SimpleLm();
+    }
+
     @Test
     public void testAllowFreshLock() throws LockException {
         NlmLock lock = new LockBuilder()
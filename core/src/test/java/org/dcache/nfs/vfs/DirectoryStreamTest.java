@@ -5,12 +5,15 @@ import static org.junit.Assert.assertTrue;
 
 import java.util.NavigableSet;
 import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.dcache.nfs.v4.xdr.verifier4;
 import org.dcache.oncrpc4j.util.Opaque;
 import org.junit.Before;
 import org.junit.Test;
 
+import com.google.common.collect.Streams;
 import com.google.common.primitives.Ints;
 
 /**
@@ -100,4 +103,36 @@ public class DirectoryStreamTest {
             assertTrue(e.getName().startsWith("aFILE"));
         }
     }
+
+    @Test
+    public void testLazyStreamOpensCursorOnIteration() {
+        AtomicLong openedAt = new AtomicLong(-1);
+        AtomicBoolean closed = new AtomicBoolean();
+        DirectoryStream lazy = new DirectoryStream(stream.getVerifier(), c -> {
+            openedAt.set(c);
+            return Streams.stream(stream.tail(c)).onClose(() -> closed.set(true));
+        });
+
+        DirectoryStream tail = lazy.tail(3);
+        assertEquals(-1L, openedAt.get());
+
+        DirectoryEntry next = tail.iterator().next();
+        assertEquals(3L, openedAt.get());
+        assertEquals(4L, next.getCookie());
+
+        lazy.close();
+        assertTrue(closed.get());
+    }
+
+    @Test
+    public void testLazyTransformAndTail() {
+        DirectoryStream lazy = new DirectoryStream(stream.getVerifier(), c -> Streams.stream(stream.tail(c)));
+        DirectoryStream tail = lazy.transform(d -> new DirectoryEntry(d.getName().toUpperCase(), d.getInode(),
+                d.getStat(), d.getCookie())).tail(3).tail(5);
+        DirectoryEntry next = tail.iterator().next();
+
+        assertEquals(stream.getVerifier(), tail.getVerifier());
+        assertEquals(6L, next.getCookie());
+        assertEquals("FILE-6", next.getName());
+    }
 }
@@ -26,7 +26,12 @@ import static org.hamcrest.collection.IsEmptyIterable.emptyIterable;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertThat;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 
 import java.io.IOException;
 import java.net.InetAddress;
@@ -303,6 +308,78 @@ public class PseudoFsTest {
         assertEquals("Unexpected number of directory entries", 1, size);
     }
 
+    @Test
+    public void testExportTreeSharedByInstances() throws IOException {
+
+        given(mockedTransport.getRemoteSocketAddress()).willReturn(localAddress);
+        given(mockedAuth.getSubject()).willReturn(ROOT);
+        given(mockedRpc.getTransport()).willReturn(mockedTransport);
+        given(mockedRpc.getCredential()).willReturn(mockedAuth);
+
+        VirtualFileSystem spiedVfs = spy(vfs);
+        spiedVfs.mkdir(fsRoot, "foo", ROOT, 0755);
+        FsExport export = new FsExport.FsExportBuilder()
+                .rw()
+                .trusted()
+                .withoutAcl()
+                .withAllRoot()
+                .withSec(FsExport.Sec.NONE)
+                .build("/foo");
+
+        given(mockedExportFile.getExport(fsRoot.exportIndex(), localAddress.getAddress())).willReturn(export);
+        given(mockedExportFile.exports(localAddress.getAddress())).willAnswer(x -> Stream.of(export));
+        given(mockedExportFile.generation()).willReturn(1L);
+
+        for (int i = 0; i < 3; i++) {
+            pseudoFs = new PseudoFs(spiedVfs, mockedRpc, mockedExportFile);
+            pseudoFs.lookup(pseudoFs.getRootInode(), "foo");
+        }
+        verify(spiedVfs, times(1)).lookup(any(), eq("foo"));
+
+        // re-scan of the export table must rebuild the tree
+        given(mockedExportFile.generation()).willReturn(2L);
+        pseudoFs = new PseudoFs(spiedVfs, mockedRpc, mockedExportFile);
+        pseudoFs.lookup(pseudoFs.getRootInode(), "foo");
+        verify(spiedVfs, times(2)).lookup(any(), eq("foo"));
+    }
+
+    @Test
+    public void testCachedExportTreeWithRecreatedExport() throws IOException {
+
+        given(mockedTransport.getRemoteSocketAddress()).willReturn(localAddress);
+        given(mockedAuth.getSubject()).willReturn(ROOT);
+        given(mockedRpc.getTransport()).willReturn(mockedTransport);
+        given(mockedRpc.getCredential()).willReturn(mockedAuth);
+
+        vfs.mkdir(fsRoot, "foo", ROOT, 0755);
+        FsExport export = new FsExport.FsExportBuilder()
+                .rw()
+                .trusted()
+                .withoutAcl()
+                .withAllRoot()
+                .withSec(FsExport.Sec.NONE)
+                .build("/foo");
+
+        given(mockedExportFile.getExport(fsRoot.exportIndex(), localAddress.getAddress())).willReturn(export);
+        given(mockedExportFile.exports(localAddress.getAddress())).willAnswer(x -> Stream.of(export));
+        given(mockedExportFile.generation()).willReturn(1L);
+
+        pseudoFs = new PseudoFs(vfs, mockedRpc, mockedExportFile);
+        pseudoFs.lookup(pseudoFs.getRootInode(), "foo");
+
+        vfs.remove(fsRoot, "foo");
+        Inode foo = vfs.mkdir(fsRoot, "foo", ROOT, 0755);
+
+        pseudoFs = new PseudoFs(vfs, mockedRpc, mockedExportFile);
+        Inode pseudoRoot = pseudoFs.getRootInode();
+        assertEquals(foo.getFileIdKey(), pseudoFs.lookup(pseudoRoot, "foo").getFileIdKey());
+
+        DirectoryStream directoryStream = pseudoFs.list(pseudoRoot, DirectoryStream.ZERO_VERIFIER, 0);
+        for (DirectoryEntry e : directoryStream) {
+            assertEquals(foo.getFileIdKey(), e.getInode().getFileIdKey());
+        }
+    }
+
     @Test(expected = NoEntException.class)
     public void testLookupOfUnexportedDirectory() throws IOException {
 
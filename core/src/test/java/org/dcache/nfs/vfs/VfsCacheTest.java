@@ -1,14 +1,24 @@
 package org.dcache.nfs.vfs;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 
 import javax.security.auth.Subject;
 
+import org.dcache.nfs.status.BadCookieException;
 import org.dcache.nfs.v4.xdr.nfs4_prot;
 import org.dcache.oncrpc4j.util.Opaque;
 import org.junit.Before;
@@ -247,6 +257,85 @@ public class VfsCacheTest {
         verify(vfs, times(2)).list(root, DirectoryStream.ZERO_VERIFIER, 0L);
     }
 
+    @Test
+    public void shouldTakeListingOnceWithoutVerifier() throws IOException {
+
+        for (int i = 0; i < 1500; i++) {
+            createFile(root, "file-" + i);
+        }
+
+        int count = 0;
+        try (DirectoryStream stream = vfsCache.list(root, DirectoryStream.ZERO_VERIFIER, 0L)) {
+            for (DirectoryEntry entry : stream) {
+                count++;
+            }
+        }
+        assertEquals(1500, count);
+        verify(vfs, times(1)).list(any(), any(), anyLong());
+    }
+
+    @Test
+    public void shouldFetchReaddirPagesOnDemand() throws IOException {
+
+        for (int i = 0; i < 1500; i++) {
+            createFile(root, "file-" + i);
+        }
+        listWithVerifier(verifier(1));
+
+        int count = 0;
+        try (DirectoryStream stream = vfsCache.list(root, DirectoryStream.ZERO_VERIFIER, 0L)) {
+            for (DirectoryEntry entry : stream) {
+                count++;
+            }
+        }
+        assertEquals(1500, count);
+
+        // the second page starts after the last entry of the first one
+        verify(vfs, times(1)).list(root, DirectoryStream.ZERO_VERIFIER, 0L);
+        verify(vfs, times(1)).list(root, verifier(1), 1026L);
+
+        try (DirectoryStream stream = vfsCache.list(root, verifier(1), 1100L)) {
+            assertEquals(1101L, stream.iterator().next().getCookie());
+        }
+        verify(vfs, times(2)).list(any(), any(), anyLong());
+    }
+
+    @Test
+    public void shouldFailIfDirectoryChangesBetweenPages() throws IOException {
+
+        for (int i = 0; i < 1500; i++) {
+            createFile(root, "file-" + i);
+        }
+        listWithVerifier(verifier(1));
+
+        try (DirectoryStream stream = vfsCache.list(root, DirectoryStream.ZERO_VERIFIER, 0L)) {
+            listWithVerifier(verifier(2));
+            for (DirectoryEntry entry : stream) {
+                // consume
+            }
+            fail("Listing of a modified directory continued");
+        } catch (UncheckedIOException e) {
+            assertTrue(e.getCause() instanceof BadCookieException);
+        }
+    }
+
+    /**
+     * Let the backend identify its listings with the given verifier.
+     */
+    private void listWithVerifier(Opaque verifier) throws IOException {
+        doAnswer(i -> {
+            List<DirectoryEntry> entries = new ArrayList<>();
+            try (DirectoryStream stream = (DirectoryStream) i.callRealMethod()) {
+                stream.forEach(entries::add);
+            }
+            return new DirectoryStream(verifier, entries);
+        }).when(vfs).list(any(), any(), anyLong());
+    }
+
+    private static Opaque verifier(int id) {
+        return Opaque.forBytes(Arrays.copyOf(new byte[] {(byte) id}, nfs4_prot.NFS4_VERIFIER_SIZE));
+    }
+
     private Inode createFile(Inode parent, String name) throws IOException {
         return vfs.create(parent, Stat.Type.REGULAR, name, subject, 0640);
     }
@@ -0,0 +1,78 @@
+package org.dcache.nfs.vfs;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.CALLS_REAL_METHODS;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+
+import org.dcache.nfs.status.NoEntException;
+import org.dcache.nfs.util.BufferPool;
+import org.dcache.oncrpc4j.util.Opaque;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+public class VirtualFileSystemTest {
+
+    @Test
+    public void testGetattrsSkipsRemovedEntries() throws IOException {
+        VirtualFileSystem vfs = mock(VirtualFileSystem.class, CALLS_REAL_METHODS);
+        Inode existing = Inode.forFileIdKey(Opaque.forBytes(new byte[] {1}));
+        Inode removed = Inode.forFileIdKey(Opaque.forBytes(new byte[] {2}));
+        Stat stat = new Stat();
+
+        doReturn(stat).when(vfs).getattr(eq(existing), any());
+        doThrow(new NoEntException()).when(vfs).getattr(eq(removed), any());
+
+        Map<Inode, Stat> stats = vfs.getattrs(List.of(existing, removed), EnumSet.noneOf(Stat.StatAttribute.class));
+        assertEquals(Map.of(existing, stat), stats);
+    }
+
+    @Test
+    public void testReadIntoHeapBufferByDefault() throws IOException {
+        VirtualFileSystem vfs = mock(VirtualFileSystem.class, CALLS_REAL_METHODS);
+        assertFalse(readBuffer(vfs).isDirect());
+    }
+
+    @Test
+    public void testReadIntoDirectBufferIfSupported() throws IOException {
+        VirtualFileSystem vfs = mock(VirtualFileSystem.class, CALLS_REAL_METHODS);
+        doReturn(true).when(vfs).supportsDirectBuffers();
+        assertTrue(readBuffer(vfs).isDirect());
+    }
+
+    /**
+     * Read a file within a reply and get the buffer passed to the file system.
+     */
+    private static ByteBuffer readBuffer(VirtualFileSystem vfs) throws IOException {
+        Inode inode = Inode.forFileIdKey(Opaque.forBytes(new byte[] {1}));
+        Stat stat = new Stat();
+        stat.setMode(Stat.S_IFREG | 0644);
+        stat.setSize(10);
+        doReturn(stat).when(vfs).getattr(inode);
+        doReturn(10).when(vfs).read(eq(inode), any(ByteBuffer.class), eq(0L));
+
+        BufferPool.getDefault().beginReply();
+        try {
+            vfs.read(null, inode, 0, 10, () -> {
+            });
+        } finally {
+            BufferPool.getDefault().endReply();
+        }
+
+        ArgumentCaptor<ByteBuffer> buffer = ArgumentCaptor.forClass(ByteBuffer.class);
+        verify(vfs).read(eq(inode), buffer.capture(), eq(0L));
+        return buffer.getValue();
+    }
+}
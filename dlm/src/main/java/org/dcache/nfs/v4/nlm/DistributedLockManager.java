@@ -19,18 +19,15 @@
  */
 package org.dcache.nfs.v4.nlm;
 
-import java.util.Collection;
-import java.util.concurrent.TimeUnit;
-import java.util.concurrent.locks.Condition;
-import java.util.concurrent.locks.Lock;
+import java.util.List;
 
 import org.dcache.oncrpc4j.util.Opaque;
 
 import com.hazelcast.core.HazelcastInstance;
-import com.hazelcast.multimap.MultiMap;
+import com.hazelcast.map.IMap;
 
 /**
- * An implementation of {@link LockManager} which uses Hazelcast's distributed {@link MultiMap} to store locks.
+ * An implementation of {@link LockManager} which uses Hazelcast's distributed {@link IMap} to store locks.
  *
  * <p>
  * Example:
@@ -43,12 +40,18 @@ import com.hazelcast.multimap.MultiMap;
  *
  * The {@code lm1} and {@code lm2} will share the same set of locks as long as they connected to the same Hazelcast
  * cluster.
+ * <p>
+ * The locks of a file are kept in a single map entry keyed by the binary file id. Lock and unlock requests are
+ * applied by a {@link LockOperation} on the member owning the entry, thus, each request takes a single round-trip,
+ * and the classes of this module have to be available on the cluster members. Lock tests read the entry, thus, they
+ * are served locally if a near cache is configured for the map. As the keys are byte arrays, such near cache must
+ * have {@code serialize-keys} enabled.
  *
  * @since 0.16
  */
-public class DistributedLockManager extends AbstractLockManager {
+public class DistributedLockManager implements LockManager {
 
-    private final MultiMap<String, NlmLock> locks;
+    private final IMap<byte[], List<NlmLock>> locks;
 
     /**
      * Create a new {@code DistributedLockManager} with a given {@code name}. The other instances with the same name
@@ -58,83 +61,49 @@ public class DistributedLockManager extends AbstractLockManager {
      * @param name name of the lock manager.
      */
     public DistributedLockManager(HazelcastInstance hz, String name) {
-        locks = hz.getMultiMap(name);
+        locks = hz.getMap(name);
     }
 
     @Override
-    protected Lock getObjectLock(Opaque objId) {
-        String key = objIdToKey(objId);
-        return new Lock() {
-            @Override
-            public void lock() {
-                locks.lock(key);
-            }
-
-            @Override
-            public void lockInterruptibly() throws InterruptedException {
-                locks.tryLock(key, Long.MAX_VALUE, TimeUnit.DAYS);
-            }
-
-            @Override
-            public boolean tryLock() {
-                return locks.tryLock(key);
-            }
-
-            @Override
-            public boolean tryLock(long time, TimeUnit unit) throws InterruptedException {
-                return locks.tryLock(key, time, unit);
-            }
-
-            @Override
-            public void unlock() {
-                locks.unlock(key);
-            }
-
-            @Override
-            public Condition newCondition() {
-                throw new UnsupportedOperationException("Not supported yet.");
-            }
-        };
-    }
-
-    /**
-     * Get collection of currently used active locks on the object.
-     *
-     * @param objId object id.
-     * @return collection of active locks.
-     */
-    @Override
-    protected Collection<NlmLock> getActiveLocks(Opaque objId) {
-        String key = objIdToKey(objId);
-        return locks.get(key);
+    public void lock(Opaque objId, NlmLock lock) throws LockException {
+        execute(objId, LockOperation.Type.LOCK, lock);
     }
 
     @Override
-    protected void add(Opaque objId, NlmLock lock) {
-        String key = objIdToKey(objId);
-        locks.put(key, lock);
+    public void unlock(Opaque objId, NlmLock lock) throws LockException {
+        execute(objId, LockOperation.Type.UNLOCK, lock);
     }
 
     @Override
-    protected boolean remove(Opaque objId, NlmLock lock) {
-        String key = objIdToKey(objId);
-        return locks.remove(key, lock);
+    public void test(Opaque objId, NlmLock lock) throws LockException {
+        List<NlmLock> currentLocks = locks.get(objIdToKey(objId));
+        if (currentLocks == null) {
+            return;
+        }
+        for (NlmLock l : currentLocks) {
+            if (l.isOverlappingRange(lock) && !l.isSameOwner(lock)) {
+                throw new LockDeniedException("object locked", l);
+            }
+        }
     }
 
     @Override
-    protected void addAll(Opaque objId, Collection<NlmLock> locks) {
-        String key = objIdToKey(objId);
-        locks.forEach(l -> this.locks.put(key, l));
+    public void unlockIfExists(Opaque objId, NlmLock lock) {
+        try {
+            execute(objId, LockOperation.Type.UNLOCK_IF_EXISTS, lock);
+        } catch (LockException e) {
+            // never thrown by UNLOCK_IF_EXISTS
+        }
     }
 
-    @Override
-    protected void removeAll(Opaque objId, Collection<NlmLock> locks) {
-        String key = objIdToKey(objId);
-        locks.forEach(l -> this.locks.remove(key, l));
+    private void execute(Opaque objId, LockOperation.Type type, NlmLock lock) throws LockException {
+        LockException e = locks.executeOnKey(objIdToKey(objId), new LockOperation(type, lock));
+        if (e != null) {
+            throw e;
+        }
     }
 
-    private static String objIdToKey(Opaque objId) {
-      return objId.toBase64();
+    private static byte[] objIdToKey(Opaque objId) {
+        return objId.toBytes();
     }
-
 }
@@ -0,0 +1,133 @@
+/*
+ * Copyright (c) 2026 Deutsches Elektronen-Synchroton,
+ * Member of the Helmholtz Association, (DESY), HAMBURG, GERMANY
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Library General Public License as
+ * published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this program (see the file COPYING.LIB for more
+ * details); if not, write to the Free Software Foundation, Inc.,
+ * 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package org.dcache.nfs.v4.nlm;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.dcache.oncrpc4j.util.Opaque;
+
+import com.hazelcast.map.EntryProcessor;
+
+/**
+ * An {@link EntryProcessor} which applies a lock request to the locks of a single file. The processor runs on the
+ * member owning the entry, which guarantees exclusive access to the entry for the duration of the request.
+ * <p>
+ * The result of the processing is {@code null} if the request has succeeded, or the {@link LockException} to be
+ * thrown to the caller.
+ */
+class LockOperation implements EntryProcessor<byte[], List<NlmLock>, LockException> {
+
+    private static final long serialVersionUID = 4867265385573012311L;
+
+    enum Type {
+        LOCK, UNLOCK, UNLOCK_IF_EXISTS
+    }
+
+    private final Type type;
+    private final NlmLock lock;
+
+    LockOperation(Type type, NlmLock lock) {
+        this.type = type;
+        this.lock = lock;
+    }
+
+    @Override
+    public LockException process(Map.Entry<byte[], List<NlmLock>> entry) {
+
+        List<NlmLock> currentLocks = entry.getValue() == null ? new ArrayList<>() : new ArrayList<>(entry.getValue());
+        if (currentLocks.isEmpty() && type != Type.LOCK) {
+            return type == Type.UNLOCK ? new LockRangeUnavailabeException("no matching lock") : null;
+        }
+
+        EntryLocks entryLocks = new EntryLocks(currentLocks);
+        try {
+            switch (type) {
+                case LOCK:
+                    entryLocks.lock(null, lock);
+                    break;
+                case UNLOCK:
+                    entryLocks.unlock(null, lock);
+                    break;
+                case UNLOCK_IF_EXISTS:
+                    if (!currentLocks.remove(lock)) {
+                        return null;
+                    }
+                    break;
+                default:
+                    throw new IllegalStateException("Unexpected type: " + type);
+            }
+        } catch (LockException e) {
+            return e;
+        }
+
+        // empty entries are removed
+        entry.setValue(currentLocks.isEmpty() ? null : currentLocks);
+        return null;
+    }
+
+    /**
+     * Lock manager over the locks of a single map entry. The entry is already exclusively owned by the processor, thus
+     * the object lock is never contended.
+     */
+    private static class EntryLocks extends AbstractLockManager {
+
+        private final Lock lock = new ReentrantLock();
+        private final List<NlmLock> locks;
+
+        EntryLocks(List<NlmLock> locks) {
+            this.locks = locks;
+        }
+
+        @Override
+        protected Lock getObjectLock(Opaque objId) {
+            return lock;
+        }
+
+        @Override
+        protected Collection<NlmLock> getActiveLocks(Opaque objId) {
+            return locks;
+        }
+
+        @Override
+        protected void add(Opaque objId, NlmLock lock) {
+            locks.add(lock);
+        }
+
+        @Override
+        protected boolean remove(Opaque objId, NlmLock lock) {
+            return locks.remove(lock);
+        }
+
+        @Override
+        protected void addAll(Opaque objId, Collection<NlmLock> locks) {
+            this.locks.addAll(locks);
+        }
+
+        @Override
+        protected void removeAll(Opaque objId, Collection<NlmLock> locks) {
+            this.locks.removeAll(locks);
+        }
+    }
+}
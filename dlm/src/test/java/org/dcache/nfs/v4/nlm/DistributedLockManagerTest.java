@@ -1,5 +1,6 @@
 package org.dcache.nfs.v4.nlm;
 
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 import java.nio.charset.StandardCharsets;
@@ -92,6 +93,71 @@ public class DistributedLockManagerTest {
         }
     }
 
+    @Test
+    public void testSplitLockOnUnlock() throws LockException {
+        NlmLock lock1 = new SimpleLmTest.LockBuilder()
+                .withOwner("owner1")
+                .from(0)
+                .length(10)
+                .forWrite()
+                .build();
+        lm1.lock(file1, lock1);
+
+        NlmLock unlock = new SimpleLmTest.LockBuilder()
+                .withOwner("owner1")
+                .from(4)
+                .length(2)
+                .forWrite()
+                .build();
+        lm2.unlock(file1, unlock);
+
+        NlmLock lock2 = new SimpleLmTest.LockBuilder()
+                .withOwner("owner2")
+                .from(4)
+                .length(2)
+                .forWrite()
+                .build();
+        lm1.lock(file1, lock2);
+
+        try {
+            NlmLock lock3 = new SimpleLmTest.LockBuilder()
+                    .withOwner("owner2")
+                    .from(0)
+                    .length(1)
+                    .forWrite()
+                    .build();
+            lm2.lock(file1, lock3);
+            fail("Lock on remaining range is lost");
+        } catch (LockDeniedException e) {
+            // pass
+        }
+    }
+
+    @Test(expected = LockRangeUnavailabeException.class)
+    public void testUnlockNotExistingLock() throws LockException {
+        NlmLock lock1 = new SimpleLmTest.LockBuilder()
+                .withOwner("owner1")
+                .from(0)
+                .length(1)
+                .forWrite()
+                .build();
+        lm1.unlock(file1, lock1);
+    }
+
+    @Test
+    public void testNoEntryLeftAfterUnlock() throws LockException {
+        NlmLock lock1 = new SimpleLmTest.LockBuilder()
+                .withOwner("owner1")
+                .from(0)
+                .length(1)
+                .forWrite()
+                .build();
+        lm1.lock(file1, lock1);
+        lm2.unlockIfExists(file1, lock1);
+
+        assertTrue(hzClient.getMap("distributed-byte-range-lock").isEmpty());
+    }
+
     @After
     public void tearDown() {
         HazelcastClient.shutdownAll();